@@ -0,0 +1,60 @@
+int count;
+float total;
+int fib(int n)
+{
+    int f;
+    if (n < 2) {
+        f = n;
+    }
+    else {
+        f = fib(n - 1) + fib(n - 2);
+    }
+    return f;
+}
+void tally(int n, float x)
+{
+    count = count + n;
+    total = total + x;
+}
+int main(){
+    int a, b, c, d, e, i;
+    float x, y;
+
+    // Constants of each size.
+    a = 5;
+    b = -100;
+    c = 30000;
+    d = 70000;
+    e = -2147483647;
+    writeln(a, " ", b, " ", c, " ", d, " ", e);
+    x = 0.0;
+    y = 3.25;
+    writeln(x, " ", y, " ", 1.0e10, " ", "a string");
+
+    // Calls, globals, and loops.
+    count = 0;
+    total = 0.0;
+    i = 0;
+    while (i < 12) {
+        tally(fib(i), y);
+        i = i + 1;
+    }
+    writeln(count, " ", total, " ", fib(20));
+
+    // Comparisons and branches.
+    i = 0;
+    while (i < 6) {
+        if ((i == 0) || (i == 5)) {
+            writeln(i, " ends");
+        }
+        else {
+            if (i > 2) {
+                if (i != 4) {
+                    writeln(i, " ", i > 3, " ", y >= i);
+                }
+            }
+        }
+        i = i + 1;
+    }
+    return 0;
+}
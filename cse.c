@@ -0,0 +1,53 @@
+int g, h;
+int bump(int n)
+{
+    g = g + n;
+    return g;
+}
+int same(int n)
+{
+    g = g + 100;
+    return n;
+}
+int f(int i, int j)
+{
+    int s, t, u;
+    s = (i + 1) * (j + 1) + (i + 1);
+    t = (1 + i) * (j + 1) - s;
+    u = g + h + bump(1) + (g + h);
+    writeln(s, " ", t, " ", u, " ", g * h, " ", h * g);
+    s = s + 1;
+    t = (s + 1) * (s + 1);
+    if (i + j > 3) {
+        writeln("big ", i + j);
+    }
+    u = t % 7;
+    writeln(u + 1, " ", u + 1);
+    return t + (i + j);
+}
+int main(){
+    int a, b, r;
+
+    // A call in a divisor changes g.
+    b = 1;
+    g = 5;
+    r = (g + b) + 7 / same(b) + (g + b);
+    writeln(r);
+    r = (g + b) + 7 % same(b) + (g + b);
+    writeln(r);
+
+    // A constant divisor can't.
+    r = (g + b) + (g + b) / 2 + (g + b);
+    writeln(r);
+
+    g = 2;
+    h = 5;
+    a = 0;
+    b = 0;
+    while (b < 6) {
+        a = a + f(b, b + 1) + (g * h) + (g * h);
+        b = b + 1;
+    }
+    writeln(a, " ", b, " ", g);
+    return 0;
+}
@@ -0,0 +1,44 @@
+int k;
+float z;
+int main(){
+    int i, j;
+    float x;
+
+    // Constant operands.
+    i = 2 + 3 * 4 - 10 / 3;
+    j = (7 % 3) * -(2 - 5);
+    writeln(i, " ", j, " ", 2147483647 + 1, " ", -7 / 2, " ", -7 % 2);
+    writeln(6 & 3, " ", 6 | 3, " ", 6 ^ 3, " ", 1 < 2, " ", 2 <= 1);
+    writeln(3 == 3 && 4 != 4, " ", 3 == 3 || 4 != 4, " ", !(1 > 2));
+    x = 1.5 * 4.0 - 0.25;
+    writeln(x, " ", 1.0 < 2.0, " ", 2.5 >= 3.0);
+    writeln(1 > 0 ? 10 : 20, " ", 1 < 0 ? 10 : 20);
+
+    // One constant operand.
+    k = 13;
+    z = 2.5;
+    writeln(k + 0, " ", 0 + k, " ", k - 0, " ", k * 1, " ", 1 * k);
+    writeln(k / 1, " ", k * 8, " ", 4 * k, " ", -k * 2, " ", k * -4);
+    writeln(z * 1.0, " ", 1.0 * z, " ", z - 0.0, " ", -(-z), " ", -(-k));
+    writeln(!(!(k > 3)), " ", k > 3 && 1 == 1, " ", 1 == 2 || k < 3);
+
+    // Constant conditions.
+    if (2 > 1) {
+        writeln("then");
+    }
+    else {
+        writeln("else");
+    }
+    if (2 < 1) {
+        writeln("then");
+    }
+    else {
+        writeln("else");
+    }
+    i = 0;
+    while (1 == 2) {
+        i = i + 1;
+    }
+    writeln(i);
+    return 0;
+}
@@ -0,0 +1,50 @@
+int g, h;
+int bump(int n)
+{
+    g = g + n;
+    return g;
+}
+int f(int n, int m)
+{
+    int i, s, k, d;
+    i = 0;
+    s = 0;
+    k = 3;
+    while (i < n * m) {
+        s = s + (n * m + k) * g;
+        i = i + 1;
+    }
+    do {
+        k = k + 1;
+        s = s + n / 2 + h * h;
+    } while (k > m + 10);
+
+    // The loop doesn't run, so its division by zero mustn't either.
+    d = 0;
+    i = 0;
+    while (i < d) {
+        s = s + 100 / d;
+        i = i + 1;
+    }
+
+    // The call changes g, so g * h isn't invariant.
+    i = 0;
+    while (i < 3) {
+        s = s + g * h + bump(1);
+        i = i + 1;
+    }
+    return s;
+}
+int main(){
+    int a, b;
+    g = 2;
+    h = 5;
+    a = 3;
+    b = 0;
+    while (b < h) {
+        a = a + f(b, 2);
+        writeln(b, " ", a, " ", g);
+        b = b + 1;
+    }
+    return 0;
+}
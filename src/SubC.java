@@ -1,11 +1,17 @@
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
 
 import wci.frontend.*;
+import wci.frontend.subc.AbortTranslationException;
 import wci.intermediate.*;
 import wci.intermediate.symtabimpl.DefinitionImpl;
 import wci.backend.*;
+import wci.backend.compiler.CodeGenerator;
+import wci.backend.compiler.PascalCompilerException;
+import wci.optimizer.Optimizer;
 import wci.message.*;
 import wci.util.*;
 
@@ -28,6 +34,12 @@ public class SubC
     private SymTabStack symTabStack;  // symbol table stack
     private Backend backend;          // backend
 
+    private String operation;         // either "compile" or "execute"
+    private PrintStream out;          // where to print listings and messages
+    private Appendable assemblyOutput;  // in-memory assembly text, or null
+    private OutputStream classOutput;   // in-memory class file, or null
+    private MessageListener messageListener;  // another listener, or null
+
     private boolean intermediate;     // true to print intermediate code
     private boolean xref;             // true to print cross-reference listing
     private boolean lines;            // true to print source line tracing
@@ -35,6 +47,11 @@ public class SubC
     private boolean fetch;            // true to print value fetch tracing
     private boolean call;             // true to print routine call tracing
     private boolean returnn;          // true to print routine return tracing
+    private boolean classFile;        // true to write a .class file directly
+    private boolean pipelined;        // true to scan on a separate thread
+    private boolean flatICode;        // true to store the ICode in arrays
+    private boolean parallel;         // true to parse bodies on all cores
+    private List<String> optimizations;  // -O options, without the -O
     /**
      * Compile or interpret a SubC source program.
      * @param operation either "compile" or "execute".
@@ -43,74 +60,233 @@ public class SubC
      */
     public SubC(String operation, String filePath, String flags)
     {
+        this(operation, filePath, flags, new ArrayList<String>());
+    }
+
+    /**
+     * Compile or interpret a SubC source program.
+     * @param operation either "compile" or "execute".
+     * @param filePath the source file path.
+     * @param flags the command line flags.
+     * @param optimizations the -O options, without the -O.
+     */
+    public SubC(String operation, String filePath, String flags,
+                List<String> optimizations)
+    {
+        this(operation, flags, System.out);
+        setOptimizations(optimizations);
+
         try {
-            intermediate = flags.indexOf('i') > -1;
-            xref         = flags.indexOf('x') > -1;
-            lines        = flags.indexOf('l') > -1;
-            assign       = flags.indexOf('a') > -1;
-            fetch        = flags.indexOf('f') > -1;
-            call         = flags.indexOf('c') > -1;
-            returnn      = flags.indexOf('r') > -1;
-
-            source = new Source(new BufferedReader(new FileReader(filePath)));
+            // The program name is the file name.
+            String progName = new File(filePath).getName().replace(".c", "");
+            translate(progName, new MappedSource(new File(filePath)));
+        }
+        catch (AbortTranslationException ex) {
+            System.exit(ex.getStatus());
+        }
+        catch (PascalCompilerException ex) {
+            out.println("*** " + ex.getMessage());
+            System.exit(1);
+        }
+        catch (Exception ex) {
+            out.println("***** Internal translator error. *****");
+            ex.printStackTrace();
+        }
+    }
+
+    /**
+     * Constructor for a translation that is driven by another component,
+     * such as the compiler server.
+     * @param operation either "compile" or "execute".
+     * @param flags the command line flags.
+     * @param out where to print the listings and messages,
+     *            or null to print nothing.
+     */
+    public SubC(String operation, String flags, PrintStream out)
+    {
+        this.operation = operation;
+        this.out = out;
+
+        intermediate = flags.indexOf('i') > -1;
+        xref         = flags.indexOf('x') > -1;
+        lines        = flags.indexOf('l') > -1;
+        assign       = flags.indexOf('a') > -1;
+        fetch        = flags.indexOf('f') > -1;
+        call         = flags.indexOf('c') > -1;
+        returnn      = flags.indexOf('r') > -1;
+        classFile    = flags.indexOf('b') > -1;
+        pipelined    = flags.indexOf('p') > -1;
+        flatICode    = flags.indexOf('t') > -1;
+        parallel     = flags.indexOf('m') > -1;
+
+        optimizations = new ArrayList<String>();
+    }
+
+    /**
+     * Setter.
+     * @param optimizations the -O options, without the -O.
+     */
+    public void setOptimizations(List<String> optimizations)
+    {
+        this.optimizations = optimizations;
+    }
+
+    /**
+     * Setter.
+     * @param assemblyOutput where to write the Jasmin assembly text
+     *                       instead of to the .j assembly file.
+     */
+    public void setAssemblyOutput(Appendable assemblyOutput)
+    {
+        this.assemblyOutput = assemblyOutput;
+    }
+
+    /**
+     * Setter.
+     * @param classOutput where to write the class file bytes
+     *                    instead of to the .class file.
+     */
+    public void setClassOutput(OutputStream classOutput)
+    {
+        this.classOutput = classOutput;
+    }
+
+    /**
+     * Setter.
+     * @param messageListener another listener of the parser and back end
+     *                        messages, such as a batch compilation that
+     *                        collects them.
+     */
+    public void setMessageListener(MessageListener messageListener)
+    {
+        this.messageListener = messageListener;
+    }
+
+    /**
+     * Compile or interpret a SubC source program.
+     * @param progName the program name.
+     * @param source the source program.
+     * @throws Exception if an error occurred.
+     */
+    public void translate(String progName, Source source)
+        throws Exception
+    {
+        this.source = source;
+        if (out != null) {
             source.addMessageListener(new SourceMessageListener());
+        }
 
-            parser = FrontendFactory.createParser("SubC", "top-down", source);
-            parser.addMessageListener(new ParserMessageListener());
+        // Each compilation has its own context.
+        CompilationContext context = new CompilationContext();
+        if (flatICode) {
+            context.useFlatICode();
+        }
+        if (parallel) {
+            context.useParallelParsing(
+                Runtime.getRuntime().availableProcessors());
+        }
 
-            backend = BackendFactory.createBackend(operation);
+        parser = FrontendFactory.createParser("SubC", "top-down", source,
+                                              context, pipelined);
+        backend = BackendFactory.createBackend(operation, classFile,
+                                               context);
+
+        if (out != null) {
+            parser.addMessageListener(new ParserMessageListener());
             backend.addMessageListener(new BackendMessageListener());
+        }
+        if (messageListener != null) {
+            parser.addMessageListener(messageListener);
+            backend.addMessageListener(messageListener);
+        }
 
-            // Create a dummy program identifier symbol table entry using the file name
-            String progName = new File(filePath).getName().replace(".c", "");
-            SymTabEntry routineId = parser.getSymTabStack().enterLocal(progName);
-            routineId.setDefinition(DefinitionImpl.PROGRAM);
-            parser.getSymTabStack().setProgramId(routineId);
+        if (backend instanceof CodeGenerator) {
+            CodeGenerator codeGenerator = (CodeGenerator) backend;
+            codeGenerator.setAssemblyOutput(assemblyOutput);
+            codeGenerator.setClassOutput(classOutput);
+        }
+
+        // Create a dummy program identifier symbol table entry.
+        SymTabEntry routineId = parser.getSymTabStack().enterLocal(progName);
+        routineId.setDefinition(DefinitionImpl.PROGRAM);
+        parser.getSymTabStack().setProgramId(routineId);
 
+        try {
             parser.parse();
+        }
+        finally {
+            parser.getScanner().close();
             source.close();
+        }
 
-            if (parser.getErrorCount() == 0) {
-                symTabStack = parser.getSymTabStack();
+        if (parser.getErrorCount() == 0) {
+            symTabStack = parser.getSymTabStack();
 
-                SymTabEntry programId = symTabStack.getProgramId();
-                iCode = (ICode) programId.getAttribute(ROUTINE_ICODE);
+            Optimizer optimizer = new Optimizer(context);
+            optimizer.setOptions(optimizations);
+            if (out != null) {
+                optimizer.addMessageListener(new OptimizerMessageListener());
+            }
+            optimizer.process(symTabStack);
 
-                if (xref) {
-                    CrossReferencer crossReferencer =
-                                        new CrossReferencer();
-                    crossReferencer.print(symTabStack);
-                }
+            SymTabEntry programId = symTabStack.getProgramId();
+            iCode = (ICode) programId.getAttribute(ROUTINE_ICODE);
 
-                if (intermediate) {
-                    ParseTreePrinter treePrinter =
-                                         new ParseTreePrinter(System.out);
-                    treePrinter.print(symTabStack);
-                }
+            if (xref) {
+                CrossReferencer crossReferencer =
+                                    new CrossReferencer(out);
+                crossReferencer.print(symTabStack);
+            }
 
-                backend.process(iCode, symTabStack);
+            if (intermediate) {
+                ParseTreePrinter treePrinter =
+                                     new ParseTreePrinter(out);
+                treePrinter.print(symTabStack);
             }
-          }
-        catch (Exception ex) {
-            System.out.println("***** Internal translator error. *****");
-            ex.printStackTrace();
+
+            backend.process(iCode, symTabStack);
         }
     }
 
-    private static final String FLAGS = "[-ixlafcr]";
+    private static final String FLAGS =
+        "[-ixlafcrbptm] [-O0|-O1|-O2] [-O<pass>|-Ono-<pass> ...]";
+    private static final String BATCH_FLAGS = "[-bt] [-jworkers]";
     private static final String USAGE =
-        "Usage: SubC execute|compile " + FLAGS + " <source file path>";
+        "Usage: SubC execute|compile " + FLAGS + " <source file path>\n" +
+        "       SubC compile " + BATCH_FLAGS +
+        " <source files, directories, or @response files>\n" +
+        "       SubC serve [port]";
 
     /**
      * The main method.
      * @param args command-line arguments: "compile" or "execute" followed by
-     *             optional flags followed by the source file path.
+     *             optional flags followed by the source file path.  The
+     *             flags of a single program may include -O options, which
+     *             set the optimization level and switch passes on or off.
+     *             To compile a batch of programs, the flags may include -j
+     *             followed by the number of workers, and there may be
+     *             several source paths, directories of source files, or
+     *             response files whose names start with @.  Or "serve"
+     *             followed by an optional port to run the compiler server.
      */
     public static void main(String args[])
     {
         try {
             String operation = args[0];
 
+            // Compiler server.
+            if (operation.equalsIgnoreCase("serve") && (args.length <= 2)) {
+                int port = args.length == 2 ? Integer.parseInt(args[1])
+                                            : SubCServer.DEFAULT_PORT;
+                try {
+                    new SubCServer(port).serve();
+                }
+                catch (java.io.IOException ex) {
+                    System.out.println("*** Cannot serve: " + ex);
+                }
+                return;
+            }
+
             // Operation.
             if (!(   operation.equalsIgnoreCase("compile")
                   || operation.equalsIgnoreCase("execute"))) {
@@ -119,16 +295,49 @@ public class SubC
 
             int i = 0;
             String flags = "";
+            int workerCount = 0;
+            ArrayList<String> optimizations = new ArrayList<String>();
 
             // Flags.
             while ((++i < args.length) && (args[i].charAt(0) == '-')) {
-                flags += args[i].substring(1);
+                if (args[i].startsWith("-j")) {
+                    workerCount = Integer.parseInt(args[i].substring(2));
+                    if (workerCount < 1) {
+                        throw new Exception();
+                    }
+                }
+                else if (args[i].startsWith("-O")) {
+                    optimizations.add(args[i].substring(2));
+                }
+                else {
+                    flags += args[i].substring(1);
+                }
+            }
+
+            // Source paths.
+            ArrayList<String> paths = new ArrayList<String>();
+            while (i < args.length) {
+                paths.add(args[i++]);
             }
 
-            // Source path.
-            if (i < args.length) {
-                String path = args[i];
-                new SubC(operation, path, flags);
+            // Unknown -O options.
+            new Optimizer(new CompilationContext()).setOptions(optimizations);
+
+            if (paths.isEmpty()) {
+                throw new Exception();
+            }
+
+            // A single source file.
+            else if (   (paths.size() == 1) && (workerCount == 0)
+                     && !SubCBatch.isBatchPath(paths.get(0))) {
+                new SubC(operation, paths.get(0), flags, optimizations);
+            }
+
+            // A batch of source files.
+            else if (   operation.equalsIgnoreCase("compile")
+                     && flags.replaceAll("[bt]", "").isEmpty()
+                     && optimizations.isEmpty()) {
+                new SubCBatch(flags, workerCount).compile(paths);
             }
             else {
                 throw new Exception();
@@ -161,7 +370,7 @@ public class SubC
                     int lineNumber = (Integer) body[0];
                     String lineText = (String) body[1];
 
-                    System.out.println(String.format(SOURCE_LINE_FORMAT,
+                    out.println(String.format(SOURCE_LINE_FORMAT,
                                                      lineNumber, lineText));
                     break;
                 }
@@ -197,7 +406,7 @@ public class SubC
                     int syntaxErrors = (Integer) body[1];
                     float elapsedTime = (Float) body[2];
 
-                    System.out.printf(PARSER_SUMMARY_FORMAT,
+                    out.printf(PARSER_SUMMARY_FORMAT,
                                       statementCount, syntaxErrors,
                                       elapsedTime);
                     break;
@@ -227,7 +436,44 @@ public class SubC
                             .append("\"]");
                     }
 
-                    System.out.println(flagBuffer.toString());
+                    out.println(flagBuffer.toString());
+                    break;
+                }
+            }
+        }
+    }
+
+    private static final String OPTIMIZER_PASS_FORMAT =
+        "\n%20s optimization pass." +
+        "\n%,20d nodes before." +
+        "\n%,20d nodes after." +
+        "\n%,20.2f seconds total pass time.\n";
+
+    /**
+     * Listener for optimizer messages.
+     */
+    private class OptimizerMessageListener implements MessageListener
+    {
+        /**
+         * Called by the optimizer after each pass.
+         * @param message the message.
+         */
+        public void messageReceived(Message message)
+        {
+            MessageType type = message.getType();
+
+            switch (type) {
+
+                case OPTIMIZER_PASS: {
+                    Object body[] = (Object[]) message.getBody();
+                    String passName = (String) body[0];
+                    int nodesBefore = (Integer) body[1];
+                    int nodesAfter = (Integer) body[2];
+                    float elapsedTime = (Float) body[3];
+
+                    out.printf(OPTIMIZER_PASS_FORMAT,
+                                      passName, nodesBefore, nodesAfter,
+                                      elapsedTime);
                     break;
                 }
             }
@@ -279,7 +525,7 @@ public class SubC
                     if (lines) {
                         int lineNumber = (Integer) message.getBody();
 
-                        System.out.printf(LINE_FORMAT, lineNumber);
+                        out.printf(LINE_FORMAT, lineNumber);
                     }
                     break;
                 }
@@ -291,7 +537,7 @@ public class SubC
                         String variableName = (String) body[1];
                         Object value = body[2];
 
-                        System.out.printf(ASSIGN_FORMAT,
+                        out.printf(ASSIGN_FORMAT,
                                           lineNumber, variableName, value);
                     }
                     break;
@@ -304,7 +550,7 @@ public class SubC
                         String variableName = (String) body[1];
                         Object value = body[2];
 
-                        System.out.printf(FETCH_FORMAT,
+                        out.printf(FETCH_FORMAT,
                                           lineNumber, variableName, value);
                     }
                     break;
@@ -316,7 +562,7 @@ public class SubC
                         int lineNumber = (Integer) body[0];
                         String routineName = (String) body[1];
 
-                        System.out.printf(CALL_FORMAT,
+                        out.printf(CALL_FORMAT,
                                           lineNumber, routineName);
                     }
                     break;
@@ -328,7 +574,7 @@ public class SubC
                         int lineNumber = (Integer) body[0];
                         String routineName = (String) body[1];
 
-                        System.out.printf(RETURN_FORMAT,
+                        out.printf(RETURN_FORMAT,
                                           lineNumber, routineName);
                     }
                     break;
@@ -339,12 +585,12 @@ public class SubC
                     String errorMessage = (String) body[0];
                     Integer lineNumber = (Integer) body[1];
 
-                    System.out.print("*** RUNTIME ERROR");
+                    out.print("*** RUNTIME ERROR");
                     if (lineNumber != null) {
-                        System.out.print(" AT LINE " +
+                        out.print(" AT LINE " +
                                          String.format("%03d", lineNumber));
                     }
-                    System.out.println(": " + errorMessage);
+                    out.println(": " + errorMessage);
                     break;
                 }
 
@@ -354,7 +600,7 @@ public class SubC
                     int runtimeErrors = (Integer) body[1];
                     float elapsedTime = (Float) body[2];
 
-                    System.out.printf(INTERPRETER_SUMMARY_FORMAT,
+                    out.printf(INTERPRETER_SUMMARY_FORMAT,
                                       executionCount, runtimeErrors,
                                       elapsedTime);
                     break;
@@ -365,7 +611,7 @@ public class SubC
                     int instructionCount = (Integer) body[0];
                     float elapsedTime = (Float) body[1];
 
-                    System.out.printf(COMPILER_SUMMARY_FORMAT,
+                    out.printf(COMPILER_SUMMARY_FORMAT,
                                       instructionCount, elapsedTime);
                     break;
                 }
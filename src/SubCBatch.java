@@ -0,0 +1,421 @@
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import wci.frontend.MappedSource;
+import wci.frontend.subc.AbortTranslationException;
+import wci.backend.compiler.PascalCompilerException;
+import wci.message.*;
+
+/**
+ * <h1>SubCBatch</h1>
+ *
+ * <p>Compile a batch of SubC source programs on a pool of worker threads.
+ * Each program is translated by its own SubC object, which gives it its
+ * own compilation context, and its .j or .class file is written when its
+ * translation succeeds.  The messages of each compilation are collected
+ * and printed together with an aggregated summary after the whole batch
+ * is done.</p>
+ *
+ * <p>Copyright (c) 2009 by Ronald Mak</p>
+ * <p>For instructional purposes only.  No warranties.</p>
+ */
+public class SubCBatch
+{
+    private static final String SOURCE_SUFFIX = ".c";
+
+    private String flags;       // command line flags
+    private int workerCount;    // number of worker threads
+
+    /**
+     * Constructor.
+     * @param flags the command line flags.
+     * @param workerCount the number of worker threads,
+     *                    or 0 for one per available processor.
+     */
+    public SubCBatch(String flags, int workerCount)
+    {
+        this.flags = flags;
+        this.workerCount = workerCount > 0
+                               ? workerCount
+                               : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Determine whether a path names more than one source file.
+     * @param path the path.
+     * @return true if it is a directory or a response file.
+     */
+    public static boolean isBatchPath(String path)
+    {
+        return path.startsWith("@") || new File(path).isDirectory();
+    }
+
+    /**
+     * Compile a batch of source programs.
+     * @param paths source file paths, directories of source files,
+     *              and response files whose names start with @.
+     * @throws Exception if an error occurred.
+     */
+    public void compile(List<String> paths)
+        throws Exception
+    {
+        long startTime = System.currentTimeMillis();
+        ArrayList<File> files = new ArrayList<File>();
+
+        try {
+            for (String path : paths) {
+                expandPath(path, files);
+            }
+        }
+        catch (IOException ex) {
+            System.out.println("*** Cannot read " + ex.getMessage());
+            return;
+        }
+
+        ArrayList<Compilation> compilations = new ArrayList<Compilation>();
+        HashSet<String> programNames = new HashSet<String>();
+
+        for (File file : files) {
+            Compilation compilation = new Compilation(file);
+
+            // Programs with the same name would overwrite each other's output.
+            if (!programNames.add(compilation.programName)) {
+                compilation.fail("Duplicate program name " +
+                                 compilation.programName);
+            }
+
+            compilations.add(compilation);
+        }
+
+        // Compile on the worker pool.
+        ExecutorService workers = Executors.newFixedThreadPool(workerCount);
+        ArrayList<Compilation> submitted = new ArrayList<Compilation>();
+        ArrayList<Future<?>> futures = new ArrayList<Future<?>>();
+
+        try {
+            for (Compilation compilation : compilations) {
+                if (!compilation.failed) {
+                    submitted.add(compilation);
+                    futures.add(workers.submit(compilation));
+                }
+            }
+
+            // An error, such as a stack overflow, fails only its own file.
+            for (int i = 0; i < futures.size(); ++i) {
+                try {
+                    futures.get(i).get();
+                }
+                catch (ExecutionException ex) {
+                    submitted.get(i).fail("Internal translator error: " +
+                                          ex.getCause());
+                }
+            }
+        }
+        finally {
+            workers.shutdown();
+        }
+
+        float elapsedTime = (System.currentTimeMillis() - startTime)/1000f;
+        printSummary(compilations, elapsedTime);
+    }
+
+    /**
+     * Add the source files named by a path.
+     * @param path a source file path, a directory of source files,
+     *             or a response file name that starts with @.
+     * @param files the list of source files to add to.
+     * @throws IOException if a response file could not be read.
+     */
+    private void expandPath(String path, List<File> files)
+        throws IOException
+    {
+        // Response file:  One path per line.
+        if (path.startsWith("@")) {
+            String responseFileName = path.substring(1);
+            BufferedReader reader;
+
+            try {
+                reader = new BufferedReader(new FileReader(responseFileName));
+            }
+            catch (IOException ex) {
+                throw new IOException(responseFileName, ex);
+            }
+
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    line = line.trim();
+
+                    // Skip blank lines and comments.
+                    if ((line.length() > 0) && !line.startsWith("#")) {
+                        expandPath(line, files);
+                    }
+                }
+            }
+            finally {
+                reader.close();
+            }
+        }
+
+        // Directory:  All of its source files, including subdirectories.
+        else if (new File(path).isDirectory()) {
+            expandDirectory(new File(path), files);
+        }
+
+        // Source file.
+        else {
+            files.add(new File(path));
+        }
+    }
+
+    /**
+     * Add the source files of a directory and its subdirectories
+     * in name order.
+     * @param directory the directory.
+     * @param files the list of source files to add to.
+     */
+    private void expandDirectory(File directory, List<File> files)
+    {
+        File entries[] = directory.listFiles();
+        if (entries == null) {
+            return;
+        }
+
+        Arrays.sort(entries);
+
+        for (File entry : entries) {
+            if (entry.isDirectory()) {
+                expandDirectory(entry, files);
+            }
+            else if (entry.getName().endsWith(SOURCE_SUFFIX)) {
+                files.add(entry);
+            }
+        }
+    }
+
+    private static final String FILE_HEADER_FORMAT =
+        "\n%10s %8s %14s %9s %9s %9s  %s\n";
+
+    private static final String FILE_FORMAT =
+        "%,10d %,8d %,14d %9.2f %9.2f %9.2f  %s\n";
+
+    private static final String BATCH_SUMMARY_FORMAT =
+        "\n%,20d source files." +
+        "\n%,20d source files with errors." +
+        "\n%,20d source lines." +
+        "\n%,20d syntax errors." +
+        "\n%,20.2f seconds total parsing time." +
+        "\n%,20d instructions generated." +
+        "\n%,20.2f seconds total code generation time." +
+        "\n%,20.2f seconds elapsed time with %d workers.\n";
+
+    /**
+     * Print the messages of the failed compilations, a line of counts
+     * and timings for each source file, and the batch totals.
+     * @param compilations the compilations in source file order.
+     * @param elapsedTime the elapsed time of the whole batch.
+     */
+    private void printSummary(List<Compilation> compilations,
+                              float elapsedTime)
+    {
+        int failedCount = 0;
+        int lineCount = 0;
+        int syntaxErrors = 0;
+        int instructionCount = 0;
+        float parseTime = 0;
+        float codeTime = 0;
+
+        for (Compilation compilation : compilations) {
+            if (compilation.messages.length() > 0) {
+                System.out.println();
+                System.out.print(compilation.messages);
+            }
+        }
+
+        System.out.printf(FILE_HEADER_FORMAT, "Lines", "Errors",
+                          "Instructions", "Parse", "Code", "Total", "File");
+
+        for (Compilation compilation : compilations) {
+            System.out.printf(FILE_FORMAT, compilation.lineCount,
+                              compilation.syntaxErrors,
+                              compilation.instructionCount,
+                              compilation.parseTime, compilation.codeTime,
+                              compilation.totalTime,
+                              compilation.file.getPath());
+
+            if (compilation.failed || (compilation.syntaxErrors > 0)) {
+                ++failedCount;
+            }
+
+            lineCount += compilation.lineCount;
+            syntaxErrors += compilation.syntaxErrors;
+            instructionCount += compilation.instructionCount;
+            parseTime += compilation.parseTime;
+            codeTime += compilation.codeTime;
+        }
+
+        System.out.printf(BATCH_SUMMARY_FORMAT, compilations.size(),
+                          failedCount, lineCount, syntaxErrors, parseTime,
+                          instructionCount, codeTime, elapsedTime,
+                          workerCount);
+    }
+
+    /**
+     * The compilation of one source file.  It listens to the parser and
+     * back end of its own translation, so its messages are never
+     * interleaved with the messages of the other compilations.
+     */
+    private class Compilation implements Runnable, MessageListener
+    {
+        private File file;                // source file
+        private String programName;       // program name
+        private StringBuilder messages;   // error messages
+        private boolean failed;           // true if the compilation failed
+
+        private int lineCount;            // count of source lines
+        private int syntaxErrors;         // count of syntax errors
+        private int instructionCount;     // count of generated instructions
+        private float parseTime;          // parsing time in seconds
+        private float codeTime;           // code generation time in seconds
+        private float totalTime;          // elapsed time in seconds
+
+        /**
+         * Constructor.
+         * @param file the source file.
+         */
+        public Compilation(File file)
+        {
+            this.file = file;
+            this.programName = file.getName().replace(SOURCE_SUFFIX, "");
+            this.messages = new StringBuilder();
+            this.failed = false;
+        }
+
+        /**
+         * Compile the source file.
+         */
+        public void run()
+        {
+            long startTime = System.currentTimeMillis();
+
+            try {
+                // No listings:  The messages come to this listener.
+                SubC subC = new SubC("compile", flags, (PrintStream) null);
+                StringBuilder assemblyText = new StringBuilder();
+                ByteArrayOutputStream classBytes = new ByteArrayOutputStream();
+                subC.setMessageListener(this);
+                subC.setAssemblyOutput(assemblyText);
+                subC.setClassOutput(classBytes);
+
+                subC.translate(programName, new MappedSource(file));
+
+                if (assemblyText.length() > 0) {
+                    Writer assemblyFile = new FileWriter(programName + ".j");
+                    try {
+                        assemblyFile.append(assemblyText);
+                    }
+                    finally {
+                        assemblyFile.close();
+                    }
+                }
+                if (classBytes.size() > 0) {
+                    FileOutputStream classFile =
+                        new FileOutputStream(programName + ".class");
+                    try {
+                        classBytes.writeTo(classFile);
+                    }
+                    finally {
+                        classFile.close();
+                    }
+                }
+            }
+            catch (FileNotFoundException ex) {
+                fail("Cannot read the source file");
+            }
+            catch (AbortTranslationException ex) {
+                failed = true;  // already reported as a syntax error
+            }
+            catch (PascalCompilerException ex) {
+                fail(ex.getMessage());
+            }
+            catch (Exception ex) {
+                fail("Internal translator error: " + ex);
+            }
+
+            totalTime = (System.currentTimeMillis() - startTime)/1000f;
+        }
+
+        /**
+         * Record a failure of the compilation.
+         * @param errorMessage the error message.
+         */
+        private void fail(String errorMessage)
+        {
+            failed = true;
+            messages.append(file.getPath()).append(": *** ")
+                    .append(errorMessage).append('\n');
+        }
+
+        /**
+         * Called by the parser or the back end whenever it produces
+         * a message.
+         * @param message the message.
+         */
+        public void messageReceived(Message message)
+        {
+            switch (message.getType()) {
+
+                case PARSER_SUMMARY: {
+                    Number body[] = (Number[]) message.getBody();
+                    lineCount = (Integer) body[0];
+                    syntaxErrors = (Integer) body[1];
+                    parseTime = (Float) body[2];
+                    break;
+                }
+
+                case SYNTAX_ERROR: {
+                    Object body[] = (Object []) message.getBody();
+                    int lineNumber = (Integer) body[0];
+                    String tokenText = (String) body[2];
+                    String errorMessage = (String) body[3];
+
+                    messages.append(file.getPath()).append(':')
+                            .append(String.format("%03d", lineNumber))
+                            .append(": *** ").append(errorMessage);
+
+                    // Text, if any, of the bad token.
+                    if ((tokenText != null) && (tokenText.length() > 0)) {
+                        messages.append(" [at \"").append(tokenText)
+                                .append("\"]");
+                    }
+
+                    messages.append('\n');
+                    break;
+                }
+
+                case COMPILER_SUMMARY: {
+                    Number body[] = (Number[]) message.getBody();
+                    instructionCount = (Integer) body[0];
+                    codeTime = (Float) body[1];
+                    break;
+                }
+            }
+        }
+    }
+}
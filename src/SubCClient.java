@@ -0,0 +1,177 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <h1>SubCClient</h1>
+ *
+ * <p>A thin client that sends a compile request to a running SubCServer,
+ * prints the listings and messages that come back, and writes the
+ * generated .j or .class file into the current directory.  It uses
+ * none of the compiler's own classes, so it starts quickly.</p>
+ *
+ * <p>Copyright (c) 2009 by Ronald Mak</p>
+ * <p>For instructional purposes only.  No warranties.</p>
+ */
+public class SubCClient
+{
+    private static final String USAGE =
+        "Usage: SubCClient [-pport] compile [-ixlafcrbpt] [-O0|-O1|-O2]\n" +
+        "                  [-O<pass>|-Ono-<pass> ...] <source file path>";
+
+    /**
+     * The main method.
+     * @param args command-line arguments: an optional server port,
+     *             then the same arguments as for SubC.
+     */
+    public static void main(String args[])
+    {
+        int port = SubCServer.DEFAULT_PORT;
+        int i = 0;
+
+        try {
+            // Server port.
+            if ((i < args.length) && args[i].startsWith("-p")) {
+                port = Integer.parseInt(args[i++].substring(2));
+            }
+
+            // Operation.
+            String operation = args[i];
+
+            // Flags.
+            String flags = "";
+            ArrayList<String> optimizations = new ArrayList<String>();
+            while ((++i < args.length) && (args[i].charAt(0) == '-')) {
+                if (args[i].startsWith("-O")) {
+                    optimizations.add(args[i].substring(2));
+                }
+                else {
+                    flags += args[i].substring(1);
+                }
+            }
+
+            // Source path.
+            if (i != args.length - 1) {
+                throw new Exception();
+            }
+
+            System.exit(compile(port, operation, flags, optimizations,
+                                args[i]));
+        }
+        catch (ConnectException ex) {
+            System.out.println("*** No SubC server on port " + port +
+                               ".  Start one with: java SubC serve " + port);
+            System.exit(1);
+        }
+        catch (IOException ex) {
+            System.out.println("*** " + ex);
+            System.exit(1);
+        }
+        catch (Exception ex) {
+            System.out.println(USAGE);
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Send a source program to the server and process the response.
+     * @param port the server port.
+     * @param operation the operation.
+     * @param flags the command line flags.
+     * @param optimizations the -O options, without the -O.
+     * @param filePath the source file path.
+     * @return the exit status.
+     * @throws IOException if an I/O error occurred.
+     */
+    private static int compile(int port, String operation, String flags,
+                               List<String> optimizations, String filePath)
+        throws IOException
+    {
+        File file = new File(filePath);
+        byte text[] = readFile(file);
+
+        Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+
+        try {
+            socket.setTcpNoDelay(true);
+            DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(socket.getOutputStream()));
+            DataInputStream in = new DataInputStream(
+                new BufferedInputStream(socket.getInputStream()));
+
+            // Send the request.
+            out.writeUTF(operation);
+            out.writeUTF(flags);
+            out.writeInt(optimizations.size());
+            for (String optimization : optimizations) {
+                out.writeUTF(optimization);
+            }
+            out.writeByte(SubCServer.SOURCE_TEXT);
+            out.writeUTF(file.getName().replace(".c", ""));
+            out.writeInt(text.length);
+            out.write(text);
+            out.flush();
+
+            // Process the response frames.
+            while (true) {
+                int kind = in.readByte();
+
+                if (kind == SubCServer.OUTPUT) {
+                    byte output[] = new byte[in.readInt()];
+                    in.readFully(output);
+                    System.out.write(output);
+                    System.out.flush();
+                }
+                else if (kind == SubCServer.ARTIFACT) {
+                    String name = in.readUTF();
+                    byte contents[] = new byte[in.readInt()];
+                    in.readFully(contents);
+
+                    FileOutputStream artifact = new FileOutputStream(name);
+                    artifact.write(contents);
+                    artifact.close();
+                }
+                else if (kind == SubCServer.END) {
+                    return in.readInt();
+                }
+                else {
+                    throw new IOException("Bad response from the server");
+                }
+            }
+        }
+        finally {
+            socket.close();
+        }
+    }
+
+    /**
+     * Read the contents of a file.
+     * @param file the file.
+     * @return the contents.
+     * @throws IOException if an I/O error occurred.
+     */
+    private static byte[] readFile(File file)
+        throws IOException
+    {
+        RandomAccessFile input = new RandomAccessFile(file, "r");
+
+        try {
+            byte contents[] = new byte[(int) input.length()];
+            input.readFully(contents);
+            return contents;
+        }
+        finally {
+            input.close();
+        }
+    }
+}
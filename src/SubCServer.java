@@ -0,0 +1,402 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+import wci.frontend.MappedSource;
+import wci.frontend.Source;
+import wci.frontend.subc.AbortTranslationException;
+import wci.backend.compiler.PascalCompilerException;
+import wci.intermediate.CompilationContext;
+import wci.optimizer.Optimizer;
+
+/**
+ * <h1>SubCServer</h1>
+ *
+ * <p>A long-running compiler server that keeps a warmed-up compiler
+ * resident and accepts compile requests from SubCClient over a loopback
+ * socket.  Each request is translated on a worker thread with its own
+ * compilation context.  The listings and messages are streamed back to
+ * the client as they are printed, followed by the generated .j or
+ * .class file and the exit status.</p>
+ *
+ * <p>A request is read on a thread of its own, and a client that sends
+ * nothing for REQUEST_TIMEOUT milliseconds is dropped, so an idle client
+ * can't hold up the others.  Only as many requests as there are
+ * processors are translated at the same time.</p>
+ *
+ * <p>The client sends the source text.  The server never opens a file
+ * that a client names, since any local user can connect to it.</p>
+ *
+ * <p>Each request is:</p>
+ * <pre>
+ *     UTF operation, UTF flags,
+ *     int count, count UTF -O options without the -O,
+ *     SOURCE_TEXT, UTF program name, int length, source text bytes
+ * </pre>
+ * <p>Each response is any number of OUTPUT and ARTIFACT frames,
+ * and then an END frame:</p>
+ * <pre>
+ *     OUTPUT, int length, UTF-8 text
+ *     ARTIFACT, UTF file name, int length, bytes
+ *     END, int exit status
+ * </pre>
+ *
+ * <p>Copyright (c) 2009 by Ronald Mak</p>
+ * <p>For instructional purposes only.  No warranties.</p>
+ */
+public class SubCServer
+{
+    public static final int DEFAULT_PORT = 7421;
+
+    // Request source kind.
+    public static final int SOURCE_TEXT = 'T';
+
+    // Response frame kinds.
+    public static final int OUTPUT   = 'O';
+    public static final int ARTIFACT = 'A';
+    public static final int END      = 'E';
+
+    private static final String ENCODING = "UTF-8";
+    private static final int WARM_UP_COUNT = 50;
+    private static final int FRAME_SIZE = 8*1024;
+    private static final int REQUEST_TIMEOUT = 30*1000;  // milliseconds
+    private static final int MAX_SOURCE_SIZE = 16*1024*1024;
+
+    private static final String WARM_UP_PROGRAM =
+        "int square(int n)\n" +
+        "{\n" +
+        "    return n*n;\n" +
+        "}\n" +
+        "int main(){\n" +
+        "    int i, sum;\n" +
+        "    float x;\n" +
+        "    i = 0;\n" +
+        "    sum = 0;\n" +
+        "    x = 1.5;\n" +
+        "    while (i < 10) {\n" +
+        "        if (i > 5) sum = sum + square(i);\n" +
+        "        else sum = sum - i;\n" +
+        "        i = i + 1;\n" +
+        "    }\n" +
+        "    do {\n" +
+        "        x = x*2;\n" +
+        "    } while (x < 100);\n" +
+        "    writeln(\"sum = \", sum, \", x = \", x);\n" +
+        "    return 0;\n" +
+        "}\n";
+
+    private int port;                 // loopback port to listen on
+    private ExecutorService workers;  // threads that serve requests
+    private Semaphore translators;    // permits to translate a request
+
+    /**
+     * Constructor.
+     * @param port the loopback port to listen on.
+     */
+    public SubCServer(int port)
+    {
+        this.port = port;
+        this.workers = Executors.newCachedThreadPool();
+        this.translators = new Semaphore(
+                               Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Warm up the compiler and then serve requests until the process
+     * is killed.
+     * @throws IOException if an I/O error occurred.
+     */
+    public void serve()
+        throws IOException
+    {
+        ServerSocket serverSocket =
+            new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+
+        warmUp();
+        System.out.println("SubC server listening on " +
+                           serverSocket.getInetAddress().getHostAddress() +
+                           ":" + serverSocket.getLocalPort());
+
+        while (true) {
+            workers.execute(new Request(serverSocket.accept()));
+        }
+    }
+
+    /**
+     * Load the compiler's classes and let the JIT compile the hot paths
+     * by translating a small program in memory several times.
+     */
+    private void warmUp()
+    {
+        PrintStream discard = new PrintStream(new ByteArrayOutputStream());
+
+        for (int i = 0; i < WARM_UP_COUNT; ++i) {
+            try {
+                SubC subC = new SubC("compile", i%2 == 0 ? "" : "b", discard);
+                subC.setAssemblyOutput(new StringBuilder());
+                subC.setClassOutput(new ByteArrayOutputStream());
+                subC.translate("warmup",
+                               new MappedSource(WARM_UP_PROGRAM.getBytes()));
+            }
+            catch (Exception ex) {
+                System.out.println("*** Warm-up failed: " + ex);
+                return;
+            }
+        }
+    }
+
+    /**
+     * A compile request from a client.
+     */
+    private class Request implements Runnable
+    {
+        private Socket socket;         // connection to the client
+        private DataOutputStream out;  // response stream
+
+        /**
+         * Constructor.
+         * @param socket the connection to the client.
+         */
+        public Request(Socket socket)
+        {
+            this.socket = socket;
+        }
+
+        /**
+         * Read the request, translate the source program,
+         * and send back the response.
+         */
+        public void run()
+        {
+            try {
+                socket.setTcpNoDelay(true);
+                socket.setSoTimeout(REQUEST_TIMEOUT);
+                DataInputStream in = new DataInputStream(
+                    new BufferedInputStream(socket.getInputStream()));
+                out = new DataOutputStream(
+                    new BufferedOutputStream(socket.getOutputStream()));
+
+                String operation = in.readUTF();
+                String flags = in.readUTF();
+
+                ArrayList<String> optimizations = new ArrayList<String>();
+                for (int count = in.readInt(); count > 0; --count) {
+                    optimizations.add(in.readUTF());
+                }
+
+                // Source program text sent by the client.
+                if (in.readByte() != SOURCE_TEXT) {
+                    badRequest();
+                    return;
+                }
+
+                String progName = in.readUTF();
+                int length = in.readInt();
+
+                if ((length < 0) || (length > MAX_SOURCE_SIZE)) {
+                    badRequest();
+                    return;
+                }
+
+                byte text[] = new byte[length];
+                in.readFully(text);
+                Source source = new MappedSource(text);
+
+                // Wait for a permit only after the whole request is in.
+                translators.acquire();
+                try {
+                    finish(translate(operation, flags, optimizations,
+                                     progName, source));
+                }
+                finally {
+                    translators.release();
+                }
+            }
+            catch (SocketTimeoutException ex) {
+                // The client sent nothing for too long.  Drop it.
+            }
+            catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            catch (IOException ex) {
+                // The client went away.  There is no one to report to.
+            }
+            finally {
+                try {
+                    socket.close();
+                }
+                catch (IOException ex) {
+                }
+            }
+        }
+
+        /**
+         * Tell the client that its request is malformed.
+         * @throws IOException if an I/O error occurred.
+         */
+        private void badRequest()
+            throws IOException
+        {
+            byte message[] = "*** Bad request.\n".getBytes(ENCODING);
+            out.writeByte(OUTPUT);
+            out.writeInt(message.length);
+            out.write(message);
+            finish(1);
+        }
+
+        /**
+         * Send the END frame.
+         * @param status the exit status.
+         * @throws IOException if an I/O error occurred.
+         */
+        private void finish(int status)
+            throws IOException
+        {
+            out.writeByte(END);
+            out.writeInt(status);
+            out.flush();
+        }
+
+        /**
+         * Translate the source program and send back the listings,
+         * the messages, and the generated code.
+         * @param operation the operation, which must be "compile".
+         * @param flags the command line flags.
+         * @param optimizations the -O options, without the -O.
+         * @param progName the program name.
+         * @param source the source program.
+         * @return the exit status.
+         * @throws IOException if an I/O error occurred.
+         */
+        private int translate(String operation, String flags,
+                              List<String> optimizations,
+                              String progName, Source source)
+            throws IOException
+        {
+            PrintStream printStream =
+                new PrintStream(new OutputFrameStream(), false, ENCODING);
+
+            // A program cannot run inside the server since it would need
+            // the client's standard input and output.
+            if (!operation.equalsIgnoreCase("compile")) {
+                printStream.println("*** The server can only compile.");
+                printStream.flush();
+                return 1;
+            }
+
+            // Unknown -O options.
+            try {
+                new Optimizer(new CompilationContext())
+                    .setOptions(optimizations);
+            }
+            catch (IllegalArgumentException ex) {
+                printStream.println("*** " + ex.getMessage());
+                printStream.flush();
+                return 1;
+            }
+
+            SubC subC = new SubC(operation, flags, printStream);
+            subC.setOptimizations(optimizations);
+            StringBuilder assemblyText = new StringBuilder();
+            ByteArrayOutputStream classBytes = new ByteArrayOutputStream();
+            subC.setAssemblyOutput(assemblyText);
+            subC.setClassOutput(classBytes);
+
+            int status = 0;
+            try {
+                subC.translate(progName, source);
+            }
+            catch (AbortTranslationException ex) {
+                status = ex.getStatus();
+            }
+            catch (PascalCompilerException ex) {
+                printStream.println("*** " + ex.getMessage());
+                status = 1;
+            }
+            catch (Exception ex) {
+                printStream.println("***** Internal translator error. *****");
+                ex.printStackTrace(printStream);
+                status = 1;
+            }
+            printStream.flush();
+
+            if (assemblyText.length() > 0) {
+                sendArtifact(progName + ".j",
+                             assemblyText.toString().getBytes(ENCODING));
+            }
+            if (classBytes.size() > 0) {
+                sendArtifact(progName + ".class", classBytes.toByteArray());
+            }
+
+            return status;
+        }
+
+        /**
+         * Send a generated file to the client.
+         * @param name the file name.
+         * @param bytes the file contents.
+         * @throws IOException if an I/O error occurred.
+         */
+        private void sendArtifact(String name, byte bytes[])
+            throws IOException
+        {
+            out.writeByte(ARTIFACT);
+            out.writeUTF(name);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+
+        /**
+         * Output stream that sends the printed text to the client
+         * in OUTPUT frames of up to about FRAME_SIZE bytes.
+         */
+        private class OutputFrameStream extends OutputStream
+        {
+            private ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+            public void write(int b)
+                throws IOException
+            {
+                buffer.write(b);
+                if (buffer.size() >= FRAME_SIZE) {
+                    flush();
+                }
+            }
+
+            public void write(byte bytes[], int offset, int length)
+                throws IOException
+            {
+                buffer.write(bytes, offset, length);
+                if (buffer.size() >= FRAME_SIZE) {
+                    flush();
+                }
+            }
+
+            public void flush()
+                throws IOException
+            {
+                if (buffer.size() > 0) {
+                    out.writeByte(OUTPUT);
+                    out.writeInt(buffer.size());
+                    buffer.writeTo(out);
+                    out.flush();
+                    buffer.reset();
+                }
+            }
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package wci.backend;
 
+import wci.intermediate.CompilationContext;
 import wci.intermediate.ICode;
 import wci.intermediate.SymTabStack;
 import wci.message.*;
@@ -14,14 +15,41 @@ import wci.message.*;
  */
 public abstract class Backend implements MessageProducer
 {
-    protected static SymTabStack symTabStack;        // symbol table stack
-    protected static MessageHandler messageHandler;  // message handler delegate
+    protected CompilationContext context;     // context of this compilation
+    protected SymTabStack symTabStack;        // symbol table stack
+    protected MessageHandler messageHandler;  // message handler delegate
 
-    static {
-        messageHandler = new MessageHandler();
+    protected ICode iCode;  // intermediate code
+
+    /**
+     * Constructor.
+     */
+    protected Backend()
+    {
+        this(new CompilationContext());
     }
 
-    protected ICode iCode;  // intermediate code
+    /**
+     * Constructor.
+     * @param context the context of the compilation.
+     */
+    protected Backend(CompilationContext context)
+    {
+        this.context = context;
+        this.messageHandler = new MessageHandler();
+    }
+
+    /**
+     * Constructor for subclasses.  The new back end component shares
+     * the compilation context and the message handler of its parent.
+     * @param parent the parent back end component.
+     */
+    protected Backend(Backend parent)
+    {
+        this.context = parent.context;
+        this.symTabStack = parent.symTabStack;
+        this.messageHandler = parent.messageHandler;
+    }
 
     /**
      * Getter.
@@ -32,6 +60,15 @@ public abstract class Backend implements MessageProducer
         return iCode;
     }
 
+    /**
+     * Getter.
+     * @return the context of the compilation.
+     */
+    public CompilationContext getContext()
+    {
+        return context;
+    }
+
     /**
      * Getter.
      * @return the symbol table stack.
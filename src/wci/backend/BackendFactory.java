@@ -1,6 +1,8 @@
 package wci.backend;
 
 import wci.backend.compiler.CodeGenerator;
+import wci.backend.interpreter.Executor;
+import wci.intermediate.CompilationContext;
 import wci.intermediate.TypeSpec;
 import wci.intermediate.symtabimpl.Predefined;
 
@@ -22,9 +24,43 @@ public class BackendFactory
      */
     public static Backend createBackend(String operation)
         throws Exception
+    {
+        return createBackend(operation, false);
+    }
+
+    /**
+     * Create a compiler or an interpreter back end component.
+     * @param operation either "compile" or "execute"
+     * @param classFile true for the compiler to write a .class file
+     *                  directly instead of a Jasmin assembly file.
+     * @return a compiler or an interpreter back end component.
+     * @throws Exception if an error occurred.
+     */
+    public static Backend createBackend(String operation, boolean classFile)
+        throws Exception
+    {
+        return createBackend(operation, classFile, new CompilationContext());
+    }
+
+    /**
+     * Create a compiler or an interpreter back end component
+     * for a compilation.
+     * @param operation either "compile" or "execute"
+     * @param classFile true for the compiler to write a .class file
+     *                  directly instead of a Jasmin assembly file.
+     * @param context the context of the compilation.
+     * @return a compiler or an interpreter back end component.
+     * @throws Exception if an error occurred.
+     */
+    public static Backend createBackend(String operation, boolean classFile,
+                                        CompilationContext context)
+        throws Exception
     {
         if (operation.equalsIgnoreCase("compile")) {
-            return new CodeGenerator();
+            return new CodeGenerator(context, classFile);
+        }
+        else if (operation.equalsIgnoreCase("execute")) {
+            return new Executor(context);
         }
 
         else {
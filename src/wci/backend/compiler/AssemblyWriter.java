@@ -0,0 +1,345 @@
+package wci.backend.compiler;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.CharBuffer;
+
+import static wci.backend.compiler.Directive.END_METHOD;
+
+/**
+ * <h1>AssemblyWriter</h1>
+ *
+ * <p>Write Jasmin assembly text to a file or to any other Appendable.
+ * The text accumulates in a reusable buffer which is written out only
+ * when it fills, at the end of each method, and when closed.</p>
+ *
+ * <p>Copyright (c) 2009 by Ronald Mak</p>
+ * <p>For instructional purposes only.  No warranties.</p>
+ */
+public class AssemblyWriter implements CodeSink
+{
+    private static final int BUFFER_SIZE = 64*1024;
+    private static final String NEW_LINE = System.lineSeparator();
+
+    private Appendable out;     // destination of the assembly text
+    private char buffer[];      // pending assembly text
+    private int count;          // number of pending characters
+    private IOException error;  // first error writing to the destination
+
+    /**
+     * Constructor.
+     * @param out the destination of the assembly text.
+     */
+    public AssemblyWriter(Appendable out)
+    {
+        this.out = out;
+        this.buffer = new char[BUFFER_SIZE];
+        this.count = 0;
+        this.error = null;
+    }
+
+    /**
+     * Output a blank line.
+     */
+    public void blankLine()
+    {
+        newLine();
+    }
+
+    /**
+     * Output a label.
+     * @param label the label.
+     */
+    public void label(Label label)
+    {
+        append(label.toString());
+        append(':');
+        newLine();
+    }
+
+    /**
+     * Output a value and its branch label for a switch table.
+     * @param value the switch value.
+     * @param label the branch label.
+     */
+    public void switchEntry(int value, Label label)
+    {
+        append("\t  ");
+        append(value);
+        append(": ");
+        append(label.toString());
+        newLine();
+    }
+
+    /**
+     * Output the default branch label that completes a switch table.
+     * @param label the branch label.
+     */
+    public void switchDefault(Label label)
+    {
+        append("\t  default: ");
+        append(label.toString());
+        newLine();
+    }
+
+    /**
+     * Output a directive.
+     * @param directive the directive code.
+     * @param operands the directive operands.
+     */
+    public void directive(Directive directive, String... operands)
+    {
+        append(directive.toString());
+        for (String operand : operands) {
+            append(' ');
+            append(operand);
+        }
+        newLine();
+
+        if (directive == END_METHOD) {
+            flush();
+        }
+    }
+
+    /**
+     * Output a 1-operand directive.
+     * @param directive the directive code.
+     * @param operand the directive operand.
+     */
+    public void directive(Directive directive, int operand)
+    {
+        append(directive.toString());
+        append(' ');
+        append(operand);
+        newLine();
+    }
+
+    /**
+     * Output a 0-operand instruction.
+     * @param opcode the operation code.
+     */
+    public void instruction(Instruction opcode)
+    {
+        append('\t');
+        append(opcode.toString());
+        newLine();
+    }
+
+    /**
+     * Output a 1-operand instruction.
+     * @param opcode the operation code.
+     * @param operand the operand text.
+     */
+    public void instruction(Instruction opcode, String operand)
+    {
+        append('\t');
+        append(opcode.toString());
+        append('\t');
+        append(operand);
+        newLine();
+    }
+
+    /**
+     * Output a 1-operand instruction.
+     * @param opcode the operation code.
+     * @param operand the operand value.
+     */
+    public void instruction(Instruction opcode, int operand)
+    {
+        append('\t');
+        append(opcode.toString());
+        append('\t');
+        append(operand);
+        newLine();
+    }
+
+    /**
+     * Output a 1-operand instruction.
+     * @param opcode the operation code.
+     * @param operand the operand value.
+     */
+    public void instruction(Instruction opcode, float operand)
+    {
+        append('\t');
+        append(opcode.toString());
+        append('\t');
+        append(Float.toString(operand));
+        newLine();
+    }
+
+    /**
+     * Output a branch instruction.
+     * @param opcode the operation code.
+     * @param label the branch label.
+     */
+    public void instruction(Instruction opcode, Label label)
+    {
+        append('\t');
+        append(opcode.toString());
+        append('\t');
+        append(label.toString());
+        newLine();
+    }
+
+    /**
+     * Output a 2-operand instruction.
+     * @param opcode the operation code.
+     * @param operand1 the value of the first operand.
+     * @param operand2 the value of the second operand.
+     */
+    public void instruction(Instruction opcode, int operand1, int operand2)
+    {
+        append('\t');
+        append(opcode.toString());
+        append('\t');
+        append(operand1);
+        append(' ');
+        append(operand2);
+        newLine();
+    }
+
+    /**
+     * Output a 2-operand instruction.
+     * @param opcode the operation code.
+     * @param operand1 the text of the first operand.
+     * @param operand2 the text of the second operand.
+     */
+    public void instruction(Instruction opcode,
+                            String operand1, String operand2)
+    {
+        append('\t');
+        append(opcode.toString());
+        append('\t');
+        append(operand1);
+        append(' ');
+        append(operand2);
+        newLine();
+    }
+
+    /**
+     * Write out the pending text. The destination itself stays open
+     * since it belongs to the caller.
+     * @throws IOException if an I/O error occurred.
+     */
+    public void close()
+        throws IOException
+    {
+        flush();
+
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    /**
+     * Write out the pending text to the destination.
+     */
+    public void flush()
+    {
+        if ((count == 0) || (error != null)) {
+            return;
+        }
+
+        try {
+            if (out instanceof Writer) {
+                ((Writer) out).write(buffer, 0, count);
+            }
+            else {
+                out.append(CharBuffer.wrap(buffer, 0, count));
+            }
+
+            if (out instanceof Flushable) {
+                ((Flushable) out).flush();
+            }
+        }
+        catch (IOException ex) {
+            error = ex;  // reported by close()
+        }
+
+        count = 0;
+    }
+
+    /**
+     * Append a line separator.
+     */
+    private void newLine()
+    {
+        append(NEW_LINE);
+    }
+
+    /**
+     * Append a character.
+     * @param ch the character.
+     */
+    private void append(char ch)
+    {
+        if (count == buffer.length) {
+            flush();
+        }
+
+        buffer[count++] = ch;
+    }
+
+    /**
+     * Append a string.
+     * @param text the string.
+     */
+    private void append(String text)
+    {
+        int length = text.length();
+
+        // Text that is longer than the buffer bypasses it.
+        if (length > buffer.length) {
+            flush();
+            try {
+                out.append(text);
+            }
+            catch (IOException ex) {
+                error = ex;
+            }
+            return;
+        }
+
+        if (count + length > buffer.length) {
+            flush();
+        }
+
+        text.getChars(0, length, buffer, count);
+        count += length;
+    }
+
+    /**
+     * Append the decimal digits of an integer without creating a string.
+     * @param value the integer.
+     */
+    private void append(int value)
+    {
+        if (value == Integer.MIN_VALUE) {
+            append(Integer.toString(value));
+            return;
+        }
+
+        if (count + 11 > buffer.length) {
+            flush();
+        }
+
+        if (value < 0) {
+            buffer[count++] = '-';
+            value = -value;
+        }
+
+        // Generate the digits backwards and then reverse them in place.
+        int start = count;
+        do {
+            buffer[count++] = (char) ('0' + value%10);
+            value /= 10;
+        } while (value > 0);
+
+        for (int i = start, j = count - 1; i < j; ++i, --j) {
+            char temp = buffer[i];
+            buffer[i] = buffer[j];
+            buffer[j] = temp;
+        }
+    }
+}
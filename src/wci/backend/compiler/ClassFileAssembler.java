@@ -0,0 +1,1042 @@
+package wci.backend.compiler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+
+import static wci.backend.compiler.Instruction.*;
+
+/**
+ * <h1>ClassFileAssembler</h1>
+ *
+ * <p>Assemble the directives, instructions, and labels emitted by the
+ * code generator directly into the bytes of a JVM class file, without
+ * writing and assembling Jasmin text.</p>
+ *
+ * <p>Copyright (c) 2009 by Ronald Mak</p>
+ * <p>For instructional purposes only.  No warranties.</p>
+ */
+public class ClassFileAssembler implements CodeSink
+{
+    // The same class file version that Jasmin generates, which the JVM
+    // verifies by type inference without any StackMapTable attributes.
+    private static final int MAGIC         = 0xCAFEBABE;
+    private static final int MINOR_VERSION = 3;
+    private static final int MAJOR_VERSION = 45;
+
+    // Access flags.
+    private static final int ACC_PUBLIC  = 0x0001;
+    private static final int ACC_PRIVATE = 0x0002;
+    private static final int ACC_STATIC  = 0x0008;
+    private static final int ACC_SUPER   = 0x0020;
+
+    // Operation codes that have no Jasmin instruction of their own.
+    private static final int LDC_W  = 0x13;
+    private static final int WIDE   = 0xc4;
+    private static final int GOTO_W = 0xc8;
+
+    // The largest method code that a class file can hold.
+    private static final int MAX_CODE_LENGTH = 65535;
+
+    private ConstantPool pool;            // constant pool
+    private int accessFlags;              // class access flags
+    private int thisClass;                // pool index of this class
+    private int superClass;               // pool index of the superclass
+
+    private int fieldCount;                // number of fields
+    private ByteArrayOutputStream fields;  // assembled field_info structures
+    private int methodCount;               // number of methods
+    private ByteArrayOutputStream methods; // assembled method_info structures
+
+    // State of the method being assembled.
+    private int methodAccess;             // method access flags
+    private String methodHeader;          // method name and descriptor
+    private byte code[];                  // method bytecodes
+    private int length;                   // number of bytecodes
+    private int maxLocals;                // from the .limit locals directive
+    private int maxStack;                 // from the .limit stack directive
+    private HashMap<Label, Integer> labelOffsets;
+    private ArrayList<Fixup> fixups;      // unresolved branch offsets
+    private ArrayList<int[]> lineNumbers; // pairs of bytecode offset and line
+    private ArrayList<String[]> locals;   // slot, name, and type descriptor
+    private ArrayList<Integer> switches;  // offsets of the LOOKUPSWITCHes
+    private String oversizedMethod;       // first method whose code is too
+                                          // large, or null
+
+    // State of the LOOKUPSWITCH being assembled.
+    private int switchOffset;
+    private ArrayList<Integer> switchValues;
+    private ArrayList<Label> switchLabels;
+
+    /**
+     * Constructor.
+     */
+    public ClassFileAssembler()
+    {
+        this.pool = new ConstantPool();
+        this.fields = new ByteArrayOutputStream();
+        this.methods = new ByteArrayOutputStream();
+        this.fieldCount = 0;
+        this.methodCount = 0;
+    }
+
+    /**
+     * A blank line assembles to nothing.
+     */
+    public void blankLine()
+    {
+    }
+
+    // ==========
+    // Directives
+    // ==========
+
+    /**
+     * Assemble a directive.
+     * @param directive the directive code.
+     * @param operands the directive operands.
+     */
+    public void directive(Directive directive, String... operands)
+    {
+        switch (directive) {
+
+            case CLASS_PUBLIC: {
+                accessFlags = ACC_PUBLIC | ACC_SUPER;
+                thisClass = pool.classRef(operands[0]);
+                break;
+            }
+
+            case SUPER: {
+                superClass = pool.classRef(operands[0]);
+                break;
+            }
+
+            case FIELD_PRIVATE_STATIC: {
+                field(ACC_PRIVATE | ACC_STATIC, operands[0], operands[1]);
+                break;
+            }
+
+            case METHOD_PUBLIC: {
+                beginMethod(ACC_PUBLIC, operands[0]);
+                break;
+            }
+
+            case METHOD_STATIC: {
+                beginMethod(ACC_STATIC, operands[0]);
+                break;
+            }
+
+            case METHOD_PUBLIC_STATIC: {
+                beginMethod(ACC_PUBLIC | ACC_STATIC, operands[0]);
+                break;
+            }
+
+            case METHOD_PRIVATE_STATIC: {
+                beginMethod(ACC_PRIVATE | ACC_STATIC, operands[0]);
+                break;
+            }
+
+            case LIMIT_LOCALS:
+            case LIMIT_STACK:
+            case LINE: {
+                directive(directive, Integer.parseInt(operands[0]));
+                break;
+            }
+
+            case VAR: {
+                // The first operand is "slot is name".
+                String parts[] = operands[0].split(" ");
+                locals.add(new String[] {parts[0], parts[2], operands[1]});
+                break;
+            }
+
+            case END_METHOD: {
+                endMethod();
+                break;
+            }
+        }
+    }
+
+    /**
+     * Assemble a 1-operand directive.
+     * @param directive the directive code.
+     * @param operand the directive operand.
+     */
+    public void directive(Directive directive, int operand)
+    {
+        switch (directive) {
+
+            case LIMIT_LOCALS: {
+                maxLocals = operand;
+                break;
+            }
+
+            case LIMIT_STACK: {
+                maxStack = operand;
+                break;
+            }
+
+            case LINE: {
+                lineNumbers.add(new int[] {length, operand});
+                break;
+            }
+
+            default: {
+                directive(directive, Integer.toString(operand));
+            }
+        }
+    }
+
+    /**
+     * Assemble a field_info structure.
+     * @param access the access flags.
+     * @param name the field name.
+     * @param descriptor the field type descriptor.
+     */
+    private void field(int access, String name, String descriptor)
+    {
+        DataOutputStream out = new DataOutputStream(fields);
+
+        try {
+            out.writeShort(access);
+            out.writeShort(pool.utf8(name));
+            out.writeShort(pool.utf8(descriptor));
+            out.writeShort(0);  // attributes_count
+        }
+        catch (IOException ignored) {}  // cannot happen in memory
+
+        ++fieldCount;
+    }
+
+    /**
+     * Start assembling a method.
+     * @param access the access flags.
+     * @param header the method name followed by its descriptor.
+     */
+    private void beginMethod(int access, String header)
+    {
+        methodAccess = access;
+        methodHeader = header;
+        code = new byte[256];
+        length = 0;
+        maxLocals = 0;
+        maxStack = 0;
+        labelOffsets = new HashMap<Label, Integer>();
+        fixups = new ArrayList<Fixup>();
+        lineNumbers = new ArrayList<int[]>();
+        locals = new ArrayList<String[]>();
+        switches = new ArrayList<Integer>();
+    }
+
+    /**
+     * Finish assembling a method: Resolve the branch offsets
+     * and append the method_info structure.
+     */
+    private void endMethod()
+    {
+        resolveBranches();
+
+        int paren = methodHeader.indexOf('(');
+        String name = methodHeader.substring(0, paren);
+        String descriptor = methodHeader.substring(paren);
+
+        if ((length > MAX_CODE_LENGTH) && (oversizedMethod == null)) {
+            oversizedMethod = name;
+        }
+
+        try {
+            DataOutputStream out = new DataOutputStream(methods);
+            byte codeAttribute[] = codeAttribute();
+
+            out.writeShort(methodAccess);
+            out.writeShort(pool.utf8(name));
+            out.writeShort(pool.utf8(descriptor));
+            out.writeShort(1);  // attributes_count
+            out.writeShort(pool.utf8("Code"));
+            out.writeInt(codeAttribute.length);
+            out.write(codeAttribute);
+        }
+        catch (IOException ignored) {}  // cannot happen in memory
+
+        ++methodCount;
+        code = null;
+    }
+
+    /**
+     * Resolve the branch offsets of the current method.  A goto whose
+     * offset doesn't fit in 2 bytes becomes a goto_w, and a conditional
+     * branch becomes the opposite branch around a goto_w.  Since that
+     * moves the code after it, which can put other branches out of range,
+     * the offsets are computed again until no more branches need to be
+     * widened.
+     */
+    private void resolveBranches()
+    {
+        int count = fixups.size();
+        int targets[] = new int[count];
+        boolean widened[] = new boolean[count];
+
+        for (int i = 0; i < count; ++i) {
+            Fixup fixup = fixups.get(i);
+            Integer target = labelOffsets.get(fixup.label);
+
+            if (target == null) {
+                throw new IllegalStateException("Undefined label " +
+                                                fixup.label + " in " +
+                                                methodHeader);
+            }
+
+            targets[i] = target;
+        }
+
+        boolean anyWidened = false;
+        OffsetMap map;
+        boolean changed;
+
+        do {
+            map = new OffsetMap(widened);
+            changed = false;
+
+            for (int i = 0; i < count; ++i) {
+                Fixup fixup = fixups.get(i);
+
+                if (!fixup.wide && !widened[i]) {
+                    int offset = map.get(targets[i]) - map.get(fixup.base);
+
+                    if ((offset < -32768) || (offset > 32767)) {
+                        widened[i] = true;
+                        changed = anyWidened = true;
+                    }
+                }
+            }
+        } while (changed);
+
+        if (anyWidened) {
+            relocate(map, widened);
+        }
+
+        for (int i = 0; i < count; ++i) {
+            Fixup fixup = fixups.get(i);
+            int target = map.get(targets[i]);
+            int base = map.get(fixup.base);
+
+            // The goto_w after an opposite conditional branch.
+            if (widened[i] && isConditional(code[base] & 0xff)) {
+                base += 3;
+            }
+
+            if (fixup.wide || widened[i]) {
+                putInt(widened[i] ? base + 1 : map.get(fixup.position),
+                       target - base);
+            }
+            else {
+                putShort(base + 1, target - base);
+            }
+        }
+
+        for (int entry[] : lineNumbers) {
+            entry[0] = map.get(entry[0]);
+        }
+    }
+
+    /**
+     * Copy the method bytecodes with the widened branches and with the
+     * LOOKUPSWITCH padding for the new offsets.  The branch offsets are
+     * left to be resolved.
+     * @param map the map from the old bytecode offsets to the new ones.
+     * @param widened which fixups are of widened branches.
+     */
+    private void relocate(OffsetMap map, boolean widened[])
+    {
+        byte oldCode[] = code;
+        int oldLength = length;
+        int next = 0;  // next old offset to copy
+
+        code = new byte[map.get(oldLength) + 4];
+        length = 0;
+
+        for (int event = 0; event < map.positions.length; ++event) {
+            int position = map.positions[event];
+            int opcode = oldCode[position] & 0xff;
+
+            while (next < position) {
+                putByte(oldCode[next++]);
+            }
+
+            if (opcode == LOOKUPSWITCH.getOpcode()) {
+                putByte(opcode);
+                while (length%4 != 0) {
+                    putByte(0);
+                }
+
+                next = position + 1 + padding(position);
+            }
+            else {
+                if (opcode == GOTO.getOpcode()) {
+                    putByte(GOTO_W);
+                }
+                else {
+                    putByte(opposite(opcode));
+                    putShort(8);  // past the goto_w
+                    putByte(GOTO_W);
+                }
+
+                putInt(0);
+                next = position + 3;
+            }
+        }
+
+        while (next < oldLength) {
+            putByte(oldCode[next++]);
+        }
+    }
+
+    /**
+     * @param opcode the operation code of a branch instruction.
+     * @return true if it is a conditional branch.
+     */
+    private static boolean isConditional(int opcode)
+    {
+        return (opcode != GOTO.getOpcode()) && (opcode != GOTO_W);
+    }
+
+    /**
+     * @param opcode the operation code of a conditional branch.
+     * @return the operation code of the branch on the opposite condition.
+     */
+    private static int opposite(int opcode)
+    {
+        // The conditional branches are in pairs of opposites,
+        // starting with IFEQ and IFNE.
+        int ifeq = IFEQ.getOpcode();
+
+        return ((opcode - ifeq) ^ 1) + ifeq;
+    }
+
+    /**
+     * @param offset the bytecode offset of a LOOKUPSWITCH.
+     * @return the number of padding bytes after its operation code.
+     */
+    private static int padding(int offset)
+    {
+        return 3 - offset%4;
+    }
+
+    /**
+     * Assemble the body of the Code attribute of the current method.
+     * @return the bytes of the attribute body.
+     * @throws IOException if an I/O error occurred.
+     */
+    private byte[] codeAttribute()
+        throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        out.writeShort(maxStack);
+        out.writeShort(maxLocals);
+        out.writeInt(length);
+        out.write(code, 0, length);
+        out.writeShort(0);  // exception_table_length
+
+        // Keep only the first .var directive for each slot and name.
+        ArrayList<String[]> variables = new ArrayList<String[]>();
+        ArrayList<String> seen = new ArrayList<String>();
+        for (String local[] : locals) {
+            String key = local[0] + " " + local[1];
+
+            if (!seen.contains(key)) {
+                seen.add(key);
+                variables.add(local);
+            }
+        }
+
+        int attributeCount = (lineNumbers.size() > 0 ? 1 : 0)
+                           + (variables.size() > 0 ? 1 : 0);
+        out.writeShort(attributeCount);
+
+        if (lineNumbers.size() > 0) {
+            out.writeShort(pool.utf8("LineNumberTable"));
+            out.writeInt(2 + 4*lineNumbers.size());
+            out.writeShort(lineNumbers.size());
+
+            for (int entry[] : lineNumbers) {
+                out.writeShort(entry[0]);
+                out.writeShort(entry[1]);
+            }
+        }
+
+        // Each local variable is in scope over the entire method.
+        if (variables.size() > 0) {
+            out.writeShort(pool.utf8("LocalVariableTable"));
+            out.writeInt(2 + 10*variables.size());
+            out.writeShort(variables.size());
+
+            for (String variable[] : variables) {
+                out.writeShort(0);
+                out.writeShort(length);
+                out.writeShort(pool.utf8(variable[1]));
+                out.writeShort(pool.utf8(variable[2]));
+                out.writeShort(Integer.parseInt(variable[0]));
+            }
+        }
+
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    // ======
+    // Labels
+    // ======
+
+    /**
+     * Define a label at the current bytecode offset.
+     * @param label the label.
+     */
+    public void label(Label label)
+    {
+        labelOffsets.put(label, length);
+    }
+
+    /**
+     * Add a value and its branch label to the current LOOKUPSWITCH.
+     * @param value the switch value.
+     * @param label the branch label.
+     */
+    public void switchEntry(int value, Label label)
+    {
+        switchValues.add(value);
+        switchLabels.add(label);
+    }
+
+    /**
+     * Complete the current LOOKUPSWITCH with its default branch label.
+     * @param label the default branch label.
+     */
+    public void switchDefault(Label label)
+    {
+        branchOffset(label, switchOffset, true);
+        putInt(switchValues.size());
+
+        for (int i = 0; i < switchValues.size(); ++i) {
+            putInt(switchValues.get(i));
+            branchOffset(switchLabels.get(i), switchOffset, true);
+        }
+
+        switchValues = null;
+        switchLabels = null;
+    }
+
+    // ============
+    // Instructions
+    // ============
+
+    /**
+     * Assemble a 0-operand instruction.
+     * @param opcode the operation code.
+     */
+    public void instruction(Instruction opcode)
+    {
+        if (opcode == LOOKUPSWITCH) {
+            switchOffset = length;
+            switches.add(length);
+            switchValues = new ArrayList<Integer>();
+            switchLabels = new ArrayList<Label>();
+
+            // The default offset starts on a 4-byte boundary.
+            putByte(opcode.getOpcode());
+            while (length%4 != 0) {
+                putByte(0);
+            }
+        }
+        else {
+            putByte(opcode.getOpcode());
+        }
+    }
+
+    /**
+     * Assemble a 1-operand instruction.
+     * @param opcode the operation code.
+     * @param operand the operand text.
+     */
+    public void instruction(Instruction opcode, String operand)
+    {
+        switch (opcode) {
+
+            case LDC: {
+                loadConstant(pool.string(unquote(operand)));
+                break;
+            }
+
+            case INVOKESTATIC:
+            case INVOKEVIRTUAL:
+            case INVOKENONVIRTUAL: {
+                putByte(opcode.getOpcode());
+                putShort(methodRef(operand));
+                break;
+            }
+
+            case NEW:
+            case ANEWARRAY:
+            case CHECKCAST: {
+                putByte(opcode.getOpcode());
+                putShort(pool.classRef(operand));
+                break;
+            }
+
+            case NEWARRAY: {
+                putByte(opcode.getOpcode());
+                putByte(arrayType(operand));
+                break;
+            }
+
+            // A field reference and its type descriptor in one operand.
+            case GETSTATIC:
+            case PUTSTATIC:
+            case GETFIELD:
+            case PUTFIELD: {
+                int space = operand.indexOf(' ');
+                instruction(opcode, operand.substring(0, space),
+                                    operand.substring(space + 1));
+                break;
+            }
+
+            default: {
+                throw new IllegalArgumentException(
+                    "Invalid operand '" + operand + "' for " + opcode);
+            }
+        }
+    }
+
+    /**
+     * Assemble a 1-operand instruction.
+     * @param opcode the operation code.
+     * @param operand the operand value.
+     */
+    public void instruction(Instruction opcode, int operand)
+    {
+        switch (opcode) {
+
+            case BIPUSH: {
+                putByte(opcode.getOpcode());
+                putByte(operand);
+                break;
+            }
+
+            case SIPUSH: {
+                putByte(opcode.getOpcode());
+                putShort(operand);
+                break;
+            }
+
+            case LDC: {
+                loadConstant(pool.integer(operand));
+                break;
+            }
+
+            // Local variable index.
+            default: {
+                if (operand > 255) {
+                    putByte(WIDE);
+                    putByte(opcode.getOpcode());
+                    putShort(operand);
+                }
+                else {
+                    putByte(opcode.getOpcode());
+                    putByte(operand);
+                }
+            }
+        }
+    }
+
+    /**
+     * Assemble a 1-operand instruction.
+     * @param opcode the operation code, which must be LDC.
+     * @param operand the operand value.
+     */
+    public void instruction(Instruction opcode, float operand)
+    {
+        loadConstant(pool.real(operand));
+    }
+
+    /**
+     * Assemble a branch instruction.
+     * @param opcode the operation code.
+     * @param label the branch label.
+     */
+    public void instruction(Instruction opcode, Label label)
+    {
+        int base = length;
+
+        putByte(opcode.getOpcode());
+        branchOffset(label, base, false);
+    }
+
+    /**
+     * Assemble a 2-operand instruction.
+     * @param opcode the operation code, which must be IINC.
+     * @param operand1 the local variable index.
+     * @param operand2 the increment.
+     */
+    public void instruction(Instruction opcode, int operand1, int operand2)
+    {
+        if ((operand1 > 255) || (operand2 < -128) || (operand2 > 127)) {
+            putByte(WIDE);
+            putByte(opcode.getOpcode());
+            putShort(operand1);
+            putShort(operand2);
+        }
+        else {
+            putByte(opcode.getOpcode());
+            putByte(operand1);
+            putByte(operand2);
+        }
+    }
+
+    /**
+     * Assemble a 2-operand instruction.
+     * @param opcode the operation code.
+     * @param operand1 the text of the first operand.
+     * @param operand2 the text of the second operand.
+     */
+    public void instruction(Instruction opcode,
+                            String operand1, String operand2)
+    {
+        if (opcode == MULTIANEWARRAY) {
+            putByte(opcode.getOpcode());
+            putShort(pool.classRef(operand1));
+            putByte(Integer.parseInt(operand2));
+        }
+
+        // Field reference "class/field" and the field type descriptor.
+        else {
+            int slash = operand1.lastIndexOf('/');
+            String owner = operand1.substring(0, slash);
+            String name = operand1.substring(slash + 1);
+
+            putByte(opcode.getOpcode());
+            putShort(pool.fieldRef(owner, name, operand2));
+        }
+    }
+
+    /**
+     * The class file is complete once the last method has been assembled.
+     */
+    public void close()
+    {
+    }
+
+    /**
+     * Getter.
+     * @return the name of the first method whose code is too large for
+     *         a class file, or null if none.
+     */
+    public String getOversizedMethod()
+    {
+        return oversizedMethod;
+    }
+
+    /**
+     * Return the assembled class file.
+     * @return the bytes of the class file.
+     */
+    public byte[] toByteArray()
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        try {
+            out.writeInt(MAGIC);
+            out.writeShort(MINOR_VERSION);
+            out.writeShort(MAJOR_VERSION);
+            pool.write(out);
+            out.writeShort(accessFlags);
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(0);  // interfaces_count
+            out.writeShort(fieldCount);
+            fields.writeTo(out);
+            out.writeShort(methodCount);
+            methods.writeTo(out);
+            out.writeShort(0);  // attributes_count
+            out.flush();
+        }
+        catch (IOException ignored) {}  // cannot happen in memory
+
+        return bytes.toByteArray();
+    }
+
+    // =========
+    // Utilities
+    // =========
+
+    /**
+     * Assemble a load of a constant pool entry.
+     * @param index the pool index of the constant.
+     */
+    private void loadConstant(int index)
+    {
+        if (index <= 255) {
+            putByte(LDC.getOpcode());
+            putByte(index);
+        }
+        else {
+            putByte(LDC_W);
+            putShort(index);
+        }
+    }
+
+    /**
+     * Enter a method reference into the constant pool. The class name
+     * is separated from the method name by either a slash or a period,
+     * as in "java/lang/Object/<init>()V" or "RunTimer.printElapsedTime()V".
+     * @param operand the method reference text.
+     * @return the pool index of the method reference.
+     */
+    private int methodRef(String operand)
+    {
+        int paren = operand.indexOf('(');
+        int separator = Math.max(operand.lastIndexOf('/', paren),
+                                 operand.lastIndexOf('.', paren));
+
+        String owner = operand.substring(0, separator).replace('.', '/');
+        String name = operand.substring(separator + 1, paren);
+        String descriptor = operand.substring(paren);
+
+        return pool.methodRef(owner, name, descriptor);
+    }
+
+    /**
+     * Return the NEWARRAY type code for a primitive type name.
+     * @param typeName the type name.
+     * @return the type code.
+     */
+    private int arrayType(String typeName)
+    {
+        return typeName.equals("boolean") ? 4
+             : typeName.equals("char")    ? 5
+             : typeName.equals("float")   ? 6
+             : typeName.equals("double")  ? 7
+             : typeName.equals("byte")    ? 8
+             : typeName.equals("short")   ? 9
+             : typeName.equals("int")     ? 10
+             :                              11;  // long
+    }
+
+    /**
+     * Remove the enclosing quotes of a Jasmin string constant
+     * and translate its escape sequences.
+     * @param text the quoted string.
+     * @return the string value.
+     */
+    private String unquote(String text)
+    {
+        StringBuilder buffer = new StringBuilder();
+        int last = text.length() - 1;
+
+        for (int i = 1; i < last; ++i) {
+            char ch = text.charAt(i);
+
+            if ((ch == '\\') && (i < last - 1)) {
+                ch = text.charAt(++i);
+
+                switch (ch) {
+                    case 'n': buffer.append('\n'); break;
+                    case 't': buffer.append('\t'); break;
+                    case 'r': buffer.append('\r'); break;
+                    case 'b': buffer.append('\b'); break;
+                    case 'f': buffer.append('\f'); break;
+
+                    case 'u': {
+                        String hex = text.substring(i + 1, i + 5);
+                        buffer.append((char) Integer.parseInt(hex, 16));
+                        i += 4;
+                        break;
+                    }
+
+                    default: buffer.append(ch);  // \\, \", and \'
+                }
+            }
+            else {
+                buffer.append(ch);
+            }
+        }
+
+        return buffer.toString();
+    }
+
+    /**
+     * Append a branch offset to be resolved at the end of the method.
+     * @param label the branch label.
+     * @param base the bytecode offset that the branch is relative to.
+     * @param wide true for a 4-byte offset, false for a 2-byte offset.
+     */
+    private void branchOffset(Label label, int base, boolean wide)
+    {
+        fixups.add(new Fixup(label, base, length, wide));
+
+        if (wide) {
+            putInt(0);
+        }
+        else {
+            putShort(0);
+        }
+    }
+
+    /**
+     * Append a byte to the method bytecodes.
+     * @param value the byte value.
+     */
+    private void putByte(int value)
+    {
+        if (length == code.length) {
+            byte bigger[] = new byte[2*code.length];
+            System.arraycopy(code, 0, bigger, 0, length);
+            code = bigger;
+        }
+
+        code[length++] = (byte) value;
+    }
+
+    /**
+     * Append a 2-byte value to the method bytecodes.
+     * @param value the value.
+     */
+    private void putShort(int value)
+    {
+        putByte(value >> 8);
+        putByte(value);
+    }
+
+    /**
+     * Append a 4-byte value to the method bytecodes.
+     * @param value the value.
+     */
+    private void putInt(int value)
+    {
+        putShort(value >> 16);
+        putShort(value);
+    }
+
+    /**
+     * Overwrite a 2-byte value in the method bytecodes.
+     * @param position the bytecode offset of the value.
+     * @param value the value.
+     */
+    private void putShort(int position, int value)
+    {
+        code[position]   = (byte) (value >> 8);
+        code[position+1] = (byte) value;
+    }
+
+    /**
+     * Overwrite a 4-byte value in the method bytecodes.
+     * @param position the bytecode offset of the value.
+     * @param value the value.
+     */
+    private void putInt(int position, int value)
+    {
+        putShort(position, value >> 16);
+        putShort(position + 2, value);
+    }
+
+    /**
+     * The map from the bytecode offsets as assembled to the offsets after
+     * the branches are widened.  The code moves at each widened branch and
+     * at each LOOKUPSWITCH whose padding changes.
+     */
+    private class OffsetMap
+    {
+        private int positions[];  // offsets where the code moves, in order
+        private int shifts[];     // total move after each of the positions
+
+        /**
+         * Constructor.
+         * @param widened which fixups are of widened branches.
+         */
+        private OffsetMap(boolean widened[])
+        {
+            ArrayList<Integer> moves = new ArrayList<Integer>(switches);
+
+            for (int i = 0; i < widened.length; ++i) {
+                if (widened[i]) {
+                    moves.add(fixups.get(i).base);
+                }
+            }
+
+            Collections.sort(moves);
+            positions = new int[moves.size()];
+            shifts = new int[moves.size()];
+
+            int shift = 0;
+            for (int i = 0; i < positions.length; ++i) {
+                int position = moves.get(i);
+                int opcode = code[position] & 0xff;
+
+                if (opcode == LOOKUPSWITCH.getOpcode()) {
+                    shift += padding(position + shift) - padding(position);
+                }
+                else {
+                    shift += isConditional(opcode) ? 5 : 2;
+                }
+
+                positions[i] = position;
+                shifts[i] = shift;
+            }
+        }
+
+        /**
+         * @param offset a bytecode offset as assembled, which is not
+         *               inside a widened branch.
+         * @return the offset after the branches are widened.
+         */
+        private int get(int offset)
+        {
+            // Find the number of moves before the offset.
+            int low = 0;
+            int high = positions.length;
+
+            while (low < high) {
+                int middle = (low + high)/2;
+
+                if (positions[middle] < offset) {
+                    low = middle + 1;
+                }
+                else {
+                    high = middle;
+                }
+            }
+
+            return low > 0 ? offset + shifts[low - 1] : offset;
+        }
+    }
+
+    /**
+     * A branch offset to resolve once its label is defined.
+     */
+    private static class Fixup
+    {
+        private Label label;     // branch label
+        private int base;        // offset that the branch is relative to
+        private int position;    // offset of the branch offset bytes
+        private boolean wide;    // true if a 4-byte offset
+
+        /**
+         * Constructor.
+         * @param label the branch label.
+         * @param base the offset that the branch is relative to.
+         * @param position the offset of the branch offset bytes.
+         * @param wide true if a 4-byte offset.
+         */
+        private Fixup(Label label, int base, int position, boolean wide)
+        {
+            this.label = label;
+            this.base = base;
+            this.position = position;
+            this.wide = wide;
+        }
+    }
+}
@@ -27,26 +27,73 @@ import static wci.message.MessageType.COMPILER_SUMMARY;
  */
 public class CodeGenerator extends Backend
 {
-    private static PrintWriter assemblyFile;
-    private static int instructionCount = 0;
+    private CodeSink codeSink;  // destination of the generated code
 
-    protected static String programName;
+    protected String programName;
 
     protected LocalVariables localVariables;
     protected LocalStack localStack;
 
+    private boolean classFileOutput;  // true to write a .class file directly
+    private Appendable assemblyOutput;  // in-memory destination, or null
+    private OutputStream classOutput;   // in-memory class file, or null
+
     /**
      * Constructor.
      */
     public CodeGenerator() {}
 
+    /**
+     * Constructor.
+     * @param classFileOutput true to assemble a .class file directly,
+     *                        false to write a Jasmin .j assembly file.
+     */
+    public CodeGenerator(boolean classFileOutput)
+    {
+        this.classFileOutput = classFileOutput;
+    }
+
+    /**
+     * Constructor.
+     * @param context the context of the compilation.
+     * @param classFileOutput true to assemble a .class file directly,
+     *                        false to write a Jasmin .j assembly file.
+     */
+    public CodeGenerator(CompilationContext context, boolean classFileOutput)
+    {
+        super(context);
+        this.classFileOutput = classFileOutput;
+    }
+
+    /**
+     * Setter.
+     * @param assemblyOutput where to write the Jasmin assembly text
+     *                       instead of to the .j assembly file.
+     */
+    public void setAssemblyOutput(Appendable assemblyOutput)
+    {
+        this.assemblyOutput = assemblyOutput;
+    }
+
+    /**
+     * Setter.
+     * @param classOutput where to write the class file bytes
+     *                    instead of to the .class file.
+     */
+    public void setClassOutput(OutputStream classOutput)
+    {
+        this.classOutput = classOutput;
+    }
+
     /**
      * Constructor for subclasses.
      * @param the parent code generator.
      */
     public CodeGenerator(CodeGenerator parent)
     {
-        super();
+        super(parent);
+        this.codeSink = parent.codeSink;
+        this.programName = parent.programName;
         this.localVariables = parent.localVariables;
         this.localStack = parent.localStack;
     }
@@ -66,22 +113,88 @@ public class CodeGenerator extends Backend
 
         SymTabEntry programId = symTabStack.getProgramId();
         programName = programId.getName();
-        String assemblyFileName = programName + ".j";
 
-        // Open a new assembly file for writing.
-        assemblyFile = new PrintWriter(
-                           new PrintStream(
-                               new File(assemblyFileName)));
+        // Assemble the class file directly.
+        if (classFileOutput) {
+            byte classBytes[] = assembleClass(iCode);
+
+            if (classOutput != null) {
+                classOutput.write(classBytes);
+            }
+            else {
+                FileOutputStream classFile =
+                    new FileOutputStream(programName + ".class");
+                classFile.write(classBytes);
+                classFile.close();
+            }
+        }
+
+        // Write the Jasmin assembly text.
+        else {
+            Writer assemblyFile = null;
+
+            // Open a new assembly file for writing
+            // unless there is an in-memory destination.
+            if (assemblyOutput == null) {
+                String assemblyFileName = programName + ".j";
+                assemblyFile = new OutputStreamWriter(
+                                   new FileOutputStream(assemblyFileName));
+            }
+
+            codeSink = new AssemblyWriter(assemblyFile != null ? assemblyFile
+                                                               : assemblyOutput);
+
+            // Generate code for the main program.
+            CodeGenerator programGenerator = new ProgramGenerator(this);
+            programGenerator.generate(iCode.getRoot());
+            codeSink.close();
+            codeSink = null;
+
+            if (assemblyFile != null) {
+                assemblyFile.close();
+            }
+        }
+
+        sendCompilerSummary(startTime);
+    }
+
+    /**
+     * Generate code for the main program and assemble it in memory.
+     * @param iCode the intermediate code.
+     * @return the bytes of the program's class file.
+     * @throws Exception if an error occurred.
+     */
+    protected byte[] assembleClass(ICode iCode)
+        throws Exception
+    {
+        ClassFileAssembler classAssembler = new ClassFileAssembler();
+        codeSink = classAssembler;
 
         // Generate code for the main program.
         CodeGenerator programGenerator = new ProgramGenerator(this);
         programGenerator.generate(iCode.getRoot());
-        assemblyFile.close();
+        codeSink.close();
+        codeSink = null;
+
+        String oversizedMethod = classAssembler.getOversizedMethod();
+        if (oversizedMethod != null) {
+            throw new PascalCompilerException(
+                String.format("Code of method %s is too large",
+                              oversizedMethod));
+        }
+
+        return classAssembler.toByteArray();
+    }
 
-        // Send the compiler summary message.
+    /**
+     * Send the compiler summary message.
+     * @param startTime the time that code generation started.
+     */
+    protected void sendCompilerSummary(long startTime)
+    {
         float elapsedTime = (System.currentTimeMillis() - startTime)/1000f;
         sendMessage(new Message(COMPILER_SUMMARY,
-                                new Number[] {instructionCount,
+                                new Number[] {context.getInstructionCount(),
                                               elapsedTime}));
     }
 
@@ -114,8 +227,7 @@ public class CodeGenerator extends Backend
      */
     protected void emitBlankLine()
     {
-        assemblyFile.println();
-        assemblyFile.flush();
+        codeSink.blankLine();
     }
 
     /**
@@ -124,8 +236,7 @@ public class CodeGenerator extends Backend
      */
     protected void emitLabel(Label label)
     {
-        assemblyFile.println(label + ":");
-        assemblyFile.flush();
+        codeSink.label(label);
     }
 
     /**
@@ -134,18 +245,17 @@ public class CodeGenerator extends Backend
      */
     protected void emitLabel(int value, Label label)
     {
-        assemblyFile.println("\t  " + value + ": " + label);
-        assemblyFile.flush();
+        codeSink.switchEntry(value, label);
     }
 
     /**
      * Emit a label preceded by a string value for a switch table.
+     * The only such value is "default".
      * @param label the label.
      */
     protected void emitLabel(String value, Label label)
     {
-        assemblyFile.println("\t  " + value + ": " + label);
-        assemblyFile.flush();
+        codeSink.switchDefault(label);
     }
 
     /**
@@ -154,9 +264,8 @@ public class CodeGenerator extends Backend
      */
     protected void emitDirective(Directive directive)
     {
-        assemblyFile.println(directive.toString());
-        assemblyFile.flush();
-        ++instructionCount;
+        codeSink.directive(directive);
+        context.countInstruction();
     }
 
     /**
@@ -166,9 +275,8 @@ public class CodeGenerator extends Backend
      */
     protected void emitDirective(Directive directive, String operand)
     {
-        assemblyFile.println(directive.toString() + " " + operand);
-        assemblyFile.flush();
-        ++instructionCount;
+        codeSink.directive(directive, operand);
+        context.countInstruction();
     }
 
     /**
@@ -178,9 +286,8 @@ public class CodeGenerator extends Backend
      */
     protected void emitDirective(Directive directive, int operand)
     {
-        assemblyFile.println(directive.toString() + " " + operand);
-        assemblyFile.flush();
-        ++instructionCount;
+        codeSink.directive(directive, operand);
+        context.countInstruction();
     }
 
     /**
@@ -191,10 +298,8 @@ public class CodeGenerator extends Backend
     protected void emitDirective(Directive directive,
                                  String operand1, String operand2)
     {
-        assemblyFile.println(directive.toString() + " " + operand1 +
-                                                    " " + operand2);
-        assemblyFile.flush();
-        ++instructionCount;
+        codeSink.directive(directive, operand1, operand2);
+        context.countInstruction();
     }
 
     /**
@@ -206,11 +311,8 @@ public class CodeGenerator extends Backend
                                  String operand1, String operand2,
                                  String operand3)
     {
-        assemblyFile.println(directive.toString() + " " + operand1 +
-                                                    " " + operand2 +
-                                                    " " + operand3);
-        assemblyFile.flush();
-        ++instructionCount;
+        codeSink.directive(directive, operand1, operand2, operand3);
+        context.countInstruction();
     }
 
     /**
@@ -219,9 +321,8 @@ public class CodeGenerator extends Backend
      */
     protected void emit(Instruction opcode)
     {
-        assemblyFile.println("\t" + opcode.toString());
-        assemblyFile.flush();
-        ++instructionCount;
+        codeSink.instruction(opcode);
+        context.countInstruction();
     }
 
     /**
@@ -231,9 +332,8 @@ public class CodeGenerator extends Backend
      */
     protected void emit(Instruction opcode, String operand)
     {
-        assemblyFile.println("\t" + opcode.toString() + "\t" + operand);
-        assemblyFile.flush();
-        ++instructionCount;
+        codeSink.instruction(opcode, operand);
+        context.countInstruction();
     }
 
     /**
@@ -243,9 +343,8 @@ public class CodeGenerator extends Backend
      */
     protected void emit(Instruction opcode, int operand)
     {
-        assemblyFile.println("\t" + opcode.toString() + "\t" + operand);
-        assemblyFile.flush();
-        ++instructionCount;
+        codeSink.instruction(opcode, operand);
+        context.countInstruction();
     }
 
     /**
@@ -255,9 +354,8 @@ public class CodeGenerator extends Backend
      */
     protected void emit(Instruction opcode, float operand)
     {
-        assemblyFile.println("\t" + opcode.toString() + "\t" + operand);
-        assemblyFile.flush();
-        ++instructionCount;
+        codeSink.instruction(opcode, operand);
+        context.countInstruction();
     }
 
     /**
@@ -267,9 +365,8 @@ public class CodeGenerator extends Backend
      */
     protected void emit(Instruction opcode, Label label)
     {
-        assemblyFile.println("\t" + opcode.toString() + "\t" + label);
-        assemblyFile.flush();
-        ++instructionCount;
+        codeSink.instruction(opcode, label);
+        context.countInstruction();
     }
 
     /**
@@ -280,10 +377,8 @@ public class CodeGenerator extends Backend
      */
     protected void emit(Instruction opcode, int operand1, int operand2)
     {
-        assemblyFile.println("\t" + opcode.toString() +
-                             "\t" + operand1 + " " + operand2);
-        assemblyFile.flush();
-        ++instructionCount;
+        codeSink.instruction(opcode, operand1, operand2);
+        context.countInstruction();
     }
 
     /**
@@ -294,10 +389,8 @@ public class CodeGenerator extends Backend
      */
     protected void emit(Instruction opcode, String operand1, String operand2)
     {
-        assemblyFile.println("\t" + opcode.toString() +
-                             "\t" + operand1 + " " + operand2);
-        assemblyFile.flush();
-        ++instructionCount;
+        codeSink.instruction(opcode, operand1, operand2);
+        context.countInstruction();
     }
 
     // =====
@@ -430,7 +523,7 @@ public class CodeGenerator extends Backend
 
         // Wrapped variable.
         else if (isWrapped(variableId)) {
-            int slot = (Integer) variableId.getAttribute(SLOT);
+            int slot = variableId.getSlot();
             emitLoadLocal(null, slot);
             emit(GETFIELD, varParmWrapper(variableType) + "/value",
                            typeDescriptor(variableType));
@@ -438,7 +531,7 @@ public class CodeGenerator extends Backend
 
         // Local variable.
         else {
-            int slot = (Integer) variableId.getAttribute(SLOT);
+            int slot = variableId.getSlot();
             emitLoadLocal(variableType, slot);
         }
     }
@@ -531,7 +624,7 @@ public class CodeGenerator extends Backend
     protected void emitStoreVariable(SymTabEntry variableId)
     {
         int nestingLevel = variableId.getSymTab().getNestingLevel();
-        int slot = (Integer) variableId.getAttribute(SLOT);
+        int slot = variableId.getSlot();
 
         emitStoreVariable(variableId, nestingLevel, slot);
     }
@@ -751,11 +844,29 @@ public class CodeGenerator extends Backend
     }
 
     /**
-     * Generate a type descriptor for a data type.
+     * Return the type descriptor for a data type.  The descriptor is
+     * generated the first time and then cached in the type specification.
      * @param type the data type.
      * @return the type descriptor.
      */
     protected String typeDescriptor(TypeSpec type)
+    {
+        String descriptor = type.getDescriptor();
+
+        if (descriptor == null) {
+            descriptor = generateTypeDescriptor(type);
+            type.setDescriptor(descriptor);
+        }
+
+        return descriptor;
+    }
+
+    /**
+     * Generate a type descriptor for a data type.
+     * @param type the data type.
+     * @return the type descriptor.
+     */
+    private String generateTypeDescriptor(TypeSpec type)
     {
         TypeForm form = type.getForm();
         StringBuffer buffer = new StringBuffer();
@@ -0,0 +1,111 @@
+package wci.backend.compiler;
+
+import java.io.IOException;
+
+/**
+ * <h1>CodeSink</h1>
+ *
+ * <p>The destination of the directives, instructions, and labels
+ * emitted by the code generator.</p>
+ *
+ * <p>Copyright (c) 2009 by Ronald Mak</p>
+ * <p>For instructional purposes only.  No warranties.</p>
+ */
+public interface CodeSink
+{
+    /**
+     * Output a blank line.
+     */
+    public void blankLine();
+
+    /**
+     * Output a label.
+     * @param label the label.
+     */
+    public void label(Label label);
+
+    /**
+     * Output a value and its branch label for a switch table.
+     * @param value the switch value.
+     * @param label the branch label.
+     */
+    public void switchEntry(int value, Label label);
+
+    /**
+     * Output the default branch label that completes a switch table.
+     * @param label the branch label.
+     */
+    public void switchDefault(Label label);
+
+    /**
+     * Output a directive.
+     * @param directive the directive code.
+     * @param operands the directive operands.
+     */
+    public void directive(Directive directive, String... operands);
+
+    /**
+     * Output a 1-operand directive.
+     * @param directive the directive code.
+     * @param operand the directive operand.
+     */
+    public void directive(Directive directive, int operand);
+
+    /**
+     * Output a 0-operand instruction.
+     * @param opcode the operation code.
+     */
+    public void instruction(Instruction opcode);
+
+    /**
+     * Output a 1-operand instruction.
+     * @param opcode the operation code.
+     * @param operand the operand text.
+     */
+    public void instruction(Instruction opcode, String operand);
+
+    /**
+     * Output a 1-operand instruction.
+     * @param opcode the operation code.
+     * @param operand the operand value.
+     */
+    public void instruction(Instruction opcode, int operand);
+
+    /**
+     * Output a 1-operand instruction.
+     * @param opcode the operation code.
+     * @param operand the operand value.
+     */
+    public void instruction(Instruction opcode, float operand);
+
+    /**
+     * Output a branch instruction.
+     * @param opcode the operation code.
+     * @param label the branch label.
+     */
+    public void instruction(Instruction opcode, Label label);
+
+    /**
+     * Output a 2-operand instruction.
+     * @param opcode the operation code.
+     * @param operand1 the value of the first operand.
+     * @param operand2 the value of the second operand.
+     */
+    public void instruction(Instruction opcode, int operand1, int operand2);
+
+    /**
+     * Output a 2-operand instruction.
+     * @param opcode the operation code.
+     * @param operand1 the text of the first operand.
+     * @param operand2 the text of the second operand.
+     */
+    public void instruction(Instruction opcode,
+                            String operand1, String operand2);
+
+    /**
+     * Complete the output.
+     * @throws IOException if an I/O error occurred.
+     */
+    public void close()
+        throws IOException;
+}
@@ -0,0 +1,196 @@
+package wci.backend.compiler;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * <h1>ConstantPool</h1>
+ *
+ * <p>The constant pool of a JVM class file.</p>
+ *
+ * <p>Copyright (c) 2009 by Ronald Mak</p>
+ * <p>For instructional purposes only.  No warranties.</p>
+ */
+public class ConstantPool
+{
+    // Constant pool entry tags.
+    private static final int UTF8          = 1;
+    private static final int INTEGER       = 3;
+    private static final int FLOAT         = 4;
+    private static final int CLASS         = 7;
+    private static final int STRING        = 8;
+    private static final int FIELD_REF     = 9;
+    private static final int METHOD_REF    = 10;
+    private static final int NAME_AND_TYPE = 12;
+
+    private ArrayList<Object[]> entries;      // tag followed by the operands
+    private HashMap<String, Integer> indexes; // entry key to pool index
+
+    /**
+     * Constructor.
+     */
+    public ConstantPool()
+    {
+        this.entries = new ArrayList<Object[]>();
+        this.indexes = new HashMap<String, Integer>();
+    }
+
+    /**
+     * @return the constant_pool_count value, which is one more than
+     *         the index of the last entry.
+     */
+    public int count()
+    {
+        return entries.size() + 1;
+    }
+
+    /**
+     * Add a CONSTANT_Utf8 entry.
+     * @param value the string value.
+     * @return the pool index of the entry.
+     */
+    public int utf8(String value)
+    {
+        return enter("U" + value, new Object[] {UTF8, value});
+    }
+
+    /**
+     * Add a CONSTANT_Integer entry.
+     * @param value the integer value.
+     * @return the pool index of the entry.
+     */
+    public int integer(int value)
+    {
+        return enter("I" + value, new Object[] {INTEGER, value});
+    }
+
+    /**
+     * Add a CONSTANT_Float entry.
+     * @param value the float value.
+     * @return the pool index of the entry.
+     */
+    public int real(float value)
+    {
+        return enter("F" + Float.floatToRawIntBits(value),
+                     new Object[] {FLOAT, value});
+    }
+
+    /**
+     * Add a CONSTANT_Class entry.
+     * @param name the internal class name or array descriptor.
+     * @return the pool index of the entry.
+     */
+    public int classRef(String name)
+    {
+        int nameIndex = utf8(name);
+        return enter("C" + name, new Object[] {CLASS, nameIndex});
+    }
+
+    /**
+     * Add a CONSTANT_String entry.
+     * @param value the string value.
+     * @return the pool index of the entry.
+     */
+    public int string(String value)
+    {
+        int valueIndex = utf8(value);
+        return enter("S" + value, new Object[] {STRING, valueIndex});
+    }
+
+    /**
+     * Add a CONSTANT_Fieldref entry.
+     * @param owner the internal name of the owning class.
+     * @param name the field name.
+     * @param descriptor the field type descriptor.
+     * @return the pool index of the entry.
+     */
+    public int fieldRef(String owner, String name, String descriptor)
+    {
+        return memberRef(FIELD_REF, owner, name, descriptor);
+    }
+
+    /**
+     * Add a CONSTANT_Methodref entry.
+     * @param owner the internal name of the owning class.
+     * @param name the method name.
+     * @param descriptor the method descriptor.
+     * @return the pool index of the entry.
+     */
+    public int methodRef(String owner, String name, String descriptor)
+    {
+        return memberRef(METHOD_REF, owner, name, descriptor);
+    }
+
+    /**
+     * Add a field or method reference entry.
+     * @param tag either FIELD_REF or METHOD_REF.
+     * @param owner the internal name of the owning class.
+     * @param name the member name.
+     * @param descriptor the member descriptor.
+     * @return the pool index of the entry.
+     */
+    private int memberRef(int tag, String owner, String name,
+                          String descriptor)
+    {
+        int classIndex = classRef(owner);
+        int nameIndex = utf8(name);
+        int typeIndex = utf8(descriptor);
+        int nameAndTypeIndex =
+            enter("N" + name + " " + descriptor,
+                  new Object[] {NAME_AND_TYPE, nameIndex, typeIndex});
+
+        return enter(tag + owner + "." + name + " " + descriptor,
+                     new Object[] {tag, classIndex, nameAndTypeIndex});
+    }
+
+    /**
+     * Enter an entry into the pool unless an equal entry already exists.
+     * @param key the key that identifies equal entries.
+     * @param entry the entry.
+     * @return the pool index of the entry.
+     */
+    private int enter(String key, Object entry[])
+    {
+        Integer index = indexes.get(key);
+
+        if (index == null) {
+            entries.add(entry);
+            index = entries.size();
+            indexes.put(key, index);
+        }
+
+        return index;
+    }
+
+    /**
+     * Write the constant_pool_count and the pool entries.
+     * @param out the class file output stream.
+     * @throws IOException if an I/O error occurred.
+     */
+    public void write(DataOutputStream out)
+        throws IOException
+    {
+        out.writeShort(count());
+
+        for (Object entry[] : entries) {
+            int tag = (Integer) entry[0];
+            out.writeByte(tag);
+
+            switch (tag) {
+                case UTF8:    out.writeUTF((String) entry[1]);     break;
+                case INTEGER: out.writeInt((Integer) entry[1]);    break;
+                case FLOAT:   out.writeFloat((Float) entry[1]);    break;
+
+                case CLASS:
+                case STRING:  out.writeShort((Integer) entry[1]);  break;
+
+                default: {
+                    out.writeShort((Integer) entry[1]);
+                    out.writeShort((Integer) entry[2]);
+                }
+            }
+        }
+    }
+}
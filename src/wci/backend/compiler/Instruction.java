@@ -11,58 +11,82 @@ package wci.backend.compiler;
 public enum Instruction
 {
     // Load constant
-    ICONST_0, ICONST_1, ICONST_2, ICONST_3, ICONST_4, ICONST_5, ICONST_M1,
-    FCONST_0, FCONST_1, FCONST_2, ACONST_NULL,
-    BIPUSH, SIPUSH, LDC,
+    ICONST_0(0x03), ICONST_1(0x04), ICONST_2(0x05), ICONST_3(0x06),
+    ICONST_4(0x07), ICONST_5(0x08), ICONST_M1(0x02),
+    FCONST_0(0x0b), FCONST_1(0x0c), FCONST_2(0x0d), ACONST_NULL(0x01),
+    BIPUSH(0x10), SIPUSH(0x11), LDC(0x12),
 
     // Load value or address
-    ILOAD_0, ILOAD_1, ILOAD_2, ILOAD_3,
-    FLOAD_0, FLOAD_1, FLOAD_2, FLOAD_3,
-    ALOAD_0, ALOAD_1, ALOAD_2, ALOAD_3,
-    ILOAD, FLOAD, ALOAD,
-    GETSTATIC, GETFIELD,
+    ILOAD_0(0x1a), ILOAD_1(0x1b), ILOAD_2(0x1c), ILOAD_3(0x1d),
+    FLOAD_0(0x22), FLOAD_1(0x23), FLOAD_2(0x24), FLOAD_3(0x25),
+    ALOAD_0(0x2a), ALOAD_1(0x2b), ALOAD_2(0x2c), ALOAD_3(0x2d),
+    ILOAD(0x15), FLOAD(0x17), ALOAD(0x19),
+    GETSTATIC(0xb2), GETFIELD(0xb4),
 
     // Store value or address
-    ISTORE_0, ISTORE_1, ISTORE_2, ISTORE_3,
-    FSTORE_0, FSTORE_1, FSTORE_2, FSTORE_3,
-    ASTORE_0, ASTORE_1, ASTORE_2, ASTORE_3,
-    ISTORE, FSTORE, ASTORE,
-    PUTSTATIC, PUTFIELD,
+    ISTORE_0(0x3b), ISTORE_1(0x3c), ISTORE_2(0x3d), ISTORE_3(0x3e),
+    FSTORE_0(0x43), FSTORE_1(0x44), FSTORE_2(0x45), FSTORE_3(0x46),
+    ASTORE_0(0x4b), ASTORE_1(0x4c), ASTORE_2(0x4d), ASTORE_3(0x4e),
+    ISTORE(0x36), FSTORE(0x38), ASTORE(0x3a),
+    PUTSTATIC(0xb3), PUTFIELD(0xb5),
 
     // Operand stack
-    POP, SWAP, DUP,
+    POP(0x57), SWAP(0x5f), DUP(0x59),
 
     // Arithmetic and logical
-    IADD, FADD, ISUB, FSUB, IMUL, FMUL,
-    IDIV, FDIV, IREM, FREM, INEG, FNEG,
-    IINC, IAND, IOR, IXOR,
+    IADD(0x60), FADD(0x62), ISUB(0x64), FSUB(0x66), IMUL(0x68), FMUL(0x6a),
+    IDIV(0x6c), FDIV(0x6e), IREM(0x70), FREM(0x72), INEG(0x74), FNEG(0x76),
+    IINC(0x84), IAND(0x7e), IOR(0x80), IXOR(0x82), ISHL(0x78),
 
     // Type conversion and checking
-    I2F, I2C, I2D, F2I, F2D, D2F,
-    CHECKCAST,
+    I2F(0x86), I2C(0x92), I2D(0x87), F2I(0x8b), F2D(0x8d), D2F(0x90),
+    CHECKCAST(0xc0),
 
     // Objects and arrays
-    NEW, NEWARRAY, ANEWARRAY, MULTIANEWARRAY,
-    IALOAD, FALOAD, BALOAD, CALOAD, AALOAD,
-    IASTORE, FASTORE, BASTORE, CASTORE, AASTORE,
+    NEW(0xbb), NEWARRAY(0xbc), ANEWARRAY(0xbd), MULTIANEWARRAY(0xc5),
+    IALOAD(0x2e), FALOAD(0x30), BALOAD(0x33), CALOAD(0x34), AALOAD(0x32),
+    IASTORE(0x4f), FASTORE(0x51), BASTORE(0x54), CASTORE(0x55), AASTORE(0x53),
 
     // Compare and branch
-    IFEQ, IFNE, IFLT, IFLE, IFGT, IFGE,
-    IF_ICMPEQ, IF_ICMPNE, IF_ICMPLT, IF_ICMPLE, IF_ICMPGT, IF_ICMPGE,
-    FCMPG, GOTO, LOOKUPSWITCH,
+    IFEQ(0x99), IFNE(0x9a), IFLT(0x9b), IFLE(0x9e), IFGT(0x9d), IFGE(0x9c),
+    IF_ICMPEQ(0x9f), IF_ICMPNE(0xa0), IF_ICMPLT(0xa1),
+    IF_ICMPLE(0xa4), IF_ICMPGT(0xa3), IF_ICMPGE(0xa2),
+    FCMPG(0x96), GOTO(0xa7), LOOKUPSWITCH(0xab),
 
     // Call and return
-    INVOKESTATIC, INVOKEVIRTUAL, INVOKENONVIRTUAL,
-    RETURN, IRETURN, FRETURN, ARETURN,
+    INVOKESTATIC(0xb8), INVOKEVIRTUAL(0xb6), INVOKENONVIRTUAL(0xb7),
+    RETURN(0xb1), IRETURN(0xac), FRETURN(0xae), ARETURN(0xb0),
 
     // No operation
-    NOP;
+    NOP(0x00);
+
+    private int opcode;
+    private String text;
+
+    /**
+     * Constructor.
+     * @param opcode the JVM operation code of the instruction.
+     */
+    Instruction(int opcode)
+    {
+        this.opcode = opcode;
+        this.text = super.toString().toLowerCase();
+    }
+
+    /**
+     * Getter.
+     * @return the JVM operation code of the instruction.
+     */
+    public int getOpcode()
+    {
+        return opcode;
+    }
 
     /**
      * @return the string that is emitted.
      */
     public String toString()
     {
-        return super.toString().toLowerCase();
+        return text;
     }
 }
@@ -12,23 +12,24 @@ import wci.intermediate.*;
  */
 public class Label
 {
-    private static int index = 0;  // index for generating label strings
-    private String label;          // the label string
+    private String label;  // the label string
 
     /**
      * Constructor.
+     * @param index the index for generating the label string.
      */
-    private Label()
+    private Label(int index)
     {
-        this.label = "L" + String.format("%03d", ++index);
+        this.label = "L" + String.format("%03d", index);
     }
 
     /**
-     * @return a new instruction label.
+     * @param context the context of the compilation.
+     * @return a new instruction label that is unique within the compilation.
      */
-    public static Label newLabel()
+    public static Label newLabel(CompilationContext context)
     {
-        return new Label();
+        return new Label(context.nextLabelIndex());
     }
 
     /**
@@ -59,14 +59,14 @@ public class AssignmentGenerator extends StatementGenerator
 
         // Assign a function value. Use the slot number of the function value.
         if (targetId.getDefinition() == DefinitionImpl.FUNCTION) {
-            slot = (Integer) targetId.getAttribute(SLOT);
+            slot = targetId.getSlot();
             nestingLevel = 2;
         }
 
         // Standard assignment.
         else {
             symTab = targetId.getSymTab();
-            slot = (Integer) targetId.getAttribute(SLOT);
+            slot = targetId.getSlot();
             nestingLevel = symTab.getNestingLevel();
         }
 
@@ -81,10 +81,10 @@ public class CallDeclaredGenerator extends CallGenerator
             // VAR parameter: An actual parameter that is not structured
             //                needs to be wrapped.
             if (isWrapped(formalId)) {
-                Integer wrapSlot = (Integer) actualId.getAttribute(WRAP_SLOT);
+                int wrapSlot = actualId.getWrapSlot();
 
                 // Already wrapped: Load the wrapper.
-                if (wrapSlot != null) {
+                if (wrapSlot != SymTabEntry.NO_SLOT) {
                     emitLoadLocal(null, wrapSlot);
                     localStack.increase(1);
                 }
@@ -92,7 +92,7 @@ public class CallDeclaredGenerator extends CallGenerator
                 // Actual parameter is itself a VAR parameter: No further
                 //                                             wrapping.
                 else if (actualId.getDefinition() == VAR_PARM) {
-                    int actualSlot = (Integer) actualId.getAttribute(SLOT);
+                    int actualSlot = actualId.getSlot();
                     emitLoadLocal(null, actualSlot);
                     localStack.increase(1);
                 }
@@ -101,7 +101,7 @@ public class CallDeclaredGenerator extends CallGenerator
                 //               wrapper's address.
                 else {
                     wrapSlot = localVariables.reserve();
-                    actualId.setAttribute(WRAP_SLOT, wrapSlot);
+                    actualId.setWrapSlot(wrapSlot);
                     generateWrap(actualNode, formalType, wrapSlot,
                                  exprGenerator);
                 }
@@ -259,8 +259,8 @@ public class CallDeclaredGenerator extends CallGenerator
                                 String programName)
     {
         SymTab symTab = actualId.getSymTab();
-        int actualSlot = (Integer) actualId.getAttribute(SLOT);
-        int wrapSlot = (Integer) actualId.getAttribute(WRAP_SLOT);
+        int actualSlot = actualId.getSlot();
+        int wrapSlot = actualId.getWrapSlot();
         String typeDesc = typeDescriptor(formalType);
         int nestingLevel = symTab.getNestingLevel();
         String wrapper = varParmWrapper(formalType);  // selected wrapper
@@ -282,8 +282,8 @@ public class CallStandardGenerator extends CallGenerator
 
                         // Boolean: Write "true" or "false".
                         if (dataType == Predefined.booleanType) {
-                            Label trueLabel = Label.newLabel();
-                            Label nextLabel = Label.newLabel();
+                            Label trueLabel = Label.newLabel(context);
+                            Label nextLabel = Label.newLabel(context);
                             emit(IFNE, trueLabel);
                             emit(LDC, "\"false\"");
                             emit(Instruction.GOTO, nextLabel);
@@ -4,6 +4,7 @@ import java.util.ArrayList;
 
 import wci.intermediate.*;
 import wci.intermediate.symtabimpl.*;
+import wci.intermediate.flowgraph.FlowGraph;
 import wci.backend.compiler.*;
 
 import static wci.intermediate.symtabimpl.SymTabKeyImpl.*;
@@ -46,7 +47,7 @@ public class DeclaredRoutineGenerator extends CodeGenerator
         // Reserve an extra variable for the function return value.
         if (routineId.getDefinition() == FUNCTION) {
             functionValueSlot = localVariables.reserve();
-            routineId.setAttribute(SLOT, functionValueSlot);
+            routineId.setSlot(functionValueSlot);
         }
 
         generateRoutineHeader(routineId);
@@ -96,7 +97,7 @@ public class DeclaredRoutineGenerator extends CodeGenerator
     {
         SymTab symTab = (SymTab) routineId.getAttribute(ROUTINE_SYMTAB);
         ArrayList<SymTabEntry> ids = symTab.sortedEntries();
-        ids.sort((s1, s2) -> (int) s1.getAttribute(SLOT) - (int) s2.getAttribute(SLOT));
+        ids.sort((s1, s2) -> s1.getSlot() - s2.getSlot());
 
         emitBlankLine();
 
@@ -107,7 +108,7 @@ public class DeclaredRoutineGenerator extends CodeGenerator
 
             if ((defn == VARIABLE) || (defn == VALUE_PARM)
                                    || (defn == VAR_PARM)) {
-                int slot = (Integer) id.getAttribute(SLOT);
+                int slot = id.getSlot();
                 emitDirective(VAR, slot + " is " + id.getName(),
                               typeDescriptor(id));
             }
@@ -135,9 +136,17 @@ public class DeclaredRoutineGenerator extends CodeGenerator
 
         emitBlankLine();
 
-        // Generate code for the compound statement.
-        StatementGenerator statementGenerator = new StatementGenerator(this);
-        statementGenerator.generate(root);
+        // Generate code for the flow graph if the optimizer built one,
+        // else for the compound statement.
+        FlowGraph flowGraph = (FlowGraph) routineId.getAttribute(ROUTINE_FLOW_GRAPH);
+        if (flowGraph != null) {
+            FlowGraphGenerator flowGraphGenerator = new FlowGraphGenerator(this);
+            flowGraphGenerator.generate(flowGraph);
+        }
+        else {
+            StatementGenerator statementGenerator = new StatementGenerator(this);
+            statementGenerator.generate(root);
+        }
     }
 
     /**
@@ -128,6 +128,13 @@ public class ExpressionGenerator extends StatementGenerator
                 break;
             }
 
+            case CONDITIONAL: {
+
+                // Generate code to evaluate a conditional expression.
+                generateConditional(node);
+                break;
+            }
+
             case CALL: {
 
                 // Generate code to call a function.
@@ -280,6 +287,47 @@ public class ExpressionGenerator extends StatementGenerator
         return fieldType;
     }
 
+    /**
+     * Generate code to evaluate a conditional expression.
+     * @param node the CONDITIONAL node.
+     */
+    private void generateConditional(ICodeNode node)
+    {
+        // Get the condition and the two expressions.
+        ArrayList<ICodeNode> children = node.getChildren();
+        ICodeNode conditionNode = children.get(0);
+        ICodeNode trueNode = children.get(1);
+        ICodeNode falseNode = children.get(2);
+        boolean realMode = node.getTypeSpec() == Predefined.realType;
+
+        Label falseLabel = Label.newLabel(context);
+        Label nextLabel = Label.newLabel(context);
+
+        // Evaluate the condition.
+        generate(conditionNode);
+        emit(IFEQ, falseLabel);
+        localStack.decrease(1);
+
+        // Evaluate the expression for true.
+        generate(trueNode);
+        if (realMode && TypeChecker.isInteger(trueNode.getTypeSpec())) {
+            emit(I2F);
+        }
+        emit(GOTO, nextLabel);
+
+        // Only one of the two values is on the operand stack.
+        localStack.decrease(1);
+
+        // Evaluate the expression for false.
+        emitLabel(falseLabel);
+        generate(falseNode);
+        if (realMode && TypeChecker.isInteger(falseNode.getTypeSpec())) {
+            emit(I2F);
+        }
+
+        emitLabel(nextLabel);
+    }
+
     // Set of arithmetic operator node types.
     private static final EnumSet<ICodeNodeTypeImpl> ARITH_OPS =
         EnumSet.of(ADD, SUBTRACT, MULTIPLY, FLOAT_DIVIDE, INTEGER_DIVIDE, MOD);
@@ -367,13 +415,34 @@ public class ExpressionGenerator extends StatementGenerator
             localStack.decrease(1);
         }
 
+        // =================
+        // Bitwise operators
+        // =================
+
+        else if (nodeType == BIT_AND) {
+            emit(IAND);
+            localStack.decrease(1);
+        }
+        else if (nodeType == BIT_OR) {
+            emit(IOR);
+            localStack.decrease(1);
+        }
+        else if (nodeType == BIT_XOR) {
+            emit(IXOR);
+            localStack.decrease(1);
+        }
+        else if (nodeType == SHIFT_LEFT) {
+            emit(ISHL);
+            localStack.decrease(1);
+        }
+
         // ====================
         // Relational operators
         // ====================
 
         else {
-            Label trueLabel = Label.newLabel();
-            Label nextLabel = Label.newLabel();
+            Label trueLabel = Label.newLabel(context);
+            Label nextLabel = Label.newLabel(context);
 
             if (integerMode || characterMode) {
                 switch (nodeType) {
@@ -0,0 +1,288 @@
+package wci.backend.compiler.generators;
+
+import java.util.ArrayList;
+
+import wci.intermediate.*;
+import wci.intermediate.flowgraph.*;
+import wci.backend.compiler.*;
+
+import static wci.intermediate.icodeimpl.ICodeNodeTypeImpl.*;
+import static wci.intermediate.icodeimpl.ICodeKeyImpl.*;
+import static wci.backend.compiler.Instruction.*;
+
+/**
+ * <h1>FlowGraphGenerator</h1>
+ *
+ * <p>Generate code for the flow graph of a routine instead of its parse
+ * tree.  The blocks are generated in the order of the graph's list, and
+ * a jump to the next block in the list falls through.</p>
+ *
+ * <p>The phi functions generate no code.  All the values of an SSA
+ * variable share the variable's slot, so the graph must be in
+ * conventional SSA form: no two values of a variable can be live at
+ * the same time, and a pass that breaks that must give a value its own
+ * variable before the graph is generated.</p>
+ *
+ * <p>Copyright (c) 2009 by Ronald Mak</p>
+ * <p>For instructional purposes only.  No warranties.</p>
+ */
+public class FlowGraphGenerator extends StatementGenerator
+{
+    private static final int NO_LINE = -1;
+
+    private Label labels[];  // by block index, null if not jumped to
+    private Label endLabel;  // label after the last block, or null
+
+    /**
+     * Constructor.
+     * @param the parent generator.
+     */
+    public FlowGraphGenerator(CodeGenerator parent)
+    {
+        super(parent);
+    }
+
+    /**
+     * Generate code for a flow graph.
+     * @param graph the flow graph.
+     * @throws PascalCompilerException if an error occurred.
+     */
+    public void generate(FlowGraph graph)
+        throws PascalCompilerException
+    {
+        ArrayList<BasicBlock> blocks = graph.getBlocks();
+
+        // Give each temporary variable its own slot.
+        for (SymTabEntry temporaryId : graph.getTemporaries()) {
+            temporaryId.setSlot(localVariables.reserve());
+        }
+
+        createLabels(blocks);
+
+        ExpressionGenerator expressionGenerator = new ExpressionGenerator(this);
+        StatementGenerator statementGenerator = new StatementGenerator(this);
+
+        for (BasicBlock block : blocks) {
+            if (labels[block.getIndex()] != null) {
+                emitLabel(labels[block.getIndex()]);
+            }
+
+            // A temporary variable's assignment has the line number of
+            // the statement it was taken from, so the assignment and
+            // the statement next to it need only one .line directive.
+            int previousLine = NO_LINE;
+            boolean previousTemporary = false;
+
+            for (ICodeNode statement : block.getStatements()) {
+                boolean temporary = isTemporaryAssignment(graph, statement);
+                int line = statement.getType() != COMPOUND
+                               ? getLineNumber(statement) : NO_LINE;
+
+                statementGenerator.generate(statement,
+                       (line != previousLine)
+                    || !(temporary || previousTemporary));
+
+                previousLine = line;
+                previousTemporary = temporary;
+            }
+
+            ArrayList<BasicBlock> successors = block.getSuccessors();
+
+            switch (block.getTerminator()) {
+
+                case JUMP: {
+                    BasicBlock target = successors.get(0);
+
+                    if (!isNext(block, target)) {
+                        emit(GOTO, labels[target.getIndex()]);
+                    }
+
+                    break;
+                }
+
+                case BRANCH: {
+                    BasicBlock trueTarget = successors.get(0);
+                    BasicBlock falseTarget = successors.get(1);
+
+                    expressionGenerator.generate(block.getCondition());
+
+                    if (isNext(block, falseTarget)) {
+                        emit(IFNE, labels[trueTarget.getIndex()]);
+                    }
+                    else if (isNext(block, trueTarget)) {
+                        emit(IFEQ, labels[falseTarget.getIndex()]);
+                    }
+                    else {
+                        emit(IFNE, labels[trueTarget.getIndex()]);
+                        emit(GOTO, labels[falseTarget.getIndex()]);
+                    }
+
+                    localStack.decrease(1);
+                    break;
+                }
+
+                case SWITCH: {
+                    expressionGenerator.generate(block.getCondition());
+                    generateLookupSwitch(block);
+                    break;
+                }
+
+                case EXIT: {
+                    if (block.getIndex() < blocks.size() - 1) {
+                        emit(GOTO, endLabel);
+                    }
+
+                    break;
+                }
+            }
+        }
+
+        if (endLabel != null) {
+            emitLabel(endLabel);
+        }
+    }
+
+    /**
+     * @param graph the flow graph.
+     * @param statement a statement node.
+     * @return true if it assigns to a temporary variable of the graph.
+     */
+    private boolean isTemporaryAssignment(FlowGraph graph,
+                                          ICodeNode statement)
+    {
+        if (statement.getType() != ASSIGN) {
+            return false;
+        }
+
+        ICodeNode targetNode = statement.getChildren().get(0);
+        return graph.getTemporaries().contains(targetNode.getAttribute(ID));
+    }
+
+    /**
+     * Create the labels of the blocks that are jumped to.
+     * @param blocks the blocks of the graph.
+     */
+    private void createLabels(ArrayList<BasicBlock> blocks)
+    {
+        labels = new Label[blocks.size()];
+        endLabel = null;
+
+        for (BasicBlock block : blocks) {
+            ArrayList<BasicBlock> successors = block.getSuccessors();
+
+            switch (block.getTerminator()) {
+
+                case JUMP: {
+                    if (!isNext(block, successors.get(0))) {
+                        createLabel(successors.get(0));
+                    }
+
+                    break;
+                }
+
+                case BRANCH: {
+                    BasicBlock trueTarget = successors.get(0);
+                    BasicBlock falseTarget = successors.get(1);
+
+                    if (isNext(block, falseTarget)) {
+                        createLabel(trueTarget);
+                    }
+                    else if (isNext(block, trueTarget)) {
+                        createLabel(falseTarget);
+                    }
+                    else {
+                        createLabel(trueTarget);
+                        createLabel(falseTarget);
+                    }
+
+                    break;
+                }
+
+                case SWITCH: {
+                    for (BasicBlock successor : successors) {
+                        createLabel(successor);
+                    }
+
+                    break;
+                }
+
+                case EXIT: {
+                    if (   (block.getIndex() < blocks.size() - 1)
+                        && (endLabel == null))
+                    {
+                        endLabel = Label.newLabel(context);
+                    }
+
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Create the label of a block if it doesn't have one.
+     * @param block the block.
+     */
+    private void createLabel(BasicBlock block)
+    {
+        if (labels[block.getIndex()] == null) {
+            labels[block.getIndex()] = Label.newLabel(context);
+        }
+    }
+
+    /**
+     * @param block a block.
+     * @param target a successor of the block.
+     * @return true if the successor comes right after the block.
+     */
+    private boolean isNext(BasicBlock block, BasicBlock target)
+    {
+        return target.getIndex() == block.getIndex() + 1;
+    }
+
+    /**
+     * Generate code for the LOOKUPSWITCH instruction of a block.
+     * @param block the block.
+     */
+    private void generateLookupSwitch(BasicBlock block)
+    {
+        ArrayList<BasicBlock> successors = block.getSuccessors();
+        int switchValues[][] = block.getSwitchValues();
+        ArrayList<Integer> values = new ArrayList<Integer>();
+        ArrayList<Label> valueLabels = new ArrayList<Label>();
+
+        for (int i = 0; i < switchValues.length; ++i) {
+            Label label = labels[successors.get(i).getIndex()];
+
+            for (int value : switchValues[i]) {
+                values.add(value);
+                valueLabels.add(label);
+            }
+        }
+
+        // Simple insertion sort on the values.
+        for (int i = 0; i < values.size()-1; ++i) {
+            for (int j = i+1; j < values.size(); ++j) {
+                if (values.get(i) > values.get(j)) {
+                    Integer tempValue = values.get(i);
+                    Label tempLabel = valueLabels.get(i);
+                    values.set(i, values.get(j));
+                    valueLabels.set(i, valueLabels.get(j));
+                    values.set(j, tempValue);
+                    valueLabels.set(j, tempLabel);
+                }
+            }
+        }
+
+        emit(LOOKUPSWITCH);
+
+        for (int i = 0; i < values.size(); ++i) {
+            emitLabel(values.get(i), valueLabels.get(i));
+        }
+
+        BasicBlock defaultTarget = successors.get(successors.size() - 1);
+        emitLabel("default", labels[defaultTarget.getIndex()]);
+
+        localStack.decrease(1);
+    }
+}
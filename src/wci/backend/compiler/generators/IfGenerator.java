@@ -39,7 +39,7 @@ public class IfGenerator extends StatementGenerator
         ICodeNode elseNode = children.size() > 2 ? children.get(2) : null;
         ExpressionGenerator expressionGenerator = new ExpressionGenerator(this);
         StatementGenerator  statementGenerator  = new StatementGenerator(this);
-        Label nextLabel = Label.newLabel();
+        Label nextLabel = Label.newLabel(context);
 
         // Generate code for the boolean expression.
         expressionGenerator.generate(expressionNode);
@@ -54,7 +54,7 @@ public class IfGenerator extends StatementGenerator
 
         // Generate code for a THEN statement and an ELSE statement.
         else {
-            Label falseLabel = Label.newLabel();
+            Label falseLabel = Label.newLabel(context);
 
             emit(IFEQ, falseLabel);
             localStack.decrease(1);
@@ -44,8 +44,8 @@ public class LoopGenerator extends StatementGenerator
         ArrayList<ICodeNode> loopChildren = node.getChildren();
         ExpressionGenerator expressionGenerator = new ExpressionGenerator(this);
         StatementGenerator statementGenerator = new StatementGenerator(this);
-        Label loopLabel = Label.newLabel();
-        Label nextLabel = Label.newLabel();
+        Label loopLabel = Label.newLabel(context);
+        Label nextLabel = Label.newLabel(context);
 
         emitLabel(loopLabel);
 
@@ -4,6 +4,7 @@ import java.util.ArrayList;
 
 import wci.intermediate.*;
 import wci.intermediate.symtabimpl.*;
+import wci.intermediate.flowgraph.FlowGraph;
 import wci.intermediate.typeimpl.TypeFormImpl;
 import wci.intermediate.typeimpl.TypeKeyImpl;
 import wci.intermediate.typeimpl.TypeSpecImpl;
@@ -188,10 +189,10 @@ public class ProgramGenerator extends CodeGenerator
             SymTab symTab = (SymTab) main.getAttribute(ROUTINE_SYMTAB);
             ArrayList<SymTabEntry> ids = symTab.sortedEntries();
             for (SymTabEntry e : ids) {
-            	e.setAttribute(SLOT, (int) e.getAttribute(SLOT) + 1);
+            	e.setSlot(e.getSlot() + 1);
             }
             SymTabEntry args = symTab.enter("main");
-            args.setAttribute(SLOT, 0);
+            args.setSlot(0);
             args.setDefinition(DefinitionImpl.VAR_PARM);
             args.setTypeSpec(new TypeSpecImpl("[Ljava/lang/String"));
             
@@ -199,9 +200,17 @@ public class ProgramGenerator extends CodeGenerator
         	routineGenerator.generateRoutineLocals(main);
     	}
     	
-        // Generate code for the compound statement.
-        StatementGenerator statementGenerator = new StatementGenerator(this);
-        statementGenerator.generate(root);
+        // Generate code for the flow graph if the optimizer built one,
+        // else for the compound statement.
+        FlowGraph flowGraph = (FlowGraph) programId.getAttribute(ROUTINE_FLOW_GRAPH);
+        if (flowGraph != null) {
+            FlowGraphGenerator flowGraphGenerator = new FlowGraphGenerator(this);
+            flowGraphGenerator.generate(flowGraph);
+        }
+        else {
+            StatementGenerator statementGenerator = new StatementGenerator(this);
+            statementGenerator.generate(root);
+        }
     }
 
     /**
@@ -38,13 +38,28 @@ public class StatementGenerator extends CodeGenerator
      */
     public void generate(ICodeNode node)
         throws PascalCompilerException
+    {
+        generate(node, true);
+    }
+
+    /**
+     * Generate code for a statement.
+     * @param node the root node of the statement.
+     * @param lineDirective false to leave out the .line directive, when
+     *                      the code before has the same line number.
+     */
+    public void generate(ICodeNode node, boolean lineDirective)
+        throws PascalCompilerException
     {
         ICodeNodeTypeImpl nodeType = (ICodeNodeTypeImpl) node.getType();
         int line = 0;
 
         if (nodeType != COMPOUND) {
             line = getLineNumber(node);
-            emitDirective(Directive.LINE, line);
+
+            if (lineDirective) {
+                emitDirective(Directive.LINE, line);
+            }
         }
 
         // Generate code for a statement according to the type of statement.
@@ -102,7 +117,7 @@ public class StatementGenerator extends CodeGenerator
      * @param node the parse tree node.
      * @return the line number.
      */
-    private int getLineNumber(ICodeNode node)
+    protected int getLineNumber(ICodeNode node)
     {
         Object lineNumber = null;
 
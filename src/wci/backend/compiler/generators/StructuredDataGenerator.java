@@ -153,8 +153,8 @@ public class StructuredDataGenerator extends CodeGenerator
     {
         int count = (Integer) elmtType.getAttribute(ARRAY_ELEMENT_COUNT);
         int tempIndex = localVariables.reserve();  // temporary loop variable
-        Label loopStartLabel = Label.newLabel();
-        Label loopExitLabel  = Label.newLabel();
+        Label loopStartLabel = Label.newLabel(context);
+        Label loopExitLabel  = Label.newLabel(context);
 
         // Initialize temporary variable to 0.
         emitBlankLine();
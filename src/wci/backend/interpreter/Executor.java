@@ -0,0 +1,97 @@
+package wci.backend.interpreter;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+import wci.backend.compiler.CodeGenerator;
+import wci.intermediate.*;
+import wci.message.*;
+
+import static wci.message.MessageType.RUNTIME_ERROR;
+
+/**
+ * <h1>Executor</h1>
+ *
+ * <p>The executor for an interpreter back end.  It compiles the program
+ * into a class file in memory and runs the class's main method in this
+ * JVM, without an assembly file, an assembler, or another JVM.</p>
+ *
+ * <p>Copyright (c) 2009 by Ronald Mak</p>
+ * <p>For instructional purposes only.  No warranties.</p>
+ */
+public class Executor extends CodeGenerator
+{
+    /**
+     * Constructor.
+     */
+    public Executor() {}
+
+    /**
+     * Constructor.
+     * @param context the context of the compilation.
+     */
+    public Executor(CompilationContext context)
+    {
+        super(context, true);
+    }
+
+    /**
+     * Process the intermediate code and the symbol table generated by the
+     * parser to compile and execute the program.
+     * @param iCode the intermediate code.
+     * @param symTabStack the symbol table stack.
+     * @throws Exception if an error occurred.
+     */
+    public void process(ICode iCode, SymTabStack symTabStack)
+        throws Exception
+    {
+        this.symTabStack = symTabStack;
+        long startTime = System.currentTimeMillis();
+
+        SymTabEntry programId = symTabStack.getProgramId();
+        programName = programId.getName();
+
+        byte classFile[] = assembleClass(iCode);
+        sendCompilerSummary(startTime);
+
+        // Define the program class and call its main method.
+        ClassLoader loader =
+            new ProgramClassLoader(programName, classFile,
+                                   Executor.class.getClassLoader());
+        Class<?> programClass = loader.loadClass(programName);
+        Method main = programClass.getMethod("main", String[].class);
+
+        try {
+            main.invoke(null, (Object) new String[0]);
+        }
+        catch (InvocationTargetException ex) {
+            runtimeError(ex.getCause());
+        }
+    }
+
+    /**
+     * Send a runtime error message for an exception thrown by the program,
+     * with the source line number from the program's stack frame if any.
+     * @param cause the exception.
+     */
+    private void runtimeError(Throwable cause)
+    {
+        Integer lineNumber = null;
+
+        for (StackTraceElement frame : cause.getStackTrace()) {
+            if (frame.getClassName().equals(programName)
+                && (frame.getLineNumber() > 0))
+            {
+                lineNumber = frame.getLineNumber();
+                break;
+            }
+        }
+
+        String message = cause.getMessage() != null
+                             ? cause.getMessage()
+                             : cause.getClass().getName();
+
+        sendMessage(new Message(RUNTIME_ERROR,
+                                new Object[] {message, lineNumber}));
+    }
+}
@@ -0,0 +1,114 @@
+package wci.backend.interpreter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashSet;
+
+/**
+ * <h1>ProgramClassLoader</h1>
+ *
+ * <p>A class loader that defines a compiled program's class from its
+ * class file bytes in memory, together with its own copies of the
+ * runtime library classes so that each run starts with fresh runtime
+ * state.  All other classes come from the parent class loader.</p>
+ *
+ * <p>Copyright (c) 2009 by Ronald Mak</p>
+ * <p>For instructional purposes only.  No warranties.</p>
+ */
+public class ProgramClassLoader extends ClassLoader
+{
+    // Runtime library classes that compiled programs call.
+    private static final HashSet<String> RUNTIME_CLASSES =
+        new HashSet<String>(Arrays.asList(
+            "RunTimer", "PascalTextIn", "PascalRuntimeException",
+            "IWrap", "RWrap", "BWrap", "CWrap",
+            "Cloner", "PaddedString", "RangeChecker"));
+
+    private String programName;  // name of the program class
+    private byte classFile[];    // bytes of the program's class file
+
+    /**
+     * Constructor.
+     * @param programName the name of the program class.
+     * @param classFile the bytes of the program's class file.
+     * @param parent the parent class loader of the runtime library.
+     */
+    public ProgramClassLoader(String programName, byte classFile[],
+                              ClassLoader parent)
+    {
+        super(parent);
+
+        this.programName = programName;
+        this.classFile = classFile;
+    }
+
+    /**
+     * Load a class, defining the program and runtime library classes
+     * in this class loader.
+     * @param name the class name.
+     * @param resolve true to resolve the class.
+     * @return the class.
+     * @throws ClassNotFoundException if the class was not found.
+     */
+    protected Class<?> loadClass(String name, boolean resolve)
+        throws ClassNotFoundException
+    {
+        synchronized (getClassLoadingLock(name)) {
+            Class<?> loaded = findLoadedClass(name);
+
+            if (loaded == null) {
+                if (name.equals(programName)) {
+                    loaded = defineClass(name, classFile, 0, classFile.length);
+                }
+                else if (RUNTIME_CLASSES.contains(name)) {
+                    byte bytes[] = runtimeClassFile(name);
+                    loaded = defineClass(name, bytes, 0, bytes.length);
+                }
+                else {
+                    return super.loadClass(name, resolve);
+                }
+            }
+
+            if (resolve) {
+                resolveClass(loaded);
+            }
+
+            return loaded;
+        }
+    }
+
+    /**
+     * Read the class file of a runtime library class
+     * through the parent class loader.
+     * @param name the class name.
+     * @return the bytes of the class file.
+     * @throws ClassNotFoundException if the class file was not found.
+     */
+    private byte[] runtimeClassFile(String name)
+        throws ClassNotFoundException
+    {
+        InputStream in = getParent().getResourceAsStream(name + ".class");
+
+        if (in == null) {
+            throw new ClassNotFoundException(name);
+        }
+
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte buffer[] = new byte[4096];
+            int count;
+
+            while ((count = in.read(buffer)) > 0) {
+                bytes.write(buffer, 0, count);
+            }
+
+            in.close();
+            return bytes.toByteArray();
+        }
+        catch (IOException ex) {
+            throw new ClassNotFoundException(name, ex);
+        }
+    }
+}
@@ -21,6 +21,18 @@ public class EofToken extends Token
         super(source);
     }
 
+    /**
+     * Constructor for the end-of-file token that a scanner returns after
+     * another one.  Creating a token consumes a character even at the end
+     * of the file, so it is one position later.
+     * @param previous the other end-of-file token.
+     */
+    public EofToken(EofToken previous)
+    {
+        super(previous);
+        ++position;
+    }
+
     /**
      * Do nothing.  Do not consume any source characters.
      * @param source the source from where to fetch the token's characters.
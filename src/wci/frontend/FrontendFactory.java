@@ -2,6 +2,7 @@ package wci.frontend;
 
 import wci.frontend.subc.SubCParserTD;
 import wci.frontend.subc.SubCScanner;
+import wci.intermediate.CompilationContext;
 
 /**
  * <h1>FrontendFactory</h1>
@@ -24,12 +25,52 @@ public class FrontendFactory
     public static Parser createParser(String language, String type,
                                       Source source)
         throws Exception
+    {
+        return createParser(language, type, source, new CompilationContext());
+    }
+
+    /**
+     * Create a parser for a compilation.
+     * @param language the name of the source language (e.g., "SubC").
+     * @param type the type of parser (e.g., "top-down").
+     * @param source the source object.
+     * @param context the context of the compilation.
+     * @return the parser.
+     * @throws Exception if an error occurred.
+     */
+    public static Parser createParser(String language, String type,
+                                      Source source,
+                                      CompilationContext context)
+        throws Exception
+    {
+        return createParser(language, type, source, context, false);
+    }
+
+    /**
+     * Create a parser for a compilation.
+     * @param language the name of the source language (e.g., "SubC").
+     * @param type the type of parser (e.g., "top-down").
+     * @param source the source object.
+     * @param context the context of the compilation.
+     * @param pipelined true to scan the source on a thread of its own.
+     * @return the parser.
+     * @throws Exception if an error occurred.
+     */
+    public static Parser createParser(String language, String type,
+                                      Source source,
+                                      CompilationContext context,
+                                      boolean pipelined)
+        throws Exception
     {
         if (language.equalsIgnoreCase("SubC") &&
             type.equalsIgnoreCase("top-down"))
         {
-            Scanner scanner = new SubCScanner(source);
-            return new SubCParserTD(scanner);
+            Scanner scanner = new SubCScanner(source, context.getNameTable());
+            if (pipelined) {
+                scanner = new PipelinedScanner(scanner);
+            }
+
+            return new SubCParserTD(scanner, context);
         }
         else if (!language.equalsIgnoreCase("SubC")) {
             throw new Exception("Parser factory: Invalid language '" +
@@ -0,0 +1,359 @@
+package wci.frontend;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+import wci.message.*;
+import static wci.message.MessageType.SOURCE_LINE;
+
+/**
+ * <h1>MappedSource</h1>
+ *
+ * <p>A source program held in a single buffer instead of being read a line
+ * at a time.  A large file is memory-mapped, and a small file or program
+ * text that is already in memory is used as is.  When every byte is ASCII,
+ * the characters are the bytes themselves with no decoding.  Otherwise the
+ * text is decoded once with the default character set, as a FileReader
+ * would.</p>
+ *
+ * <p>The current, next, and following characters are found by index
+ * arithmetic on the buffer.  The text of a line is created only on demand,
+ * for listings and error messages, and the SOURCE_LINE message is sent
+ * only when there are listeners.  The line terminators are the same as
+ * for BufferedReader.readLine():  \n, \r, or \r\n.</p>
+ *
+ * <p>Copyright (c) 2009 by Ronald Mak</p>
+ * <p>For instructional purposes only.  No warranties.</p>
+ */
+public class MappedSource extends Source
+{
+    private static final int MAP_THRESHOLD = 1024*1024;  // smallest file to map
+
+    private ByteBuffer bytes;   // ASCII source text, or null
+    private char chars[];       // decoded source text, or null
+    private int length;         // length of the source text
+
+    private int lineStarts[];   // offset of the start of each line read so far
+    private int lineNum;        // current source line number
+    private int lineStart;      // offset of the start of the current line
+    private int lineLength;     // length of the current line, without the EOL
+    private int nextLineStart;  // offset of the start of the next line
+    private int currentPos;     // current source line position
+    private boolean atEnd;      // true after the last line has been read
+
+    /**
+     * Constructor.
+     * @param file the source file.
+     * @throws IOException if an I/O error occurred.
+     */
+    public MappedSource(File file)
+        throws IOException
+    {
+        FileInputStream input = new FileInputStream(file);
+
+        try {
+            FileChannel channel = input.getChannel();
+            long size = channel.size();
+
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException(file.getPath() + " is too large");
+            }
+
+            ByteBuffer buffer;
+
+            // Map a large file.
+            if (size >= MAP_THRESHOLD) {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            }
+
+            // Read a small file.
+            else {
+                buffer = ByteBuffer.allocate((int) size);
+                while (buffer.hasRemaining() && (channel.read(buffer) >= 0)) {}
+                buffer.flip();
+            }
+
+            initialize(buffer);
+        }
+        finally {
+            input.close();
+        }
+    }
+
+    /**
+     * Constructor.
+     * @param text the bytes of the source program text,
+     *             in the default character set.
+     */
+    public MappedSource(byte text[])
+    {
+        initialize(ByteBuffer.wrap(text));
+    }
+
+    /**
+     * Set up the source text.
+     * @param buffer the bytes of the source text.
+     */
+    private void initialize(ByteBuffer buffer)
+    {
+        this.length = buffer.limit();
+
+        if (isAscii(buffer)) {
+            this.bytes = buffer;
+        }
+        else {
+            CharBuffer decoded = Charset.defaultCharset().decode(buffer);
+            this.chars = new char[decoded.remaining()];
+            decoded.get(chars);
+            this.length = chars.length;
+        }
+
+        this.lineStarts = new int[1024];
+        this.lineNum = 0;
+        this.nextLineStart = 0;
+        this.currentPos = -2;  // set to -2 to read the first source line
+        this.atEnd = false;
+    }
+
+    /**
+     * Determine whether every byte of a buffer is an ASCII character.
+     * @param buffer the buffer.
+     * @return true if so.
+     */
+    private static boolean isAscii(ByteBuffer buffer)
+    {
+        for (int i = 0, limit = buffer.limit(); i < limit; ++i) {
+            if (buffer.get(i) < 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Return the character at an offset into the source text.
+     * @param offset the offset.
+     * @return the character.
+     */
+    private char charAt(int offset)
+    {
+        return bytes != null ? (char) bytes.get(offset) : chars[offset];
+    }
+
+    /**
+     * Getter.
+     * @return the current source line number.
+     */
+    public int getLineNum()
+    {
+        return lineNum;
+    }
+
+    /**
+     * Getter.
+     * @return the position of the next source character in the
+     * current source line.
+     */
+    public int getPosition()
+    {
+        return currentPos;
+    }
+
+    /**
+     * Return the text of a source line that has already been read.
+     * @param lineNumber the line number.
+     * @return the line text, or null if the line hasn't been read.
+     */
+    public String getLineText(int lineNumber)
+    {
+        if ((lineNumber < 1) || (lineNumber > lineNum)) {
+            return null;
+        }
+
+        int start = lineStarts[lineNumber - 1];
+        int end = start;
+        char ch;
+
+        while (   (end < length)
+               && ((ch = charAt(end)) != '\n') && (ch != '\r')) {
+            ++end;
+        }
+
+        StringBuilder text = new StringBuilder(end - start);
+        for (int i = start; i < end; ++i) {
+            text.append(charAt(i));
+        }
+
+        return text.toString();
+    }
+
+    /**
+     * Return the source character at the current position.
+     * @return the source character at the current position.
+     * @throws Exception if an error occurred.
+     */
+    public char currentChar()
+        throws Exception
+    {
+        // First time?
+        if (currentPos == -2) {
+            readLine();
+            return nextChar();
+        }
+
+        // At end of file?
+        else if (atEnd) {
+            return EOF;
+        }
+
+        // At end of line?
+        else if ((currentPos == -1) || (currentPos == lineLength)) {
+            return EOL;
+        }
+
+        // Need to read the next line?
+        else if (currentPos > lineLength) {
+            readLine();
+            return nextChar();
+        }
+
+        // Return the character at the current position.
+        else {
+            return charAt(lineStart + currentPos);
+        }
+    }
+
+    /**
+     * Consume the current source character and return the next character.
+     * @return the next source character.
+     * @throws Exception if an error occurred.
+     */
+    public char nextChar()
+        throws Exception
+    {
+        ++currentPos;
+        return currentChar();
+    }
+
+    /**
+     * Return the source character following the current character without
+     * consuming the current character.
+     * @return the following character.
+     * @throws Exception if an error occurred.
+     */
+    public char peekChar()
+        throws Exception
+    {
+        currentChar();
+        if (atEnd) {
+            return EOF;
+        }
+
+        int nextPos = currentPos + 1;
+        return nextPos < lineLength ? charAt(lineStart + nextPos) : EOL;
+    }
+
+    /**
+     * @return true if at the end of the line, else return false.
+     * @throws Exception if an error occurred.
+     */
+    public boolean atEol()
+        throws Exception
+    {
+        return (currentPos != -2) && !atEnd && (currentPos == lineLength);
+    }
+
+    /**
+     * @return true if at the end of the file, else return false.
+     * @throws Exception if an error occurred.
+     */
+    public boolean atEof()
+        throws Exception
+    {
+        // First time?
+        if (currentPos == -2) {
+            readLine();
+        }
+
+        return atEnd;
+    }
+
+    /**
+     * Skip the rest of the current input line
+     * by forcing the next read to read a new line.
+     * @throws Exception if an error occurred.
+     */
+    public void skipToNextLine()
+        throws Exception
+    {
+        if ((currentPos != -2) && !atEnd) {
+            currentPos = lineLength + 1;
+        }
+    }
+
+    /**
+     * Advance to the next source line.
+     */
+    private void readLine()
+    {
+        currentPos = -1;
+
+        if (nextLineStart >= length) {
+            atEnd = true;
+            return;
+        }
+
+        // Find the end of the line.
+        lineStart = nextLineStart;
+        int end = lineStart;
+        char ch = 0;
+
+        while ((end < length) && ((ch = charAt(end)) != '\n') && (ch != '\r')) {
+            ++end;
+        }
+
+        lineLength = end - lineStart;
+
+        // Skip the line terminator.
+        if (end < length) {
+            ++end;
+            if ((ch == '\r') && (end < length) && (charAt(end) == '\n')) {
+                ++end;
+            }
+        }
+        nextLineStart = end;
+
+        // Index the start of the line.
+        if (lineNum == lineStarts.length) {
+            int grown[] = new int[2*lineStarts.length];
+            System.arraycopy(lineStarts, 0, grown, 0, lineNum);
+            lineStarts = grown;
+        }
+        lineStarts[lineNum++] = lineStart;
+
+        // Send a source line message containing the line number
+        // and the line text to all the listeners, if any.
+        if (hasMessageListeners()) {
+            sendMessage(new Message(SOURCE_LINE,
+                                    new Object[] {lineNum,
+                                                  getLineText(lineNum)}));
+        }
+    }
+
+    /**
+     * Close the source.
+     * @throws Exception if an error occurred.
+     */
+    public void close()
+        throws Exception
+    {
+        bytes = null;
+        chars = null;
+    }
+}
@@ -14,13 +14,9 @@ import wci.message.*;
  */
 public abstract class Parser implements MessageProducer
 {
-    protected static SymTabStack symTabStack;        // symbol table stack
-    protected static MessageHandler messageHandler;  // message handler delegate
-
-    static {
-        symTabStack = SymTabFactory.createSymTabStack();
-        messageHandler = new MessageHandler();
-    }
+    protected CompilationContext context;     // context of this compilation
+    protected SymTabStack symTabStack;        // symbol table stack
+    protected MessageHandler messageHandler;  // message handler delegate
 
     protected Scanner scanner;  // scanner used with this parser
 
@@ -29,8 +25,34 @@ public abstract class Parser implements MessageProducer
      * @param scanner the scanner to be used with this parser.
      */
     protected Parser(Scanner scanner)
+    {
+        this(scanner, new CompilationContext());
+    }
+
+    /**
+     * Constructor.
+     * @param scanner the scanner to be used with this parser.
+     * @param context the context of the compilation.
+     */
+    protected Parser(Scanner scanner, CompilationContext context)
     {
         this.scanner = scanner;
+        this.context = context;
+        this.symTabStack = context.getSymTabStack();
+        this.messageHandler = new MessageHandler();
+    }
+
+    /**
+     * Constructor for subclasses.  The new parser shares the scanner,
+     * the compilation context, and the message handler of its parent.
+     * @param parent the parent parser.
+     */
+    protected Parser(Parser parent)
+    {
+        this.scanner = parent.scanner;
+        this.context = parent.context;
+        this.symTabStack = parent.symTabStack;
+        this.messageHandler = parent.messageHandler;
     }
 
     /**
@@ -42,6 +64,15 @@ public abstract class Parser implements MessageProducer
         return scanner;
     }
 
+    /**
+     * Getter.
+     * @return the context of the compilation.
+     */
+    public CompilationContext getContext()
+    {
+        return context;
+    }
+
     /**
      * Getter.
      * @return the symbol table stack generated by this parser.
@@ -0,0 +1,303 @@
+package wci.frontend;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import wci.message.*;
+
+/**
+ * <h1>PipelinedScanner</h1>
+ *
+ * <p>A scanner that runs a language-specific scanner on a thread of its
+ * own, so that reading and scanning the source overlap with parsing.
+ * The scanning thread puts the tokens into a bounded ring buffer that
+ * has a single producer and a single consumer, and the parser takes them
+ * out with nextToken() as usual.  The parser can also look ahead any
+ * number of tokens, up to the size of the ring, with peekToken().</p>
+ *
+ * <p>The source's messages are sent while the scanning thread reads ahead
+ * of the parser.  So each token carries the source line messages that
+ * were sent while it was extracted, and they are delivered to the
+ * source's listeners on the parser's thread just before the parser gets
+ * the token.  The listings are the same as with the plain scanner.</p>
+ *
+ * <p>Copyright (c) 2009 by Ronald Mak</p>
+ * <p>For instructional purposes only.  No warranties.</p>
+ */
+public class PipelinedScanner extends Scanner
+{
+    private static final int CAPACITY = 4096;  // ring size, a power of 2
+    private static final int MASK = CAPACITY - 1;
+
+    private static final int SPIN_LIMIT  = 200;   // busy waits before yielding
+    private static final int YIELD_LIMIT = 400;   // waits before parking
+    private static final long PARK_NANOS = 50000;
+
+    private Scanner scanner;       // scanner run by the scanning thread
+    private Thread producer;       // scanning thread, or null if not started
+
+    // The ring buffer.  Each slot has a token and the source messages
+    // sent while the token was extracted.  A null token marks a failure.
+    private Token tokens[];
+    private ArrayList<ArrayList<Message>> messages;  // or null
+
+    private AtomicLong head;       // index of the next token to consume
+    private AtomicLong tail;       // index of the next slot to fill
+
+    // Consumer side.
+    private long headIndex;        // the consumer's copy of head
+    private long knownTail;        // the latest value of tail seen
+    private Token eofToken;        // end of file token, once it was consumed
+    private MessageHandler sourceHandler;  // source's own listeners, or null
+
+    // Producer side.
+    private long tailIndex;        // the producer's copy of tail
+    private long knownHead;        // the latest value of head seen
+    private ArrayList<Message> pending;    // messages of the current token
+
+    private volatile boolean stopped;      // true to stop the scanning thread
+    private volatile Exception failure;    // exception of the scanning thread
+
+    /**
+     * Constructor.
+     * @param scanner the language-specific scanner to run.
+     */
+    public PipelinedScanner(Scanner scanner)
+    {
+        super(scanner.source);
+
+        this.scanner = scanner;
+        this.tokens = new Token[CAPACITY];
+        this.messages = new ArrayList<ArrayList<Message>>(CAPACITY);
+        for (int i = 0; i < CAPACITY; ++i) {
+            messages.add(null);
+        }
+        this.head = new AtomicLong(0);
+        this.tail = new AtomicLong(0);
+        this.stopped = false;
+    }
+
+    /**
+     * Start the scanning thread.  The source messages are collected
+     * for delivery on the parser's thread only if the source has
+     * listeners.
+     */
+    private void start()
+    {
+        if (source.hasMessageListeners()) {
+            MessageHandler collector = new MessageHandler();
+            collector.addListener(new MessageListener()
+            {
+                public void messageReceived(Message message)
+                {
+                    if (pending == null) {
+                        pending = new ArrayList<Message>(1);
+                    }
+                    pending.add(message);
+                }
+            });
+
+            sourceHandler = source.replaceMessageHandler(collector);
+        }
+
+        producer = new Thread(new Runnable()
+        {
+            public void run()
+            {
+                produce();
+            }
+        }, "Pipelined scanner");
+
+        producer.setDaemon(true);
+        producer.start();
+    }
+
+    /**
+     * Scan the whole source, unless stopped, and put the tokens into the
+     * ring buffer.  Runs on the scanning thread.
+     */
+    private void produce()
+    {
+        try {
+            Token token;
+
+            do {
+                token = scanner.nextToken();
+                publish(token);
+            } while (!(token instanceof EofToken) && !stopped);
+        }
+        catch (Exception ex) {
+            failure = ex;
+            publish(null);
+        }
+    }
+
+    /**
+     * Put a token and its source messages into the next slot of the
+     * ring buffer, waiting while the ring is full.
+     * @param token the token, or null for a failure.
+     */
+    private void publish(Token token)
+    {
+        for (int waits = 0; tailIndex - knownHead >= CAPACITY; ++waits) {
+            if (stopped) {
+                return;
+            }
+
+            knownHead = head.get();
+            if (tailIndex - knownHead >= CAPACITY) {
+                backOff(waits);
+            }
+        }
+
+        int slot = (int) (tailIndex & MASK);
+        tokens[slot] = token;
+        messages.set(slot, pending);
+        pending = null;
+
+        tail.lazySet(++tailIndex);
+    }
+
+    /**
+     * Take the next token out of the ring buffer, waiting until the
+     * scanning thread has put it there, and deliver its source messages.
+     * @return the next token.
+     * @throws Exception if the scanner failed.
+     */
+    protected Token extractToken()
+        throws Exception
+    {
+        if (producer == null) {
+            start();
+        }
+
+        // The end of file token repeats.
+        if (eofToken != null) {
+            return eofToken;
+        }
+
+        awaitToken(headIndex);
+
+        int slot = (int) (headIndex & MASK);
+        Token token = tokens[slot];
+        ArrayList<Message> lineMessages = messages.get(slot);
+        tokens[slot] = null;
+        messages.set(slot, null);
+
+        head.lazySet(++headIndex);
+
+        if (token == null) {
+            throw failure;
+        }
+
+        if (lineMessages != null) {
+            for (Message message : lineMessages) {
+                sourceHandler.sendMessage(message);
+            }
+        }
+
+        if (token instanceof EofToken) {
+            eofToken = token;
+        }
+
+        return token;
+    }
+
+    /**
+     * Return a token ahead of the current token without consuming it.
+     * @param distance how far ahead, where 1 is the token that the next
+     *                 call to nextToken() will return.
+     * @return the token, or the end of file token if the source ends
+     *         before it.
+     * @throws Exception if the scanner failed.
+     */
+    public Token peekToken(int distance)
+        throws Exception
+    {
+        if ((distance < 1) || (distance > CAPACITY)) {
+            throw new IllegalArgumentException("Cannot peek " + distance +
+                                               " tokens ahead");
+        }
+
+        if (producer == null) {
+            start();
+        }
+
+        if (eofToken != null) {
+            return eofToken;
+        }
+
+        Token token = null;
+
+        for (int i = 0; i < distance; ++i) {
+            long index = headIndex + i;
+            awaitToken(index);
+
+            token = tokens[(int) (index & MASK)];
+            if (token == null) {
+                throw failure;
+            }
+            else if (token instanceof EofToken) {
+                break;
+            }
+        }
+
+        return token;
+    }
+
+    /**
+     * Wait until the scanning thread has filled a slot.
+     * @param index the index of the slot.
+     */
+    private void awaitToken(long index)
+    {
+        for (int waits = 0; index >= knownTail; ++waits) {
+            knownTail = tail.get();
+            if (index >= knownTail) {
+                backOff(waits);
+            }
+        }
+    }
+
+    /**
+     * Wait a little for the other thread:  First spin, then yield the
+     * processor, and then sleep briefly.
+     * @param waits the count of times already waited.
+     */
+    private static void backOff(int waits)
+    {
+        if (waits < SPIN_LIMIT) {
+            return;
+        }
+        else if (waits < YIELD_LIMIT) {
+            Thread.yield();
+        }
+        else {
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+    }
+
+    /**
+     * Stop the scanning thread and wait for it to finish, so that the
+     * source can be closed.  Restore the source's own message handler.
+     * @throws Exception if an error occurred.
+     */
+    public void close()
+        throws Exception
+    {
+        stopped = true;
+
+        if (producer != null) {
+            LockSupport.unpark(producer);
+            producer.join();
+        }
+
+        if (sourceHandler != null) {
+            source.replaceMessageHandler(sourceHandler);
+            sourceHandler = null;
+        }
+
+        scanner.close();
+    }
+}
@@ -0,0 +1,114 @@
+package wci.frontend;
+
+import wci.message.MessageHandler;
+
+/**
+ * <h1>ReplayScanner</h1>
+ *
+ * <p>A scanner that replays a range of the tokens on a token tape, and
+ * sends the source messages of each token just before the parser gets it.
+ * Several replay scanners can replay the same tape at once.</p>
+ *
+ * <p>The replay stops at the last token of the range:  If the parser
+ * asks for a token after it, the scanner remembers that it overran the
+ * range and returns end-of-file tokens, which end any parse.  Like a
+ * scanner at the end of the source, it returns another one each time.</p>
+ *
+ * <p>Copyright (c) 2009 by Ronald Mak</p>
+ * <p>For instructional purposes only.  No warranties.</p>
+ */
+public class ReplayScanner extends Scanner
+{
+    private TokenTape tape;          // tape to replay
+    private int index;               // index of the current token, or -1
+    private int last;                // index of the last token to replay
+    private MessageHandler handler;  // gets the source messages, or null
+    private boolean overran;         // true if asked for a token after last
+    private Token repeated;          // end-of-file token after last, or null
+
+    /**
+     * Constructor.
+     * @param tape the tape to replay.
+     * @param index the index of the token to start as the current token,
+     *              or -1 to start before the first token.
+     * @param last the index of the last token to replay.
+     * @param handler the handler to send the source messages to, or null.
+     */
+    public ReplayScanner(TokenTape tape, int index, int last,
+                         MessageHandler handler)
+    {
+        super(null);
+
+        this.tape = tape;
+        this.index = index;
+        this.last = last;
+        this.handler = handler;
+        this.overran = false;
+    }
+
+    /**
+     * @return the current token.
+     */
+    public Token currentToken()
+    {
+        return repeated != null ? repeated
+             : index >= 0       ? tape.get(index)
+             :                    null;
+    }
+
+    /**
+     * Replay the next token and send its source messages.
+     * @return the next token.
+     * @throws Exception if the scanner that made the tape failed there.
+     */
+    protected Token extractToken()
+        throws Exception
+    {
+        if (index < last) {
+            tape.deliverMessages(++index, handler);
+            return tape.get(index);
+        }
+
+        overran = true;
+
+        // The tape ended with a failure.
+        if ((index == tape.size() - 1) && (tape.getFailure() != null)) {
+            tape.deliverMessages(tape.size(), handler);
+            throw tape.getFailure();
+        }
+
+        Token eofToken = repeated != null ? repeated
+                                          : tape.get(tape.size() - 1);
+        repeated = new EofToken((EofToken) eofToken);
+
+        return repeated;
+    }
+
+    /**
+     * Make a later token the current one without sending the source
+     * messages of the tokens skipped.  Another scanner replays them.
+     * @param index the index of the token.
+     */
+    public void skipTo(int index)
+    {
+        this.index = index;
+        this.repeated = null;
+    }
+
+    /**
+     * Getter.
+     * @return the index of the current token.
+     */
+    public int getIndex()
+    {
+        return index;
+    }
+
+    /**
+     * @return true if the parser asked for a token after the last one.
+     */
+    public boolean overran()
+    {
+        return overran;
+    }
+}
@@ -52,6 +52,15 @@ public abstract class Scanner
     protected abstract Token extractToken()
         throws Exception;
 
+    /**
+     * Release anything that the scanner holds, before the source is closed.
+     * @throws Exception if an error occurred.
+     */
+    public void close()
+        throws Exception
+    {
+    }
+
     /**
      * Call the source's currentChar() method.
      * @return the current character from the source.
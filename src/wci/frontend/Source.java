@@ -40,6 +40,17 @@ public class Source implements MessageProducer
         this.messageHandler = new MessageHandler();
     }
 
+    /**
+     * Constructor for subclasses that do not read through a reader.
+     */
+    protected Source()
+    {
+        this.lineNum = 0;
+        this.currentPos = -2;
+        this.reader = null;
+        this.messageHandler = new MessageHandler();
+    }
+
     /**
      * Getter.
      * @return the current source line number.
@@ -178,8 +189,8 @@ public class Source implements MessageProducer
         }
 
         // Send a source line message containing the line number
-        // and the line text to all the listeners.
-        if (line != null) {
+        // and the line text to all the listeners, if any.
+        if ((line != null) && hasMessageListeners()) {
             sendMessage(new Message(SOURCE_LINE,
                                     new Object[] {lineNum, line}));
         }
@@ -221,6 +232,28 @@ public class Source implements MessageProducer
         messageHandler.removeListener(listener);
     }
 
+    /**
+     * Replace the message handler.  A pipelined scanner reads the source
+     * on another thread, and it uses this to hold on to the messages
+     * until the parser reaches the tokens that they belong to.
+     * @param handler the new message handler.
+     * @return the old message handler.
+     */
+    public MessageHandler replaceMessageHandler(MessageHandler handler)
+    {
+        MessageHandler oldHandler = messageHandler;
+        messageHandler = handler;
+        return oldHandler;
+    }
+
+    /**
+     * @return true if there is at least one message listener.
+     */
+    protected boolean hasMessageListeners()
+    {
+        return messageHandler.hasListeners();
+    }
+
     /**
      * Notify listeners after setting the message.
      * @param message the message to set.
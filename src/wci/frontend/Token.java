@@ -32,6 +32,20 @@ public class Token
         extract();
     }
 
+    /**
+     * Constructor for a copy of a token.
+     * @param token the token to copy.
+     */
+    protected Token(Token token)
+    {
+        this.type = token.type;
+        this.text = token.text;
+        this.value = token.value;
+        this.source = token.source;
+        this.lineNum = token.lineNum;
+        this.position = token.position;
+    }
+
     /**
      * Getter
      * @return the token type
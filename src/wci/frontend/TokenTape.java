@@ -0,0 +1,136 @@
+package wci.frontend;
+
+import java.util.ArrayList;
+
+import wci.message.*;
+
+/**
+ * <h1>TokenTape</h1>
+ *
+ * <p>All the tokens of a source, scanned before the parse begins.
+ * Each token carries the source line messages that were sent while it
+ * was extracted, and a ReplayScanner delivers them when it replays the
+ * token.  So the parts of a tape can be parsed in any order, or on
+ * several threads at once, and the listings are still the same.</p>
+ *
+ * <p>If the scanner fails, the tape ends with the tokens scanned before
+ * the failure, and a replay scanner throws the scanner's exception when
+ * it reaches the end.</p>
+ *
+ * <p>Copyright (c) 2009 by Ronald Mak</p>
+ * <p>For instructional purposes only.  No warranties.</p>
+ */
+public class TokenTape
+{
+    private ArrayList<Token> tokens;      // tokens of the source
+    private ArrayList<ArrayList<Message>> messages;  // or null, by token
+    private MessageHandler sourceHandler; // source's own listeners, or null
+    private Exception failure;            // exception of the scanner, or null
+
+    private ArrayList<Message> pending;   // messages of the current token
+
+    /**
+     * Constructor.  Scan the whole source.
+     * @param scanner the scanner of the source.
+     */
+    public TokenTape(Scanner scanner)
+    {
+        this.tokens = new ArrayList<Token>();
+        this.messages = new ArrayList<ArrayList<Message>>();
+
+        Source source = scanner.source;
+
+        // Collect the source messages only if the source has listeners.
+        if (source.hasMessageListeners()) {
+            MessageHandler collector = new MessageHandler();
+            collector.addListener(new MessageListener()
+            {
+                public void messageReceived(Message message)
+                {
+                    if (pending == null) {
+                        pending = new ArrayList<Message>(1);
+                    }
+                    pending.add(message);
+                }
+            });
+
+            sourceHandler = source.replaceMessageHandler(collector);
+        }
+
+        try {
+            Token token;
+
+            do {
+                token = scanner.nextToken();
+                tokens.add(token);
+                messages.add(pending);
+                pending = null;
+            } while (!(token instanceof EofToken));
+        }
+        catch (Exception ex) {
+            failure = ex;
+            messages.add(pending);  // sent before the failure
+            pending = null;
+        }
+        finally {
+            if (sourceHandler != null) {
+                source.replaceMessageHandler(sourceHandler);
+            }
+        }
+    }
+
+    /**
+     * Getter.
+     * @return the count of tokens on the tape.
+     */
+    public int size()
+    {
+        return tokens.size();
+    }
+
+    /**
+     * @param index the index of a token.
+     * @return the token.
+     */
+    public Token get(int index)
+    {
+        return tokens.get(index);
+    }
+
+    /**
+     * Getter.
+     * @return the source's own message handler, which should get the
+     *         source messages of the tokens, or null if it had no listeners.
+     */
+    public MessageHandler getSourceHandler()
+    {
+        return sourceHandler;
+    }
+
+    /**
+     * Getter.
+     * @return the exception that ended the scan, or null if it reached
+     *         the end of the source.
+     */
+    public Exception getFailure()
+    {
+        return failure;
+    }
+
+    /**
+     * Send the source messages of a token.
+     * @param index the index of the token, or the size of the tape for
+     *              the messages sent before a failure.
+     * @param handler the handler to send them to, or null.
+     */
+    void deliverMessages(int index, MessageHandler handler)
+    {
+        ArrayList<Message> tokenMessages = messages.get(index);
+
+        if ((tokenMessages != null) && (handler != null)) {
+            for (Message message : tokenMessages) {
+                handler.sendMessage(message);
+            }
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package wci.frontend.subc;
+
+/**
+ * <h1>AbortTranslationException</h1>
+ *
+ * <p>Thrown when the parser aborts the translation of a source program.</p>
+ *
+ * <p>Copyright (c) 2009 by Ronald Mak</p>
+ * <p>For instructional purposes only.  No warranties.</p>
+ */
+public class AbortTranslationException extends RuntimeException
+{
+    private static final long serialVersionUID = 1L;
+
+    private int status;  // exit status
+
+    public AbortTranslationException(SubCErrorCode errorCode)
+    {
+        super(errorCode.toString());
+        this.status = errorCode.getStatus();
+    }
+
+    /**
+     * Getter.
+     * @return the exit status.
+     */
+    public int getStatus()
+    {
+        return status;
+    }
+}
@@ -0,0 +1,381 @@
+package wci.frontend.subc;
+
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import wci.frontend.*;
+import wci.frontend.subc.parsers.BlockParser;
+import wci.intermediate.*;
+import wci.message.*;
+
+import static wci.frontend.subc.SubCTokenType.*;
+import static wci.intermediate.symtabimpl.SymTabKeyImpl.*;
+import static wci.message.MessageType.SYNTAX_ERROR;
+
+/**
+ * <h1>ParallelBodyParser</h1>
+ *
+ * <p>Parse a SubC program with the routine bodies parsed on several
+ * threads.  First the whole source is scanned onto a token tape.  Then
+ * the top level of the program is parsed as usual, except that when a
+ * routine's body begins, the parser skips to the matching right brace
+ * and defers the body.  Then a pool of threads parses the deferred
+ * bodies, each with its own branch of the symbol table stack, its own
+ * error handler, and its own log of messages.  The routines were already
+ * entered in source order by the top-level parse.</p>
+ *
+ * <p>The messages are logged instead of sent while the program is parsed.
+ * At the end they are sent in source order and the syntax errors are
+ * counted, so the listing, the error messages, and the abort after too
+ * many errors are the same as with a sequential parse.  If a body's parse
+ * doesn't end at its matching right brace, which happens only after a
+ * syntax error, the program is parsed again sequentially from the tape.</p>
+ *
+ * <p>Copyright (c) 2009 by Ronald Mak</p>
+ * <p>For instructional purposes only.  No warranties.</p>
+ */
+public class ParallelBodyParser
+{
+    private SubCParserTD parser;      // parser of the whole program
+    private TokenTape tape;           // tokens of the source
+    private ReplayScanner scanner;    // scanner of the top-level parse
+    private MessageLog log;           // messages of the top-level parse
+    private ArrayList<Body> bodies;   // deferred bodies, in source order
+
+    /**
+     * Constructor.
+     * @param parser the parser of the whole program.
+     */
+    public ParallelBodyParser(SubCParserTD parser)
+    {
+        this.parser = parser;
+        this.log = new MessageLog();
+        this.bodies = new ArrayList<Body>();
+    }
+
+    /**
+     * Parse the program.
+     * @param programId the symbol table entry of the program identifier.
+     * @return the token after the program.
+     * @throws Exception if an error occurred.
+     */
+    public Token parse(SymTabEntry programId)
+        throws Exception
+    {
+        tape = new TokenTape(parser.getScanner());
+        MessageHandler sourceHandler = tape.getSourceHandler();
+
+        // Not worth it if the scan failed:  Parse the tape sequentially.
+        if (tape.getFailure() != null) {
+            return parser.parseProgram(programId, replayAll(sourceHandler));
+        }
+
+        // Parse the top level and defer the bodies.
+        scanner = new ReplayScanner(tape, -1, tape.size() - 1,
+                                    log.recorder(sourceHandler));
+        SubCParserTD topLevelParser =
+            new SubCParserTD(scanner, parser.getContext());
+        topLevelParser.bodyParser = this;
+        topLevelParser.addMessageListener(
+            log.listener(parser.getMessageHandler()));
+
+        Token token = null;
+        try {
+            token = topLevelParser.parseProgram(programId);
+        }
+        catch (Exception ex) {
+            log.failure = ex;
+        }
+
+        parseBodies(parser.getContext().getParsingThreads());
+
+        // A body that didn't end at its right brace threw the top-level
+        // parse off.  Start over and parse the program sequentially.
+        for (Body body : bodies) {
+            if (body.diverged) {
+                restart(programId);
+                return parser.parseProgram(programId,
+                                           replayAll(sourceHandler));
+            }
+        }
+
+        parser.getSymTabStack().joinBranches();
+        send(log);
+
+        return token;
+    }
+
+    /**
+     * Defer the parse of a routine's body, which is parsed later on
+     * another thread.  Called by the top-level parse at the body's left
+     * brace while the routine's symbol table is on top of the stack.
+     * Skip to the token after the matching right brace.
+     * @param token the left brace.
+     * @param routineId the symbol table entry of the routine name.
+     * @return true if deferred, false if there is no matching right brace
+     *         and the body must be parsed now.
+     */
+    public boolean defer(Token token, SymTabEntry routineId)
+    {
+        int open = scanner.getIndex();
+        int close = matchingBrace(open);
+
+        if ((tape.get(open) != token) || (close < 0)) {
+            return false;
+        }
+
+        SymTabStack symTabStack = parser.getSymTabStack();
+        int level = symTabStack.getCurrentNestingLevel();
+
+        Body body = new Body();
+        body.routineId = routineId;
+        body.branch = symTabStack.branch(level - 1);
+        body.open = open;
+        body.last = close + 1;  // the token after the body
+        body.log = new MessageLog();
+
+        bodies.add(body);
+        log.mark(body);
+        scanner.skipTo(body.last);
+
+        return true;
+    }
+
+    /**
+     * Find the right brace that matches a left brace on the tape.
+     * @param open the index of the left brace.
+     * @return the index of the right brace, or -1 if none.
+     */
+    private int matchingBrace(int open)
+    {
+        int depth = 0;
+
+        for (int i = open; i < tape.size(); ++i) {
+            TokenType type = tape.get(i).getType();
+
+            if (type == LEFT_BRACE) {
+                ++depth;
+            }
+            else if ((type == RIGHT_BRACE) && (--depth == 0)) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Parse the deferred bodies on a pool of threads.
+     * @param threads the count of threads.
+     * @throws Exception if an error occurred.
+     */
+    private void parseBodies(int threads)
+        throws Exception
+    {
+        if (bodies.isEmpty()) {
+            return;
+        }
+
+        ExecutorService workers =
+            Executors.newFixedThreadPool(Math.min(threads, bodies.size()));
+        ArrayList<Future<?>> futures = new ArrayList<Future<?>>();
+
+        try {
+            for (final Body body : bodies) {
+                futures.add(workers.submit(new Runnable()
+                {
+                    public void run()
+                    {
+                        parseBody(body);
+                    }
+                }));
+            }
+
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+        finally {
+            workers.shutdown();
+        }
+    }
+
+    /**
+     * Parse a deferred body.  Runs on a thread of the pool.
+     * @param body the body.
+     */
+    private void parseBody(Body body)
+    {
+        MessageHandler sourceHandler = tape.getSourceHandler();
+        ReplayScanner bodyScanner =
+            new ReplayScanner(tape, body.open, body.last,
+                              body.log.recorder(sourceHandler));
+
+        SubCParserTD bodyParser =
+            new SubCParserTD(bodyScanner, new CompilationContext(body.branch));
+        bodyParser.addMessageListener(
+            body.log.listener(parser.getMessageHandler()));
+
+        SymTabEntry routineId = body.routineId;
+        ICode iCode = (ICode) routineId.getAttribute(ROUTINE_ICODE);
+
+        try {
+            body.branch.push((SymTab) routineId.getAttribute(ROUTINE_SYMTAB));
+
+            BlockParser blockParser = bodyParser.parsers.blockParser();
+            ICodeNode rootNode =
+                blockParser.parse(bodyScanner.currentToken(), routineId);
+            iCode.setRoot(rootNode);
+
+            body.branch.pop();
+            body.diverged = bodyScanner.getIndex() != body.last;
+        }
+        catch (Exception ex) {
+            body.log.failure = ex;
+        }
+
+        body.diverged |= bodyScanner.overran();
+    }
+
+    /**
+     * Undo the top-level parse before starting over.
+     * @param programId the symbol table entry of the program identifier.
+     */
+    private void restart(SymTabEntry programId)
+    {
+        SymTabStack symTabStack = parser.getSymTabStack();
+
+        while (symTabStack.getCurrentNestingLevel() > 0) {
+            symTabStack.pop();
+        }
+
+        programId.setAttribute(MAIN_METHOD_ROUTINE, null);
+    }
+
+    /**
+     * @param sourceHandler the handler of the source messages, or null.
+     * @return a scanner that replays the whole tape and sends the source
+     *         messages as it goes.
+     */
+    private ReplayScanner replayAll(MessageHandler sourceHandler)
+    {
+        return new ReplayScanner(tape, -1, tape.size() - 1, sourceHandler);
+    }
+
+    /**
+     * Send the messages of a log, and of the bodies deferred in it,
+     * in order.  Count the syntax errors, which aborts the translation
+     * after too many.  Then throw the exception that ended the log's
+     * parse, if any.
+     * @param messageLog the log.
+     * @throws Exception the exception that ended the log's parse.
+     */
+    private void send(MessageLog messageLog)
+        throws Exception
+    {
+        MessageHandler parserHandler = parser.getMessageHandler();
+        SubCErrorHandler errorHandler = parser.getErrorHandler();
+
+        for (int i = 0; i < messageLog.items.size(); ++i) {
+            Object item = messageLog.items.get(i);
+
+            if (item instanceof Body) {
+                send(((Body) item).log);
+            }
+            else {
+                Message message = (Message) item;
+                MessageHandler handler = messageLog.handlers.get(i);
+                handler.sendMessage(message);
+
+                if (   (handler == parserHandler)
+                    && (message.getType() == SYNTAX_ERROR))
+                {
+                    errorHandler.countError(parser);
+                }
+            }
+        }
+
+        if (messageLog.failure != null) {
+            throw messageLog.failure;
+        }
+    }
+
+    /**
+     * A deferred routine body.
+     */
+    private static class Body
+    {
+        private SymTabEntry routineId;  // symbol table entry of the routine
+        private SymTabStack branch;     // branch to parse the body with
+        private int open;               // tape index of the left brace
+        private int last;               // tape index of the token after it
+        private MessageLog log;         // messages of the body's parse
+        private boolean diverged;       // true if not parsed up to last
+    }
+
+    /**
+     * The messages of a parse in the order they were sent, each with the
+     * handler to send it to, and the deferred bodies among them.
+     */
+    private static class MessageLog
+    {
+        private ArrayList<Object> items;  // Message or Body
+        private ArrayList<MessageHandler> handlers;  // by item
+        private Exception failure;        // exception that ended the parse
+
+        /**
+         * Constructor.
+         */
+        private MessageLog()
+        {
+            this.items = new ArrayList<Object>();
+            this.handlers = new ArrayList<MessageHandler>();
+        }
+
+        /**
+         * @param handler the handler to send the messages to later.
+         * @return a listener that logs the messages it receives.
+         */
+        private MessageListener listener(final MessageHandler handler)
+        {
+            return new MessageListener()
+            {
+                public void messageReceived(Message message)
+                {
+                    items.add(message);
+                    handlers.add(handler);
+                }
+            };
+        }
+
+        /**
+         * @param handler the handler to send the messages to later,
+         *                or null to drop them.
+         * @return a message handler that logs the messages sent to it,
+         *         or null.
+         */
+        private MessageHandler recorder(MessageHandler handler)
+        {
+            if (handler == null) {
+                return null;
+            }
+
+            MessageHandler recorder = new MessageHandler();
+            recorder.addListener(listener(handler));
+
+            return recorder;
+        }
+
+        /**
+         * Mark where a body was deferred.
+         * @param body the body.
+         */
+        private void mark(Body body)
+        {
+            items.add(body);
+            handlers.add(null);
+        }
+    }
+}
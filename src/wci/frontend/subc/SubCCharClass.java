@@ -0,0 +1,104 @@
+package wci.frontend.subc;
+
+/**
+ * <h1>SubCCharClass</h1>
+ *
+ * <p>The character classes of the SubC scanner.  The class of an ASCII
+ * character comes from a table.  Any other character is classified by
+ * the Character methods, as before.</p>
+ *
+ * <p>Copyright (c) 2009 by Ronald Mak</p>
+ * <p>For instructional purposes only.  No warranties.</p>
+ */
+public class SubCCharClass
+{
+    // Character classes.
+    public static final int OTHER      = 0;
+    public static final int WHITESPACE = 1;
+    public static final int LETTER     = 2;
+    public static final int DIGIT      = 3;
+    public static final int UNDERLINE  = 4;
+    public static final int QUOTATION  = 5;  // starts a string or character
+    public static final int SYMBOL     = 6;  // starts a special symbol
+
+    private static final byte CLASSES[] = new byte[128];
+    static {
+        for (char ch = 0; ch < 128; ++ch) {
+            CLASSES[ch] = (byte) nonTableClass(ch);
+
+            if (   (CLASSES[ch] == OTHER)
+                && (SubCTokenType.specialSymbol(ch) != null)) {
+                CLASSES[ch] = SYMBOL;
+            }
+        }
+
+        CLASSES['_']  = UNDERLINE;
+        CLASSES['\"'] = QUOTATION;
+        CLASSES['\''] = QUOTATION;
+
+        // These are SubC token types, but they are not valid in a program.
+        CLASSES['\\'] = OTHER;
+        CLASSES['`']  = OTHER;
+    }
+
+    /**
+     * Classify a character that is not in the table.
+     * @param ch the character.
+     * @return its character class.
+     */
+    private static int nonTableClass(char ch)
+    {
+        return Character.isWhitespace(ch) ? WHITESPACE
+             : Character.isLetter(ch)     ? LETTER
+             : Character.isDigit(ch)      ? DIGIT
+             :                              OTHER;
+    }
+
+    /**
+     * @param ch a character.
+     * @return its character class.
+     */
+    public static int classOf(char ch)
+    {
+        return ch < 128 ? CLASSES[ch] : nonTableClass(ch);
+    }
+
+    /**
+     * @param ch a character.
+     * @return true if it is whitespace.
+     */
+    public static boolean isWhitespace(char ch)
+    {
+        return classOf(ch) == WHITESPACE;
+    }
+
+    /**
+     * @param ch a character.
+     * @return true if it is a letter.
+     */
+    public static boolean isLetter(char ch)
+    {
+        return classOf(ch) == LETTER;
+    }
+
+    /**
+     * @param ch a character.
+     * @return true if it is a digit.
+     */
+    public static boolean isDigit(char ch)
+    {
+        return classOf(ch) == DIGIT;
+    }
+
+    /**
+     * @param ch a character.
+     * @return true if it can be part of a word after the first character:
+     *         a letter, a digit, or an underscore.
+     */
+    public static boolean isWordChar(char ch)
+    {
+        int charClass = classOf(ch);
+        return (charClass == LETTER) || (charClass == DIGIT)
+                                     || (charClass == UNDERLINE);
+    }
+}
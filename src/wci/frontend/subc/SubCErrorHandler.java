@@ -19,7 +19,7 @@ public class SubCErrorHandler
 {
     private static final int MAX_ERRORS = 25;
 
-    private static int errorCount = 0;   // count of syntax errors
+    private int errorCount = 0;   // count of syntax errors
 
     /**
      * Getter.
@@ -46,6 +46,16 @@ public class SubCErrorHandler
                                                      token.getText(),
                                                      errorCode.toString()}));
 
+        countError(parser);
+    }
+
+    /**
+     * Count an error whose message was already sent, such as one that
+     * was flagged while a routine body was parsed on another thread.
+     * @param parser the parser.
+     */
+    public void countError(Parser parser)
+    {
         if (++errorCount > MAX_ERRORS) {
             abortTranslation(TOO_MANY_ERRORS, parser);
         }
@@ -55,6 +65,7 @@ public class SubCErrorHandler
      * Abort the translation.
      * @param errorCode the error code.
      * @param parser the parser.
+     * @throws AbortTranslationException always, to unwind the parse.
      */
     public void abortTranslation(SubCErrorCode errorCode, Parser parser)
     {
@@ -65,6 +76,6 @@ public class SubCErrorHandler
                                                      0,
                                                      "",
                                                      fatalText}));
-        System.exit(errorCode.getStatus());
+        throw new AbortTranslationException(errorCode);
     }
 }
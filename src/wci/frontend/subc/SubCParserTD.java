@@ -30,8 +30,9 @@ import static wci.message.MessageType.PARSER_SUMMARY;
  */
 public class SubCParserTD extends Parser
 {
-    protected static SubCErrorHandler errorHandler = new SubCErrorHandler();
-    protected static StringBuilder nestedStacks = new StringBuilder();
+    protected SubCErrorHandler errorHandler;  // shared by the whole parse
+    protected ParallelBodyParser bodyParser;  // defers routine bodies, or null
+    protected SubParsers parsers;             // sub-parsers, one of each kind
 
     private SymTabEntry routineId;
     /**
@@ -41,6 +42,20 @@ public class SubCParserTD extends Parser
     public SubCParserTD(Scanner scanner)
     {
         super(scanner);
+        this.errorHandler = new SubCErrorHandler();
+        this.parsers = new SubParsers(this);
+    }
+
+    /**
+     * Constructor.
+     * @param scanner the scanner to be used with this parser.
+     * @param context the context of the compilation.
+     */
+    public SubCParserTD(Scanner scanner, CompilationContext context)
+    {
+        super(scanner, context);
+        this.errorHandler = new SubCErrorHandler();
+        this.parsers = new SubParsers(this);
     }
 
     /**
@@ -49,7 +64,10 @@ public class SubCParserTD extends Parser
      */
     public SubCParserTD(SubCParserTD parent)
     {
-        super(parent.getScanner());
+        super(parent);
+        this.errorHandler = parent.errorHandler;
+        this.bodyParser = parent.bodyParser;
+        this.parsers = parent.parsers;
     }
 
     /**
@@ -73,24 +91,22 @@ public class SubCParserTD extends Parser
         Predefined.initialize(symTabStack);
 
         try {
-            Token token = nextToken();
-            ICode iCode = ICodeFactory.createICode();
-
+            Token token;
             routineId = symTabStack.getProgramId();
-            // Push a new symbol table onto the symbol table stack and set
-            // the routine's symbol table and intermediate code.
-            routineId.setAttribute(ROUTINE_SYMTAB, symTabStack.push());
-            routineId.setAttribute(ROUTINE_ICODE, iCode);
-            routineId.setAttribute(ROUTINE_ROUTINES, new ArrayList<>());
 
-            // Parse a program.
-            ProgramParser programParser = new ProgramParser(this);
-            programParser.parse(token, routineId);
-            token = currentToken();
+            // Parse the routine bodies on several threads.  The flat
+            // intermediate code store can't be shared by threads.
+            if (   (context.getParsingThreads() > 1)
+                && (context.getICodeStore() == null))
+            {
+                token = new ParallelBodyParser(this).parse(routineId);
+            }
+            else {
+                token = parseProgram(routineId);
+            }
 
             // Send the parser summary message.
             float elapsedTime = (System.currentTimeMillis() - startTime)/1000f;
-            //System.out.println(nestedStacks);
             sendMessage(new Message(PARSER_SUMMARY,
                                     new Number[] {token.getLineNumber(),
                                                   getErrorCount(),
@@ -101,6 +117,55 @@ public class SubCParserTD extends Parser
         }
     }
 
+    /**
+     * Parse a program.
+     * @param routineId the symbol table entry of the program identifier.
+     * @return the token after the program.
+     * @throws Exception if an error occurred.
+     */
+    Token parseProgram(SymTabEntry routineId)
+        throws Exception
+    {
+        Token token = nextToken();
+        ICode iCode = ICodeFactory.createICode();
+
+        // Push a new symbol table onto the symbol table stack and set
+        // the routine's symbol table and intermediate code.
+        routineId.setAttribute(ROUTINE_SYMTAB, symTabStack.push());
+        routineId.setAttribute(ROUTINE_ICODE, iCode);
+        routineId.setAttribute(ROUTINE_ROUTINES, new ArrayList<>());
+
+        // Parse a program.
+        parsers.programParser().parse(token, routineId);
+
+        return currentToken();
+    }
+
+    /**
+     * Parse a program with the tokens from another scanner.  The
+     * sub-parsers share the scanner, so they're new ones too.
+     * @param routineId the symbol table entry of the program identifier.
+     * @param scanner the other scanner.
+     * @return the token after the program.
+     * @throws Exception if an error occurred.
+     */
+    Token parseProgram(SymTabEntry routineId, Scanner scanner)
+        throws Exception
+    {
+        Scanner ownScanner = this.scanner;
+        SubParsers ownParsers = this.parsers;
+        this.scanner = scanner;
+        this.parsers = new SubParsers(this);
+
+        try {
+            return parseProgram(routineId);
+        }
+        finally {
+            this.scanner = ownScanner;
+            this.parsers = ownParsers;
+        }
+    }
+
     /**
      * Return the number of syntax errors found by the parser.
      * @return the error count.
@@ -2,11 +2,13 @@ package wci.frontend.subc;
 
 import wci.frontend.*;
 import wci.frontend.subc.tokens.*;
+import wci.intermediate.NameTable;
 
 import static wci.frontend.Source.EOF;
 import static wci.frontend.Source.EOL;
 import static wci.frontend.subc.SubCTokenType.*;
 import static wci.frontend.subc.SubCErrorCode.*;
+import static wci.frontend.subc.SubCCharClass.*;
 
 /**
  * <h1>SubCScanner</h1>
@@ -18,13 +20,26 @@ import static wci.frontend.subc.SubCErrorCode.*;
  */
 public class SubCScanner extends Scanner
 {
+    private NameTable names;  // identifier names
+
     /**
      * Constructor
      * @param source the source to be used with this scanner.
      */
     public SubCScanner(Source source)
+    {
+        this(source, new NameTable());
+    }
+
+    /**
+     * Constructor
+     * @param source the source to be used with this scanner.
+     * @param names the name table of the compilation.
+     */
+    public SubCScanner(Source source, NameTable names)
     {
         super(source);
+        this.names = names;
     }
 
     /**
@@ -40,49 +55,48 @@ public class SubCScanner extends Scanner
         Token token;
         char currentChar = currentChar();
 
-        // Construct the next token.  The current character determines the
-        // token type.
+        // Construct the next token.  The class of the current character
+        // determines the token type.
         if (currentChar == EOF) {
-            token = new EofToken(source);
+            return new EofToken(source);
         }
-        else if (Character.isLetter(currentChar)||currentChar=='_') { //if the first character is a letter or a '_'
-            //if the first character is '_'
-            if(currentChar=='_'){
-              if(Character.isLetter(source.peekChar())){ //check if the next character is a letter
-                token = new SubCWordToken(source); //the next character is a letter, then the token could be a word
-              }
-              else if (SubCTokenType.SPECIAL_SYMBOLS
-                       .containsKey(Character.toString(currentChar))) {
-                  token = new SubCSpecialSymbolToken(source);
-              }
-              else{
-                //the next character is not a letter, the token can not be a word, go to next
+
+        switch (classOf(currentChar)) {
+
+            case LETTER: {
+                token = new SubCWordToken(source, names);
+                break;
+            }
+
+            // An underscore followed by a letter starts a word.
+            // Otherwise, it is a special symbol.
+            case UNDERLINE: {
+                token = isLetter(source.peekChar())
+                            ? new SubCWordToken(source, names)
+                            : new SubCSpecialSymbolToken(source);
+                break;
+            }
+
+            case DIGIT: {
+                token = new SubCNumberToken(source);
+                break;
+            }
+
+            case QUOTATION: {
+                token = new SubCStringToken(source);
+                break;
+            }
+
+            case SYMBOL: {
+                token = new SubCSpecialSymbolToken(source);
+                break;
+            }
+
+            default: {
                 token = new SubCErrorToken(source, INVALID_CHARACTER,
                                            Character.toString(currentChar));
                 nextChar(); // consume character
-                nextChar();
-              }
             }
-            //else the firt character is a letter
-            else{
-              token = new SubCWordToken(source);
-            }
-        }
-        else if (Character.isDigit(currentChar)) {
-            token = new SubCNumberToken(source);
-        }
-        else if (currentChar == '\"'||currentChar == '\'') { //double quote is a string
-            token = new SubCStringToken(source);
-        }
-
-        else if (SubCTokenType.SPECIAL_SYMBOLS
-                 .containsKey(Character.toString(currentChar))) {
-            token = new SubCSpecialSymbolToken(source);
-        }
-        else {
-            token = new SubCErrorToken(source, INVALID_CHARACTER,
-                                       Character.toString(currentChar));
-            nextChar(); // consume character
         }
 
         return token;
@@ -90,6 +104,8 @@ public class SubCScanner extends Scanner
 
     /**
      * Skip whitespace characters by consuming them.  A comment is whitespace.
+     * A // comment ends at the end of the line.  A block comment ends at
+     * the matching close, since block comments can nest.
      * @throws Exception if an error occurred.
      */
     private void skipWhiteSpace()
@@ -97,53 +113,77 @@ public class SubCScanner extends Scanner
     {
         char currentChar = currentChar();
 
-        while (Character.isWhitespace(currentChar) || (currentChar == '/')) {
+        while (true) {
+
+            // Whitespace.
+            if (isWhitespace(currentChar)) {
+                currentChar = nextChar();  // consume whitespace character
+            }
 
             // Start of a comment?
-            if (currentChar == '/') {
-              //check if the next character is '/'
-              if(source.peekChar()=='/'){
-                do{
-                  currentChar = nextChar();
-                }while(currentChar != EOL);
-                currentChar = nextChar();
-              }
-              //check if the next character is '*', which means there will be a block of comment
-              else if(source.peekChar() == '*'){
-                //consume comment character until we find a close "*/"
-                currentChar=nextChar();
-                //set nestFlag = 0
-                int nestFlag = 0;
-                  do {
-                      currentChar = nextChar(); // consume comment characters
-                      if((currentChar == '/') && (source.peekChar() == '*')){
-                        if(nestFlag==0){
-                          currentChar = nextChar(); // consume the '*',move to '/'
-                          do {
-                              currentChar = nextChar(); // consume comment characters
-                          }while (!((currentChar == '*') && (source.peekChar() =='/'))&& (currentChar != EOF));
-                          nestFlag = nestFlag+1;
-                        }else{ //already have a /* inside the /* */
-                          //should throw error here
-                        }
-                      }
-                  } while (!((currentChar == '*') && (source.peekChar() =='/'))&& (currentChar != EOF));
-                // Found closing '*'?
-                // System.out.println(currentChar);
-                if (currentChar == '*') {
-                    currentChar = nextChar(); // consume the '*',move to '/'
-                    currentChar = nextChar(); // consume the '/',move to next
+            else if (currentChar == '/') {
+                char nextChar = source.peekChar();
+
+                // Line comment.
+                if (nextChar == '/') {
+                    do {
+                        currentChar = nextChar();  // consume comment character
+                    } while ((currentChar != EOL) && (currentChar != EOF));
+                    currentChar = nextChar();  // consume the end of line
+                }
+
+                // Block comment.
+                else if (nextChar == '*') {
+                    currentChar = skipBlockComment();
+                }
+
+                // A slash, which is a division operator.
+                else {
+                    return;
                 }
-              }
-              else{
-                return;//do nothing, because the '/' here will be used as a divider
-              }
             }
 
-            // Not a comment. is a whitespace
             else {
-                currentChar = nextChar(); // consume whitespace character
+                return;
+            }
+        }
+    }
+
+    /**
+     * Skip a block comment, including any nested block comments.
+     * The current character is the / of the opening /*.
+     * @return the character after the comment.
+     * @throws Exception if an error occurred.
+     */
+    private char skipBlockComment()
+        throws Exception
+    {
+        nextChar();                      // consume the '/'
+        char currentChar = nextChar();   // consume the '*'
+        int depth = 1;
+
+        while ((depth > 0) && (currentChar != EOF)) {
+            char nextChar = source.peekChar();
+
+            // Close of a comment.
+            if ((currentChar == '*') && (nextChar == '/')) {
+                nextChar();
+                currentChar = nextChar();
+                --depth;
+            }
+
+            // Open of a nested comment.
+            else if ((currentChar == '/') && (nextChar == '*')) {
+                nextChar();
+                currentChar = nextChar();
+                ++depth;
+            }
+
+            else {
+                currentChar = nextChar();  // consume comment character
             }
         }
+
+        return currentChar;
     }
 }
@@ -76,6 +76,77 @@ public enum SubCTokenType implements TokenType
                 }
         }
 
+        // Perfect hash table of the reserved words, indexed by
+        // reservedWordHash().  The hash function was chosen so that
+        // no two reserved words share a slot.
+        private static final int RESERVED_TABLE_SIZE = 64;  // a power of 2
+        private static final SubCTokenType RESERVED_TABLE[] =
+                new SubCTokenType[RESERVED_TABLE_SIZE];
+        static {
+                SubCTokenType values[] = SubCTokenType.values();
+                for (int i = FIRST_RESERVED_INDEX; i <= LAST_RESERVED_INDEX; ++i) {
+                        String word = values[i].getText();
+                        int slot = reservedWordHash(word.charAt(0),
+                                                    word.charAt(word.length() - 1),
+                                                    word.length());
+
+                        if (RESERVED_TABLE[slot] != null) {
+                                throw new IllegalStateException(
+                                        "Reserved words " + word + " and " +
+                                        RESERVED_TABLE[slot].getText() +
+                                        " have the same hash");
+                        }
+                        RESERVED_TABLE[slot] = values[i];
+                }
+        }
+
+        /**
+         * Hash a word into the reserved word table.
+         * @param first the first character of the word.
+         * @param last the last character of the word.
+         * @param length the length of the word.
+         * @return the table index.
+         */
+        private static int reservedWordHash(char first, char last, int length)
+        {
+                return (54*first + last + length) & (RESERVED_TABLE_SIZE - 1);
+        }
+
+        /**
+         * Look up a reserved word without creating a String.
+         * @param chars the buffer that holds the characters of the word.
+         * @param length the count of characters in the word.
+         * @return the reserved word's token type, or null if the
+         *         word is not a reserved word.
+         */
+        public static SubCTokenType reservedWord(char chars[], int length)
+        {
+                if (length == 0) {
+                        return null;
+                }
+
+                SubCTokenType type =
+                        RESERVED_TABLE[reservedWordHash(chars[0],
+                                                        chars[length - 1],
+                                                        length)];
+                if (type == null) {
+                        return null;
+                }
+
+                String word = type.text;
+                if (word.length() != length) {
+                        return null;
+                }
+
+                for (int i = 0; i < length; ++i) {
+                        if (word.charAt(i) != chars[i]) {
+                                return null;
+                        }
+                }
+
+                return type;
+        }
+
         // Hash table of SubC special symbols.  Each special symbol's text
         // is the key to its SubC token type.
         public static Hashtable<String, SubCTokenType> SPECIAL_SYMBOLS =
@@ -86,4 +157,56 @@ public enum SubCTokenType implements TokenType
                         SPECIAL_SYMBOLS.put(values[i].getText(), values[i]);
                 }
         }
+
+        // Transition table of the special symbols, generated from their
+        // texts.  SINGLE_SYMBOLS is indexed by a symbol's first character.
+        // DOUBLE_SYMBOLS is indexed by the first and then the second
+        // character of a two-character symbol, and its rows exist only
+        // for the first characters of such symbols.
+        private static final SubCTokenType SINGLE_SYMBOLS[] =
+                new SubCTokenType[128];
+        private static final SubCTokenType DOUBLE_SYMBOLS[][] =
+                new SubCTokenType[128][];
+        static {
+                SubCTokenType values[] = SubCTokenType.values();
+                for (int i = FIRST_SPECIAL_INDEX; i <= LAST_SPECIAL_INDEX; ++i) {
+                        String symbol = values[i].getText();
+                        char first = symbol.charAt(0);
+
+                        if (symbol.length() == 1) {
+                                SINGLE_SYMBOLS[first] = values[i];
+                        }
+                        else {
+                                if (DOUBLE_SYMBOLS[first] == null) {
+                                        DOUBLE_SYMBOLS[first] =
+                                                new SubCTokenType[128];
+                                }
+                                DOUBLE_SYMBOLS[first][symbol.charAt(1)] =
+                                        values[i];
+                        }
+                }
+        }
+
+        /**
+         * Look up a one-character special symbol.
+         * @param ch the character.
+         * @return the special symbol's token type, or null if none.
+         */
+        public static SubCTokenType specialSymbol(char ch)
+        {
+                return ch < 128 ? SINGLE_SYMBOLS[ch] : null;
+        }
+
+        /**
+         * Look up a two-character special symbol.
+         * @param first the first character.
+         * @param second the second character.
+         * @return the special symbol's token type, or null if none.
+         */
+        public static SubCTokenType specialSymbol(char first, char second)
+        {
+                SubCTokenType row[] = first < 128 ? DOUBLE_SYMBOLS[first]
+                                                  : null;
+                return (row != null) && (second < 128) ? row[second] : null;
+        }
 }
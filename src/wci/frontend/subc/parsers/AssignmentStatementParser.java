@@ -49,10 +49,10 @@ public class AssignmentStatementParser extends StatementParser {
      */
     public ICodeNode parse(Token token,SymTabEntry parentID) throws Exception {
         // Create the ASSIGN node.
-        ICodeNode assignNode = ICodeFactory.createICodeNode(ASSIGN);
+        ICodeNode assignNode = ICodeFactory.createICodeNode(context, ASSIGN);
 
         // Parse the target variable.
-        VariableParser variableParser = new VariableParser(this);
+        VariableParser variableParser = parsers.variableParser();
         ICodeNode targetNode = variableParser.parse(token);
         TypeSpec targetType = targetNode != null ? targetNode.getTypeSpec() : Predefined.undefinedType;
 
@@ -68,25 +68,32 @@ public class AssignmentStatementParser extends StatementParser {
         token = currentToken();
 
         // Create the variable node and set its name attribute.
-        ICodeNode variableNode = ICodeFactory.createICodeNode(VARIABLE);
+        ICodeNode variableNode = ICodeFactory.createICodeNode(context, VARIABLE);
         variableNode.setAttribute(ID, targetId);
         variableNode.setTypeSpec(targetId.getTypeSpec());
 
         // The ASSIGN node adopts the variable node as its first child.
         assignNode.addChild(targetNode);
 
-        // Look for the = token.
+        // Look for the = token or a compound assignment token such as +=.
+        SubCTokenType operator = ExpressionParser.compoundOperator(token.getType());
 
-        if (token.getType() == EQUALS) {
-            token = nextToken(); // consume the =
+        if ((token.getType() == EQUALS) || (operator != null)) {
+            token = nextToken(); // consume the = or compound assignment
         } else {
             errorHandler.flag(token, MISSING_EQUALS, this);
         }
 
         // Parse the expression.  The ASSIGN node adopts the expression's
         // node as its second child.
-        ExpressionParser expressionParser = new ExpressionParser(this);
+        ExpressionParser expressionParser = parsers.expressionParser();
         ICodeNode exprNode = expressionParser.parse(token);
+
+        // Compound assignment: x op= e is x = x op e.
+        if (operator != null) {
+            exprNode = expressionParser.makeOperatorNode(operator, copyTree(targetNode), exprNode, token);
+        }
+
         assignNode.addChild(exprNode);
 
         // Type check: Assignment compatible?
@@ -104,4 +111,22 @@ public class AssignmentStatementParser extends StatementParser {
         }
         return assignNode;
     }
+
+    /**
+     * Make a copy of a parse tree.
+     * @param node the root node of the tree.
+     * @return the root node of the copy, or null if the node is null.
+     */
+    private ICodeNode copyTree(ICodeNode node) {
+        if (node == null) {
+            return null;
+        }
+
+        ICodeNode copy = node.copy();
+        for (ICodeNode child : node.getChildren()) {
+            copy.addChild(copyTree(child));
+        }
+
+        return copy;
+    }
 }
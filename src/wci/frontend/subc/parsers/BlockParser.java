@@ -36,7 +36,7 @@ public class BlockParser extends SubCParserTD {
      */
     public ICodeNode parse(Token token, SymTabEntry routineId) throws Exception {
 
-        StatementParser statementParser = new StatementParser(this);
+        StatementParser statementParser = parsers.statementParser();
 
         token = synchronize(StatementParser.STMT_START_SET);
         TokenType tokenType = token.getType();
@@ -52,7 +52,7 @@ public class BlockParser extends SubCParserTD {
             errorHandler.flag(token, MISSING_LEFT_BRACE, this);
 
             if (StatementParser.STMT_START_SET.contains(tokenType)) {
-                rootNode = ICodeFactory.createICodeNode(COMPOUND);
+                rootNode = ICodeFactory.createICodeNode(context, COMPOUND);
                 statementParser.parseList(token, rootNode, routineId, RIGHT_BRACE, MISSING_RIGHT_BRACE);
             }
         }
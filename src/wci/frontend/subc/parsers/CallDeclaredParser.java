@@ -33,7 +33,7 @@ public class CallDeclaredParser extends CallParser {
      */
     public ICodeNode parse(Token token) throws Exception {
         // Create the CALL node.
-        ICodeNode callNode = ICodeFactory.createICodeNode(CALL);
+        ICodeNode callNode = ICodeFactory.createICodeNode(context, CALL);
         SymTabEntry pfId = symTabStack.lookup(token.getText().toLowerCase());
         callNode.setAttribute(ID, pfId);
         callNode.setTypeSpec(pfId.getTypeSpec());
@@ -46,8 +46,8 @@ public class CallParser extends StatementParser {
     public ICodeNode parse(Token token) throws Exception {
         SymTabEntry pfId = symTabStack.lookup(token.getText());
         RoutineCode routineCode = (RoutineCode) pfId.getAttribute(ROUTINE_CODE);
-        CallParser callParser = (routineCode == DECLARED) || (routineCode == FORWARD) ? new CallDeclaredParser(this)
-                : new CallStandardParser(this);
+        CallParser callParser = (routineCode == DECLARED) || (routineCode == FORWARD) ? parsers.callDeclaredParser()
+                : parsers.callStandardParser();
 
         return callParser.parse(token);
     }
@@ -67,8 +67,8 @@ public class CallParser extends StatementParser {
      */
     protected ICodeNode parseActualParameters(Token token, SymTabEntry pfId, boolean isDeclared, boolean isReadReadln,
             boolean isWriteWriteln) throws Exception {
-        ExpressionParser expressionParser = new ExpressionParser(this);
-        ICodeNode parmsNode = ICodeFactory.createICodeNode(PARAMETERS);
+        ExpressionParser expressionParser = parsers.expressionParser();
+        ICodeNode parmsNode = ICodeFactory.createICodeNode(context, PARAMETERS);
         ArrayList<SymTabEntry> formalParms = null;
         int parmCount = 0;
         int parmIndex = -1;
@@ -124,7 +124,7 @@ public class CallParser extends StatementParser {
 
                 // Create a WRITE_PARM node which adopts the expression node.
                 ICodeNode exprNode = actualNode;
-                actualNode = ICodeFactory.createICodeNode(WRITE_PARM);
+                actualNode = ICodeFactory.createICodeNode(context, WRITE_PARM);
                 actualNode.addChild(exprNode);
 
                 TypeSpec type = exprNode.getTypeSpec().baseType();
@@ -203,7 +203,7 @@ public class CallParser extends StatementParser {
         if (token.getType() == COLON) {
             token = nextToken(); // consume :
 
-            ExpressionParser expressionParser = new ExpressionParser(this);
+            ExpressionParser expressionParser = parsers.expressionParser();
             ICodeNode specNode = expressionParser.parse(token);
 
             if (specNode.getType() == INTEGER_CONSTANT) {
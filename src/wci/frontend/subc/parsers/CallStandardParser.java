@@ -29,7 +29,7 @@ public class CallStandardParser extends CallParser {
      * @throws Exception if an error occurred.
      */
     public ICodeNode parse(Token token) throws Exception {
-        ICodeNode callNode = ICodeFactory.createICodeNode(CALL);
+        ICodeNode callNode = ICodeFactory.createICodeNode(context, CALL);
         SymTabEntry pfId = symTabStack.lookup(token.getText().toLowerCase());
         RoutineCode routineCode = (RoutineCode) pfId.getAttribute(ROUTINE_CODE);
         callNode.setAttribute(ID, pfId);
@@ -95,7 +95,7 @@ public class CallStandardParser extends CallParser {
         callNode.addChild(parmsNode);
 
         // Read must have parameters.
-        if ((pfId == Predefined.readId) && (callNode.getChildren().size() == 0)) {
+        if ((pfId.getAttribute(ROUTINE_CODE) == RoutineCodeImpl.READ) && (callNode.getChildren().size() == 0)) {
             errorHandler.flag(token, WRONG_NUMBER_OF_PARMS, this);
         }
 
@@ -116,7 +116,7 @@ public class CallStandardParser extends CallParser {
         callNode.addChild(parmsNode);
 
         // Write must have parameters.
-        if ((pfId == Predefined.writeId) && (callNode.getChildren().size() == 0)) {
+        if ((pfId.getAttribute(ROUTINE_CODE) == RoutineCodeImpl.WRITE) && (callNode.getChildren().size() == 0)) {
             errorHandler.flag(token, WRONG_NUMBER_OF_PARMS, this);
         }
 
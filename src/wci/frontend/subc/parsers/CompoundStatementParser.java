@@ -36,10 +36,10 @@ public class CompoundStatementParser extends StatementParser {
         token = nextToken();// consume the BEGIN
 
         // Create the COMPOUND node.
-        ICodeNode compoundNode = ICodeFactory.createICodeNode(COMPOUND);
+        ICodeNode compoundNode = ICodeFactory.createICodeNode(context, COMPOUND);
 
         // Parse the statement list terminated by the END token.
-        StatementParser statementParser = new StatementParser(this);
+        StatementParser statementParser = parsers.statementParser();
         statementParser.parseList(token, compoundNode, parentId, RIGHT_BRACE, MISSING_END);
 
         return compoundNode;
@@ -278,7 +278,7 @@ public class ConstantDefinitionsParser extends DeclarationsParser {
      */
     protected TypeSpec parseTypeSpec(Token token) throws Exception {
         // Parse the type specification.
-        TypeSpecificationParser typeSpecificationParser = new TypeSpecificationParser(this);
+        TypeSpecificationParser typeSpecificationParser = parsers.typeSpecificationParser();
         TypeSpec type = typeSpecificationParser.parse(token);
 
         return type;
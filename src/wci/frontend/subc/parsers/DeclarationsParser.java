@@ -66,16 +66,16 @@ public class DeclarationsParser extends SubCParserTD {
             SymTabEntry varType = symTabStack.lookup(token.getText());
             if (token.getType() == CONST) {
                 token = nextToken(); // consume CONST
-                ConstantDefinitionsParser constantDefinitionsParser = new ConstantDefinitionsParser(this);
+                ConstantDefinitionsParser constantDefinitionsParser = parsers.constantDefinitionsParser();
                 constantDefinitionsParser.parse(token, parentId);
             } else if (VAR_START_SET.contains(token.getType()) && varType != null
                     && varType.getDefinition() == DefinitionImpl.TYPE) {
-                VariableDeclarationsParser variableParser = new VariableDeclarationsParser(this);
+                VariableDeclarationsParser variableParser = parsers.variableDeclarationsParser();
                 variableParser.setDefinition(VARIABLE);
                 variableParser.parse(token, parentId);
             } else {
                 token = synchronize(ROUTINE_START_SET);
-                DeclaredRoutineParser routineParser = new DeclaredRoutineParser(this);
+                DeclaredRoutineParser routineParser = parsers.declaredRoutineParser();
                 routineParser.parse(token, parentId);
             }
 
@@ -93,7 +93,7 @@ public class DeclarationsParser extends SubCParserTD {
     */
     protected TypeSpec parseTypeSpec(Token token) throws Exception {
         // Parse the type specification.
-        TypeSpecificationParser typeSpecificationParser = new TypeSpecificationParser(this);
+        TypeSpecificationParser typeSpecificationParser = parsers.typeSpecificationParser();
         TypeSpec type = typeSpecificationParser.parse(token);
 
         return type;
@@ -26,7 +26,7 @@ import static wci.intermediate.symtabimpl.RoutineCodeImpl.*;
  * <p>For instructional purposes only.  No warranties.</p>
  */
 public class DeclaredRoutineParser extends DeclarationsParser {
-    private TypeSpec type;
+    private TypeSpec type;  // return type for the next parse, or null
 
     /**
      * Constructor.
@@ -36,12 +36,14 @@ public class DeclaredRoutineParser extends DeclarationsParser {
         super(parent);
     }
 
+    /**
+     * Setter.  The type is only for the next routine parsed.
+     * @param type the return type, already parsed.
+     */
     public void setReturnType(TypeSpec type) {
         this.type = type;
     }
 
-    private static int dummyCounter = 0; // counter for dummy routine names
-
     /**
      * Parse a standard subroutine declaration.
      * @param token the initial token.
@@ -55,20 +57,24 @@ public class DeclaredRoutineParser extends DeclarationsParser {
         SymTabEntry routineId = null;
         TokenType routineType = token.getType();
 
+        // This instance is reused for the routines nested in this one.
+        TypeSpec returnType = type;
+        type = null;
+
         // Initialize.
         switch ((SubCTokenType) routineType) {
 
         case VOID: {
             token = nextToken(); // consume void
             routineDefn = DefinitionImpl.PROCEDURE;
-            dummyName = "DummyProcedureName_".toLowerCase() + String.format("%03d", ++dummyCounter);
+            dummyName = "DummyProcedureName_".toLowerCase() + String.format("%03d", context.nextDummyRoutineIndex());
             break;
         }
 
         case IDENTIFIER: {
             //token = nextToken(); // consume FUNCTION
             routineDefn = DefinitionImpl.FUNCTION;
-            dummyName = "DummyFunctionName_".toLowerCase() + String.format("%03d", ++dummyCounter);
+            dummyName = "DummyFunctionName_".toLowerCase() + String.format("%03d", context.nextDummyRoutineIndex());
             break;
         }
 
@@ -112,21 +118,25 @@ public class DeclaredRoutineParser extends DeclarationsParser {
         if (routineId.getAttribute(ROUTINE_CODE) == FORWARD) {
             if (token.getType() != SEMICOLON) {
                 errorHandler.flag(token, ALREADY_FORWARDED, this);
-                parseHeader(token, routineId);
+                parseHeader(token, routineId, returnType);
             }
         }
         // Parse the routine's formal parameters and function return type.
         else {
-            parseHeader(token, routineId);
+            parseHeader(token, routineId, returnType);
         }
 
         token = currentToken();
         // Parse the routine's block or forward declaration.
         if (token.getType() == LEFT_BRACE) {
             routineId.setAttribute(ROUTINE_CODE, DECLARED);
-            BlockParser blockParser = new BlockParser(this);
-            ICodeNode rootNode = blockParser.parse(token, routineId);
-            iCode.setRoot(rootNode);
+
+            // Parse the block now unless it's deferred to another thread.
+            if ((bodyParser == null) || !bodyParser.defer(token, routineId)) {
+                BlockParser blockParser = parsers.blockParser();
+                ICodeNode rootNode = blockParser.parse(token, routineId);
+                iCode.setRoot(rootNode);
+            }
         }
 
         // Pop the routine's symbol table off the stack.
@@ -179,9 +189,10 @@ public class DeclaredRoutineParser extends DeclarationsParser {
      * Parse a routine's formal parameter list and the function return type.
      * @param token the current token.
      * @param routineId the symbol table entry of the declared routine's name.
+     * @param type the return type if already parsed, or null.
      * @throws Exception if an error occurred.
      */
-    private void parseHeader(Token token, SymTabEntry routineId) throws Exception {
+    private void parseHeader(Token token, SymTabEntry routineId, TypeSpec type) throws Exception {
         // Parse the routine's formal parameters.
         parseFormalParameters(token, routineId);
         token = currentToken();
@@ -190,7 +201,7 @@ public class DeclaredRoutineParser extends DeclarationsParser {
         if (routineId.getDefinition() == DefinitionImpl.FUNCTION) {
             if (type == null) {
 
-                VariableDeclarationsParser variableDeclarationsParser = new VariableDeclarationsParser(this);
+                VariableDeclarationsParser variableDeclarationsParser = parsers.variableDeclarationsParser();
                 variableDeclarationsParser.setDefinition(DefinitionImpl.FUNCTION);
                 type = variableDeclarationsParser.parseTypeSpec(token);
             }
@@ -296,7 +307,7 @@ public class DeclaredRoutineParser extends DeclarationsParser {
         TypeSpec type;
 
         VariableDeclarationsParser variableDeclarationsParser =
-	            new VariableDeclarationsParser(this);
+	            parsers.variableDeclarationsParser();
 
         if (token.getType() != INT && token.getType() != DOUBLE && token.getType() != FLOAT) {
         	errorHandler.flag(token, SubCErrorCode.INVALID_TYPE, this);
@@ -1,7 +1,6 @@
 package wci.frontend.subc.parsers;
 
 import java.util.EnumSet;
-import java.util.HashMap;
 
 import wci.frontend.*;
 import wci.frontend.subc.*;
@@ -21,7 +20,11 @@ import static wci.intermediate.icodeimpl.ICodeKeyImpl.*;
 /**
  * <h1>ExpressionParser</h1>
  *
- * <p>Parse a SubC expression.</p>
+ * <p>Parse a SubC expression by precedence climbing.  Each binary operator
+ * token has a precedence level in a table indexed by the token type's
+ * ordinal, and one loop parses all the levels.  A higher level binds
+ * more tightly.  The binary operators are left associative, except the
+ * conditional operator ?: which is right associative.</p>
  *
  * <p>Copyright (c) 2009 by Ronald Mak</p>
  * <p>For instructional purposes only.  No warranties.</p>
@@ -39,30 +42,92 @@ public class ExpressionParser extends StatementParser {
     static final EnumSet<SubCTokenType> EXPR_START_SET = EnumSet.of(PLUS, MINUS, IDENTIFIER, INTEGER, REAL, STRING,
             SubCTokenType.NOT, LEFT_PAREN);
 
+    // Precedence levels of the operators, from loosest to tightest, as in C.
+    private static final int NO_LEVEL             = 0;  // not a binary operator
+    private static final int ASSIGNMENT_LEVEL     = 1;  // += -= *= /= %=
+    private static final int CONDITIONAL_LEVEL    = 2;  // ?:
+    private static final int LOGICAL_OR_LEVEL     = 3;  // ||
+    private static final int LOGICAL_AND_LEVEL    = 4;  // &&
+    private static final int BITWISE_OR_LEVEL     = 5;  // |
+    private static final int BITWISE_XOR_LEVEL    = 6;  // ^
+    private static final int BITWISE_AND_LEVEL    = 7;  // &
+    private static final int EQUALITY_LEVEL       = 8;  // == !=
+    private static final int RELATIONAL_LEVEL     = 9;  // < <= > >=
+    private static final int ADDITIVE_LEVEL       = 10; // + -
+    private static final int MULTIPLICATIVE_LEVEL = 11; // * / %
+
+    // Precedence level and node type of each binary operator token,
+    // and the binary operator of each compound assignment token,
+    // indexed by the token type's ordinal.
+    private static final int LEVELS[] = new int[SubCTokenType.values().length];
+    private static final ICodeNodeType OPERATOR_NODES[] = new ICodeNodeType[LEVELS.length];
+    private static final SubCTokenType COMPOUND_OPERATORS[] = new SubCTokenType[LEVELS.length];
+    static {
+        operator(QUESTION, CONDITIONAL_LEVEL, CONDITIONAL);
+        operator(SubCTokenType.OR, LOGICAL_OR_LEVEL, ICodeNodeTypeImpl.OR);
+        operator(SubCTokenType.AND, LOGICAL_AND_LEVEL, ICodeNodeTypeImpl.AND);
+        operator(VERTICAL_BAR, BITWISE_OR_LEVEL, BIT_OR);
+        operator(UP_ARROW, BITWISE_XOR_LEVEL, BIT_XOR);
+        operator(AMPERSAND, BITWISE_AND_LEVEL, BIT_AND);
+        operator(EQUAL_EQUALS, EQUALITY_LEVEL, EQ);
+        operator(NOT_EQUALS, EQUALITY_LEVEL, NE);
+        operator(LESS_THAN, RELATIONAL_LEVEL, LT);
+        operator(LESS_EQUALS, RELATIONAL_LEVEL, LE);
+        operator(GREATER_THAN, RELATIONAL_LEVEL, GT);
+        operator(GREATER_EQUALS, RELATIONAL_LEVEL, GE);
+        operator(PLUS, ADDITIVE_LEVEL, ADD);
+        operator(MINUS, ADDITIVE_LEVEL, SUBTRACT);
+        operator(STAR, MULTIPLICATIVE_LEVEL, MULTIPLY);
+        operator(SLASH, MULTIPLICATIVE_LEVEL, INTEGER_DIVIDE);
+        operator(SubCTokenType.MOD, MULTIPLICATIVE_LEVEL, ICodeNodeTypeImpl.MOD);
+
+        compound(PLUS_EQUALS, PLUS);
+        compound(MINUS_EQUALS, MINUS);
+        compound(STAR_EAUQLS, STAR);
+        compound(SLASH_EQUALS, SLASH);
+        compound(MOD_EQUALS, SubCTokenType.MOD);
+    }
+
     /**
-     * Parse an expression.
-     * @param token the initial token.
-     * @return the root node of the generated parse tree.
-     * @throws Exception if an error occurred.
+     * Enter a binary operator into the tables.
+     * @param tokenType the operator token type.
+     * @param level the precedence level.
+     * @param nodeType the type of the operator node.
      */
-    public ICodeNode parse(Token token) throws Exception {
-        return parseExpression(token);
+    private static void operator(SubCTokenType tokenType, int level, ICodeNodeType nodeType) {
+        LEVELS[tokenType.ordinal()] = level;
+        OPERATOR_NODES[tokenType.ordinal()] = nodeType;
     }
 
-    // Set of relational operators.
-    private static final EnumSet<SubCTokenType> REL_OPS = EnumSet.of(EQUAL_EQUALS, NOT_EQUALS, LESS_THAN, LESS_EQUALS,
-            GREATER_THAN, GREATER_EQUALS);
+    /**
+     * Enter a compound assignment operator into the tables.
+     * @param tokenType the compound assignment token type.
+     * @param operator the token type of its binary operator.
+     */
+    private static void compound(SubCTokenType tokenType, SubCTokenType operator) {
+        LEVELS[tokenType.ordinal()] = ASSIGNMENT_LEVEL;
+        COMPOUND_OPERATORS[tokenType.ordinal()] = operator;
+    }
 
-    // Map relational operator tokens to node types.
-    private static final HashMap<SubCTokenType, ICodeNodeType> REL_OPS_MAP = new HashMap<SubCTokenType, ICodeNodeType>();
-    static {
-        REL_OPS_MAP.put(EQUAL_EQUALS, EQ);
-        REL_OPS_MAP.put(NOT_EQUALS, NE);
-        REL_OPS_MAP.put(LESS_THAN, LT);
-        REL_OPS_MAP.put(LESS_EQUALS, LE);
-        REL_OPS_MAP.put(GREATER_THAN, GT);
-        REL_OPS_MAP.put(GREATER_EQUALS, GE);
-    };
+    /**
+     * Return the precedence level of a token as a binary operator.
+     * @param token the token.
+     * @return the level, or NO_LEVEL if the token is not a binary operator.
+     */
+    private static int levelOf(Token token) {
+        TokenType tokenType = token.getType();
+        return tokenType instanceof SubCTokenType ? LEVELS[((SubCTokenType) tokenType).ordinal()] : NO_LEVEL;
+    }
+
+    /**
+     * Return the binary operator of a compound assignment operator.
+     * @param tokenType a token type.
+     * @return the binary operator's token type, such as PLUS for +=,
+     *         or null if the token type is not a compound assignment.
+     */
+    static SubCTokenType compoundOperator(TokenType tokenType) {
+        return tokenType instanceof SubCTokenType ? COMPOUND_OPERATORS[((SubCTokenType) tokenType).ordinal()] : null;
+    }
 
     /**
      * Parse an expression.
@@ -70,229 +135,85 @@ public class ExpressionParser extends StatementParser {
      * @return the root node of the generated parse tree.
      * @throws Exception if an error occurred.
      */
-    private ICodeNode parseExpression(Token token) throws Exception {
-        // Parse a simple expression and make the root of its tree
-        // the root node.
-        ICodeNode rootNode = parseSimpleExpression(token);
-        TypeSpec resultType = rootNode != null ? rootNode.getTypeSpec() : Predefined.undefinedType;
-
-        token = currentToken();
-        TokenType tokenType = token.getType();
-
-        // Look for a relational operator.
-        if (REL_OPS.contains(tokenType)) {
-
-            // Create a new operator node and adopt the current tree
-            // as its first child.
-            ICodeNodeType nodeType = REL_OPS_MAP.get(tokenType);
-            ICodeNode opNode = ICodeFactory.createICodeNode(nodeType);
-            opNode.addChild(rootNode);
-
-            token = nextToken(); // consume the operator
-
-            // Parse the second simple expression.  The operator node adopts
-            // the simple expression's tree as its second child.
-            ICodeNode simExprNode = parseSimpleExpression(token);
-            opNode.addChild(simExprNode);
-
-            // The operator node becomes the new root node.
-            rootNode = opNode;
-
-            // Type check: The operands must be comparison compatible.
-            TypeSpec simExprType = simExprNode != null ? simExprNode.getTypeSpec() : Predefined.undefinedType;
-            if (TypeChecker.areComparisonCompatible(resultType, simExprType)) {
-                resultType = Predefined.booleanType;
-            } else {
-                errorHandler.flag(token, INCOMPATIBLE_TYPES, this);
-                resultType = Predefined.undefinedType;
-            }
-        }
-
-        if (rootNode != null) {
-            rootNode.setTypeSpec(resultType);
-        }
-
-        return rootNode;
+    public ICodeNode parse(Token token) throws Exception {
+        return parseExpression(token, CONDITIONAL_LEVEL);
     }
 
-    // Set of additive operators.
-    private static final EnumSet<SubCTokenType> ADD_OPS = EnumSet.of(PLUS, MINUS,SubCTokenType.OR);
-
-    // Map additive operator tokens to node types.
-    private static final HashMap<SubCTokenType, ICodeNodeTypeImpl> ADD_OPS_OPS_MAP = new HashMap<SubCTokenType, ICodeNodeTypeImpl>();
-    static {
-        ADD_OPS_OPS_MAP.put(PLUS, ADD);
-        ADD_OPS_OPS_MAP.put(MINUS, SUBTRACT);
-        ADD_OPS_OPS_MAP.put(SubCTokenType.OR, ICodeNodeTypeImpl.OR);
-    };
-
     /**
-     * Parse a simple expression.
+     * Parse an expression whose binary operators are all at a given
+     * precedence level or tighter.
      * @param token the initial token.
+     * @param minLevel the loosest precedence level to parse.
      * @return the root node of the generated parse tree.
      * @throws Exception if an error occurred.
      */
-    private ICodeNode parseSimpleExpression(Token token) throws Exception {
-        Token signToken = null;
-        TokenType signType = null; // type of leading sign (if any)
-
-        // Look for a leading + or - sign.
-        TokenType tokenType = token.getType();
-        if ((tokenType == PLUS) || (tokenType == MINUS)) {
-            signType = tokenType;
-            signToken = token;
-            token = nextToken(); // consume the + or -
-        }
-
-        // Parse a term and make the root of its tree the root node.
-        ICodeNode rootNode = parseTerm(token);
-        TypeSpec resultType = rootNode != null ? rootNode.getTypeSpec() : Predefined.undefinedType;
-
-        // Type check: Leading sign.
-        if ((signType != null) && (!TypeChecker.isIntegerOrReal(resultType))) {
-            errorHandler.flag(signToken, INCOMPATIBLE_TYPES, this);
-        }
-
-        // Was there a leading - sign?
-        if (signType == MINUS) {
-
-            // Create a NEGATE node and adopt the current tree
-            // as its child. The NEGATE node becomes the new root node.
-            ICodeNode negateNode = ICodeFactory.createICodeNode(NEGATE);
-            negateNode.addChild(rootNode);
-            negateNode.setTypeSpec(rootNode.getTypeSpec());
-            rootNode = negateNode;
-        }
+    private ICodeNode parseExpression(Token token, int minLevel) throws Exception {
+        // Parse the first operand and make the root of its tree
+        // the root node.
+        ICodeNode rootNode = parseUnary(token, minLevel);
 
         token = currentToken();
-        tokenType = token.getType();
-
-        // Loop over additive operators.
-        while (ADD_OPS.contains(tokenType)) {
-            TokenType operator = tokenType;
-
-            // Create a new operator node and adopt the current tree
-            // as its first child.
-            ICodeNodeType nodeType = ADD_OPS_OPS_MAP.get(operator);
-            ICodeNode opNode = ICodeFactory.createICodeNode(nodeType);
-            opNode.addChild(rootNode);
+        int level = levelOf(token);
 
+        // Loop over the binary operators at the minimum level or tighter.
+        // Compound assignments are statements, so they end an expression.
+        while ((level >= minLevel) && (level > ASSIGNMENT_LEVEL)) {
+            SubCTokenType operator = (SubCTokenType) token.getType();
             token = nextToken(); // consume the operator
 
-            // Parse another term.  The operator node adopts
-            // the term's tree as its second child.
-            ICodeNode termNode = parseTerm(token);
-            opNode.addChild(termNode);
-            TypeSpec termType = termNode != null ? termNode.getTypeSpec() : Predefined.undefinedType;
-
-            // The operator node becomes the new root node.
-            rootNode = opNode;
-
-            // Determine the result type.
-            switch ((SubCTokenType) operator) {
-
-                case PLUS:
-                case MINUS: {
-                    // Both operands integer ==> integer result.
-                    if (TypeChecker.areBothInteger(resultType, termType)) {
-                        resultType = Predefined.integerType;
-                    }
-
-                    // Both real operands or one real and one integer operand
-                    // ==> real result.
-                    else if (TypeChecker.isAtLeastOneReal(resultType, termType)) {
-                        resultType = Predefined.realType;
-                    }
-
-                    else {
-                        errorHandler.flag(token, INCOMPATIBLE_TYPES, this);
-                    }
-
-                    break;
-                }
-
-                case OR: {
-                    // Both operands boolean ==> boolean result.
-                    if (TypeChecker.areBothBoolean(resultType, termType)) {
-                        resultType = Predefined.booleanType;
-                    } else {
-                        errorHandler.flag(token, INCOMPATIBLE_TYPES, this);
-                    }
-
-                    break;
-                }
-
+            // The conditional operator is right associative.
+            if (operator == QUESTION) {
+                rootNode = parseConditional(token, rootNode);
             }
 
-            rootNode.setTypeSpec(resultType);
+            // Parse the second operand, which can contain only tighter
+            // operators, and adopt both operands as the children of a new
+            // operator node.  The operator node becomes the new root node.
+            else {
+                ICodeNode operandNode = parseExpression(token, level + 1);
+                rootNode = makeOperatorNode(operator, rootNode, operandNode, token);
+            }
 
             token = currentToken();
-            tokenType = token.getType();
+            level = levelOf(token);
         }
 
         return rootNode;
     }
 
-    // Set of multiplicative operators.
-    private static final EnumSet<SubCTokenType> MULT_OPS = EnumSet.of(STAR, SLASH, SubCTokenType.MOD);
-
-    // Map multiplicative operator tokens to node types.
-    private static final HashMap<SubCTokenType, ICodeNodeType> MULT_OPS_OPS_MAP = new HashMap<SubCTokenType, ICodeNodeType>();
-    static {
-        MULT_OPS_OPS_MAP.put(STAR, MULTIPLY);
-        MULT_OPS_OPS_MAP.put(SLASH, INTEGER_DIVIDE);
-        //MULT_OPS_OPS_MAP.put(DIV, INTEGER_DIVIDE);
-        MULT_OPS_OPS_MAP.put(SubCTokenType.MOD, ICodeNodeTypeImpl.MOD);
-    };
-
     /**
-     * Parse a term.
-     * @param token the initial token.
-     * @return the root node of the generated parse tree.
-     * @throws Exception if an error occurred.
+     * Create a binary operator node with two operand children,
+     * and set the node's type after type checking the operands.
+     * @param operator the operator token type.
+     * @param operandNode1 the root node of the first operand.
+     * @param operandNode2 the root node of the second operand.
+     * @param token the token to flag if the operand types are incompatible.
+     * @return the operator node.
      */
-    private ICodeNode parseTerm(Token token) throws Exception {
-        // Parse a factor and make its node the root node.
-        ICodeNode rootNode = parseFactor(token);
-        TypeSpec resultType = rootNode != null ? rootNode.getTypeSpec() : Predefined.undefinedType;
-
-        token = currentToken();
-        TokenType tokenType = token.getType();
-
-        // Loop over multiplicative operators.
-        while (MULT_OPS.contains(tokenType)) {
-            TokenType operator = tokenType;
+    ICodeNode makeOperatorNode(SubCTokenType operator, ICodeNode operandNode1, ICodeNode operandNode2, Token token) {
+        ICodeNodeType nodeType = OPERATOR_NODES[operator.ordinal()];
+        ICodeNode opNode = ICodeFactory.createICodeNode(context, nodeType);
+        opNode.addChild(operandNode1);
+        opNode.addChild(operandNode2);
 
-            // Create a new operator node and adopt the current tree
-            // as its first child.
-            ICodeNodeType nodeType = MULT_OPS_OPS_MAP.get(operator);
-            ICodeNode opNode = ICodeFactory.createICodeNode(nodeType);
-            opNode.addChild(rootNode);
-
-            token = nextToken(); // consume the operator
+        TypeSpec resultType = typeOf(operandNode1);
+        TypeSpec operandType = typeOf(operandNode2);
 
-            // Parse another factor.  The operator node adopts
-            // the term's tree as its second child.
-            ICodeNode factorNode = parseFactor(token);
-            opNode.addChild(factorNode);
-            TypeSpec factorType = factorNode != null ? factorNode.getTypeSpec() : Predefined.undefinedType;
+        // Determine the result type.
+        switch (operator) {
 
-            // The operator node becomes the new root node.
-            rootNode = opNode;
-
-            // Determine the result type.
-            switch ((SubCTokenType) operator) {
             case PLUS:
             case MINUS:
-            case STAR: {
+            case STAR:
+            case SLASH: {
                 // Both operands integer ==> integer result.
-                if (TypeChecker.areBothInteger(resultType, factorType)) {
+                if (TypeChecker.areBothInteger(resultType, operandType)) {
                     resultType = Predefined.integerType;
                 }
 
                 // Both real operands or one real and one integer operand
                 // ==> real result.
-                else if (TypeChecker.isAtLeastOneReal(resultType, factorType)) {
+                else if (TypeChecker.isAtLeastOneReal(resultType, operandType)) {
                     resultType = Predefined.realType;
                 }
 
@@ -303,14 +224,22 @@ public class ExpressionParser extends StatementParser {
                 break;
             }
 
-            case SLASH: {
-                // All integer and real operand combinations
-                // ==> real result.
-                if (TypeChecker.areBothInteger(resultType, factorType)){
+            case MOD: {
+                // Both operands integer ==> integer result.
+                if (TypeChecker.areBothInteger(resultType, operandType)) {
                     resultType = Predefined.integerType;
+                } else {
+                    errorHandler.flag(token, INCOMPATIBLE_TYPES, this);
                 }
-                else if(TypeChecker.isAtLeastOneReal(resultType, factorType)) {
-                    resultType = Predefined.realType;
+
+                break;
+            }
+
+            case OR:
+            case AND: {
+                // Both operands boolean ==> boolean result.
+                if (TypeChecker.areBothBoolean(resultType, operandType)) {
+                    resultType = Predefined.booleanType;
                 } else {
                     errorHandler.flag(token, INCOMPATIBLE_TYPES, this);
                 }
@@ -318,10 +247,15 @@ public class ExpressionParser extends StatementParser {
                 break;
             }
 
-            case MOD: {
+            case AMPERSAND:
+            case VERTICAL_BAR:
+            case UP_ARROW: {
                 // Both operands integer ==> integer result.
-                if (TypeChecker.areBothInteger(resultType, factorType)) {
+                // Both operands boolean ==> boolean result.
+                if (TypeChecker.areBothInteger(resultType, operandType)) {
                     resultType = Predefined.integerType;
+                } else if (TypeChecker.areBothBoolean(resultType, operandType)) {
+                    resultType = Predefined.booleanType;
                 } else {
                     errorHandler.flag(token, INCOMPATIBLE_TYPES, this);
                 }
@@ -329,25 +263,149 @@ public class ExpressionParser extends StatementParser {
                 break;
             }
 
-            case AND: {
-                // Both operands boolean ==> boolean result.
-                if (TypeChecker.areBothBoolean(resultType, factorType)) {
+            default: {
+                // Relational operator:
+                // The operands must be comparison compatible.
+                if (TypeChecker.areComparisonCompatible(resultType, operandType)) {
                     resultType = Predefined.booleanType;
                 } else {
                     errorHandler.flag(token, INCOMPATIBLE_TYPES, this);
+                    resultType = Predefined.undefinedType;
                 }
 
                 break;
             }
+        }
+
+        opNode.setTypeSpec(resultType);
+        return opNode;
+    }
+
+    /**
+     * Parse the rest of a conditional expression after the ?.
+     * @param token the token after the ?.
+     * @param conditionNode the root node of the condition.
+     * @return the CONDITIONAL node.
+     * @throws Exception if an error occurred.
+     */
+    private ICodeNode parseConditional(Token token, ICodeNode conditionNode) throws Exception {
+        // Type check: The condition must be boolean.
+        if (!TypeChecker.isBoolean(typeOf(conditionNode))) {
+            errorHandler.flag(token, INCOMPATIBLE_TYPES, this);
+        }
+
+        // Parse the expression to evaluate if the condition is true.
+        ICodeNode trueNode = parseExpression(token, CONDITIONAL_LEVEL);
+
+        // Look for the : token.
+        token = currentToken();
+        if (token.getType() == COLON) {
+            token = nextToken(); // consume the :
+        } else {
+            errorHandler.flag(token, MISSING_COLON, this);
+        }
+
+        // Parse the expression to evaluate if the condition is false.
+        ICodeNode falseNode = parseExpression(token, CONDITIONAL_LEVEL);
+
+        // The CONDITIONAL node adopts the condition and the two expressions.
+        ICodeNode conditionalNode = ICodeFactory.createICodeNode(context, CONDITIONAL);
+        conditionalNode.addChild(conditionNode);
+        conditionalNode.addChild(trueNode);
+        conditionalNode.addChild(falseNode);
+
+        // Determine the result type.
+        TypeSpec trueType = typeOf(trueNode).baseType();
+        TypeSpec falseType = typeOf(falseNode).baseType();
+        TypeSpec resultType;
+
+        if (trueType == falseType) {
+            resultType = trueType;
+        } else if (TypeChecker.isAtLeastOneReal(trueType, falseType)) {
+            resultType = Predefined.realType;
+        } else if (trueType.isSubCString() && falseType.isSubCString()) {
+            resultType = trueType;
+        } else {
+            errorHandler.flag(token, INCOMPATIBLE_TYPES, this);
+            resultType = Predefined.undefinedType;
+        }
+
+        conditionalNode.setTypeSpec(resultType);
+        return conditionalNode;
+    }
+
+    /**
+     * Parse an operand with an optional leading sign or !.
+     * A leading sign applies to the whole multiplicative term that follows
+     * it, as in Pascal, unless the operand of a tighter operator must end
+     * sooner.  The value is the same as with C's grouping.
+     * @param token the initial token.
+     * @param minLevel the loosest precedence level of the enclosing expression.
+     * @return the root node of the generated parse tree.
+     * @throws Exception if an error occurred.
+     */
+    private ICodeNode parseUnary(Token token, int minLevel) throws Exception {
+        TokenType tokenType = token.getType();
+
+        // Leading + or - sign.
+        if ((tokenType == PLUS) || (tokenType == MINUS)) {
+            Token signToken = token;
+            token = nextToken(); // consume the + or -
+
+            ICodeNode rootNode = parseExpression(token, Math.max(minLevel, MULTIPLICATIVE_LEVEL));
+
+            // Type check: Leading sign.
+            if (!TypeChecker.isIntegerOrReal(typeOf(rootNode))) {
+                errorHandler.flag(signToken, INCOMPATIBLE_TYPES, this);
+            }
+
+            // Was there a leading - sign?
+            if ((tokenType == MINUS) && (rootNode != null)) {
+
+                // Create a NEGATE node and adopt the current tree
+                // as its child. The NEGATE node becomes the new root node.
+                ICodeNode negateNode = ICodeFactory.createICodeNode(context, NEGATE);
+                negateNode.addChild(rootNode);
+                negateNode.setTypeSpec(rootNode.getTypeSpec());
+                rootNode = negateNode;
             }
 
-            rootNode.setTypeSpec(resultType);
+            return rootNode;
+        }
 
-            token = currentToken();
-            tokenType = token.getType();
+        // Leading !.
+        else if (tokenType == NOT) {
+            token = nextToken(); // consume the !
+
+            // Create a NOT node as the root node.
+            ICodeNode rootNode = ICodeFactory.createICodeNode(context, ICodeNodeTypeImpl.NOT);
+
+            // Parse the operand.  The NOT node adopts the
+            // operand node as its child.
+            ICodeNode operandNode = parseUnary(token, MULTIPLICATIVE_LEVEL + 1);
+            rootNode.addChild(operandNode);
+
+            // Type check: The operand must be boolean.
+            if (!TypeChecker.isBoolean(typeOf(operandNode))) {
+                errorHandler.flag(token, INCOMPATIBLE_TYPES, this);
+            }
+
+            rootNode.setTypeSpec(Predefined.booleanType);
+            return rootNode;
         }
 
-        return rootNode;
+        else {
+            return parseFactor(token);
+        }
+    }
+
+    /**
+     * @param node the root node of an operand, or null.
+     * @return the operand's type, or the undefined type.
+     */
+    private static TypeSpec typeOf(ICodeNode node) {
+        TypeSpec type = node != null ? node.getTypeSpec() : null;
+        return type != null ? type : Predefined.undefinedType;
     }
 
     /**
@@ -368,7 +426,7 @@ public class ExpressionParser extends StatementParser {
 
         case INTEGER: {
             // Create an INTEGER_CONSTANT node as the root node.
-            rootNode = ICodeFactory.createICodeNode(INTEGER_CONSTANT);
+            rootNode = ICodeFactory.createICodeNode(context, INTEGER_CONSTANT);
             rootNode.setAttribute(VALUE, token.getValue());
 
             token = nextToken(); // consume the number
@@ -379,7 +437,7 @@ public class ExpressionParser extends StatementParser {
 
         case REAL: {
             // Create an REAL_CONSTANT node as the root node.
-            rootNode = ICodeFactory.createICodeNode(REAL_CONSTANT);
+            rootNode = ICodeFactory.createICodeNode(context, REAL_CONSTANT);
             rootNode.setAttribute(VALUE, token.getValue());
 
             token = nextToken(); // consume the number
@@ -392,7 +450,7 @@ public class ExpressionParser extends StatementParser {
             String value = (String) token.getValue();
 
             // Create a STRING_CONSTANT node as the root node.
-            rootNode = ICodeFactory.createICodeNode(STRING_CONSTANT);
+            rootNode = ICodeFactory.createICodeNode(context, STRING_CONSTANT);
             rootNode.setAttribute(VALUE, value);
 
             TypeSpec resultType = value.length() == 1 ? Predefined.charType : TypeFactory.createStringType(value);
@@ -403,34 +461,11 @@ public class ExpressionParser extends StatementParser {
             break;
         }
 
-        case NOT: {
-            token = nextToken(); // consume the NOT
-
-            // Create a NOT node as the root node.
-            rootNode = ICodeFactory.createICodeNode(ICodeNodeTypeImpl.NOT);
-
-            // Parse the factor.  The NOT node adopts the
-            // factor node as its child.
-            ICodeNode factorNode = parseFactor(token);
-            rootNode.addChild(factorNode);
-
-            // Type check: The factor must be boolean.
-            TypeSpec factorType = factorNode != null ? factorNode.getTypeSpec() : Predefined.undefinedType;
-            if (!TypeChecker.isBoolean(factorType)) {
-                errorHandler.flag(token, INCOMPATIBLE_TYPES, this);
-            }
-
-            rootNode.setTypeSpec(Predefined.booleanType);
-
-            break;
-        }
-
         case LEFT_PAREN: {
             token = nextToken(); // consume the (
 
             // Parse an expression and make its node the root node.
-            rootNode = parseExpression(token);
-            TypeSpec resultType = rootNode != null ? rootNode.getTypeSpec() : Predefined.undefinedType;
+            rootNode = parseExpression(token, CONDITIONAL_LEVEL);
 
             // Look for the matching ) token.
             token = currentToken();
@@ -440,7 +475,6 @@ public class ExpressionParser extends StatementParser {
                 errorHandler.flag(token, MISSING_RIGHT_PAREN, this);
             }
 
-            rootNode.setTypeSpec(resultType);
             break;
         }
 
@@ -482,13 +516,13 @@ public class ExpressionParser extends StatementParser {
             TypeSpec type = id.getTypeSpec();
 
             if (value instanceof Integer) {
-                rootNode = ICodeFactory.createICodeNode(INTEGER_CONSTANT);
+                rootNode = ICodeFactory.createICodeNode(context, INTEGER_CONSTANT);
                 rootNode.setAttribute(VALUE, value);
             } else if (value instanceof Float) {
-                rootNode = ICodeFactory.createICodeNode(REAL_CONSTANT);
+                rootNode = ICodeFactory.createICodeNode(context, REAL_CONSTANT);
                 rootNode.setAttribute(VALUE, value);
             } else if (value instanceof String) {
-                rootNode = ICodeFactory.createICodeNode(STRING_CONSTANT);
+                rootNode = ICodeFactory.createICodeNode(context, STRING_CONSTANT);
                 rootNode.setAttribute(VALUE, value);
             }
 
@@ -506,7 +540,7 @@ public class ExpressionParser extends StatementParser {
             Object value = id.getAttribute(CONSTANT_VALUE);
             TypeSpec type = id.getTypeSpec();
 
-            rootNode = ICodeFactory.createICodeNode(INTEGER_CONSTANT);
+            rootNode = ICodeFactory.createICodeNode(context, INTEGER_CONSTANT);
             rootNode.setAttribute(VALUE, value);
 
             id.appendLineNumber(token.getLineNumber());
@@ -517,7 +551,7 @@ public class ExpressionParser extends StatementParser {
         }
 
             case FUNCTION: {
-                CallParser callParser = new CallParser(this);
+                CallParser callParser = parsers.callParser();
                 rootNode = callParser.parse(token);
                 break;
             }
@@ -528,7 +562,7 @@ public class ExpressionParser extends StatementParser {
             }
 
         default: {
-            VariableParser variableParser = new VariableParser(this);
+            VariableParser variableParser = parsers.variableParser();
             rootNode = variableParser.parse(token, id);
             break;
         }
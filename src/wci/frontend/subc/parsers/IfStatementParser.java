@@ -48,11 +48,11 @@ public class IfStatementParser extends StatementParser {
         token = nextToken(); // consume the IF
 
         // Create an IF node.
-        ICodeNode ifNode = ICodeFactory.createICodeNode(ICodeNodeTypeImpl.IF);
+        ICodeNode ifNode = ICodeFactory.createICodeNode(context, ICodeNodeTypeImpl.IF);
 
         // Parse the expression.
         // The IF node adopts the expression subtree as its first child.
-        ExpressionParser expressionParser = new ExpressionParser(this);
+        ExpressionParser expressionParser = parsers.expressionParser();
         ICodeNode exprNode = expressionParser.parse(token);
         ifNode.addChild(exprNode);
 
@@ -72,7 +72,7 @@ public class IfStatementParser extends StatementParser {
 
         // Parse the THEN statement.
         // The IF node adopts the statement subtree as its second child.
-        StatementParser statementParser = new StatementParser(this);
+        StatementParser statementParser = parsers.statementParser();
         ifNode.addChild(statementParser.parse(token, parentId));
         token = currentToken();
 
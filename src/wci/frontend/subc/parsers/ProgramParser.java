@@ -34,7 +34,7 @@ public class ProgramParser extends DeclarationsParser {
     public SymTabEntry parse(Token token, SymTabEntry parentId) throws Exception {
 
         // Parse the program.
-        DeclarationsParser routineParser = new DeclarationsParser(this);
+        DeclarationsParser routineParser = parsers.declarationsParser();
         routineParser.parse(token, parentId);
 
         return null;
@@ -38,18 +38,18 @@ public class RepeatStatementParser extends StatementParser {
         token = nextToken(); // consume the REPEAT
 
         // Create the LOOP and TEST nodes.
-        ICodeNode loopNode = ICodeFactory.createICodeNode(LOOP);
-        ICodeNode testNode = ICodeFactory.createICodeNode(TEST);
+        ICodeNode loopNode = ICodeFactory.createICodeNode(context, LOOP);
+        ICodeNode testNode = ICodeFactory.createICodeNode(context, TEST);
 
         // Parse the statement list terminated by the UNTIL token.
         // The LOOP node is the parent of the statement subtrees.
-        StatementParser statementParser = new StatementParser(this);
+        StatementParser statementParser = parsers.statementParser();
         statementParser.parseList(token, loopNode, parentId, WHILE, MISSING_UNTIL);
         token = currentToken();
 
         // Parse the expression.
         // The TEST node adopts the expression subtree as its only child.
-        ExpressionParser expressionParser = new ExpressionParser(this);
+        ExpressionParser expressionParser = parsers.expressionParser();
         ICodeNode exprNode = expressionParser.parse(token);
         testNode.addChild(exprNode);
         loopNode.addChild(testNode);
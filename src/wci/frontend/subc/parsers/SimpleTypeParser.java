@@ -112,7 +112,7 @@ class SimpleTypeParser extends TypeSpecificationParser
 
             case ENUM: {
                 EnumerationTypeParser enumerationTypeParser =
-                    new EnumerationTypeParser(this);
+                    parsers.enumerationTypeParser();
                 return enumerationTypeParser.parse(token);
             }
 
@@ -3,7 +3,6 @@ package wci.frontend.subc.parsers;
 import static wci.frontend.subc.SubCTokenType.*;
 import static wci.intermediate.icodeimpl.ICodeKeyImpl.*;
 import static wci.intermediate.icodeimpl.ICodeNodeTypeImpl.*;
-import static wci.intermediate.symtabimpl.SymTabKeyImpl.SLOT;
 
 import java.util.EnumSet;
 
@@ -61,7 +60,7 @@ public class StatementParser extends SubCParserTD {
         switch ((SubCTokenType) token.getType()) {
 
         case LEFT_BRACE: {
-            CompoundStatementParser compoundParser = new CompoundStatementParser(this);
+            CompoundStatementParser compoundParser = parsers.compoundStatementParser();
             statementNode = compoundParser.parse(token, parentID);
             break;
         }
@@ -77,13 +76,13 @@ public class StatementParser extends SubCParserTD {
                 case VALUE_PARM:
                 case VAR_PARM:
                 case UNDEFINED: {
-                    AssignmentStatementParser assignmentParser = new AssignmentStatementParser(this);
+                    AssignmentStatementParser assignmentParser = parsers.assignmentStatementParser();
                     statementNode = assignmentParser.parse(token,parentID);
                     break;
                 }
                 case FUNCTION:
                 case PROCEDURE: {
-                    CallParser callParser = new CallParser(this);
+                    CallParser callParser = parsers.callParser();
                     statementNode = callParser.parse(token);
                     break;
                 }
@@ -100,52 +99,52 @@ public class StatementParser extends SubCParserTD {
         case CHAR:
         case FLOAT:
         case DOUBLE:{
-            VariableDeclarationsParser variableParser = new VariableDeclarationsParser(this);
+            VariableDeclarationsParser variableParser = parsers.variableDeclarationsParser();
             variableParser.setDefinition(DefinitionImpl.VARIABLE);
             variableParser.parse(token, parentID);
-            statementNode = ICodeFactory.createICodeNode(NO_OP);
+            statementNode = ICodeFactory.createICodeNode(context, NO_OP);
             break;
         }
         case CONST: {
             token = nextToken(); // consume CONST
-            ConstantDefinitionsParser constantDefinitionsParser = new ConstantDefinitionsParser(this);
+            ConstantDefinitionsParser constantDefinitionsParser = parsers.constantDefinitionsParser();
             constantDefinitionsParser.parse(token, parentID);
-            statementNode = ICodeFactory.createICodeNode(NO_OP);
+            statementNode = ICodeFactory.createICodeNode(context, NO_OP);
             break;
         }
 
         case DO: {
-            RepeatStatementParser repeatParser = new RepeatStatementParser(this);
+            RepeatStatementParser repeatParser = parsers.repeatStatementParser();
             statementNode = repeatParser.parse(token, parentID);
             break;
         }
 
         case WHILE: {
-            WhileStatementParser whileParser = new WhileStatementParser(this);
+            WhileStatementParser whileParser = parsers.whileStatementParser();
             statementNode = whileParser.parse(token, parentID);
             break;
         }
         /*
         case FOR: {
-            ForStatementParser forParser = new ForStatementParser(this);
+            ForStatementParser forParser = parsers.forStatementParser();
             statementNode = forParser.parse(token);
             break;
         }
         */
         case IF: {
-            IfStatementParser ifParser = new IfStatementParser(this);
+            IfStatementParser ifParser = parsers.ifStatementParser();
             statementNode = ifParser.parse(token, parentID);
             break;
         }
         /*
         case SWITCH: {
-            CaseStatementParser caseParser = new CaseStatementParser(this);
+            CaseStatementParser caseParser = parsers.caseStatementParser();
             statementNode = caseParser.parse(token);
             break;
         }
         */
         case RETURN: {
-            ICodeNode assignNode = ICodeFactory.createICodeNode(ASSIGN);
+            ICodeNode assignNode = ICodeFactory.createICodeNode(context, ASSIGN);
             assignNode.setTypeSpec(parentID.getTypeSpec());
             SymTabEntry targetId = new SymTabEntryImpl(parentID.getName(), symTabStack.getLocalSymTab());
             targetId.setDefinition(DefinitionImpl.VARIABLE);
@@ -153,10 +152,10 @@ public class StatementParser extends SubCParserTD {
 
             // Set its slot number in the local variables array.
             int slot = targetId.getSymTab().maxSlotNumber() + 1;
-            targetId.setAttribute(SLOT, slot);
+            targetId.setSlot(slot);
 
             // Create the variable node and set its name attribute.
-            ICodeNode variableNode = ICodeFactory.createICodeNode(VARIABLE);
+            ICodeNode variableNode = ICodeFactory.createICodeNode(context, VARIABLE);
             variableNode.setAttribute(ID, targetId);
             variableNode.setTypeSpec(parentID.getTypeSpec());
 
@@ -165,7 +164,7 @@ public class StatementParser extends SubCParserTD {
             token = nextToken(); // Consume RETURN
 
             if (token.getType() != SEMICOLON) {
-                ExpressionParser expressionParser = new ExpressionParser(this);
+                ExpressionParser expressionParser = parsers.expressionParser();
                 assignNode.addChild(expressionParser.parse(token));
 
                 if (parentID.getDefinition() == DefinitionImpl.PROCEDURE) {
@@ -180,7 +179,7 @@ public class StatementParser extends SubCParserTD {
             break;
         }
         default: {
-            statementNode = ICodeFactory.createICodeNode(NO_OP);
+            statementNode = ICodeFactory.createICodeNode(context, NO_OP);
             break;
         }
         }
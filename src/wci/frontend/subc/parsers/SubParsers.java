@@ -0,0 +1,253 @@
+package wci.frontend.subc.parsers;
+
+import wci.frontend.subc.SubCParserTD;
+
+/**
+ * <h1>SubParsers</h1>
+ *
+ * <p>The sub-parsers of a SubC parse, one instance of each.  A sub-parser
+ * is created the first time it's needed and then reused for every later
+ * statement, declaration, or expression of its kind, including the ones
+ * nested inside it.  So a parser must not keep anything in its fields
+ * that it still needs after it calls another parser, except what its
+ * caller sets just before each call, like the definition of a
+ * VariableDeclarationsParser.</p>
+ *
+ * <p>Each root parser has its own sub-parsers, which share its scanner.
+ * So the parsers of routine bodies on different threads don't share
+ * any.</p>
+ *
+ * <p>Copyright (c) 2009 by Ronald Mak</p>
+ * <p>For instructional purposes only.  No warranties.</p>
+ */
+public class SubParsers {
+    private SubCParserTD root;  // parent of the sub-parsers
+    private ProgramParser              programParser;
+    private DeclarationsParser         declarationsParser;
+    private ConstantDefinitionsParser  constantDefinitionsParser;
+    private VariableDeclarationsParser variableDeclarationsParser;
+    private DeclaredRoutineParser      declaredRoutineParser;
+    private TypeSpecificationParser    typeSpecificationParser;
+    private SimpleTypeParser           simpleTypeParser;
+    private EnumerationTypeParser      enumerationTypeParser;
+    private BlockParser                blockParser;
+    private StatementParser            statementParser;
+    private CompoundStatementParser    compoundStatementParser;
+    private AssignmentStatementParser  assignmentStatementParser;
+    private RepeatStatementParser      repeatStatementParser;
+    private WhileStatementParser       whileStatementParser;
+    private IfStatementParser          ifStatementParser;
+    private CallParser                 callParser;
+    private CallDeclaredParser         callDeclaredParser;
+    private CallStandardParser         callStandardParser;
+    private VariableParser             variableParser;
+    private ExpressionParser           expressionParser;
+
+    /**
+     * Constructor.
+     * @param root the root parser, which is the parent of the sub-parsers.
+     */
+    public SubParsers(SubCParserTD root) {
+        this.root = root;
+    }
+
+    /**
+     * @return the ProgramParser.
+     */
+    public ProgramParser programParser() {
+        if (programParser == null) {
+            programParser = new ProgramParser(root);
+        }
+        return programParser;
+    }
+
+    /**
+     * @return the DeclarationsParser.
+     */
+    public DeclarationsParser declarationsParser() {
+        if (declarationsParser == null) {
+            declarationsParser = new DeclarationsParser(root);
+        }
+        return declarationsParser;
+    }
+
+    /**
+     * @return the ConstantDefinitionsParser.
+     */
+    public ConstantDefinitionsParser constantDefinitionsParser() {
+        if (constantDefinitionsParser == null) {
+            constantDefinitionsParser = new ConstantDefinitionsParser(root);
+        }
+        return constantDefinitionsParser;
+    }
+
+    /**
+     * @return the VariableDeclarationsParser.
+     */
+    public VariableDeclarationsParser variableDeclarationsParser() {
+        if (variableDeclarationsParser == null) {
+            variableDeclarationsParser = new VariableDeclarationsParser(root);
+        }
+        return variableDeclarationsParser;
+    }
+
+    /**
+     * @return the DeclaredRoutineParser.
+     */
+    public DeclaredRoutineParser declaredRoutineParser() {
+        if (declaredRoutineParser == null) {
+            declaredRoutineParser = new DeclaredRoutineParser(root);
+        }
+        return declaredRoutineParser;
+    }
+
+    /**
+     * @return the TypeSpecificationParser.
+     */
+    public TypeSpecificationParser typeSpecificationParser() {
+        if (typeSpecificationParser == null) {
+            typeSpecificationParser = new TypeSpecificationParser(root);
+        }
+        return typeSpecificationParser;
+    }
+
+    /**
+     * @return the SimpleTypeParser.
+     */
+    public SimpleTypeParser simpleTypeParser() {
+        if (simpleTypeParser == null) {
+            simpleTypeParser = new SimpleTypeParser(root);
+        }
+        return simpleTypeParser;
+    }
+
+    /**
+     * @return the EnumerationTypeParser.
+     */
+    public EnumerationTypeParser enumerationTypeParser() {
+        if (enumerationTypeParser == null) {
+            enumerationTypeParser = new EnumerationTypeParser(root);
+        }
+        return enumerationTypeParser;
+    }
+
+    /**
+     * @return the BlockParser.
+     */
+    public BlockParser blockParser() {
+        if (blockParser == null) {
+            blockParser = new BlockParser(root);
+        }
+        return blockParser;
+    }
+
+    /**
+     * @return the StatementParser.
+     */
+    public StatementParser statementParser() {
+        if (statementParser == null) {
+            statementParser = new StatementParser(root);
+        }
+        return statementParser;
+    }
+
+    /**
+     * @return the CompoundStatementParser.
+     */
+    public CompoundStatementParser compoundStatementParser() {
+        if (compoundStatementParser == null) {
+            compoundStatementParser = new CompoundStatementParser(root);
+        }
+        return compoundStatementParser;
+    }
+
+    /**
+     * @return the AssignmentStatementParser.
+     */
+    public AssignmentStatementParser assignmentStatementParser() {
+        if (assignmentStatementParser == null) {
+            assignmentStatementParser = new AssignmentStatementParser(root);
+        }
+        return assignmentStatementParser;
+    }
+
+    /**
+     * @return the RepeatStatementParser.
+     */
+    public RepeatStatementParser repeatStatementParser() {
+        if (repeatStatementParser == null) {
+            repeatStatementParser = new RepeatStatementParser(root);
+        }
+        return repeatStatementParser;
+    }
+
+    /**
+     * @return the WhileStatementParser.
+     */
+    public WhileStatementParser whileStatementParser() {
+        if (whileStatementParser == null) {
+            whileStatementParser = new WhileStatementParser(root);
+        }
+        return whileStatementParser;
+    }
+
+    /**
+     * @return the IfStatementParser.
+     */
+    public IfStatementParser ifStatementParser() {
+        if (ifStatementParser == null) {
+            ifStatementParser = new IfStatementParser(root);
+        }
+        return ifStatementParser;
+    }
+
+    /**
+     * @return the CallParser.
+     */
+    public CallParser callParser() {
+        if (callParser == null) {
+            callParser = new CallParser(root);
+        }
+        return callParser;
+    }
+
+    /**
+     * @return the CallDeclaredParser.
+     */
+    public CallDeclaredParser callDeclaredParser() {
+        if (callDeclaredParser == null) {
+            callDeclaredParser = new CallDeclaredParser(root);
+        }
+        return callDeclaredParser;
+    }
+
+    /**
+     * @return the CallStandardParser.
+     */
+    public CallStandardParser callStandardParser() {
+        if (callStandardParser == null) {
+            callStandardParser = new CallStandardParser(root);
+        }
+        return callStandardParser;
+    }
+
+    /**
+     * @return the VariableParser.
+     */
+    public VariableParser variableParser() {
+        if (variableParser == null) {
+            variableParser = new VariableParser(root);
+        }
+        return variableParser;
+    }
+
+    /**
+     * @return the ExpressionParser.
+     */
+    public ExpressionParser expressionParser() {
+        if (expressionParser == null) {
+            expressionParser = new ExpressionParser(root);
+        }
+        return expressionParser;
+    }
+}
@@ -57,17 +57,17 @@ class TypeSpecificationParser extends SubCParserTD
 
         switch ((SubCTokenType) token.getType()) {
             // case ARRAY: {
-            //     ArrayTypeParser arrayTypeParser = new ArrayTypeParser(this);
+            //     ArrayTypeParser arrayTypeParser = parsers.arrayTypeParser();
             //     return arrayTypeParser.parse(token);
             // }
 
             // case RECORD: {
-            //     RecordTypeParser recordTypeParser = new RecordTypeParser(this);
+            //     RecordTypeParser recordTypeParser = parsers.recordTypeParser();
             //     return recordTypeParser.parse(token);
             // }
 
             default: {
-                SimpleTypeParser simpleTypeParser = new SimpleTypeParser(this);
+                SimpleTypeParser simpleTypeParser = parsers.simpleTypeParser();
                 return simpleTypeParser.parse(token);
             }
         }
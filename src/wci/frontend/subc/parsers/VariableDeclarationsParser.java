@@ -72,7 +72,7 @@ public class VariableDeclarationsParser extends DeclarationsParser {
         token = synchronize(IDENTIFIER_SET);
         Token peekToken = nextToken();
         if (peekToken.getType() == LEFT_PAREN) {
-            DeclaredRoutineParser routineParser = new DeclaredRoutineParser(this);
+            DeclaredRoutineParser routineParser = parsers.declaredRoutineParser();
             routineParser.setReturnType(type);
             return routineParser.parse(token, parentId);
         }
@@ -184,7 +184,7 @@ public class VariableDeclarationsParser extends DeclarationsParser {
                 id.appendLineNumber(token.getLineNumber());
 
                 int slot = id.getSymTab().nextSlotNumber();
-                id.setAttribute(SLOT, slot);
+                id.setSlot(slot);
             } else {
                 errorHandler.flag(token, IDENTIFIER_REDEFINED, this);
             }
@@ -339,7 +339,7 @@ public class VariableDeclarationsParser extends DeclarationsParser {
         // }
 
         // Parse the type specification.
-        TypeSpecificationParser typeSpecificationParser = new TypeSpecificationParser(this);
+        TypeSpecificationParser typeSpecificationParser = parsers.typeSpecificationParser();
         TypeSpec type = typeSpecificationParser.parse(token);
         // Formal parameters and functions must have named types.
         if ((definition != VARIABLE) && (definition != FIELD) && (type != null) && (type.getIdentifier() == null)) {
@@ -80,7 +80,14 @@ public class VariableParser extends StatementParser {
         throws Exception
     {
         isFunctionTarget = true;
-        return parse(token);
+
+        // This instance is reused for the other variables.
+        try {
+            return parse(token);
+        }
+        finally {
+            isFunctionTarget = false;
+        }
     }
 
     /**
@@ -104,7 +111,7 @@ public class VariableParser extends StatementParser {
 
         variableId.appendLineNumber(token.getLineNumber());
 
-        ICodeNode variableNode = ICodeFactory.createICodeNode(ICodeNodeTypeImpl.VARIABLE);
+        ICodeNode variableNode = ICodeFactory.createICodeNode(context, ICodeNodeTypeImpl.VARIABLE);
         variableNode.setAttribute(ID, variableId);
 
         token = nextToken(); // consume the identifier
@@ -141,10 +148,10 @@ public class VariableParser extends StatementParser {
      */
     private ICodeNode parseSubscripts(TypeSpec variableType) throws Exception {
         Token token;
-        ExpressionParser expressionParser = new ExpressionParser(this);
+        ExpressionParser expressionParser = parsers.expressionParser();
 
         // Create a SUBSCRIPTS node.
-        ICodeNode subscriptsNode = ICodeFactory.createICodeNode(SUBSCRIPTS);
+        ICodeNode subscriptsNode = ICodeFactory.createICodeNode(context, SUBSCRIPTS);
 
         do {
             token = nextToken(); // consume the [ or , token
@@ -199,7 +206,7 @@ public class VariableParser extends StatementParser {
      */
     private ICodeNode parseField(TypeSpec variableType) throws Exception {
         // Create a FIELD node.
-        ICodeNode fieldNode = ICodeFactory.createICodeNode(FIELD);
+        ICodeNode fieldNode = ICodeFactory.createICodeNode(context, FIELD);
 
         Token token = nextToken(); // consume the . token
         TokenType tokenType = token.getType();
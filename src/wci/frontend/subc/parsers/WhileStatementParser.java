@@ -48,9 +48,9 @@ public class WhileStatementParser extends StatementParser {
         token = nextToken(); // consume the WHILE
 
         // Create LOOP, TEST, and NOT nodes.
-        ICodeNode loopNode = ICodeFactory.createICodeNode(LOOP);
-        ICodeNode breakNode = ICodeFactory.createICodeNode(TEST);
-        ICodeNode notNode = ICodeFactory.createICodeNode(ICodeNodeTypeImpl.NOT);
+        ICodeNode loopNode = ICodeFactory.createICodeNode(context, LOOP);
+        ICodeNode breakNode = ICodeFactory.createICodeNode(context, TEST);
+        ICodeNode notNode = ICodeFactory.createICodeNode(context, ICodeNodeTypeImpl.NOT);
 
         // The LOOP node adopts the TEST node as its first child.
         // The TEST node adopts the NOT node as its only child.
@@ -59,7 +59,7 @@ public class WhileStatementParser extends StatementParser {
 
         // Parse the expression.
         // The NOT node adopts the expression subtree as its only child.
-        ExpressionParser expressionParser = new ExpressionParser(this);
+        ExpressionParser expressionParser = parsers.expressionParser();
         ICodeNode exprNode = expressionParser.parse(token);
         notNode.addChild(exprNode);
 
@@ -79,7 +79,7 @@ public class WhileStatementParser extends StatementParser {
 
         // Parse the statement.
         // The LOOP node adopts the statement subtree as its second child.
-        StatementParser statementParser = new StatementParser(this);
+        StatementParser statementParser = parsers.statementParser();
         loopNode.addChild(statementParser.parse(token, parentId));
 
         return loopNode;
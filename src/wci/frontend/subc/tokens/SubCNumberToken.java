@@ -67,7 +67,7 @@ public class SubCNumberToken extends SubCToken
         // It could be a decimal point or the start of a .. token.
         currentChar = currentChar();
         if (currentChar == '.') {
-            if (!Character.isDigit(source.peekChar())) {
+            if (!SubCCharClass.isDigit(source.peekChar())) {
               type = ERROR;
               value = INVALID_NUMBER;
               return;
@@ -136,7 +136,7 @@ public class SubCNumberToken extends SubCToken
         char currentChar = currentChar();
 
         // Must have at least one digit.
-        if (!Character.isDigit(currentChar)) {
+        if (!SubCCharClass.isDigit(currentChar)) {
             type = ERROR;
             value = INVALID_NUMBER;
             return null;
@@ -144,7 +144,7 @@ public class SubCNumberToken extends SubCToken
 
         // Extract the digits.
         StringBuilder digits = new StringBuilder();
-        while (Character.isDigit(currentChar)) {
+        while (SubCCharClass.isDigit(currentChar)) {
             textBuffer.append(currentChar);
             digits.append(currentChar);
             currentChar = nextChar();  // consume digit
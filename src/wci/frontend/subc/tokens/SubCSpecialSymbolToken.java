@@ -28,186 +28,36 @@ public class SubCSpecialSymbolToken extends SubCToken
     }
 
     /**
-     * Extract a SubC special symbol token from the source.
+     * Extract a SubC special symbol token from the source.  The symbol
+     * tables in SubCTokenType are the transitions from the first
+     * character to a one- or two-character symbol.
      * @throws Exception if an error occurred.
      */
     protected void extract()
         throws Exception
     {
-        char currentChar = currentChar();
+        char firstChar = currentChar();
+        char secondChar = nextChar();  // consume the first character
 
-        text = Character.toString(currentChar);
-        type = null;
-
-        switch (currentChar) {
-
-            // Single-character special symbols.
-            case '.':  case ':':  case '#':  case '(':  case ']':
-            case ',':  case '\'': case '~':  case ')':  case '{':
-            case ';':  case '\"':  case '$':  case '[':  case '}':
-            case '_':  case '^':  case '?':{
-                nextChar();  // consume character
-                break;
-            }
-
-            // + or += or ++
-            case '+': {
-                currentChar = nextChar();  // consume '+';
-
-                if (currentChar == '=') {
-                    text += currentChar;
-                    nextChar();  // consume '='
-                }
-                else if(currentChar == '+'){
-                    text += currentChar;
-                    nextChar();  // consume '+'
-                }
-
-                break;
-            }
-
-            // - or -= or --
-            case '-': {
-                currentChar = nextChar();  // consume '-';
-
-                if (currentChar == '=') {
-                    text += currentChar;
-                    nextChar();  // consume '='
-                }
-                else if(currentChar == '-'){
-                    text += currentChar;
-                    nextChar();  // consume '-'
-                }
-                break;
-            }
-
-            // * or *=
-            case '*': {
-                currentChar = nextChar();  // consume '>';
-
-                if (currentChar == '=') {
-                    text += currentChar;
-                    nextChar();  // consume '='
-                }
-
-                break;
-            }
-
-            // / or /=
-            case '/': {
-                currentChar = nextChar();  // consume '/';
-
-                if (currentChar == '=') {
-                    text += currentChar;
-                    nextChar();  // consume '='
-                }
-
-                break;
-            }
-
-            // % or %=
-            case '%': {
-                currentChar = nextChar();  // consume '%';
-
-                if (currentChar == '=') {
-                    text += currentChar;
-                    nextChar();  // consume '='
-                }
-
-                break;
-            }
-
-            // = or ==
-            case '=': {
-                currentChar = nextChar();  // consume '=';
-
-                if (currentChar == '=') {
-                    text += currentChar;
-                    nextChar();  // consume '='
-                }
-
-                break;
-            }
-
-            // ! or !=
-            case '!': {
-                currentChar = nextChar();  // consume '!';
-
-                if (currentChar == '=') {
-                    text += currentChar;
-                    nextChar();  // consume '='
-                }
-
-                break;
-            }
-
-            // < or <= or <<
-            case '<': {
-                currentChar = nextChar();  // consume '<';
-
-                if (currentChar == '=') {
-                    text += currentChar;
-                    nextChar();  // consume '='
-                }
-                else if(currentChar == '<'){
-                    text += currentChar;
-                    nextChar();  // consume '<'
-                }
-
-                break;
-            }
-
-            // > or >= or >>
-            case '>': {
-                currentChar = nextChar();  // consume '>';
-
-                if (currentChar == '=') {
-                    text += currentChar;
-                    nextChar();  // consume '='
-                }
-                else if(currentChar == '>'){
-                    text += currentChar;
-                    nextChar();  // consume '>'
-                }
-
-                break;
-            }
-
-            // & or &&
-            case '&': {
-                currentChar = nextChar();  // consume '&';
-
-                if (currentChar == '&') {
-                    text += currentChar;
-                    nextChar();  // consume '&'
-                }
-
-                break;
-            }
-
-            // | or ||
-            case '|': {
-                currentChar = nextChar();  // consume '|';
-
-                if (currentChar == '|') {
-                    text += currentChar;
-                    nextChar();  // consume '||'
-                }
-
-                break;
-            }
+        type = specialSymbol(firstChar, secondChar);
 
+        // Two-character symbol.
+        if (type != null) {
+            nextChar();  // consume the second character
+        }
 
-            default: {
-                nextChar();  // consume bad character
-                type = ERROR;
-                value = INVALID_CHARACTER;
-            }
+        // One-character symbol.
+        else {
+            type = specialSymbol(firstChar);
         }
 
-        // Set the type if it wasn't an error.
-        if (type == null) {
-            type = SPECIAL_SYMBOLS.get(text);
+        if (type != null) {
+            text = ((SubCTokenType) type).getText();
+        }
+        else {
+            text = Character.toString(firstChar);
+            type = ERROR;
+            value = INVALID_CHARACTER;
         }
     }
 }
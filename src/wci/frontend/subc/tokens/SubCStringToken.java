@@ -44,7 +44,7 @@ public class SubCStringToken extends SubCToken
         // Get string characters.
         do {
             // Replace any whitespace character with a blank.
-            if (Character.isWhitespace(currentChar)) {
+            if (SubCCharClass.isWhitespace(currentChar)) {
                 currentChar = ' ';
             }
 
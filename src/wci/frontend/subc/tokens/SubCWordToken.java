@@ -2,6 +2,7 @@ package wci.frontend.subc.tokens;
 
 import wci.frontend.*;
 import wci.frontend.subc.*;
+import wci.intermediate.NameTable;
 
 import static wci.frontend.subc.SubCTokenType.*;
 
@@ -18,36 +19,56 @@ public class SubCWordToken extends SubCToken
     /**
      * Constructor.
      * @param source the source from where to fetch the token's characters.
+     * @param names the name table that holds the identifier names.
      * @throws Exception if an error occurred.
      */
-    public SubCWordToken(Source source)
+    public SubCWordToken(Source source, NameTable names)
         throws Exception
     {
         super(source);
+        extract(names);
     }
 
     /**
-     * Extract a SubC word token from the source.
-     * @throws Exception if an error occurred.
+     * Do nothing.  The word is extracted by extract(NameTable) after the
+     * Token constructor returns, since it needs the name table.
      */
     protected void extract()
+    {
+    }
+
+    /**
+     * Extract a SubC word token from the source.  A reserved word is
+     * recognized from the characters in the name table's buffer, and
+     * an identifier's text is its canonical name from the name table.
+     * @param names the name table.
+     * @throws Exception if an error occurred.
+     */
+    private void extract(NameTable names)
         throws Exception
     {
-        StringBuilder textBuffer = new StringBuilder();
         char currentChar = currentChar();
+        names.startName();
 
-        // Get the word characters (letter or digit).  The scanner has
-        // already determined that the first character is a letter.
-        while (Character.isLetterOrDigit(currentChar)||currentChar=='_') {
-            textBuffer.append(currentChar);
+        // Get the word characters (letter, digit, or underscore).
+        // The scanner has already determined that the word starts
+        // with a letter or an underscore.
+        while (SubCCharClass.isWordChar(currentChar)) {
+            names.append(currentChar);
             currentChar = nextChar();  // consume character
         }
 
-        text = textBuffer.toString();
-
         // Is it a reserved word or an identifier?
-        type = (RESERVED_WORDS.contains(text))
-               ? SubCTokenType.valueOf(text.toUpperCase())  // reserved word
-               : IDENTIFIER;                                  // identifier
+        SubCTokenType reservedWord =
+            SubCTokenType.reservedWord(names.getBuffer(), names.getLength());
+
+        if (reservedWord != null) {
+            type = reservedWord;           // reserved word
+            text = reservedWord.getText();
+        }
+        else {
+            type = IDENTIFIER;             // identifier
+            text = names.intern();
+        }
     }
 }
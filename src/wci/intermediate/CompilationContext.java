@@ -0,0 +1,139 @@
+package wci.intermediate;
+
+import wci.intermediate.icodeimpl.FlatICodeStore;
+
+/**
+ * <h1>CompilationContext</h1>
+ *
+ * <p>The state of a single compilation that is shared by the front end,
+ * the intermediate tier, and the back end.  Each compilation has its own
+ * context, so several compilations can run at the same time in one JVM
+ * as long as they do not share a context.</p>
+ *
+ * <p>Copyright (c) 2009 by Ronald Mak</p>
+ * <p>For instructional purposes only.  No warranties.</p>
+ */
+public class CompilationContext
+{
+    private SymTabStack symTabStack;  // symbol table stack
+    private NameTable nameTable;      // identifier names
+    private FlatICodeStore iCodeStore;  // flat intermediate code, or null
+    private int labelCount;           // count of generated code labels
+    private int dummyRoutineCount;    // count of dummy routine names
+    private int instructionCount;     // count of emitted instructions
+    private int parsingThreads;       // count of threads to parse with
+
+    /**
+     * Constructor.
+     */
+    public CompilationContext()
+    {
+        this(SymTabFactory.createSymTabStack());
+    }
+
+    /**
+     * Constructor for the part of a compilation that is parsed on another
+     * thread with a branch of the compilation's symbol table stack.
+     * @param symTabStack the symbol table stack.
+     */
+    public CompilationContext(SymTabStack symTabStack)
+    {
+        this.symTabStack = symTabStack;
+        this.nameTable = new NameTable();
+        this.labelCount = 0;
+        this.dummyRoutineCount = 0;
+        this.instructionCount = 0;
+        this.parsingThreads = 1;
+    }
+
+    /**
+     * Getter.
+     * @return the symbol table stack of this compilation.
+     */
+    public SymTabStack getSymTabStack()
+    {
+        return symTabStack;
+    }
+
+    /**
+     * Getter.
+     * @return the identifier name table of this compilation.
+     */
+    public NameTable getNameTable()
+    {
+        return nameTable;
+    }
+
+    /**
+     * Store the intermediate code of this compilation in parallel arrays
+     * instead of as one object per node.  Call before parsing.
+     */
+    public void useFlatICode()
+    {
+        if (iCodeStore == null) {
+            iCodeStore = new FlatICodeStore();
+        }
+    }
+
+    /**
+     * Getter.
+     * @return the flat intermediate code store of this compilation,
+     *         or null if the nodes are separate objects.
+     */
+    public FlatICodeStore getICodeStore()
+    {
+        return iCodeStore;
+    }
+
+    /**
+     * Parse the routine bodies of this compilation on several threads.
+     * Call before parsing.
+     * @param threads the count of threads.
+     */
+    public void useParallelParsing(int threads)
+    {
+        parsingThreads = Math.max(threads, 1);
+    }
+
+    /**
+     * Getter.
+     * @return the count of threads to parse the routine bodies with.
+     */
+    public int getParsingThreads()
+    {
+        return parsingThreads;
+    }
+
+    /**
+     * @return the index of the next code label.
+     */
+    public int nextLabelIndex()
+    {
+        return ++labelCount;
+    }
+
+    /**
+     * @return the index of the next dummy routine name.
+     */
+    public int nextDummyRoutineIndex()
+    {
+        return ++dummyRoutineCount;
+    }
+
+    /**
+     * Count an emitted instruction or directive.
+     */
+    public void countInstruction()
+    {
+        ++instructionCount;
+    }
+
+    /**
+     * Getter.
+     * @return the count of emitted instructions and directives.
+     */
+    public int getInstructionCount()
+    {
+        return instructionCount;
+    }
+}
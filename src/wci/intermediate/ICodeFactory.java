@@ -1,5 +1,6 @@
 package wci.intermediate;
 
+import wci.intermediate.icodeimpl.FlatICodeStore;
 import wci.intermediate.icodeimpl.ICodeImpl;
 import wci.intermediate.icodeimpl.ICodeNodeImpl;
 
@@ -31,4 +32,19 @@ public class ICodeFactory
     {
         return new ICodeNodeImpl(type);
     }
+
+    /**
+     * Create and return a node implementation for a compilation.
+     * The node is in the compilation's flat store, if it has one.
+     * @param context the context of the compilation.
+     * @param type the node type.
+     * @return the node implementation.
+     */
+    public static ICodeNode createICodeNode(CompilationContext context,
+                                            ICodeNodeType type)
+    {
+        FlatICodeStore store = context.getICodeStore();
+        return store != null ? store.node(store.newNode(type))
+                             : new ICodeNodeImpl(type);
+    }
 }
@@ -1,6 +1,7 @@
 package wci.intermediate;
 
 import java.util.ArrayList;
+import java.util.Map;
 
 /**
  * <h1>ICodeNode</h1>
@@ -43,6 +44,15 @@ public interface ICodeNode
      */
     public ICodeNode addChild(ICodeNode node);
 
+    /**
+     * Replace a child node.  The new child is first taken from its
+     * parent, if it has one.
+     * @param index the index of the child to replace.
+     * @param node the new child node.
+     * @return the new child node.
+     */
+    public ICodeNode setChild(int index, ICodeNode node);
+
     /**
      * Return an array list of this node's children.
      * @return the array list of children.
@@ -63,6 +73,12 @@ public interface ICodeNode
      */
     public Object getAttribute(ICodeKey key);
 
+    /**
+     * Return the attributes that are set, for printing.
+     * @return a map of the attribute keys and values.
+     */
+    public Map<ICodeKey, Object> getAttributes();
+
     /**
      * Make a copy of this node.
      * @return the copy.
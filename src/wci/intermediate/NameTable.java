@@ -0,0 +1,192 @@
+package wci.intermediate;
+
+/**
+ * <h1>NameTable</h1>
+ *
+ * <p>The identifier names of one compilation.  The scanner appends the
+ * characters of each identifier to the table's buffer and then asks for
+ * the canonical String with those characters.  The String is created only
+ * the first time a name is seen, so every occurrence of an identifier
+ * shares one instance, and the symbol table keys, symbol table entry
+ * names, and intermediate code ID attributes can be compared by
+ * reference.</p>
+ *
+ * <p>A name table belongs to a single compilation and is not shared
+ * between threads.</p>
+ *
+ * <p>Copyright (c) 2009 by Ronald Mak</p>
+ * <p>For instructional purposes only.  No warranties.</p>
+ */
+public class NameTable
+{
+    private static final int INITIAL_CAPACITY = 256;  // must be a power of 2
+    private static final int INITIAL_BUFFER_SIZE = 32;
+
+    private String names[];  // open-addressed hash table of canonical names
+    private int count;       // count of names in the table
+
+    private char buffer[];   // characters of the name being built
+    private int length;      // count of characters in the buffer
+    private int hash;        // hash code of the characters in the buffer
+
+    /**
+     * Constructor.
+     */
+    public NameTable()
+    {
+        this.names = new String[INITIAL_CAPACITY];
+        this.count = 0;
+        this.buffer = new char[INITIAL_BUFFER_SIZE];
+        this.length = 0;
+        this.hash = 0;
+    }
+
+    /**
+     * Start building a new name in the buffer.
+     */
+    public void startName()
+    {
+        length = 0;
+        hash = 0;
+    }
+
+    /**
+     * Append a character to the name being built.
+     * @param ch the character.
+     */
+    public void append(char ch)
+    {
+        if (length == buffer.length) {
+            char grown[] = new char[2*buffer.length];
+            System.arraycopy(buffer, 0, grown, 0, length);
+            buffer = grown;
+        }
+
+        buffer[length++] = ch;
+        hash = 31*hash + ch;  // the same as String.hashCode()
+    }
+
+    /**
+     * Getter.
+     * @return the buffer that holds the characters of the name being built.
+     */
+    public char[] getBuffer()
+    {
+        return buffer;
+    }
+
+    /**
+     * Getter.
+     * @return the count of characters of the name being built.
+     */
+    public int getLength()
+    {
+        return length;
+    }
+
+    /**
+     * Getter.
+     * @return the count of distinct names in the table.
+     */
+    public int size()
+    {
+        return count;
+    }
+
+    /**
+     * Return the canonical String for the name in the buffer,
+     * entering it into the table if it isn't already there.
+     * @return the canonical String.
+     */
+    public String intern()
+    {
+        int mask = names.length - 1;
+        int index = hash & mask;
+        String name;
+
+        while ((name = names[index]) != null) {
+            if ((name.hashCode() == hash) && matchesBuffer(name)) {
+                return name;
+            }
+
+            index = (index + 1) & mask;
+        }
+
+        name = new String(buffer, 0, length);
+        enter(name, index);
+
+        return name;
+    }
+
+    /**
+     * Return the canonical String for a name,
+     * entering the name into the table if it isn't already there.
+     * @param name the name.
+     * @return the canonical String.
+     */
+    public String intern(String name)
+    {
+        int mask = names.length - 1;
+        int index = name.hashCode() & mask;
+        String entry;
+
+        while ((entry = names[index]) != null) {
+            if (entry.equals(name)) {
+                return entry;
+            }
+
+            index = (index + 1) & mask;
+        }
+
+        enter(name, index);
+
+        return name;
+    }
+
+    /**
+     * Determine whether a name has the characters in the buffer.
+     * @param name the name.
+     * @return true if so.
+     */
+    private boolean matchesBuffer(String name)
+    {
+        if (name.length() != length) {
+            return false;
+        }
+
+        for (int i = 0; i < length; ++i) {
+            if (name.charAt(i) != buffer[i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Enter a new name into an empty slot of the table, and double the
+     * size of the table when it becomes half full.
+     * @param name the name.
+     * @param index the index of the empty slot.
+     */
+    private void enter(String name, int index)
+    {
+        names[index] = name;
+
+        if (++count > names.length/2) {
+            String old[] = names;
+            int mask = 2*old.length - 1;
+            names = new String[2*old.length];
+
+            for (String entry : old) {
+                if (entry != null) {
+                    int i = entry.hashCode() & mask;
+                    while (names[i] != null) {
+                        i = (i + 1) & mask;
+                    }
+                    names[i] = entry;
+                }
+            }
+        }
+    }
+}
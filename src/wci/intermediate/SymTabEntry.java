@@ -1,7 +1,5 @@
 package wci.intermediate;
 
-import java.util.ArrayList;
-
 /**
  * <h1>SymTabEntry</h1>
  *
@@ -12,6 +10,8 @@ import java.util.ArrayList;
  */
 public interface SymTabEntry
 {
+    public static final int NO_SLOT = -1;  // no local variables array slot
+
     /**
      * Getter.
      * @return the name of the entry.
@@ -56,9 +56,33 @@ public interface SymTabEntry
 
     /**
      * Getter.
-     * @return the list of source line numbers.
+     * @return the array of source line numbers.
+     */
+    public int[] getLineNumbers();
+
+    /**
+     * Setter.
+     * @param slot the local variables array slot number to set.
+     */
+    public void setSlot(int slot);
+
+    /**
+     * Getter.
+     * @return the local variables array slot number, or NO_SLOT.
+     */
+    public int getSlot();
+
+    /**
+     * Setter.
+     * @param wrapSlot the slot number of the wrapper of a VAR argument.
+     */
+    public void setWrapSlot(int wrapSlot);
+
+    /**
+     * Getter.
+     * @return the slot number of the wrapper of a VAR argument, or NO_SLOT.
      */
-    public ArrayList<Integer> getLineNumbers();
+    public int getWrapSlot();
 
     /**
      * Set an attribute of the entry.
@@ -75,4 +75,30 @@ public interface SymTabStack
      * @return the entry, or null if it does not exist.
      */
     public SymTabEntry lookup(String name);
+
+    /**
+     * Set the read-only symbol table of predefined identifiers.  It lies
+     * beneath the level 0 symbol table:  Its entries are found by lookup()
+     * unless an entry with the same name shadows them, and by lookupLocal()
+     * at level 0.
+     * @param symTab the predefined symbol table.
+     */
+    public void setPredefinedSymTab(SymTab symTab);
+
+    /**
+     * Create a branch of the stack for parsing a nested scope on another
+     * thread.  The branch sees the symbol tables at and below a nesting
+     * level with only the entries that they have now, and it can't change
+     * them.  Symbol tables pushed onto the branch belong to it.
+     * @param level the nesting level of the innermost shared table.
+     * @return the branch, at that nesting level.
+     */
+    public SymTabStack branch(int level);
+
+    /**
+     * Finish the branches of the stack after they are parsed:  Account
+     * for the slots used by their tables, and put the line numbers that
+     * they appended to the shared entries back into source order.
+     */
+    public void joinBranches();
 }
@@ -23,12 +23,13 @@ public class TypeFactory
     }
 
     /**
-     * Create a string type specification.
+     * Return the string type specification for a string value.
+     * All the strings of the same length share one type specification.
      * @param value the string value.
      * @return the type specification.
      */
     public static TypeSpec createStringType(String value)
     {
-        return new TypeSpecImpl(value);
+        return TypeSpecImpl.stringType(value);
     }
 }
@@ -51,4 +51,16 @@ public interface TypeSpec
      * @return the base type of this type.
      */
     public TypeSpec baseType();
+
+    /**
+     * Setter.
+     * @param descriptor the type descriptor to cache.
+     */
+    public void setDescriptor(String descriptor);
+
+    /**
+     * Getter.
+     * @return the cached type descriptor, or null if none.
+     */
+    public String getDescriptor();
 }
@@ -0,0 +1,245 @@
+package wci.intermediate.flowgraph;
+
+import java.util.ArrayList;
+
+import wci.intermediate.*;
+
+/**
+ * <h1>BasicBlock</h1>
+ *
+ * <p>A basic block of a flow graph: the phi functions, the statements
+ * that run one after another, and the terminator that picks the next
+ * block.  The statements are the ASSIGN, CALL, and NO_OP nodes of the
+ * routine's parse tree, and an empty COMPOUND node for an empty compound
+ * statement.  A NO_OP node carries the line number of a statement, such
+ * as an IF or a loop, that has no other statement node in the block.</p>
+ *
+ * <p>The terminator is a jump to the one successor, a branch on a boolean
+ * condition to the first successor if it's true or to the second if it's
+ * false, a switch on an integer expression with a successor for each
+ * value and a last successor for any other value, or the exit from the
+ * routine.</p>
+ *
+ * <p>Copyright (c) 2009 by Ronald Mak</p>
+ * <p>For instructional purposes only.  No warranties.</p>
+ */
+public class BasicBlock
+{
+    /**
+     * The kinds of block terminator.
+     */
+    public enum Terminator
+    {
+        JUMP, BRANCH, SWITCH, EXIT
+    }
+
+    private int index;                          // index in the flow graph
+    private ArrayList<Phi> phis;                // phi functions
+    private ArrayList<ICodeNode> statements;    // statement nodes
+    private Terminator terminator;              // how the block ends
+    private ICodeNode condition;                // BRANCH or SWITCH expression
+    private int switchValues[][];               // SWITCH values of each branch
+    private ArrayList<BasicBlock> successors;   // successor blocks
+    private ArrayList<BasicBlock> predecessors; // predecessor blocks
+
+    /**
+     * Constructor.
+     */
+    BasicBlock()
+    {
+        this.index = -1;
+        this.phis = new ArrayList<Phi>();
+        this.statements = new ArrayList<ICodeNode>();
+        this.terminator = Terminator.EXIT;
+        this.successors = new ArrayList<BasicBlock>(2);
+        this.predecessors = new ArrayList<BasicBlock>(2);
+    }
+
+    /**
+     * Getter.
+     * @return the index of the block in the flow graph, which is also
+     *         its place in the generated code.
+     */
+    public int getIndex()
+    {
+        return index;
+    }
+
+    /**
+     * Setter.
+     * @param index the index of the block in the flow graph.
+     */
+    void setIndex(int index)
+    {
+        this.index = index;
+    }
+
+    /**
+     * Getter.
+     * @return the list of phi functions.
+     */
+    public ArrayList<Phi> getPhis()
+    {
+        return phis;
+    }
+
+    /**
+     * Getter.
+     * @return the list of statement nodes.
+     */
+    public ArrayList<ICodeNode> getStatements()
+    {
+        return statements;
+    }
+
+    /**
+     * Append a statement.
+     * @param statement the statement node.
+     */
+    public void addStatement(ICodeNode statement)
+    {
+        statements.add(statement);
+    }
+
+    /**
+     * Getter.
+     * @return the terminator.
+     */
+    public Terminator getTerminator()
+    {
+        return terminator;
+    }
+
+    /**
+     * Getter.
+     * @return the condition of a BRANCH, the expression of a SWITCH,
+     *         or null.
+     */
+    public ICodeNode getCondition()
+    {
+        return condition;
+    }
+
+    /**
+     * Replace the condition of a BRANCH or the expression of a SWITCH.
+     * @param condition the new expression node.
+     */
+    public void setCondition(ICodeNode condition)
+    {
+        this.condition = condition;
+    }
+
+    /**
+     * Getter.
+     * @return the values of each SWITCH branch, whose successor has the
+     *         same index, or null.
+     */
+    public int[][] getSwitchValues()
+    {
+        return switchValues;
+    }
+
+    /**
+     * Getter.
+     * @return the list of successor blocks.
+     */
+    public ArrayList<BasicBlock> getSuccessors()
+    {
+        return successors;
+    }
+
+    /**
+     * Getter.
+     * @return the list of predecessor blocks.  The operands of each
+     *         phi function are in the same order.
+     */
+    public ArrayList<BasicBlock> getPredecessors()
+    {
+        return predecessors;
+    }
+
+    /**
+     * End the block with a jump.
+     * @param target the successor.
+     */
+    public void jump(BasicBlock target)
+    {
+        setTerminator(Terminator.JUMP, null, null);
+        addSuccessor(target);
+    }
+
+    /**
+     * End the block with a branch.
+     * @param condition the boolean condition.
+     * @param trueTarget the successor if the condition is true.
+     * @param falseTarget the successor if the condition is false.
+     */
+    public void branch(ICodeNode condition, BasicBlock trueTarget,
+                       BasicBlock falseTarget)
+    {
+        setTerminator(Terminator.BRANCH, condition, null);
+        addSuccessor(trueTarget);
+        addSuccessor(falseTarget);
+    }
+
+    /**
+     * End the block with a switch.
+     * @param expression the integer expression.
+     * @param values the values of each branch.
+     * @param targets the successor of each branch, and then the successor
+     *                for any other value.
+     */
+    public void switchTo(ICodeNode expression, int values[][],
+                         ArrayList<BasicBlock> targets)
+    {
+        setTerminator(Terminator.SWITCH, expression, values);
+        for (BasicBlock target : targets) {
+            addSuccessor(target);
+        }
+    }
+
+    /**
+     * End the block with the exit from the routine.
+     */
+    public void exit()
+    {
+        setTerminator(Terminator.EXIT, null, null);
+    }
+
+    /**
+     * Set the terminator after removing the old one's edges.
+     * @param terminator the new terminator.
+     * @param condition its condition or expression, or null.
+     * @param switchValues its switch values, or null.
+     */
+    private void setTerminator(Terminator terminator, ICodeNode condition,
+                               int switchValues[][])
+    {
+        for (BasicBlock successor : successors) {
+            successor.predecessors.remove(this);
+        }
+        successors.clear();
+
+        this.terminator = terminator;
+        this.condition = condition;
+        this.switchValues = switchValues;
+    }
+
+    /**
+     * Add an edge to a successor.
+     * @param successor the successor.
+     */
+    private void addSuccessor(BasicBlock successor)
+    {
+        successors.add(successor);
+        successor.predecessors.add(this);
+    }
+
+    /**
+     * @return the name of the block for messages.
+     */
+    public String toString()
+    {
+        return "B" + index;
+    }
+}
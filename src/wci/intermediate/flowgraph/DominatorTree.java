@@ -0,0 +1,328 @@
+package wci.intermediate.flowgraph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * <h1>DominatorTree</h1>
+ *
+ * <p>The dominator tree of a flow graph.  A block dominates another block
+ * if every path from the entry to the other block goes through it, and
+ * the immediate dominator of a block is its parent in the tree.  The tree
+ * is computed with the iterative algorithm of Cooper, Harvey, and Kennedy
+ * over the blocks in reverse postorder.</p>
+ *
+ * <p>The tree is for the graph as it was when the tree was made.  A pass
+ * that adds or removes blocks or edges must make a new one.</p>
+ *
+ * <p>Copyright (c) 2009 by Ronald Mak</p>
+ * <p>For instructional purposes only.  No warranties.</p>
+ */
+public class DominatorTree
+{
+    private static final int UNDEFINED = -1;
+
+    private FlowGraph graph;                   // the flow graph
+    private ArrayList<BasicBlock> postorder;   // reachable blocks in postorder
+    private int postorderNumbers[];            // by block index
+    private BasicBlock immediateDominators[];  // by block index
+    private int preorderNumbers[];             // tree preorder, by block index
+    private int lastDescendants[];             // last preorder number below
+
+    // The children in the tree and the dominance frontier of each block,
+    // by block index.  The frontiers are null until they're needed.
+    private ArrayList<ArrayList<BasicBlock>> children;
+    private ArrayList<ArrayList<BasicBlock>> frontiers;
+
+    /**
+     * Constructor.
+     * @param graph the flow graph.
+     */
+    public DominatorTree(FlowGraph graph)
+    {
+        this.graph = graph;
+
+        int size = graph.getBlocks().size();
+        postorderNumbers = new int[size];
+        immediateDominators = new BasicBlock[size];
+        children = newBlockLists(size);
+        preorderNumbers = new int[size];
+        lastDescendants = new int[size];
+
+        computePostorder();
+        computeImmediateDominators();
+        numberTree();
+    }
+
+    /**
+     * Number the reachable blocks in postorder of a depth-first search.
+     */
+    private void computePostorder()
+    {
+        int size = graph.getBlocks().size();
+        int nextSuccessors[] = new int[size];
+        ArrayList<BasicBlock> stack = new ArrayList<BasicBlock>();
+
+        postorder = new ArrayList<BasicBlock>(size);
+        Arrays.fill(postorderNumbers, UNDEFINED);
+
+        BasicBlock entry = graph.getEntry();
+        nextSuccessors[entry.getIndex()] = 0;
+        postorderNumbers[entry.getIndex()] = size;  // visited
+        stack.add(entry);
+
+        while (!stack.isEmpty()) {
+            BasicBlock block = stack.get(stack.size() - 1);
+            ArrayList<BasicBlock> successors = block.getSuccessors();
+            int next = nextSuccessors[block.getIndex()]++;
+
+            if (next < successors.size()) {
+                BasicBlock successor = successors.get(next);
+
+                if (postorderNumbers[successor.getIndex()] == UNDEFINED) {
+                    postorderNumbers[successor.getIndex()] = size;
+                    stack.add(successor);
+                }
+            }
+            else {
+                stack.remove(stack.size() - 1);
+                postorderNumbers[block.getIndex()] = postorder.size();
+                postorder.add(block);
+            }
+        }
+    }
+
+    /**
+     * Compute the immediate dominator of each reachable block.
+     */
+    private void computeImmediateDominators()
+    {
+        BasicBlock entry = graph.getEntry();
+        immediateDominators[entry.getIndex()] = entry;
+
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+
+            // Loop over the blocks in reverse postorder, except the entry.
+            for (int i = postorder.size() - 2; i >= 0; --i) {
+                BasicBlock block = postorder.get(i);
+                BasicBlock newDominator = null;
+
+                for (BasicBlock predecessor : block.getPredecessors()) {
+                    if (immediateDominators[predecessor.getIndex()] != null) {
+                        newDominator = newDominator == null
+                                           ? predecessor
+                                           : intersect(predecessor,
+                                                       newDominator);
+                    }
+                }
+
+                if (immediateDominators[block.getIndex()] != newDominator) {
+                    immediateDominators[block.getIndex()] = newDominator;
+                    changed = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * @param block1 a block.
+     * @param block2 another block.
+     * @return the nearest common dominator of the blocks in the tree
+     *         computed so far.
+     */
+    private BasicBlock intersect(BasicBlock block1, BasicBlock block2)
+    {
+        while (block1 != block2) {
+            while (  postorderNumbers[block1.getIndex()]
+                   < postorderNumbers[block2.getIndex()])
+            {
+                block1 = immediateDominators[block1.getIndex()];
+            }
+            while (  postorderNumbers[block2.getIndex()]
+                   < postorderNumbers[block1.getIndex()])
+            {
+                block2 = immediateDominators[block2.getIndex()];
+            }
+        }
+
+        return block1;
+    }
+
+    /**
+     * Fill in the children lists, and number the tree in preorder so that
+     * a block dominates the blocks numbered from it to its last
+     * descendant.
+     */
+    private void numberTree()
+    {
+        for (int i = postorder.size() - 1; i >= 0; --i) {
+            BasicBlock block = postorder.get(i);
+            BasicBlock dominator = immediateDominators[block.getIndex()];
+            if (dominator != block) {
+                children.get(dominator.getIndex()).add(block);
+            }
+        }
+
+        Arrays.fill(preorderNumbers, UNDEFINED);
+
+        int number = 0;
+        int nextChildren[] = new int[preorderNumbers.length];
+        ArrayList<BasicBlock> stack = new ArrayList<BasicBlock>();
+        BasicBlock entry = graph.getEntry();
+
+        preorderNumbers[entry.getIndex()] = number++;
+        stack.add(entry);
+
+        while (!stack.isEmpty()) {
+            BasicBlock block = stack.get(stack.size() - 1);
+            ArrayList<BasicBlock> blockChildren =
+                children.get(block.getIndex());
+            int next = nextChildren[block.getIndex()]++;
+
+            if (next < blockChildren.size()) {
+                BasicBlock child = blockChildren.get(next);
+                preorderNumbers[child.getIndex()] = number++;
+                stack.add(child);
+            }
+            else {
+                stack.remove(stack.size() - 1);
+                lastDescendants[block.getIndex()] = number - 1;
+            }
+        }
+    }
+
+    /**
+     * Getter.
+     * @return the flow graph.
+     */
+    public FlowGraph getGraph()
+    {
+        return graph;
+    }
+
+    /**
+     * @param block a block.
+     * @return true if the block can be reached from the entry.
+     */
+    public boolean isReachable(BasicBlock block)
+    {
+        return immediateDominators[block.getIndex()] != null;
+    }
+
+    /**
+     * @return the reachable blocks in reverse postorder, so that each
+     *         block comes before its successors except along back edges.
+     */
+    public ArrayList<BasicBlock> getReversePostorder()
+    {
+        ArrayList<BasicBlock> order = new ArrayList<BasicBlock>(postorder);
+        Collections.reverse(order);
+
+        return order;
+    }
+
+    /**
+     * @param block a reachable block.
+     * @return its immediate dominator, or null for the entry.
+     */
+    public BasicBlock getImmediateDominator(BasicBlock block)
+    {
+        BasicBlock dominator = immediateDominators[block.getIndex()];
+        return dominator != block ? dominator : null;
+    }
+
+    /**
+     * @param block a reachable block.
+     * @return the blocks that it immediately dominates.
+     */
+    public ArrayList<BasicBlock> getChildren(BasicBlock block)
+    {
+        return children.get(block.getIndex());
+    }
+
+    /**
+     * @param dominator a block.
+     * @param block another block.
+     * @return true if the first block dominates the second.  A block
+     *         dominates itself.
+     */
+    public boolean dominates(BasicBlock dominator, BasicBlock block)
+    {
+        int number = preorderNumbers[block.getIndex()];
+
+        return    isReachable(dominator) && isReachable(block)
+               && (preorderNumbers[dominator.getIndex()] <= number)
+               && (number <= lastDescendants[dominator.getIndex()]);
+    }
+
+    /**
+     * @param block a reachable block.
+     * @return its dominance frontier: the blocks that it doesn't strictly
+     *         dominate but that have a predecessor that it dominates.
+     */
+    public ArrayList<BasicBlock> getFrontier(BasicBlock block)
+    {
+        if (frontiers == null) {
+            computeFrontiers();
+        }
+
+        return frontiers.get(block.getIndex());
+    }
+
+    /**
+     * @param size the number of blocks in the graph.
+     * @return an empty list of blocks for each block index.
+     */
+    private ArrayList<ArrayList<BasicBlock>> newBlockLists(int size)
+    {
+        ArrayList<ArrayList<BasicBlock>> lists =
+            new ArrayList<ArrayList<BasicBlock>>(size);
+
+        for (int i = 0; i < size; ++i) {
+            lists.add(new ArrayList<BasicBlock>());
+        }
+
+        return lists;
+    }
+
+    /**
+     * Compute the dominance frontier of each reachable block.
+     */
+    private void computeFrontiers()
+    {
+        frontiers = newBlockLists(immediateDominators.length);
+
+        // A join block is in the frontier of each block that dominates
+        // one of its predecessors but not its immediate dominator.
+        for (BasicBlock block : postorder) {
+            ArrayList<BasicBlock> predecessors = block.getPredecessors();
+            if (predecessors.size() < 2) {
+                continue;
+            }
+
+            BasicBlock dominator = immediateDominators[block.getIndex()];
+
+            for (BasicBlock runner : predecessors) {
+                if (!isReachable(runner)) {
+                    continue;
+                }
+
+                while (runner != dominator) {
+                    ArrayList<BasicBlock> frontier =
+                        frontiers.get(runner.getIndex());
+
+                    if (   frontier.isEmpty()
+                        || (frontier.get(frontier.size() - 1) != block))
+                    {
+                        frontier.add(block);
+                    }
+
+                    runner = immediateDominators[runner.getIndex()];
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package wci.intermediate.flowgraph;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import wci.intermediate.*;
+import wci.intermediate.symtabimpl.DefinitionImpl;
+
+import static wci.intermediate.symtabimpl.SymTabKeyImpl.*;
+
+/**
+ * <h1>FlowGraph</h1>
+ *
+ * <p>The control flow graph of a routine, with its scalar local variables
+ * in static single assignment form.  It's the routine's intermediate code
+ * for the optimization passes that need the real control flow, which the
+ * parse tree's COMPOUND, IF, LOOP, and SELECT nodes only imply.</p>
+ *
+ * <p>The blocks are in the order that their code is generated, and the
+ * first block is the entry.  They hold the statement and expression
+ * nodes of the parse tree, not copies, and once a routine has a flow
+ * graph, the code generator generates the graph instead of the tree.</p>
+ *
+ * <p>The use-def chain of each VARIABLE node of an SSA variable is the
+ * value that it uses, or that it defines if it's the target of an
+ * ASSIGN node.</p>
+ *
+ * <p>A pass can add temporary variables.  They aren't in the symbol
+ * table and they aren't in SSA form, and the code generator gives each
+ * one a slot after the routine's own variables.</p>
+ *
+ * <p>Copyright (c) 2009 by Ronald Mak</p>
+ * <p>For instructional purposes only.  No warranties.</p>
+ */
+public class FlowGraph
+{
+    private SymTabEntry routineId;               // the routine's entry
+    private ArrayList<BasicBlock> blocks;        // blocks in code order
+    private HashMap<Integer, SymTabEntry> variables;  // SSA variables by slot
+    private HashMap<ICodeNode, SsaValue> values; // value of each VARIABLE
+    private ArrayList<SsaValue> allValues;       // every value
+    private HashMap<Integer, Integer> versions;  // next version by slot
+    private ArrayList<SymTabEntry> temporaries;  // temporary variables
+
+    /**
+     * Constructor.
+     * @param routineId the symbol table entry of the routine's name.
+     */
+    public FlowGraph(SymTabEntry routineId)
+    {
+        this.routineId = routineId;
+        this.blocks = new ArrayList<BasicBlock>();
+        this.variables = new HashMap<Integer, SymTabEntry>();
+        this.values = new HashMap<ICodeNode, SsaValue>();
+        this.allValues = new ArrayList<SsaValue>();
+        this.versions = new HashMap<Integer, Integer>();
+        this.temporaries = new ArrayList<SymTabEntry>();
+    }
+
+    /**
+     * Getter.
+     * @return the symbol table entry of the routine's name.
+     */
+    public SymTabEntry getRoutineId()
+    {
+        return routineId;
+    }
+
+    /**
+     * Getter.
+     * @return the list of blocks, in the order of the generated code.
+     */
+    public ArrayList<BasicBlock> getBlocks()
+    {
+        return blocks;
+    }
+
+    /**
+     * @return the entry block.
+     */
+    public BasicBlock getEntry()
+    {
+        return blocks.get(0);
+    }
+
+    /**
+     * Create a new block that isn't in the graph yet.
+     * @return the block.
+     */
+    public BasicBlock newBlock()
+    {
+        return new BasicBlock();
+    }
+
+    /**
+     * Add a block to the end of the graph.
+     * @param block the block.
+     */
+    public void addBlock(BasicBlock block)
+    {
+        block.setIndex(blocks.size());
+        blocks.add(block);
+    }
+
+    /**
+     * Add a block to the graph before another block.
+     * @param block the block.
+     * @param next the block to put it before.
+     */
+    public void addBlockBefore(BasicBlock block, BasicBlock next)
+    {
+        blocks.add(next.getIndex(), block);
+        renumber();
+    }
+
+    /**
+     * Remove the blocks that can't be reached from the entry.
+     */
+    public void removeUnreachableBlocks()
+    {
+        boolean reached[] = new boolean[blocks.size()];
+        ArrayList<BasicBlock> stack = new ArrayList<BasicBlock>();
+
+        reached[0] = true;
+        stack.add(getEntry());
+
+        while (!stack.isEmpty()) {
+            BasicBlock block = stack.remove(stack.size() - 1);
+
+            for (BasicBlock successor : block.getSuccessors()) {
+                if (!reached[successor.getIndex()]) {
+                    reached[successor.getIndex()] = true;
+                    stack.add(successor);
+                }
+            }
+        }
+
+        ArrayList<BasicBlock> reachedBlocks = new ArrayList<BasicBlock>();
+        for (BasicBlock block : blocks) {
+            if (reached[block.getIndex()]) {
+                reachedBlocks.add(block);
+            }
+            else {
+                block.exit();  // remove its edges
+            }
+        }
+
+        blocks = reachedBlocks;
+        renumber();
+    }
+
+    /**
+     * Set the index of each block to its place in the list.
+     */
+    private void renumber()
+    {
+        for (int i = 0; i < blocks.size(); ++i) {
+            blocks.get(i).setIndex(i);
+        }
+    }
+
+    /**
+     * @param slot a slot number.
+     * @return an entry of the SSA variable in the slot, or null if the
+     *         variable in the slot isn't in SSA form.
+     */
+    public SymTabEntry getVariable(int slot)
+    {
+        return variables.get(slot);
+    }
+
+    /**
+     * Getter.
+     * @return the SSA variables by slot number.
+     */
+    public HashMap<Integer, SymTabEntry> getVariables()
+    {
+        return variables;
+    }
+
+    /**
+     * @param variableNode a VARIABLE node.
+     * @return the value that it uses or defines, or null if it isn't a
+     *         node of an SSA variable.
+     */
+    public SsaValue getValue(ICodeNode variableNode)
+    {
+        return values.get(variableNode);
+    }
+
+    /**
+     * Getter.
+     * @return every value of the SSA variables.
+     */
+    public ArrayList<SsaValue> getAllValues()
+    {
+        return allValues;
+    }
+
+    /**
+     * Remove the uses of a tree that a pass took out of the graph.
+     * @param node the root node of the tree.
+     */
+    public void removeUses(ICodeNode node)
+    {
+        SsaValue value = values.remove(node);
+        if (value != null) {
+            value.getUses().remove(node);
+        }
+
+        for (ICodeNode child : node.getChildren()) {
+            removeUses(child);
+        }
+    }
+
+    /**
+     * Create a new temporary variable.
+     * @param type the data type of the variable.
+     * @return the symbol table entry of the variable, without a slot.
+     */
+    public SymTabEntry newTemporary(TypeSpec type)
+    {
+        SymTabEntry methodId =
+            (SymTabEntry) routineId.getAttribute(MAIN_METHOD_ROUTINE);
+        if (methodId == null) {
+            methodId = routineId;
+        }
+
+        // The name can't be an identifier, so it can't hide one.
+        SymTab symTab = (SymTab) methodId.getAttribute(ROUTINE_SYMTAB);
+        SymTabEntry temporaryId =
+            SymTabFactory.createSymTabEntry("$temp" + temporaries.size(),
+                                            symTab);
+
+        temporaryId.setDefinition(DefinitionImpl.VARIABLE);
+        temporaryId.setTypeSpec(type);
+        temporaries.add(temporaryId);
+
+        return temporaryId;
+    }
+
+    /**
+     * Getter.
+     * @return the temporary variables.
+     */
+    public ArrayList<SymTabEntry> getTemporaries()
+    {
+        return temporaries;
+    }
+
+    /**
+     * Create a new value.
+     * @param variableId an entry of the variable.
+     * @param block the block of the definition.
+     * @param definition the ASSIGN node of the definition, or null.
+     * @param phi the phi function of the definition, or null.
+     * @return the value.
+     */
+    SsaValue newValue(SymTabEntry variableId, BasicBlock block,
+                      ICodeNode definition, Phi phi)
+    {
+        Integer version = versions.get(variableId.getSlot());
+        if (version == null) {
+            version = 0;
+        }
+        versions.put(variableId.getSlot(), version + 1);
+
+        SsaValue value = new SsaValue(variableId, version, block,
+                                      definition, phi);
+        allValues.add(value);
+
+        if (definition != null) {
+            values.put(definition.getChildren().get(0), value);
+        }
+
+        return value;
+    }
+
+    /**
+     * Record a use of a value.
+     * @param variableNode the VARIABLE node of the use.
+     * @param value the value.
+     */
+    void addUse(ICodeNode variableNode, SsaValue value)
+    {
+        values.put(variableNode, value);
+        value.getUses().add(variableNode);
+    }
+}
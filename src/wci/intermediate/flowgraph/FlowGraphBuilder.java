@@ -0,0 +1,267 @@
+package wci.intermediate.flowgraph;
+
+import java.util.ArrayList;
+
+import wci.intermediate.*;
+import wci.intermediate.icodeimpl.*;
+
+import static wci.intermediate.icodeimpl.ICodeNodeTypeImpl.*;
+import static wci.intermediate.icodeimpl.ICodeKeyImpl.*;
+
+/**
+ * <h1>FlowGraphBuilder</h1>
+ *
+ * <p>Lower the parse tree of a routine into a flow graph.  The blocks are
+ * laid out in the same order as the code that the statement generators
+ * generate for the tree, so that the flow graph generator generates the
+ * same code for an unoptimized graph.</p>
+ *
+ * <ul>
+ *   <li>COMPOUND: its statements, one after another.</li>
+ *   <li>IF: a branch on the condition to the THEN block and to the ELSE
+ *       block or the block after the IF, and a jump from the end of each
+ *       to the block after.</li>
+ *   <li>LOOP: a new block for the top of the loop, and a branch for each
+ *       TEST to the block after the loop if the test is true, or else to
+ *       the rest of the loop.  A jump from the end of the loop back to
+ *       the top.</li>
+ *   <li>SELECT: a switch on the expression to a block for each branch,
+ *       and to the block after the SELECT for any other value, and a
+ *       jump from the end of each branch to the block after.</li>
+ * </ul>
+ *
+ * <p>Copyright (c) 2009 by Ronald Mak</p>
+ * <p>For instructional purposes only.  No warranties.</p>
+ */
+public class FlowGraphBuilder
+{
+    private CompilationContext context;  // context of this compilation
+    private FlowGraph graph;             // the flow graph being built
+    private BasicBlock current;          // the block being filled
+
+    /**
+     * Constructor.
+     * @param context the context of the compilation.
+     */
+    public FlowGraphBuilder(CompilationContext context)
+    {
+        this.context = context;
+    }
+
+    /**
+     * Build the flow graph of a routine, without SSA form.
+     * @param routineId the symbol table entry of the routine's name.
+     * @param rootNode the root node of the routine's parse tree.
+     * @return the flow graph.
+     */
+    public FlowGraph build(SymTabEntry routineId, ICodeNode rootNode)
+    {
+        graph = new FlowGraph(routineId);
+        start(graph.newBlock());
+
+        lowerStatement(rootNode);
+        current.exit();
+
+        // A block after an endless loop can't be reached.
+        graph.removeUnreachableBlocks();
+
+        FlowGraph builtGraph = graph;
+        graph = null;
+        current = null;
+
+        return builtGraph;
+    }
+
+    /**
+     * Add a block to the graph and start filling it.
+     * @param block the block.
+     */
+    private void start(BasicBlock block)
+    {
+        graph.addBlock(block);
+        current = block;
+    }
+
+    /**
+     * Lower a statement into the current block and any new blocks.
+     * @param node the statement node.
+     */
+    private void lowerStatement(ICodeNode node)
+    {
+        switch ((ICodeNodeTypeImpl) node.getType()) {
+
+            case COMPOUND: {
+                ArrayList<ICodeNode> children = node.getChildren();
+
+                // An empty compound statement generates a NOP.
+                if (children.isEmpty()) {
+                    current.addStatement(node);
+                }
+                else {
+                    for (ICodeNode child : children) {
+                        lowerStatement(child);
+                    }
+                }
+
+                break;
+            }
+
+            case IF: {
+                lowerIf(node);
+                break;
+            }
+
+            case LOOP: {
+                lowerLoop(node);
+                break;
+            }
+
+            case SELECT: {
+                lowerSelect(node);
+                break;
+            }
+
+            default: {
+                current.addStatement(node);
+                break;
+            }
+        }
+    }
+
+    /**
+     * Lower an IF statement.
+     * @param node the IF node.
+     */
+    private void lowerIf(ICodeNode node)
+    {
+        ArrayList<ICodeNode> children = node.getChildren();
+        ICodeNode conditionNode = children.get(0);
+        ICodeNode thenNode = children.get(1);
+        ICodeNode elseNode = children.size() > 2 ? children.get(2) : null;
+
+        BasicBlock thenBlock = graph.newBlock();
+        BasicBlock nextBlock = graph.newBlock();
+        BasicBlock elseBlock = elseNode != null ? graph.newBlock()
+                                                : nextBlock;
+
+        addLineNumber(node);
+        current.branch(conditionNode, thenBlock, elseBlock);
+
+        start(thenBlock);
+        lowerStatement(thenNode);
+        current.jump(nextBlock);
+
+        if (elseNode != null) {
+            start(elseBlock);
+            lowerStatement(elseNode);
+            current.jump(nextBlock);
+        }
+
+        start(nextBlock);
+    }
+
+    /**
+     * Lower a LOOP statement.
+     * @param node the LOOP node.
+     */
+    private void lowerLoop(ICodeNode node)
+    {
+        BasicBlock loopBlock = graph.newBlock();
+        BasicBlock nextBlock = graph.newBlock();
+
+        current.jump(loopBlock);
+        start(loopBlock);
+        addLineNumber(node);
+
+        for (ICodeNode child : node.getChildren()) {
+
+            // TEST node: Leave the loop if the test is true.
+            if (child.getType() == TEST) {
+                BasicBlock restBlock = graph.newBlock();
+
+                current.branch(child.getChildren().get(0), nextBlock,
+                               restBlock);
+                start(restBlock);
+            }
+
+            // Statement node.
+            else {
+                lowerStatement(child);
+            }
+        }
+
+        current.jump(loopBlock);
+        start(nextBlock);
+    }
+
+    /**
+     * Lower a SELECT statement.
+     * @param node the SELECT node.
+     */
+    private void lowerSelect(ICodeNode node)
+    {
+        ArrayList<ICodeNode> children = node.getChildren();
+        ICodeNode exprNode = children.get(0);
+        int branchCount = children.size() - 1;
+        int values[][] = new int[branchCount][];
+        ArrayList<BasicBlock> targets = new ArrayList<BasicBlock>();
+
+        // The values and the block of each branch.
+        for (int i = 0; i < branchCount; ++i) {
+            ICodeNode branchNode = children.get(i + 1);
+            ICodeNode constantsNode = branchNode.getChildren().get(0);
+            ArrayList<ICodeNode> constants = constantsNode.getChildren();
+
+            values[i] = new int[constants.size()];
+            for (int j = 0; j < constants.size(); ++j) {
+                ICodeNode constantNode = constants.get(j);
+                Object value = constantNode.getAttribute(VALUE);
+
+                values[i][j] = constantNode.getType() == STRING_CONSTANT
+                                   ? ((String) value).charAt(0)
+                                   : (Integer) value;
+            }
+
+            targets.add(graph.newBlock());
+        }
+
+        BasicBlock nextBlock = graph.newBlock();
+        targets.add(nextBlock);
+
+        addLineNumber(node);
+        current.switchTo(exprNode, values, targets);
+
+        for (int i = 0; i < branchCount; ++i) {
+            ICodeNode branchNode = children.get(i + 1);
+
+            start(targets.get(i));
+            lowerStatement(branchNode.getChildren().get(1));
+            current.jump(nextBlock);
+        }
+
+        start(nextBlock);
+    }
+
+    /**
+     * Add a NO_OP node with the line number of a statement that has no
+     * statement node of its own in the flow graph.
+     * @param node the statement node.
+     */
+    private void addLineNumber(ICodeNode node)
+    {
+        Object lineNumber = null;
+
+        // Go up the parent links to look for a line number.
+        while (   (node != null)
+               && ((lineNumber = node.getAttribute(LINE)) == null))
+        {
+            node = node.getParent();
+        }
+
+        if (lineNumber != null) {
+            ICodeNode noOpNode = ICodeFactory.createICodeNode(context, NO_OP);
+            noOpNode.setAttribute(LINE, lineNumber);
+            current.addStatement(noOpNode);
+        }
+    }
+}
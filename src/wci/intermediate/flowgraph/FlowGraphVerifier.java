@@ -0,0 +1,341 @@
+package wci.intermediate.flowgraph;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+
+import wci.intermediate.*;
+
+import static wci.intermediate.icodeimpl.ICodeNodeTypeImpl.*;
+import static wci.intermediate.icodeimpl.ICodeKeyImpl.*;
+
+/**
+ * <h1>FlowGraphVerifier</h1>
+ *
+ * <p>Check that a flow graph is well formed, so that a pass that breaks
+ * the graph is caught before the code generator generates bad code from
+ * it.  It checks that:</p>
+ *
+ * <ul>
+ *   <li>each block's terminator has the right successors, and the
+ *       predecessor lists match the successor lists;</li>
+ *   <li>every block can be reached from the entry;</li>
+ *   <li>each phi function has an operand for each predecessor, and each
+ *       operand's definition dominates its predecessor;</li>
+ *   <li>each use of a value is dominated by its definition;</li>
+ *   <li>each VARIABLE node of an SSA variable has a value, and the
+ *       def-use chains match the use-def chains.</li>
+ * </ul>
+ *
+ * <p>Copyright (c) 2009 by Ronald Mak</p>
+ * <p>For instructional purposes only.  No warranties.</p>
+ */
+public class FlowGraphVerifier
+{
+    private FlowGraph graph;             // the flow graph
+    private DominatorTree dominators;    // its dominator tree
+
+    /**
+     * Constructor.
+     * @param graph the flow graph.
+     */
+    public FlowGraphVerifier(FlowGraph graph)
+    {
+        this.graph = graph;
+    }
+
+    /**
+     * Verify the graph.
+     * @throws IllegalStateException if the graph is not well formed.
+     */
+    public void verify()
+    {
+        verifyEdges();
+
+        dominators = new DominatorTree(graph);
+        for (BasicBlock block : graph.getBlocks()) {
+            if (!dominators.isReachable(block)) {
+                fail(block + " can't be reached");
+            }
+        }
+
+        verifyPhis();
+        verifyUses();
+    }
+
+    /**
+     * Verify the terminators and the edges.
+     */
+    private void verifyEdges()
+    {
+        ArrayList<BasicBlock> blocks = graph.getBlocks();
+
+        if (blocks.isEmpty()) {
+            fail("no entry block");
+        }
+
+        for (int i = 0; i < blocks.size(); ++i) {
+            BasicBlock block = blocks.get(i);
+            ArrayList<BasicBlock> successors = block.getSuccessors();
+            int expected = 0;
+
+            if (block.getIndex() != i) {
+                fail(block + " is at " + i);
+            }
+
+            switch (block.getTerminator()) {
+                case JUMP:   expected = 1; break;
+                case BRANCH: expected = 2; break;
+                case SWITCH: expected = block.getSwitchValues().length + 1;
+                             break;
+                case EXIT:   expected = 0; break;
+            }
+
+            if (successors.size() != expected) {
+                fail(block + " has " + successors.size() + " successors for "
+                     + block.getTerminator());
+            }
+            if (   (block.getTerminator() == BasicBlock.Terminator.BRANCH)
+                || (block.getTerminator() == BasicBlock.Terminator.SWITCH))
+            {
+                if (block.getCondition() == null) {
+                    fail(block + " has no condition");
+                }
+            }
+            else if (block.getCondition() != null) {
+                fail(block + " has a condition for "
+                     + block.getTerminator());
+            }
+
+            for (BasicBlock successor : successors) {
+                verifyInGraph(successor);
+                if (count(successor.getPredecessors(), block)
+                        != count(successors, successor))
+                {
+                    fail("edge " + block + " -> " + successor
+                         + " is not in the predecessors");
+                }
+            }
+
+            for (BasicBlock predecessor : block.getPredecessors()) {
+                verifyInGraph(predecessor);
+                if (count(predecessor.getSuccessors(), block)
+                        != count(block.getPredecessors(), predecessor))
+                {
+                    fail("edge " + predecessor + " -> " + block
+                         + " is not in the successors");
+                }
+            }
+        }
+    }
+
+    /**
+     * Verify that a block is in the graph.
+     * @param block the block.
+     */
+    private void verifyInGraph(BasicBlock block)
+    {
+        ArrayList<BasicBlock> blocks = graph.getBlocks();
+        int index = block.getIndex();
+
+        if ((index < 0) || (index >= blocks.size())
+            || (blocks.get(index) != block))
+        {
+            fail(block + " is not in the graph");
+        }
+    }
+
+    /**
+     * @param blocks a list of blocks.
+     * @param block a block.
+     * @return the number of times the block is in the list.
+     */
+    private int count(ArrayList<BasicBlock> blocks, BasicBlock block)
+    {
+        int count = 0;
+
+        for (BasicBlock listed : blocks) {
+            if (listed == block) {
+                ++count;
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Verify the phi functions.
+     */
+    private void verifyPhis()
+    {
+        for (BasicBlock block : graph.getBlocks()) {
+            ArrayList<BasicBlock> predecessors = block.getPredecessors();
+
+            for (Phi phi : block.getPhis()) {
+                SsaValue result = phi.getResult();
+                ArrayList<SsaValue> operands = phi.getOperands();
+
+                if ((phi.getBlock() != block) || (result.getPhi() != phi)
+                    || (result.getBlock() != block))
+                {
+                    fail("phi function of " + result + " is misplaced");
+                }
+                if (operands.size() != predecessors.size()) {
+                    fail("phi function of " + result + " in " + block
+                         + " has " + operands.size() + " operands for "
+                         + predecessors.size() + " predecessors");
+                }
+
+                for (int i = 0; i < operands.size(); ++i) {
+                    SsaValue operand = operands.get(i);
+                    BasicBlock predecessor = predecessors.get(i);
+
+                    if (operand == null) {
+                        fail("phi function of " + result + " has no operand"
+                             + " from " + predecessor);
+                    }
+                    if (operand.getSlot() != result.getSlot()) {
+                        fail("phi function of " + result + " has operand "
+                             + operand + " of another variable");
+                    }
+                    if (!dominators.dominates(operand.getBlock(),
+                                              predecessor))
+                    {
+                        fail(operand + " from " + operand.getBlock()
+                             + " doesn't dominate " + predecessor);
+                    }
+                    if (!operand.getPhiUses().contains(phi)) {
+                        fail(operand + " doesn't list its phi use by "
+                             + result);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Verify the uses and the definitions of the values.
+     */
+    private void verifyUses()
+    {
+        // The values defined so far in the block being checked.
+        HashSet<SsaValue> defined = new HashSet<SsaValue>();
+        HashMap<ICodeNode, BasicBlock> useBlocks =
+            new HashMap<ICodeNode, BasicBlock>();
+
+        for (BasicBlock block : graph.getBlocks()) {
+            defined.clear();
+
+            for (Phi phi : block.getPhis()) {
+                defined.add(phi.getResult());
+            }
+
+            for (ICodeNode statement : block.getStatements()) {
+                ICodeNode definedNode = null;
+
+                if (statement.getType() == ASSIGN) {
+                    ICodeNode targetNode = statement.getChildren().get(0);
+                    SsaValue value = graph.getValue(targetNode);
+
+                    if (   (value != null) && (value.getDefinition() == statement))
+                    {
+                        definedNode = targetNode;
+                    }
+                }
+
+                verifyUses(block, statement, definedNode, defined, useBlocks);
+
+                if (definedNode != null) {
+                    SsaValue value = graph.getValue(definedNode);
+                    if (value.getBlock() != block) {
+                        fail(value + " is defined in " + block + ", not "
+                             + value.getBlock());
+                    }
+                    defined.add(value);
+                }
+            }
+
+            if (block.getCondition() != null) {
+                verifyUses(block, block.getCondition(), null, defined,
+                           useBlocks);
+            }
+        }
+
+        // The def-use chains.
+        for (SsaValue value : graph.getAllValues()) {
+            for (ICodeNode useNode : value.getUses()) {
+                if (   (graph.getValue(useNode) != value)
+                    || !useBlocks.containsKey(useNode))
+                {
+                    fail(value + " has a use that isn't in the graph");
+                }
+            }
+        }
+    }
+
+    /**
+     * Verify the uses of a tree.
+     * @param block the block of the tree.
+     * @param node the root node of the tree.
+     * @param definedNode the target node of the statement's definition,
+     *                    or null.
+     * @param defined the values defined so far in the block.
+     * @param useBlocks the block of each use checked so far.
+     */
+    private void verifyUses(BasicBlock block, ICodeNode node,
+                            ICodeNode definedNode, HashSet<SsaValue> defined,
+                            HashMap<ICodeNode, BasicBlock> useBlocks)
+    {
+        if ((node.getType() == VARIABLE) && !node.equals(definedNode)) {
+            SymTabEntry variableId = (SymTabEntry) node.getAttribute(ID);
+            SsaValue value = graph.getValue(node);
+            boolean isSsa =    node.getChildren().isEmpty()
+                            && SsaBuilder.isScalarLocal(variableId)
+                            && (graph.getVariable(variableId.getSlot())
+                                    != null);
+
+            if (isSsa && (value == null)) {
+                fail("use of " + variableId.getName() + " in " + block
+                     + " has no value");
+            }
+
+            if (value != null) {
+                if (!isSsa || (value.getSlot() != variableId.getSlot())) {
+                    fail("use of " + variableId.getName() + " in " + block
+                         + " has the value " + value);
+                }
+                if (value.getBlock() == block) {
+                    if (!value.isEntryValue() && !defined.contains(value)) {
+                        fail("use of " + value + " in " + block
+                             + " comes before its definition");
+                    }
+                }
+                else if (!dominators.dominates(value.getBlock(), block)) {
+                    fail(value + " from " + value.getBlock()
+                         + " doesn't dominate its use in " + block);
+                }
+                if (!value.getUses().contains(node)) {
+                    fail(value + " doesn't list its use in " + block);
+                }
+
+                useBlocks.put(node, block);
+            }
+        }
+
+        for (ICodeNode child : node.getChildren()) {
+            verifyUses(block, child, definedNode, defined, useBlocks);
+        }
+    }
+
+    /**
+     * Fail the verification.
+     * @param message the reason.
+     * @throws IllegalStateException always.
+     */
+    private void fail(String message)
+    {
+        throw new IllegalStateException("Flow graph of "
+                                        + graph.getRoutineId().getName()
+                                        + ": " + message);
+    }
+}
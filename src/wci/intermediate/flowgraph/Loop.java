@@ -0,0 +1,94 @@
+package wci.intermediate.flowgraph;
+
+import java.util.ArrayList;
+
+/**
+ * <h1>Loop</h1>
+ *
+ * <p>A natural loop of a flow graph: a header block that dominates the
+ * loop, and the blocks that can reach a back edge to the header without
+ * going through the header.</p>
+ *
+ * <p>Copyright (c) 2009 by Ronald Mak</p>
+ * <p>For instructional purposes only.  No warranties.</p>
+ */
+public class Loop
+{
+    private BasicBlock header;             // the loop header
+    private ArrayList<BasicBlock> blocks;  // the blocks, header first
+    private boolean inLoop[];              // by block index
+
+    /**
+     * Constructor.
+     * @param header the loop header.
+     * @param graphSize the number of blocks in the graph.
+     */
+    Loop(BasicBlock header, int graphSize)
+    {
+        this.header = header;
+        this.blocks = new ArrayList<BasicBlock>();
+        this.inLoop = new boolean[graphSize];
+
+        add(header);
+    }
+
+    /**
+     * Add a block to the loop.
+     * @param block the block.
+     * @return true if the block wasn't in the loop already.
+     */
+    boolean add(BasicBlock block)
+    {
+        if (inLoop[block.getIndex()]) {
+            return false;
+        }
+
+        inLoop[block.getIndex()] = true;
+        blocks.add(block);
+
+        return true;
+    }
+
+    /**
+     * Getter.
+     * @return the loop header.
+     */
+    public BasicBlock getHeader()
+    {
+        return header;
+    }
+
+    /**
+     * Getter.
+     * @return the blocks of the loop, header first.
+     */
+    public ArrayList<BasicBlock> getBlocks()
+    {
+        return blocks;
+    }
+
+    /**
+     * @param block a block of the graph.
+     * @return true if the block is in the loop.
+     */
+    public boolean contains(BasicBlock block)
+    {
+        return inLoop[block.getIndex()];
+    }
+
+    /**
+     * @return the predecessors of the header that are outside the loop.
+     */
+    public ArrayList<BasicBlock> getEnteringBlocks()
+    {
+        ArrayList<BasicBlock> enteringBlocks = new ArrayList<BasicBlock>();
+
+        for (BasicBlock predecessor : header.getPredecessors()) {
+            if (!contains(predecessor) && !enteringBlocks.contains(predecessor)) {
+                enteringBlocks.add(predecessor);
+            }
+        }
+
+        return enteringBlocks;
+    }
+}
@@ -0,0 +1,96 @@
+package wci.intermediate.flowgraph;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+
+/**
+ * <h1>LoopNest</h1>
+ *
+ * <p>The natural loops of a flow graph.  An edge is a back edge if its
+ * target dominates its source, and the loop of a header is made of the
+ * blocks of all the back edges to the header.  A loop nested in another
+ * loop has fewer blocks, so the loops are listed from the smallest up to
+ * put each inner loop before the loops around it.</p>
+ *
+ * <p>Like the dominator tree, the loops are for the graph as it was when
+ * they were found.</p>
+ *
+ * <p>Copyright (c) 2009 by Ronald Mak</p>
+ * <p>For instructional purposes only.  No warranties.</p>
+ */
+public class LoopNest
+{
+    private ArrayList<Loop> loops;  // inner loops first
+
+    /**
+     * Constructor.
+     * @param dominators the dominator tree of the flow graph.
+     */
+    public LoopNest(DominatorTree dominators)
+    {
+        FlowGraph graph = dominators.getGraph();
+        int size = graph.getBlocks().size();
+        Loop headerLoops[] = new Loop[size];
+
+        loops = new ArrayList<Loop>();
+
+        for (BasicBlock block : dominators.getReversePostorder()) {
+            for (BasicBlock successor : block.getSuccessors()) {
+                if (dominators.dominates(successor, block)) {
+                    Loop loop = headerLoops[successor.getIndex()];
+
+                    if (loop == null) {
+                        loop = new Loop(successor, size);
+                        headerLoops[successor.getIndex()] = loop;
+                        loops.add(loop);
+                    }
+
+                    addBlocks(loop, block);
+                }
+            }
+        }
+
+        Collections.sort(loops, new Comparator<Loop>()
+        {
+            public int compare(Loop loop1, Loop loop2)
+            {
+                return loop1.getBlocks().size() - loop2.getBlocks().size();
+            }
+        });
+    }
+
+    /**
+     * Add the source of a back edge to a loop, and the blocks that reach
+     * it without going through the header.
+     * @param loop the loop.
+     * @param source the source of the back edge.
+     */
+    private void addBlocks(Loop loop, BasicBlock source)
+    {
+        ArrayList<BasicBlock> stack = new ArrayList<BasicBlock>();
+
+        if (loop.add(source)) {
+            stack.add(source);
+        }
+
+        while (!stack.isEmpty()) {
+            BasicBlock block = stack.remove(stack.size() - 1);
+
+            for (BasicBlock predecessor : block.getPredecessors()) {
+                if (loop.add(predecessor)) {
+                    stack.add(predecessor);
+                }
+            }
+        }
+    }
+
+    /**
+     * Getter.
+     * @return the loops, each inner loop before the loops around it.
+     */
+    public ArrayList<Loop> getLoops()
+    {
+        return loops;
+    }
+}
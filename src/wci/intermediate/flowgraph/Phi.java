@@ -0,0 +1,70 @@
+package wci.intermediate.flowgraph;
+
+import java.util.ArrayList;
+
+/**
+ * <h1>Phi</h1>
+ *
+ * <p>A phi function at the start of a basic block.  It merges the values
+ * of a variable that reach the block: its operand for each predecessor
+ * is the value at the end of that predecessor, and its result is the
+ * variable's value in the block.</p>
+ *
+ * <p>A phi function isn't code.  All the values of a variable are kept
+ * in the variable's slot, so the operands are already in place.</p>
+ *
+ * <p>Copyright (c) 2009 by Ronald Mak</p>
+ * <p>For instructional purposes only.  No warranties.</p>
+ */
+public class Phi
+{
+    private BasicBlock block;             // the block of the phi function
+    private SsaValue result;              // the value it defines
+    private ArrayList<SsaValue> operands; // value from each predecessor
+
+    /**
+     * Constructor.
+     * @param block the block of the phi function.
+     */
+    Phi(BasicBlock block)
+    {
+        this.block = block;
+        this.operands = new ArrayList<SsaValue>();
+    }
+
+    /**
+     * Getter.
+     * @return the block of the phi function.
+     */
+    public BasicBlock getBlock()
+    {
+        return block;
+    }
+
+    /**
+     * Getter.
+     * @return the value that the phi function defines.
+     */
+    public SsaValue getResult()
+    {
+        return result;
+    }
+
+    /**
+     * Setter.
+     * @param result the value that the phi function defines.
+     */
+    void setResult(SsaValue result)
+    {
+        this.result = result;
+    }
+
+    /**
+     * Getter.
+     * @return the operands, in the order of the block's predecessors.
+     */
+    public ArrayList<SsaValue> getOperands()
+    {
+        return operands;
+    }
+}
@@ -0,0 +1,474 @@
+package wci.intermediate.flowgraph;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+
+import wci.intermediate.*;
+import wci.intermediate.symtabimpl.*;
+
+import static wci.intermediate.symtabimpl.SymTabKeyImpl.*;
+import static wci.intermediate.symtabimpl.RoutineCodeImpl.*;
+import static wci.intermediate.icodeimpl.ICodeNodeTypeImpl.*;
+import static wci.intermediate.icodeimpl.ICodeKeyImpl.*;
+import static wci.intermediate.typeimpl.TypeFormImpl.ENUMERATION;
+
+/**
+ * <h1>SsaBuilder</h1>
+ *
+ * <p>Put the scalar local variables of a flow graph into static single
+ * assignment form.  A variable is in SSA form if it's an integer, real,
+ * boolean, character, or enumeration variable or value parameter of the
+ * routine, and it's never passed to a VAR parameter or to read or readln,
+ * since those can change it in the middle of an expression.  Program
+ * variables and VAR parameters can also be changed by a call, so they
+ * aren't in SSA form either.</p>
+ *
+ * <p>A phi function is put at each block of the iterated dominance frontier
+ * of the blocks that assign to a variable, for each variable that is used
+ * in a block before it's assigned in that block.  Then the values are
+ * numbered by walking the dominator tree.  The uses of a statement come
+ * before its definition.</p>
+ *
+ * <p>Copyright (c) 2009 by Ronald Mak</p>
+ * <p>For instructional purposes only.  No warranties.</p>
+ */
+public class SsaBuilder
+{
+    private FlowGraph graph;             // the flow graph
+    private DominatorTree dominators;    // its dominator tree
+    private HashSet<Integer> excluded;   // slots not in SSA form
+
+    /**
+     * Constructor.
+     * @param graph the flow graph.
+     */
+    public SsaBuilder(FlowGraph graph)
+    {
+        this.graph = graph;
+    }
+
+    /**
+     * Put the graph into SSA form.
+     */
+    public void build()
+    {
+        dominators = new DominatorTree(graph);
+        excluded = new HashSet<Integer>();
+
+        findVariables();
+        HashMap<Integer, SsaValue> entryValues = createEntryValues();
+        insertPhis();
+        rename(entryValues);
+    }
+
+    // =========
+    // Variables
+    // =========
+
+    /**
+     * Find the variables in SSA form.
+     */
+    private void findVariables()
+    {
+        HashMap<Integer, SymTabEntry> variables = graph.getVariables();
+
+        for (BasicBlock block : graph.getBlocks()) {
+            for (ICodeNode statement : block.getStatements()) {
+                findVariables(statement);
+            }
+            if (block.getCondition() != null) {
+                findVariables(block.getCondition());
+            }
+        }
+
+        for (Integer slot : excluded) {
+            variables.remove(slot);
+        }
+    }
+
+    /**
+     * Find the variables of a tree, and the ones that can't be in SSA
+     * form.
+     * @param node the root node of the tree.
+     */
+    private void findVariables(ICodeNode node)
+    {
+        if (node.getType() == VARIABLE) {
+            SymTabEntry variableId = (SymTabEntry) node.getAttribute(ID);
+
+            if (isScalarLocal(variableId)) {
+                if (node.getChildren().isEmpty()) {
+                    HashMap<Integer, SymTabEntry> variables =
+                        graph.getVariables();
+                    if (!variables.containsKey(variableId.getSlot())) {
+                        variables.put(variableId.getSlot(), variableId);
+                    }
+                }
+                else {
+                    excluded.add(variableId.getSlot());
+                }
+            }
+        }
+        else if (node.getType() == CALL) {
+            findPassedByReference(node);
+        }
+
+        for (ICodeNode child : node.getChildren()) {
+            findVariables(child);
+        }
+    }
+
+    /**
+     * Exclude the variables that a call passes by reference.
+     * @param callNode the CALL node.
+     */
+    private void findPassedByReference(ICodeNode callNode)
+    {
+        SymTabEntry routineId = (SymTabEntry) callNode.getAttribute(ID);
+        RoutineCode routineCode =
+            (RoutineCode) routineId.getAttribute(ROUTINE_CODE);
+        @SuppressWarnings("unchecked")
+        ArrayList<SymTabEntry> formalIds =
+            (ArrayList<SymTabEntry>) routineId.getAttribute(ROUTINE_PARMS);
+        ArrayList<ICodeNode> children = callNode.getChildren();
+
+        if (children.isEmpty()) {
+            return;
+        }
+
+        ArrayList<ICodeNode> actualNodes = children.get(0).getChildren();
+        boolean isRead = (routineCode == READ) || (routineCode == READLN);
+
+        for (int i = 0; i < actualNodes.size(); ++i) {
+            ICodeNode actualNode = actualNodes.get(i);
+            boolean isVarParm =    (formalIds != null) && (i < formalIds.size())
+                                && (formalIds.get(i).getDefinition() == DefinitionImpl.VAR_PARM);
+
+            if ((isRead || isVarParm) && (actualNode.getType() == VARIABLE)) {
+                SymTabEntry actualId =
+                    (SymTabEntry) actualNode.getAttribute(ID);
+                excluded.add(actualId.getSlot());
+            }
+        }
+    }
+
+    /**
+     * @param variableId the symbol table entry of a variable.
+     * @return true if it's a scalar variable or value parameter of the
+     *         routine that's kept in a slot.
+     */
+    static boolean isScalarLocal(SymTabEntry variableId)
+    {
+        Definition definition = variableId.getDefinition();
+        TypeSpec type = variableId.getTypeSpec();
+
+        if (   ((definition != DefinitionImpl.VARIABLE)
+                   && (definition != DefinitionImpl.VALUE_PARM))
+            || (variableId.getSymTab() == null)
+            || (variableId.getSymTab().getNestingLevel() == 1)
+            || (variableId.getSlot() == SymTabEntry.NO_SLOT)
+            || (type == null))
+        {
+            return false;
+        }
+
+        type = type.baseType();
+
+        return    (type == Predefined.integerType)
+               || (type == Predefined.realType)
+               || (type == Predefined.booleanType)
+               || (type == Predefined.charType)
+               || (type.getForm() == ENUMERATION);
+    }
+
+    /**
+     * @param node a VARIABLE node.
+     * @return its slot if it's a node of a variable in SSA form,
+     *         else SymTabEntry.NO_SLOT.
+     */
+    private int ssaSlot(ICodeNode node)
+    {
+        SymTabEntry variableId = (SymTabEntry) node.getAttribute(ID);
+        int slot = variableId.getSlot();
+
+        return    isScalarLocal(variableId) && node.getChildren().isEmpty()
+               && (graph.getVariable(slot) != null)
+                   ? slot : SymTabEntry.NO_SLOT;
+    }
+
+    /**
+     * @param statement a statement node.
+     * @return the target VARIABLE node if it's an assignment to a variable
+     *         in SSA form, else null.
+     */
+    private ICodeNode definedNode(ICodeNode statement)
+    {
+        if (statement.getType() == ASSIGN) {
+            ICodeNode targetNode = statement.getChildren().get(0);
+
+            if (ssaSlot(targetNode) != SymTabEntry.NO_SLOT) {
+                return targetNode;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Collect the VARIABLE nodes of the variables in SSA form that a tree
+     * uses, in the order they are evaluated.
+     * @param node the root node of the tree.
+     * @param definedNode a target node to skip, or null.
+     * @param useNodes the list to add the nodes to.
+     */
+    private void collectUses(ICodeNode node, ICodeNode definedNode,
+                             ArrayList<ICodeNode> useNodes)
+    {
+        if (   (node.getType() == VARIABLE) && !node.equals(definedNode)
+            && (ssaSlot(node) != SymTabEntry.NO_SLOT))
+        {
+            useNodes.add(node);
+        }
+
+        for (ICodeNode child : node.getChildren()) {
+            collectUses(child, definedNode, useNodes);
+        }
+    }
+
+    // =============
+    // Phi functions
+    // =============
+
+    /**
+     * Create the value of each variable on entry.
+     * @return the values by slot.
+     */
+    private HashMap<Integer, SsaValue> createEntryValues()
+    {
+        HashMap<Integer, SsaValue> entryValues =
+            new HashMap<Integer, SsaValue>();
+
+        for (SymTabEntry variableId : graph.getVariables().values()) {
+            entryValues.put(variableId.getSlot(),
+                            graph.newValue(variableId, graph.getEntry(),
+                                           null, null));
+        }
+
+        return entryValues;
+    }
+
+    /**
+     * Insert the phi functions.
+     */
+    private void insertPhis()
+    {
+        HashMap<Integer, ArrayList<BasicBlock>> definingBlocks =
+            new HashMap<Integer, ArrayList<BasicBlock>>();
+        HashSet<Integer> globals = new HashSet<Integer>();
+
+        // Find the blocks that assign to each variable, and the variables
+        // that are used in a block before they're assigned in the block.
+        for (BasicBlock block : graph.getBlocks()) {
+            HashSet<Integer> assigned = new HashSet<Integer>();
+            ArrayList<ICodeNode> useNodes = new ArrayList<ICodeNode>();
+
+            for (ICodeNode statement : block.getStatements()) {
+                ICodeNode definedNode = definedNode(statement);
+
+                useNodes.clear();
+                collectUses(statement, definedNode, useNodes);
+                addGlobals(useNodes, assigned, globals);
+
+                if (definedNode != null) {
+                    int slot = ssaSlot(definedNode);
+
+                    if (assigned.add(slot)) {
+                        ArrayList<BasicBlock> blocks = definingBlocks.get(slot);
+                        if (blocks == null) {
+                            blocks = new ArrayList<BasicBlock>();
+                            definingBlocks.put(slot, blocks);
+                        }
+                        blocks.add(block);
+                    }
+                }
+            }
+
+            if (block.getCondition() != null) {
+                useNodes.clear();
+                collectUses(block.getCondition(), null, useNodes);
+                addGlobals(useNodes, assigned, globals);
+            }
+        }
+
+        // Put a phi function for each global variable at each block
+        // of the iterated dominance frontier of the assigning blocks.
+        // The entry assigns each variable its value on entry.
+        for (Integer slot : globals) {
+            SymTabEntry variableId = graph.getVariable(slot);
+            ArrayList<BasicBlock> worklist = new ArrayList<BasicBlock>();
+            boolean hasPhi[] = new boolean[graph.getBlocks().size()];
+            boolean queued[] = new boolean[graph.getBlocks().size()];
+
+            worklist.add(graph.getEntry());
+            queued[0] = true;
+            if (definingBlocks.containsKey(slot)) {
+                for (BasicBlock block : definingBlocks.get(slot)) {
+                    if (!queued[block.getIndex()]) {
+                        queued[block.getIndex()] = true;
+                        worklist.add(block);
+                    }
+                }
+            }
+
+            while (!worklist.isEmpty()) {
+                BasicBlock block = worklist.remove(worklist.size() - 1);
+
+                for (BasicBlock frontierBlock : dominators.getFrontier(block)) {
+                    int index = frontierBlock.getIndex();
+
+                    if (!hasPhi[index]) {
+                        hasPhi[index] = true;
+                        addPhi(frontierBlock, variableId);
+
+                        if (!queued[index]) {
+                            queued[index] = true;
+                            worklist.add(frontierBlock);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Add the slots of the variables used before they're assigned.
+     * @param useNodes the VARIABLE nodes of the uses.
+     * @param assigned the slots assigned so far in the block.
+     * @param globals the slots to add to.
+     */
+    private void addGlobals(ArrayList<ICodeNode> useNodes,
+                            HashSet<Integer> assigned,
+                            HashSet<Integer> globals)
+    {
+        for (ICodeNode useNode : useNodes) {
+            int slot = ssaSlot(useNode);
+            if (!assigned.contains(slot)) {
+                globals.add(slot);
+            }
+        }
+    }
+
+    /**
+     * Add a phi function to a block.
+     * @param block the block.
+     * @param variableId an entry of the variable.
+     */
+    private void addPhi(BasicBlock block, SymTabEntry variableId)
+    {
+        Phi phi = new Phi(block);
+        phi.setResult(graph.newValue(variableId, block, null, phi));
+
+        for (int i = 0; i < block.getPredecessors().size(); ++i) {
+            phi.getOperands().add(null);
+        }
+
+        block.getPhis().add(phi);
+    }
+
+    // ========
+    // Renaming
+    // ========
+
+    /**
+     * Number the values by walking the dominator tree, and make the
+     * use-def and def-use chains.
+     * @param entryValues the value of each variable on entry.
+     */
+    private void rename(HashMap<Integer, SsaValue> entryValues)
+    {
+        HashMap<Integer, SsaValue> currentValues =
+            new HashMap<Integer, SsaValue>(entryValues);
+
+        // The stack of blocks to visit, and the values to restore when
+        // the walk leaves each block's subtree.  A null block marks
+        // the end of a subtree.
+        ArrayList<BasicBlock> stack = new ArrayList<BasicBlock>();
+        ArrayList<SsaValue> savedValues = new ArrayList<SsaValue>();
+        ArrayList<Integer> savedCounts = new ArrayList<Integer>();
+        ArrayList<ICodeNode> useNodes = new ArrayList<ICodeNode>();
+
+        stack.add(graph.getEntry());
+
+        while (!stack.isEmpty()) {
+            BasicBlock block = stack.remove(stack.size() - 1);
+
+            // Leaving a subtree: Restore the values.
+            if (block == null) {
+                int count = savedCounts.remove(savedCounts.size() - 1);
+
+                while (savedValues.size() > count) {
+                    SsaValue saved = savedValues.remove(savedValues.size() - 1);
+                    currentValues.put(saved.getSlot(), saved);
+                }
+
+                continue;
+            }
+
+            savedCounts.add(savedValues.size());
+
+            // Phi functions.
+            for (Phi phi : block.getPhis()) {
+                SsaValue result = phi.getResult();
+                savedValues.add(currentValues.put(result.getSlot(), result));
+            }
+
+            // Statements: the uses, and then the definition.
+            for (ICodeNode statement : block.getStatements()) {
+                ICodeNode definedNode = definedNode(statement);
+
+                useNodes.clear();
+                collectUses(statement, definedNode, useNodes);
+                for (ICodeNode useNode : useNodes) {
+                    graph.addUse(useNode, currentValues.get(ssaSlot(useNode)));
+                }
+
+                if (definedNode != null) {
+                    SymTabEntry variableId =
+                        (SymTabEntry) definedNode.getAttribute(ID);
+                    SsaValue value = graph.newValue(variableId, block,
+                                                    statement, null);
+                    savedValues.add(currentValues.put(value.getSlot(), value));
+                }
+            }
+
+            // Terminator condition.
+            if (block.getCondition() != null) {
+                useNodes.clear();
+                collectUses(block.getCondition(), null, useNodes);
+                for (ICodeNode useNode : useNodes) {
+                    graph.addUse(useNode, currentValues.get(ssaSlot(useNode)));
+                }
+            }
+
+            // Phi function operands of the successors.
+            for (BasicBlock successor : block.getSuccessors()) {
+                int index = successor.getPredecessors().indexOf(block);
+
+                for (Phi phi : successor.getPhis()) {
+                    SsaValue value =
+                        currentValues.get(phi.getResult().getSlot());
+                    phi.getOperands().set(index, value);
+                    value.getPhiUses().add(phi);
+                }
+            }
+
+            // Visit the dominated blocks, then restore the values.
+            stack.add(null);
+            ArrayList<BasicBlock> children = dominators.getChildren(block);
+            for (int i = children.size() - 1; i >= 0; --i) {
+                stack.add(children.get(i));
+            }
+        }
+    }
+}
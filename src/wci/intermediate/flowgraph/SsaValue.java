@@ -0,0 +1,144 @@
+package wci.intermediate.flowgraph;
+
+import java.util.ArrayList;
+
+import wci.intermediate.*;
+
+/**
+ * <h1>SsaValue</h1>
+ *
+ * <p>A value of a scalar local variable in static single assignment form.
+ * Each value has one definition: the variable's value when the routine
+ * is entered, an ASSIGN statement to the variable, or a phi function.
+ * The value keeps its uses, which are VARIABLE nodes and phi functions,
+ * so the def-use chains are the reverse of the use-def chains.</p>
+ *
+ * <p>A variable is known by its slot number.  Each RETURN statement of a
+ * function assigns to its own symbol table entry, but they all have the
+ * slot of the function's value, so they are the same variable.</p>
+ *
+ * <p>Copyright (c) 2009 by Ronald Mak</p>
+ * <p>For instructional purposes only.  No warranties.</p>
+ */
+public class SsaValue
+{
+    private SymTabEntry variableId;       // an entry of the variable
+    private int slot;                     // slot number of the variable
+    private int version;                  // 0 for the value on entry
+    private BasicBlock block;             // block of the definition
+    private ICodeNode definition;         // ASSIGN node, or null
+    private Phi phi;                      // phi function, or null
+    private ArrayList<ICodeNode> uses;    // VARIABLE nodes that use it
+    private ArrayList<Phi> phiUses;       // phi functions that use it
+
+    /**
+     * Constructor.
+     * @param variableId an entry of the variable.
+     * @param version the version number of the value.
+     * @param block the block of the definition.
+     * @param definition the ASSIGN node of the definition, or null.
+     * @param phi the phi function of the definition, or null.
+     */
+    SsaValue(SymTabEntry variableId, int version, BasicBlock block,
+             ICodeNode definition, Phi phi)
+    {
+        this.variableId = variableId;
+        this.slot = variableId.getSlot();
+        this.version = version;
+        this.block = block;
+        this.definition = definition;
+        this.phi = phi;
+        this.uses = new ArrayList<ICodeNode>();
+        this.phiUses = new ArrayList<Phi>();
+    }
+
+    /**
+     * Getter.
+     * @return an entry of the variable.
+     */
+    public SymTabEntry getVariableId()
+    {
+        return variableId;
+    }
+
+    /**
+     * Getter.
+     * @return the slot number of the variable when the flow graph
+     *         was built.
+     */
+    public int getSlot()
+    {
+        return slot;
+    }
+
+    /**
+     * Getter.
+     * @return the version number, 0 for the value on entry.
+     */
+    public int getVersion()
+    {
+        return version;
+    }
+
+    /**
+     * Getter.
+     * @return the block of the definition, the entry block for the
+     *         value on entry.
+     */
+    public BasicBlock getBlock()
+    {
+        return block;
+    }
+
+    /**
+     * Getter.
+     * @return the ASSIGN node that defines the value, or null.
+     */
+    public ICodeNode getDefinition()
+    {
+        return definition;
+    }
+
+    /**
+     * Getter.
+     * @return the phi function that defines the value, or null.
+     */
+    public Phi getPhi()
+    {
+        return phi;
+    }
+
+    /**
+     * @return true if this is the variable's value on entry.
+     */
+    public boolean isEntryValue()
+    {
+        return (definition == null) && (phi == null);
+    }
+
+    /**
+     * Getter.
+     * @return the VARIABLE nodes that use the value.
+     */
+    public ArrayList<ICodeNode> getUses()
+    {
+        return uses;
+    }
+
+    /**
+     * Getter.
+     * @return the phi functions that use the value.
+     */
+    public ArrayList<Phi> getPhiUses()
+    {
+        return phiUses;
+    }
+
+    /**
+     * @return the name of the value for messages, such as i.2.
+     */
+    public String toString()
+    {
+        return variableId.getName() + "." + version;
+    }
+}
@@ -0,0 +1,221 @@
+package wci.intermediate.icodeimpl;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import wci.intermediate.*;
+
+import static wci.intermediate.icodeimpl.FlatICodeStore.NONE;
+
+/**
+ * <h1>FlatICodeNodeImpl</h1>
+ *
+ * <p>An ICodeNode view of a node in a FlatICodeStore.  The view holds
+ * only the store and the node's handle, so it can be created whenever
+ * it is needed and thrown away.  Two views are equal if they are views
+ * of the same node.</p>
+ *
+ * <p>Copyright (c) 2009 by Ronald Mak</p>
+ * <p>For instructional purposes only.  No warranties.</p>
+ */
+public class FlatICodeNodeImpl implements ICodeNode
+{
+    private FlatICodeStore store;  // store that holds the node
+    private int handle;            // handle of the node
+
+    /**
+     * Constructor.
+     * @param store the store that holds the node.
+     * @param handle the handle of the node.
+     */
+    public FlatICodeNodeImpl(FlatICodeStore store, int handle)
+    {
+        this.store = store;
+        this.handle = handle;
+    }
+
+    /**
+     * Getter.
+     * @return the handle of the node.
+     */
+    public int getHandle()
+    {
+        return handle;
+    }
+
+    /**
+     * Getter.
+     * @return the node type.
+     */
+    public ICodeNodeType getType()
+    {
+        return store.getType(handle);
+    }
+
+    /**
+     * Return the parent of this node.
+     * @return the parent node.
+     */
+    public ICodeNode getParent()
+    {
+        return store.node(store.getParent(handle));
+    }
+
+    /**
+     * Set the type specification of this node.
+     * @param typeSpec the type specification to set.
+     */
+    public void setTypeSpec(TypeSpec typeSpec)
+    {
+        store.setTypeSpec(handle, typeSpec);
+    }
+
+    /**
+     * Return the type specification of this node.
+     * @return the type specification.
+     */
+    public TypeSpec getTypeSpec()
+    {
+        return store.getTypeSpec(handle);
+    }
+
+    /**
+     * Add a child node.
+     * @param node the child node. Not added if null.
+     * @return the child node.
+     */
+    public ICodeNode addChild(ICodeNode node)
+    {
+        if (node != null) {
+            FlatICodeNodeImpl child = (FlatICodeNodeImpl) node;
+
+            if (child.store != store) {
+                throw new IllegalArgumentException(
+                    "The child node belongs to another compilation");
+            }
+
+            store.addChild(handle, child.handle);
+        }
+
+        return node;
+    }
+
+    /**
+     * Replace a child node.  The new child is first taken from its
+     * parent, if it has one.
+     * @param index the index of the child to replace.
+     * @param node the new child node.
+     * @return the new child node.
+     */
+    public ICodeNode setChild(int index, ICodeNode node)
+    {
+        FlatICodeNodeImpl child = (FlatICodeNodeImpl) node;
+
+        if (child.store != store) {
+            throw new IllegalArgumentException(
+                "The child node belongs to another compilation");
+        }
+
+        store.setChild(handle, index, child.handle);
+        return node;
+    }
+
+    /**
+     * Return an array list of views of this node's children.  The list
+     * is a new one each time, so changing it doesn't change the node.
+     * @return the array list of children.
+     */
+    public ArrayList<ICodeNode> getChildren()
+    {
+        ArrayList<ICodeNode> children =
+            new ArrayList<ICodeNode>(store.getChildCount(handle));
+
+        for (int child = store.getFirstChild(handle);
+             child != NONE;
+             child = store.getNextSibling(child))
+        {
+            children.add(new FlatICodeNodeImpl(store, child));
+        }
+
+        return children;
+    }
+
+    /**
+     * Set a node attribute.
+     * @param key the attribute key.
+     * @param value the attribute value.
+     */
+    public void setAttribute(ICodeKey key, Object value)
+    {
+        store.setAttribute(handle, key, value);
+    }
+
+    /**
+     * Get the value of a node attribute.
+     * @param key the attribute key.
+     * @return the attribute value.
+     */
+    public Object getAttribute(ICodeKey key)
+    {
+        return store.getAttribute(handle, key);
+    }
+
+    /**
+     * Return the attributes that are set, for printing.
+     * @return a map of the attributes in the order LINE, ID, VALUE,
+     *         followed by any other keys.
+     */
+    public Map<ICodeKey, Object> getAttributes()
+    {
+        LinkedHashMap<ICodeKey, Object> attributes =
+            new LinkedHashMap<ICodeKey, Object>();
+
+        for (ICodeKeyImpl key : ICodeKeyImpl.values()) {
+            Object value = store.getAttribute(handle, key);
+            if (value != null) {
+                attributes.put(key, value);
+            }
+        }
+
+        Map<ICodeKey, Object> others = store.getOtherAttributes(handle);
+        if (others != null) {
+            attributes.putAll(others);
+        }
+
+        return attributes;
+    }
+
+    /**
+     * Make a copy of this node.
+     * @return the copy.
+     */
+    public ICodeNode copy()
+    {
+        return new FlatICodeNodeImpl(store, store.copy(handle));
+    }
+
+    /**
+     * @param other another object.
+     * @return true if it is a view of the same node.
+     */
+    public boolean equals(Object other)
+    {
+        return (other instanceof FlatICodeNodeImpl)
+            && (((FlatICodeNodeImpl) other).store == store)
+            && (((FlatICodeNodeImpl) other).handle == handle);
+    }
+
+    /**
+     * @return the hash code of the node.
+     */
+    public int hashCode()
+    {
+        return handle;
+    }
+
+    public String toString()
+    {
+        return getType().toString();
+    }
+}
@@ -0,0 +1,510 @@
+package wci.intermediate.icodeimpl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import wci.intermediate.*;
+
+import static wci.intermediate.icodeimpl.ICodeKeyImpl.*;
+
+/**
+ * <h1>FlatICodeStore</h1>
+ *
+ * <p>The intermediate code nodes of one compilation, stored in parallel
+ * arrays instead of as one object per node.  A node is an int handle
+ * that indexes the arrays of its type, parent, first and last child,
+ * next sibling, source line number, and attribute slot.
+ * The ID and VALUE attributes and the type specification of a node
+ * are in side tables indexed by the attribute slot, which is assigned
+ * only to a node that has any of them.</p>
+ *
+ * <p>The tree can be walked by handle with getFirstChild() and
+ * getNextSibling().  node() returns an ICodeNode view of a handle for
+ * the code that works with ICodeNode objects.</p>
+ *
+ * <p>A store belongs to a single compilation and is not shared between
+ * threads.</p>
+ *
+ * <p>Copyright (c) 2009 by Ronald Mak</p>
+ * <p>For instructional purposes only.  No warranties.</p>
+ */
+public class FlatICodeStore
+{
+    public static final int NONE = -1;     // no node
+
+    private static final int NO_LINE = -1;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    // Node types, indexed by the type index of a node.
+    private ArrayList<ICodeNodeType> nodeTypes;
+    private IdentityHashMap<ICodeNodeType, Integer> typeIndexes;
+
+    // Node arrays, indexed by handle.
+    private int count;            // count of nodes
+    private int types[];          // node type index
+    private int parents[];        // parent handle
+    private int firstChildren[];  // first child handle
+    private int lastChildren[];   // last child handle
+    private int nextSiblings[];   // next sibling handle
+    private int lines[];          // LINE attribute
+    private int slots[];          // attribute slot, or NONE
+
+    // Side tables, indexed by attribute slot.
+    private int slotCount;        // count of attribute slots
+    private Object ids[];         // ID attribute
+    private Object values[];      // VALUE attribute
+    private TypeSpec typeSpecs[]; // type specification
+
+    // Any other keys, by attribute slot, or null if no node has any.
+    // The list only reaches the last slot that has other keys.
+    private ArrayList<HashMap<ICodeKey, Object>> otherAttributes;
+
+    /**
+     * Constructor.
+     */
+    public FlatICodeStore()
+    {
+        this.nodeTypes = new ArrayList<ICodeNodeType>();
+        this.typeIndexes = new IdentityHashMap<ICodeNodeType, Integer>();
+
+        this.count = 0;
+        this.types = new int[INITIAL_CAPACITY];
+        this.parents = new int[INITIAL_CAPACITY];
+        this.firstChildren = new int[INITIAL_CAPACITY];
+        this.lastChildren = new int[INITIAL_CAPACITY];
+        this.nextSiblings = new int[INITIAL_CAPACITY];
+        this.lines = new int[INITIAL_CAPACITY];
+        this.slots = new int[INITIAL_CAPACITY];
+
+        this.slotCount = 0;
+        this.ids = new Object[INITIAL_CAPACITY];
+        this.values = new Object[INITIAL_CAPACITY];
+        this.typeSpecs = new TypeSpec[INITIAL_CAPACITY];
+        this.otherAttributes = null;
+    }
+
+    /**
+     * Getter.
+     * @return the count of nodes in the store.
+     */
+    public int size()
+    {
+        return count;
+    }
+
+    /**
+     * Create a new node without a parent or children.
+     * @param type the node type.
+     * @return the handle of the new node.
+     */
+    public int newNode(ICodeNodeType type)
+    {
+        if (count == types.length) {
+            growNodes();
+        }
+
+        Integer typeIndex = typeIndexes.get(type);
+        if (typeIndex == null) {
+            typeIndex = nodeTypes.size();
+            nodeTypes.add(type);
+            typeIndexes.put(type, typeIndex);
+        }
+
+        int node = count++;
+        types[node] = typeIndex;
+        parents[node] = NONE;
+        firstChildren[node] = NONE;
+        lastChildren[node] = NONE;
+        nextSiblings[node] = NONE;
+        lines[node] = NO_LINE;
+        slots[node] = NONE;
+
+        return node;
+    }
+
+    /**
+     * Return an ICodeNode view of a node.
+     * @param node the node handle, or NONE.
+     * @return the view, or null for NONE.
+     */
+    public ICodeNode node(int node)
+    {
+        return node != NONE ? new FlatICodeNodeImpl(this, node) : null;
+    }
+
+    /**
+     * @param node the node handle.
+     * @return the node type.
+     */
+    public ICodeNodeType getType(int node)
+    {
+        return nodeTypes.get(types[node]);
+    }
+
+    /**
+     * @param node the node handle.
+     * @return the handle of the parent, or NONE.
+     */
+    public int getParent(int node)
+    {
+        return parents[node];
+    }
+
+    /**
+     * @param node the node handle.
+     * @return the handle of the first child, or NONE.
+     */
+    public int getFirstChild(int node)
+    {
+        return firstChildren[node];
+    }
+
+    /**
+     * @param node the node handle.
+     * @return the handle of the next sibling, or NONE.
+     */
+    public int getNextSibling(int node)
+    {
+        return nextSiblings[node];
+    }
+
+    /**
+     * @param node the node handle.
+     * @return the count of children.
+     */
+    public int getChildCount(int node)
+    {
+        int count = 0;
+        for (int child = firstChildren[node];
+             child != NONE;
+             child = nextSiblings[child])
+        {
+            ++count;
+        }
+
+        return count;
+    }
+
+    /**
+     * Append a child to a node.  A node can have only one parent.
+     * @param node the node handle.
+     * @param child the handle of the child.
+     */
+    public void addChild(int node, int child)
+    {
+        if (parents[child] != NONE) {
+            throw new IllegalStateException(getType(child) +
+                                            " node already has a parent");
+        }
+
+        if (firstChildren[node] == NONE) {
+            firstChildren[node] = child;
+        }
+        else {
+            nextSiblings[lastChildren[node]] = child;
+        }
+
+        lastChildren[node] = child;
+        parents[child] = node;
+    }
+
+    /**
+     * Replace a child of a node.  The new child is first taken from its
+     * parent, if it has one.
+     * @param node the node handle.
+     * @param index the index of the child to replace.
+     * @param child the handle of the new child.
+     */
+    public void setChild(int node, int index, int child)
+    {
+        int oldChild = firstChildren[node];
+        for (int i = 0; (i < index) && (oldChild != NONE); ++i) {
+            oldChild = nextSiblings[oldChild];
+        }
+
+        if (oldChild == NONE) {
+            throw new IndexOutOfBoundsException("Child index " + index);
+        }
+        if (child == oldChild) {
+            return;
+        }
+
+        if (parents[child] != NONE) {
+            removeChild(parents[child], child);
+        }
+
+        int previous = previousSibling(node, oldChild);
+        if (previous == NONE) {
+            firstChildren[node] = child;
+        }
+        else {
+            nextSiblings[previous] = child;
+        }
+        if (lastChildren[node] == oldChild) {
+            lastChildren[node] = child;
+        }
+
+        nextSiblings[child] = nextSiblings[oldChild];
+        parents[child] = node;
+        nextSiblings[oldChild] = NONE;
+        parents[oldChild] = NONE;
+    }
+
+    /**
+     * Remove a child from a node.
+     * @param node the node handle.
+     * @param child the handle of the child.
+     */
+    private void removeChild(int node, int child)
+    {
+        int previous = previousSibling(node, child);
+        if (previous == NONE) {
+            firstChildren[node] = nextSiblings[child];
+        }
+        else {
+            nextSiblings[previous] = nextSiblings[child];
+        }
+        if (lastChildren[node] == child) {
+            lastChildren[node] = previous;
+        }
+
+        nextSiblings[child] = NONE;
+        parents[child] = NONE;
+    }
+
+    /**
+     * @param node the node handle.
+     * @param child the handle of a child.
+     * @return the handle of the child's previous sibling, or NONE.
+     */
+    private int previousSibling(int node, int child)
+    {
+        int previous = NONE;
+        for (int sibling = firstChildren[node];
+             sibling != child;
+             sibling = nextSiblings[sibling])
+        {
+            previous = sibling;
+        }
+
+        return previous;
+    }
+
+    /**
+     * @param node the node handle.
+     * @return the type specification, or null.
+     */
+    public TypeSpec getTypeSpec(int node)
+    {
+        int slot = slots[node];
+        return slot != NONE ? typeSpecs[slot] : null;
+    }
+
+    /**
+     * @param node the node handle.
+     * @param typeSpec the type specification to set.
+     */
+    public void setTypeSpec(int node, TypeSpec typeSpec)
+    {
+        if ((typeSpec != null) || (slots[node] != NONE)) {
+            int slot = slotOf(node);  // may grow the side tables
+            typeSpecs[slot] = typeSpec;
+        }
+    }
+
+    /**
+     * Get the value of a node attribute.
+     * @param node the node handle.
+     * @param key the attribute key.
+     * @return the attribute value, or null.
+     */
+    public Object getAttribute(int node, ICodeKey key)
+    {
+        if (key == LINE) {
+            return lines[node] != NO_LINE ? (Object) lines[node] : null;
+        }
+
+        int slot = slots[node];
+        if (slot == NONE) {
+            return null;
+        }
+        else if (key == ID) {
+            return ids[slot];
+        }
+        else if (key == VALUE) {
+            return values[slot];
+        }
+        else {
+            HashMap<ICodeKey, Object> others = otherAttributes(slot);
+            return others != null ? others.get(key) : null;
+        }
+    }
+
+    /**
+     * Return a node's attributes with keys other than LINE, ID, and VALUE.
+     * @param node the node handle.
+     * @return the map of the other attributes, or null if none.
+     */
+    public Map<ICodeKey, Object> getOtherAttributes(int node)
+    {
+        int slot = slots[node];
+        return slot != NONE ? otherAttributes(slot) : null;
+    }
+
+    /**
+     * Set a node attribute.
+     * @param node the node handle.
+     * @param key the attribute key.
+     * @param value the attribute value.
+     */
+    public void setAttribute(int node, ICodeKey key, Object value)
+    {
+        if (key == LINE) {
+            lines[node] = value != null ? (Integer) value : NO_LINE;
+        }
+        else if (key == ID) {
+            int slot = slotOf(node);  // may grow the side tables
+            ids[slot] = value;
+        }
+        else if (key == VALUE) {
+            int slot = slotOf(node);  // may grow the side tables
+            values[slot] = value;
+        }
+        else {
+            int slot = slotOf(node);
+            HashMap<ICodeKey, Object> others = otherAttributes(slot);
+
+            if (others == null) {
+                others = new HashMap<ICodeKey, Object>();
+                setOtherAttributes(slot, others);
+            }
+
+            others.put(key, value);
+        }
+    }
+
+    /**
+     * Create a copy of a node with the same type, type specification,
+     * and attributes, but without a parent or children.
+     * @param node the node handle.
+     * @return the handle of the copy.
+     */
+    public int copy(int node)
+    {
+        int copy = newNode(getType(node));
+        lines[copy] = lines[node];
+
+        int slot = slots[node];
+        if (slot != NONE) {
+            int copySlot = slotOf(copy);
+            ids[copySlot] = ids[slot];
+            values[copySlot] = values[slot];
+            typeSpecs[copySlot] = typeSpecs[slot];
+
+            HashMap<ICodeKey, Object> others = otherAttributes(slot);
+            if (others != null) {
+                setOtherAttributes(copySlot,
+                                   new HashMap<ICodeKey, Object>(others));
+            }
+        }
+
+        return copy;
+    }
+
+    /**
+     * Return the attribute slot of a node, assigning one if necessary.
+     * @param node the node handle.
+     * @return the slot.
+     */
+    private int slotOf(int node)
+    {
+        if (slots[node] == NONE) {
+            if (slotCount == ids.length) {
+                growSlots();
+            }
+
+            slots[node] = slotCount++;
+        }
+
+        return slots[node];
+    }
+
+    /**
+     * Grow the capacity of the node arrays by half.
+     */
+    private void growNodes()
+    {
+        int capacity = types.length + types.length/2;
+
+        types = grow(types, capacity);
+        parents = grow(parents, capacity);
+        firstChildren = grow(firstChildren, capacity);
+        lastChildren = grow(lastChildren, capacity);
+        nextSiblings = grow(nextSiblings, capacity);
+        lines = grow(lines, capacity);
+        slots = grow(slots, capacity);
+    }
+
+    /**
+     * Grow the capacity of the side tables by half.
+     */
+    private void growSlots()
+    {
+        int capacity = ids.length + ids.length/2;
+
+        Object grownIds[] = new Object[capacity];
+        Object grownValues[] = new Object[capacity];
+        TypeSpec grownTypeSpecs[] = new TypeSpec[capacity];
+
+        System.arraycopy(ids, 0, grownIds, 0, slotCount);
+        System.arraycopy(values, 0, grownValues, 0, slotCount);
+        System.arraycopy(typeSpecs, 0, grownTypeSpecs, 0, slotCount);
+
+        ids = grownIds;
+        values = grownValues;
+        typeSpecs = grownTypeSpecs;
+    }
+
+    /**
+     * @param slot an attribute slot.
+     * @return the map of the slot's other attributes, or null if none.
+     */
+    private HashMap<ICodeKey, Object> otherAttributes(int slot)
+    {
+        return (otherAttributes != null) && (slot < otherAttributes.size())
+                   ? otherAttributes.get(slot)
+                   : null;
+    }
+
+    /**
+     * Set the map of a slot's other attributes.
+     * @param slot the attribute slot.
+     * @param others the map.
+     */
+    private void setOtherAttributes(int slot, HashMap<ICodeKey, Object> others)
+    {
+        if (otherAttributes == null) {
+            otherAttributes = new ArrayList<HashMap<ICodeKey, Object>>();
+        }
+        while (otherAttributes.size() <= slot) {
+            otherAttributes.add(null);
+        }
+
+        otherAttributes.set(slot, others);
+    }
+
+    /**
+     * Copy an int array into a larger one.
+     * @param array the array.
+     * @param capacity the new capacity.
+     * @return the larger array.
+     */
+    private int[] grow(int array[], int capacity)
+    {
+        int grown[] = new int[capacity];
+        System.arraycopy(array, 0, grown, 0, count);
+        return grown;
+    }
+}
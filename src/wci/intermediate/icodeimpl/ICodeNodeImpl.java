@@ -1,30 +1,45 @@
 package wci.intermediate.icodeimpl;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.Set;
 
 import wci.intermediate.*;
 
+import static wci.intermediate.icodeimpl.ICodeKeyImpl.*;
+
 /**
  * <h1>ICodeNodeImpl</h1>
  *
  * <p>An implementation of a node of the intermediate code.</p>
  *
+ * <p>The LINE, ID, and VALUE attributes have fields of their own, and the
+ * line number is a primitive int.  Any other attribute key goes into a
+ * map that is created only when needed.  A node without children shares
+ * a single empty child list, so a leaf node is one small object.</p>
+ *
  * <p>Copyright (c) 2009 by Ronald Mak</p>
  * <p>For instructional purposes only.  No warranties.</p>
  */
-public class ICodeNodeImpl
-    extends HashMap<ICodeKey, Object>
-    implements ICodeNode
+public class ICodeNodeImpl implements ICodeNode
 {
+    private static final int NO_LINE = -1;  // the LINE attribute isn't set
+
+    // The child list shared by all the nodes that have no children.
+    private static final ArrayList<ICodeNode> NO_CHILDREN = new NoChildren();
+
     private ICodeNodeType type;             // node type
     private ICodeNode parent;               // parent node
     private ArrayList<ICodeNode> children;  // children array list
     private TypeSpec typeSpec;              // data type specification
 
+    private int line;                       // LINE attribute, or NO_LINE
+    private Object id;                      // ID attribute
+    private Object value;                   // VALUE attribute
+    private HashMap<ICodeKey, Object> otherAttributes;  // any other keys
+
     /**
      * Constructor.
      * @param type the node type whose name will be the name of this node.
@@ -33,7 +48,8 @@ public class ICodeNodeImpl
     {
         this.type = type;
         this.parent = null;
-        this.children = new ArrayList<ICodeNode>();
+        this.children = NO_CHILDREN;
+        this.line = NO_LINE;
     }
 
     /**
@@ -80,6 +96,10 @@ public class ICodeNodeImpl
     public ICodeNode addChild(ICodeNode node)
     {
         if (node != null) {
+            if (children == NO_CHILDREN) {
+                children = new ArrayList<ICodeNode>(2);
+            }
+
             children.add(node);
             ((ICodeNodeImpl) node).parent = this;
         }
@@ -87,9 +107,61 @@ public class ICodeNodeImpl
         return node;
     }
 
+    /**
+     * Replace a child node.  The new child is first taken from its
+     * parent, if it has one.
+     * @param index the index of the child to replace.
+     * @param node the new child node.
+     * @return the new child node.
+     */
+    public ICodeNode setChild(int index, ICodeNode node)
+    {
+        ICodeNodeImpl oldChild = (ICodeNodeImpl) children.get(index);
+        ICodeNodeImpl newChild = (ICodeNodeImpl) node;
+
+        if (newChild == oldChild) {
+            return node;
+        }
+
+        if (newChild.parent != null) {
+            ((ICodeNodeImpl) newChild.parent).removeChild(newChild);
+        }
+
+        children.set(indexOf(oldChild), newChild);
+        oldChild.parent = null;
+        newChild.parent = this;
+
+        return node;
+    }
+
+    /**
+     * Remove a child node.
+     * @param child the child node.
+     */
+    private void removeChild(ICodeNodeImpl child)
+    {
+        children.remove(indexOf(child));
+        child.parent = null;
+    }
+
+    /**
+     * @param child a child node.
+     * @return the index of the child.
+     */
+    private int indexOf(ICodeNode child)
+    {
+        int index = 0;
+        while (children.get(index) != child) {
+            ++index;
+        }
+
+        return index;
+    }
+
     /**
      * Return an array list of this node's children.
-     * @return the array list of children.
+     * @return the array list of children.  It is empty and
+     *         cannot be changed if the node has no children.
      */
     public ArrayList<ICodeNode> getChildren()
     {
@@ -103,7 +175,21 @@ public class ICodeNodeImpl
      */
     public void setAttribute(ICodeKey key, Object value)
     {
-        put(key, value);
+        if (key == LINE) {
+            this.line = value != null ? (Integer) value : NO_LINE;
+        }
+        else if (key == ID) {
+            this.id = value;
+        }
+        else if (key == VALUE) {
+            this.value = value;
+        }
+        else {
+            if (otherAttributes == null) {
+                otherAttributes = new HashMap<ICodeKey, Object>();
+            }
+            otherAttributes.put(key, value);
+        }
     }
 
     /**
@@ -113,7 +199,44 @@ public class ICodeNodeImpl
      */
     public Object getAttribute(ICodeKey key)
     {
-        return get(key);
+        if (key == LINE) {
+            return line != NO_LINE ? (Object) line : null;
+        }
+        else if (key == ID) {
+            return id;
+        }
+        else if (key == VALUE) {
+            return value;
+        }
+        else {
+            return otherAttributes != null ? otherAttributes.get(key) : null;
+        }
+    }
+
+    /**
+     * Return the attributes that are set, for printing.
+     * @return a map of the attributes in the order LINE, ID, VALUE,
+     *         followed by any other keys.
+     */
+    public Map<ICodeKey, Object> getAttributes()
+    {
+        LinkedHashMap<ICodeKey, Object> attributes =
+            new LinkedHashMap<ICodeKey, Object>();
+
+        if (line != NO_LINE) {
+            attributes.put(LINE, line);
+        }
+        if (id != null) {
+            attributes.put(ID, id);
+        }
+        if (value != null) {
+            attributes.put(VALUE, value);
+        }
+        if (otherAttributes != null) {
+            attributes.putAll(otherAttributes);
+        }
+
+        return attributes;
     }
 
     /**
@@ -127,13 +250,13 @@ public class ICodeNodeImpl
             (ICodeNodeImpl) ICodeFactory.createICodeNode(type);
         copy.setTypeSpec(typeSpec);
 
-        Set<Map.Entry<ICodeKey, Object>> attributes = entrySet();
-        Iterator<Map.Entry<ICodeKey, Object>> it = attributes.iterator();
-
         // Copy attributes
-        while (it.hasNext()) {
-            Map.Entry<ICodeKey, Object> attribute = it.next();
-            copy.put(attribute.getKey(), attribute.getValue());
+        copy.line = line;
+        copy.id = id;
+        copy.value = value;
+        if (otherAttributes != null) {
+            copy.otherAttributes =
+                new HashMap<ICodeKey, Object>(otherAttributes);
         }
 
         return copy;
@@ -143,4 +266,38 @@ public class ICodeNodeImpl
     {
         return type.toString();
     }
+
+    /**
+     * The empty child list of the nodes that have no children.
+     * It cannot be added to.
+     */
+    private static class NoChildren extends ArrayList<ICodeNode>
+    {
+        private static final long serialVersionUID = 1L;
+
+        private NoChildren()
+        {
+            super(0);
+        }
+
+        public boolean add(ICodeNode node)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        public void add(int index, ICodeNode node)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        public boolean addAll(Collection<? extends ICodeNode> nodes)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        public boolean addAll(int index, Collection<? extends ICodeNode> nodes)
+        {
+            throw new UnsupportedOperationException();
+        }
+    }
 }
@@ -28,6 +28,12 @@ public enum ICodeNodeTypeImpl implements ICodeNodeType
     // Multiplicative operators
     MULTIPLY, INTEGER_DIVIDE, FLOAT_DIVIDE, MOD, AND,
 
+    // Bitwise operators
+    BIT_AND, BIT_OR, BIT_XOR, SHIFT_LEFT,
+
+    // Conditional operator
+    CONDITIONAL,
+
     // Operands
     VARIABLE, SUBSCRIPTS, FIELD,VARIABLE_DECLARE,
     INTEGER_CONSTANT, REAL_CONSTANT,
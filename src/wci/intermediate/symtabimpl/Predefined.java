@@ -14,171 +14,152 @@ import static wci.intermediate.typeimpl.TypeKeyImpl.*;
 /**
  * <h1>Predefined</h1>
  *
- * <p>Enter the predefined SubC types, identifiers, and constants
- * into the symbol table.</p>
+ * <p>The predefined SubC types, identifiers, and constants.  They are
+ * created once per JVM in a read-only level 0 symbol table that all
+ * compilations share, even compilations that run at the same time.
+ * Each compilation's own level 0 symbol table lies on top of it.</p>
  *
  * <p>Copyright (c) 2009 by Ronald Mak</p>
  * <p>For instructional purposes only.  No warranties.</p>
  */
 public class Predefined
 {
-    // Predefined types.
-    public static TypeSpec integerType;
-    public static TypeSpec realType;
-    public static TypeSpec booleanType;
-    public static TypeSpec charType;
-    public static TypeSpec undefinedType;
-
-
-    // Predefined identifiers.
-
-    public static SymTabEntry integerId;
-    public static SymTabEntry realId;
-    public static SymTabEntry booleanId;
-    public static SymTabEntry charId;
-    public static SymTabEntry falseId;
-    public static SymTabEntry trueId;
-    public static SymTabEntry readId;
-    public static SymTabEntry readlnId;
-    public static SymTabEntry writeId;
-    public static SymTabEntry writelnId;
-    public static SymTabEntry absId;
-    public static SymTabEntry arctanId;
-    public static SymTabEntry chrId;
-    public static SymTabEntry cosId;
-    public static SymTabEntry eofId;
-    public static SymTabEntry eolnId;
-    public static SymTabEntry expId;
-    public static SymTabEntry lnId;
-    public static SymTabEntry oddId;
-    public static SymTabEntry ordId;
-    public static SymTabEntry predId;
-    public static SymTabEntry roundId;
-    public static SymTabEntry sinId;
-    public static SymTabEntry sqrId;
-    public static SymTabEntry sqrtId;
-    public static SymTabEntry succId;
-    public static SymTabEntry truncId;
+    // Predefined types, shared by all compilations.
+    public static final TypeSpec integerType;
+    public static final TypeSpec realType;
+    public static final TypeSpec booleanType;
+    public static final TypeSpec charType;
+    public static final TypeSpec undefinedType;
+
+    // Identifiers of the shared predefined types and constants.
+    public static final SymTabEntry integerId;
+    public static final SymTabEntry realId;
+    public static final SymTabEntry booleanId;
+    public static final SymTabEntry charId;
+    public static final SymTabEntry falseId;
+    public static final SymTabEntry trueId;
+
+    // Read-only symbol table of all the predefined identifiers.
+    private static final SymTab predefinedSymTab;
 
     /**
-     * Initialize a symbol table stack with predefined identifiers.
-     * @param symTab the symbol table stack to initialize.
+     * Create the predefined types, constants, and standard routines
+     * once per JVM, and then freeze their symbol table.
      */
-    public static void initialize(SymTabStack symTabStack)
-    {
-        initializeTypes(symTabStack);
-        initializeConstants(symTabStack);
-        initializeStandardRoutines(symTabStack);
+    static {
+        predefinedSymTab = SymTabFactory.createSymTab(0);
+
+        integerId = predefinedSymTab.enter("int");
+        integerType = createType(integerId, SCALAR);
+        realId = predefinedSymTab.enter("float");
+        realType = createType(realId, SCALAR);
+        booleanId = predefinedSymTab.enter("boolean");
+        booleanType = createType(booleanId, ENUMERATION);
+        charId = predefinedSymTab.enter("char");
+        charType = createType(charId, SCALAR);
+
+        // Undefined type.
+        undefinedType = TypeFactory.createType(SCALAR);
+
+        // Boolean enumeration constants false and true.
+        falseId = predefinedSymTab.enter("0");
+        initializeBooleanConstant(falseId, 0);
+        trueId = predefinedSymTab.enter("1");
+        initializeBooleanConstant(trueId, 1);
+
+        ArrayList<SymTabEntry> constants = new ArrayList<SymTabEntry>();
+        constants.add(falseId);
+        constants.add(trueId);
+        booleanType.setAttribute(ENUMERATION_CONSTANTS, constants);
+
+        initializeStandardRoutines();
+
+        ((SymTabImpl) predefinedSymTab).freeze();
     }
 
     /**
-     * Initialize the predefined types.
-     * @param symTabStack the symbol table stack to initialize.
+     * Create a predefined type.
+     * @param typeId the type identifier's symbol table entry.
+     * @param form the type form.
+     * @return the type specification.
      */
-    private static void initializeTypes(SymTabStack symTabStack)
+    private static TypeSpec createType(SymTabEntry typeId, TypeForm form)
     {
-        // Type integer.
-        integerId = symTabStack.enterLocal("int");
-        integerType = TypeFactory.createType(SCALAR);
-        integerType.setIdentifier(integerId);
-        integerId.setDefinition(DefinitionImpl.TYPE);
-        integerId.setTypeSpec(integerType);
-
-        // Type real.
-        realId = symTabStack.enterLocal("float");
-        realType = TypeFactory.createType(SCALAR);
-        realType.setIdentifier(realId);
-        realId.setDefinition(DefinitionImpl.TYPE);
-        realId.setTypeSpec(realType);
-
-        // Type boolean.
-        booleanId = symTabStack.enterLocal("boolean");
-        booleanType = TypeFactory.createType(ENUMERATION);
-        booleanType.setIdentifier(booleanId);
-        booleanId.setDefinition(DefinitionImpl.TYPE);
-        booleanId.setTypeSpec(booleanType);
-
-        // Type char.
-        charId = symTabStack.enterLocal("char");
-        charType = TypeFactory.createType(SCALAR);
-        charType.setIdentifier(charId);
-        charId.setDefinition(DefinitionImpl.TYPE);
-        charId.setTypeSpec(charType);
-
+        TypeSpec type = TypeFactory.createType(form);
+        type.setIdentifier(typeId);
+        typeId.setDefinition(DefinitionImpl.TYPE);
+        typeId.setTypeSpec(type);
 
-        // Undefined type.
-        undefinedType = TypeFactory.createType(SCALAR);
+        return type;
     }
 
     /**
-     * Initialize the predefined constant.
-     * @param symTabStack the symbol table stack to initialize.
+     * Initialize a boolean enumeration constant.
+     * @param constantId the constant's symbol table entry.
+     * @param value the constant value.
      */
-    private static void initializeConstants(SymTabStack symTabStack)
+    private static void initializeBooleanConstant(SymTabEntry constantId,
+                                                  int value)
     {
-        // Boolean enumeration constant false.
-        falseId = symTabStack.enterLocal("0");
-        falseId.setDefinition(DefinitionImpl.ENUMERATION_CONSTANT);
-        falseId.setTypeSpec(booleanType);
-        falseId.setAttribute(CONSTANT_VALUE, new Integer(0));
-
-        // Boolean enumeration constant true.
-        trueId = symTabStack.enterLocal("1");
-        trueId.setDefinition(DefinitionImpl.ENUMERATION_CONSTANT);
-        trueId.setTypeSpec(booleanType);
-        trueId.setAttribute(CONSTANT_VALUE, new Integer(1));
-
-        // Add false and true to the boolean enumeration type.
-        ArrayList<SymTabEntry> constants = new ArrayList<SymTabEntry>();
-        constants.add(falseId);
-        constants.add(trueId);
-        booleanType.setAttribute(ENUMERATION_CONSTANTS, constants);
+        constantId.setDefinition(DefinitionImpl.ENUMERATION_CONSTANT);
+        constantId.setTypeSpec(booleanType);
+        constantId.setAttribute(CONSTANT_VALUE, new Integer(value));
     }
 
     /**
      * Initialize the standard procedures and functions.
-     * @param symTabStack the symbol table stack to initialize.
      */
-    private static void initializeStandardRoutines(SymTabStack symTabStack)
+    private static void initializeStandardRoutines()
     {
-        readId    = enterStandard(symTabStack, PROCEDURE, "read",    READ);
-        readlnId  = enterStandard(symTabStack, PROCEDURE, "readln",  READLN);
-        writeId   = enterStandard(symTabStack, PROCEDURE, "write",   WRITE);
-        writelnId = enterStandard(symTabStack, PROCEDURE, "writeln", WRITELN);
-
-        absId    = enterStandard(symTabStack, FUNCTION, "abs",    ABS);
-        arctanId = enterStandard(symTabStack, FUNCTION, "arctan", ARCTAN);
-        chrId    = enterStandard(symTabStack, FUNCTION, "chr",    CHR);
-        cosId    = enterStandard(symTabStack, FUNCTION, "cos",    COS);
-        eofId    = enterStandard(symTabStack, FUNCTION, "eof",    EOF);
-        eolnId   = enterStandard(symTabStack, FUNCTION, "eoln",   EOLN);
-        expId    = enterStandard(symTabStack, FUNCTION, "exp",    EXP);
-        lnId     = enterStandard(symTabStack, FUNCTION, "ln",     LN);
-        oddId    = enterStandard(symTabStack, FUNCTION, "odd",    ODD);
-        ordId    = enterStandard(symTabStack, FUNCTION, "ord",    ORD);
-        predId   = enterStandard(symTabStack, FUNCTION, "pred",   PRED);
-        roundId  = enterStandard(symTabStack, FUNCTION, "round",  ROUND);
-        sinId    = enterStandard(symTabStack, FUNCTION, "sin",    SIN);
-        sqrId    = enterStandard(symTabStack, FUNCTION, "sqr",    SQR);
-        sqrtId   = enterStandard(symTabStack, FUNCTION, "sqrt",   SQRT);
-        succId   = enterStandard(symTabStack, FUNCTION, "succ",   SUCC);
-        truncId  = enterStandard(symTabStack, FUNCTION, "trunc",  TRUNC);
-}
+        enterStandard(PROCEDURE, "read",    READ);
+        enterStandard(PROCEDURE, "readln",  READLN);
+        enterStandard(PROCEDURE, "write",   WRITE);
+        enterStandard(PROCEDURE, "writeln", WRITELN);
+
+        enterStandard(FUNCTION, "abs",    ABS);
+        enterStandard(FUNCTION, "arctan", ARCTAN);
+        enterStandard(FUNCTION, "chr",    CHR);
+        enterStandard(FUNCTION, "cos",    COS);
+        enterStandard(FUNCTION, "eof",    EOF);
+        enterStandard(FUNCTION, "eoln",   EOLN);
+        enterStandard(FUNCTION, "exp",    EXP);
+        enterStandard(FUNCTION, "ln",     LN);
+        enterStandard(FUNCTION, "odd",    ODD);
+        enterStandard(FUNCTION, "ord",    ORD);
+        enterStandard(FUNCTION, "pred",   PRED);
+        enterStandard(FUNCTION, "round",  ROUND);
+        enterStandard(FUNCTION, "sin",    SIN);
+        enterStandard(FUNCTION, "sqr",    SQR);
+        enterStandard(FUNCTION, "sqrt",   SQRT);
+        enterStandard(FUNCTION, "succ",   SUCC);
+        enterStandard(FUNCTION, "trunc",  TRUNC);
+    }
 
     /**
-     * Enter a standard procedure or function into the symbol table stack.
-     * @param symTabStack the symbol table stack to initialize.
+     * Enter a standard procedure or function into the predefined
+     * symbol table.
      * @param defn either PROCEDURE or FUNCTION.
      * @param name the procedure or function name.
+     * @param routineCode the code of the standard routine.
+     * @return the procedure or function identifier.
      */
-    private static SymTabEntry enterStandard(SymTabStack symTabStack,
-                                             Definition defn, String name,
+    private static SymTabEntry enterStandard(Definition defn, String name,
                                              RoutineCode routineCode)
     {
-        SymTabEntry procId = symTabStack.enterLocal(name);
+        SymTabEntry procId = predefinedSymTab.enter(name);
         procId.setDefinition(defn);
         procId.setAttribute(ROUTINE_CODE, routineCode);
 
         return procId;
     }
+
+    /**
+     * Layer a symbol table stack on top of the shared predefined
+     * identifiers.  Nothing is copied.
+     * @param symTabStack the symbol table stack to initialize.
+     */
+    public static void initialize(SymTabStack symTabStack)
+    {
+        symTabStack.setPredefinedSymTab(predefinedSymTab);
+    }
 }
@@ -1,27 +1,55 @@
 package wci.intermediate.symtabimpl;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 
 import wci.intermediate.*;
 
+import static wci.intermediate.symtabimpl.SymTabKeyImpl.*;
+
 /**
  * <h1>SymTabEntryImpl</h1>
  *
- * <p>An implementation of a symbol table entry.</p>
+ * <p>An implementation of a symbol table entry.  The attributes that the
+ * compiler uses are kept in typed fields instead of a map:  the slot
+ * numbers of a variable, the value of a constant, and the attributes of
+ * a routine, which are in a separate object that only a routine's entry
+ * has.  Any other attribute goes into a map that is created only when
+ * it's needed.  The source line numbers are kept in an int array.</p>
  *
  * <p>Copyright (c) 2009 by Ronald Mak</p>
  * <p>For instructional purposes only.  No warranties.</p>
  */
-public class SymTabEntryImpl
-    extends HashMap<SymTabKey, Object>
-    implements SymTabEntry
+public class SymTabEntryImpl implements SymTabEntry
 {
+    private static final int NO_LINE_NUMBERS[] = new int[0];
+
     private String name;                     // entry name
     private SymTab symTab;                   // parent symbol table
     private Definition definition;           // how the identifier is defined
     private TypeSpec typeSpec;               // type specification
-    private ArrayList<Integer> lineNumbers;  // source line numbers
+    private int lineNumbers[];               // source line numbers
+    private int lineCount;                   // count of line numbers
+    private boolean frozen;                  // true if it can't change
+
+    private int slot;                        // SLOT attribute, or NO_SLOT
+    private int wrapSlot;                    // WRAP_SLOT attribute, or NO_SLOT
+    private Object value;                    // CONSTANT_VALUE attribute
+    private RoutineAttributes routine;       // routine attributes, or null
+    private HashMap<SymTabKey, Object> otherAttributes;  // any other keys
+
+    /**
+     * The attributes of a procedure or function.
+     */
+    private static class RoutineAttributes
+    {
+        private Object code;       // ROUTINE_CODE
+        private Object symTab;     // ROUTINE_SYMTAB
+        private Object iCode;      // ROUTINE_ICODE
+        private Object parms;      // ROUTINE_PARMS
+        private Object routines;   // ROUTINE_ROUTINES
+        private Object mainRoutine;  // MAIN_METHOD_ROUTINE
+    }
 
     /**
      * Constructor.
@@ -32,7 +60,10 @@ public class SymTabEntryImpl
     {
         this.name = name;
         this.symTab = symTab;
-        this.lineNumbers = new ArrayList<Integer>();
+        this.lineNumbers = NO_LINE_NUMBERS;
+        this.lineCount = 0;
+        this.slot = NO_SLOT;
+        this.wrapSlot = NO_SLOT;
     }
 
     /**
@@ -59,6 +90,7 @@ public class SymTabEntryImpl
      */
     public void setDefinition(Definition definition)
     {
+        checkNotFrozen();
         this.definition = definition;
     }
 
@@ -77,6 +109,7 @@ public class SymTabEntryImpl
      */
     public void setTypeSpec(TypeSpec typeSpec)
     {
+        checkNotFrozen();
         this.typeSpec = typeSpec;
     }
 
@@ -90,21 +123,84 @@ public class SymTabEntryImpl
     }
 
     /**
-     * Append a source line number to the entry.
+     * Append a source line number to the entry.  A frozen entry is shared
+     * by all compilations, so it doesn't record line numbers.  Branches
+     * of a symbol table stack that are parsed on different threads can
+     * append to the same entry at the same time.
      * @param lineNumber the line number to append.
      */
-    public void appendLineNumber(int lineNumber)
+    public synchronized void appendLineNumber(int lineNumber)
+    {
+        if (frozen) {
+            return;
+        }
+
+        if (lineCount == lineNumbers.length) {
+            int grown[] = new int[lineCount == 0 ? 4 : 2*lineCount];
+            System.arraycopy(lineNumbers, 0, grown, 0, lineCount);
+            lineNumbers = grown;
+        }
+
+        lineNumbers[lineCount++] = lineNumber;
+    }
+
+    /**
+     * Sort the source line numbers.  The parser appends them in source
+     * order, except that the branches of a symbol table stack append
+     * them in whatever order the branches are parsed.
+     */
+    synchronized void sortLineNumbers()
     {
-        lineNumbers.add(lineNumber);
+        Arrays.sort(lineNumbers, 0, lineCount);
     }
 
     /**
      * Getter.
-     * @return the list of source line numbers for the entry.
+     * @return a copy of the array of source line numbers for the entry.
      */
-    public ArrayList<Integer> getLineNumbers()
+    public int[] getLineNumbers()
     {
-        return lineNumbers;
+        int copy[] = new int[lineCount];
+        System.arraycopy(lineNumbers, 0, copy, 0, lineCount);
+        return copy;
+    }
+
+    /**
+     * Setter.
+     * @param slot the local variables array slot number to set.
+     */
+    public void setSlot(int slot)
+    {
+        checkNotFrozen();
+        this.slot = slot;
+    }
+
+    /**
+     * Getter.
+     * @return the local variables array slot number, or NO_SLOT.
+     */
+    public int getSlot()
+    {
+        return slot;
+    }
+
+    /**
+     * Setter.
+     * @param wrapSlot the slot number of the wrapper of a VAR argument.
+     */
+    public void setWrapSlot(int wrapSlot)
+    {
+        checkNotFrozen();
+        this.wrapSlot = wrapSlot;
+    }
+
+    /**
+     * Getter.
+     * @return the slot number of the wrapper of a VAR argument, or NO_SLOT.
+     */
+    public int getWrapSlot()
+    {
+        return wrapSlot;
     }
 
     /**
@@ -114,22 +210,107 @@ public class SymTabEntryImpl
      */
     public void setAttribute(SymTabKey key, Object value)
     {
-        put(key, value);
+        checkNotFrozen();
+
+        if (key == SLOT) {
+            slot = value != null ? (Integer) value : NO_SLOT;
+        }
+        else if (key == WRAP_SLOT) {
+            wrapSlot = value != null ? (Integer) value : NO_SLOT;
+        }
+        else if (key == CONSTANT_VALUE) {
+            this.value = value;
+        }
+        else if (isRoutineKey(key)) {
+            if (routine == null) {
+                routine = new RoutineAttributes();
+            }
+
+            if      (key == ROUTINE_CODE)     routine.code = value;
+            else if (key == ROUTINE_SYMTAB)   routine.symTab = value;
+            else if (key == ROUTINE_ICODE)    routine.iCode = value;
+            else if (key == ROUTINE_PARMS)    routine.parms = value;
+            else if (key == ROUTINE_ROUTINES) routine.routines = value;
+            else                              routine.mainRoutine = value;
+        }
+        else {
+            if (otherAttributes == null) {
+                otherAttributes = new HashMap<SymTabKey, Object>(4);
+            }
+
+            otherAttributes.put(key, value);
+        }
     }
 
     /**
      * Get the value of an attribute of the entry.
      * @param key the attribute key.
-     * @return the attribute value.
+     * @return the attribute value, or null if not set.
      */
     public Object getAttribute(SymTabKey key)
     {
-        return get(key);
+        if (key == SLOT) {
+            return slot != NO_SLOT ? (Object) slot : null;
+        }
+        else if (key == WRAP_SLOT) {
+            return wrapSlot != NO_SLOT ? (Object) wrapSlot : null;
+        }
+        else if (key == CONSTANT_VALUE) {
+            return value;
+        }
+        else if (isRoutineKey(key)) {
+            if (routine == null) {
+                return null;
+            }
+
+            return key == ROUTINE_CODE     ? routine.code
+                 : key == ROUTINE_SYMTAB   ? routine.symTab
+                 : key == ROUTINE_ICODE    ? routine.iCode
+                 : key == ROUTINE_PARMS    ? routine.parms
+                 : key == ROUTINE_ROUTINES ? routine.routines
+                 :                           routine.mainRoutine;
+        }
+        else {
+            return otherAttributes != null ? otherAttributes.get(key) : null;
+        }
     }
+
+    /**
+     * @param key an attribute key.
+     * @return true if it is the key of a routine attribute.
+     */
+    private static boolean isRoutineKey(SymTabKey key)
+    {
+        return (key == ROUTINE_CODE)  || (key == ROUTINE_SYMTAB)
+            || (key == ROUTINE_ICODE) || (key == ROUTINE_PARMS)
+            || (key == ROUTINE_ROUTINES) || (key == MAIN_METHOD_ROUTINE);
+    }
+
+    /**
+     * Make the entry read-only, so that it can be shared by compilations
+     * that run at the same time.
+     */
+    void freeze()
+    {
+        frozen = true;
+    }
+
+    /**
+     * @throws UnsupportedOperationException if the entry is frozen.
+     */
+    private void checkNotFrozen()
+    {
+        if (frozen) {
+            throw new UnsupportedOperationException(
+                "The predefined identifier " + name + " cannot be changed");
+        }
+    }
+
     @Override
   	public String toString() {
   		return "SymTabEntryImpl [name=" + name + ", definition=" + definition
-  				+ ", typeSpec=" + typeSpec + ", lineNumbers=" + lineNumbers
-  				+ ", content()=" + super.toString() + "]";
+  				+ ", typeSpec=" + typeSpec + ", lineNumbers="
+  				+ Arrays.toString(getLineNumbers())
+  				+ ", slot=" + slot + ", value=" + value + "]";
   	}
 }
@@ -1,29 +1,56 @@
 package wci.intermediate.symtabimpl;
 
 import java.util.ArrayList;
-import java.util.Collection;
-import java.util.Iterator;
-import java.util.TreeMap;
+import java.util.Collections;
+import java.util.Comparator;
 
 import wci.intermediate.*;
 
 /**
  * <h1>SymTabImpl</h1>
  *
- * <p>An implementation of the symbol table.</p>
+ * <p>An implementation of the symbol table.  The entries are in an
+ * open-addressed hash table keyed by name, and they are sorted by name
+ * only when sortedEntries() is called.  While the table is on a symbol
+ * table stack, it tells the stack about each new entry so that the
+ * stack can keep its map of the innermost bindings up to date.
+ * The table also remembers the order in which the entries were entered,
+ * so that a branch of the stack can see only the entries that were
+ * there when it was created.</p>
  *
  * <p>Copyright (c) 2009 by Ronald Mak</p>
  * <p>For instructional purposes only.  No warranties.</p>
  */
-public class SymTabImpl extends TreeMap<String, SymTabEntry> implements SymTab {
+public class SymTabImpl implements SymTab {
+    private static final int INITIAL_CAPACITY = 16; // must be a power of 2
+
     private int nestingLevel; // scope nesting level of this entry
     private int slotNumber; // local variables array slot number
     private int maxSlotNumber; // max slot number value
 
+    private String names[]; // hash table of entry names
+    private SymTabEntry entries[]; // entries, in the same slots as the names
+    private int sequences[]; // entry order, in the same slots as the names
+    private int size; // count of entries
+
+    private SymTabEntry order[]; // every entry entered, in order
+    private int entered; // count of entries entered, including replaced ones
+    private boolean replacing; // true if an entry was ever replaced
+
+    private SymTabStackImpl stack; // stack that this table is on, or null
+    private int stackLevel; // nesting level on that stack
+    private boolean frozen; // true if the table and its entries can't change
+
     public SymTabImpl(int nestingLevel) {
         this.nestingLevel = nestingLevel;
         this.slotNumber = -1;
         this.maxSlotNumber = -1;
+        this.names = new String[INITIAL_CAPACITY];
+        this.entries = new SymTabEntry[INITIAL_CAPACITY];
+        this.sequences = new int[INITIAL_CAPACITY];
+        this.size = 0;
+        this.order = new SymTabEntry[INITIAL_CAPACITY];
+        this.entered = 0;
     }
 
     /**
@@ -35,13 +62,44 @@ public class SymTabImpl extends TreeMap<String, SymTabEntry> implements SymTab {
     }
 
     /**
-     * Create and enter a new entry into the symbol table.
+     * Create and enter a new entry into the symbol table.  The new entry
+     * replaces any entry with the same name.
      * @param name the name of the entry.
      * @return the new entry.
      */
     public SymTabEntry enter(String name) {
+        if (frozen) {
+            throw new UnsupportedOperationException(
+                "Cannot enter " + name + " into a read-only symbol table");
+        }
+
         SymTabEntry entry = SymTabFactory.createSymTabEntry(name, this);
-        put(name, entry);
+        int index = indexOf(name);
+
+        if (names[index] == null) {
+            names[index] = name;
+            ++size;
+        }
+        else {
+            replacing = true;
+        }
+        entries[index] = entry;
+        sequences[index] = entered;
+
+        if (entered == order.length) {
+            SymTabEntry grown[] = new SymTabEntry[2*order.length];
+            System.arraycopy(order, 0, grown, 0, entered);
+            order = grown;
+        }
+        order[entered++] = entry;
+
+        if (stack != null) {
+            stack.bind(entry, stackLevel);
+        }
+
+        if (size > names.length/2) {
+            grow();
+        }
 
         return entry;
     }
@@ -52,25 +110,139 @@ public class SymTabImpl extends TreeMap<String, SymTabEntry> implements SymTab {
      * @return the entry, or null if it does not exist.
      */
     public SymTabEntry lookup(String name) {
-        return get(name);
+        return entries[indexOf(name)];
+    }
+
+    /**
+     * Look up an entry among the first entries that were entered.
+     * @param name the name of the entry.
+     * @param limit the count of the first entries to search.
+     * @return the last of those entries with the name, or null if none.
+     */
+    SymTabEntry lookup(String name, int limit) {
+        int index = indexOf(name);
+        SymTabEntry entry = entries[index];
+
+        if ((entry == null) || (sequences[index] < limit)) {
+            return entry;
+        }
+
+        // The entry was entered later.  Find the one it replaced, if any.
+        if (replacing) {
+            for (int i = limit - 1; i >= 0; --i) {
+                if (order[i].getName().equals(name)) {
+                    return order[i];
+                }
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Getter.
+     * @return the count of entries entered, including replaced ones.
+     */
+    int enteredCount() {
+        return entered;
     }
 
     /**
      * @return a list of symbol table entries sorted by name.
      */
     public ArrayList<SymTabEntry> sortedEntries() {
-        Collection<SymTabEntry> entries = values();
-        Iterator<SymTabEntry> iter = entries.iterator();
-        ArrayList<SymTabEntry> list = new ArrayList<SymTabEntry>(size());
+        ArrayList<SymTabEntry> list = entries(); // entries in hash order
 
-        // Iterate over the sorted entries and append them to the list.
-        while (iter.hasNext()) {
-            list.add(iter.next());
-        }
+        Collections.sort(list, new Comparator<SymTabEntry>() {
+            public int compare(SymTabEntry entry1, SymTabEntry entry2) {
+                return entry1.getName().compareTo(entry2.getName());
+            }
+        });
 
         return list; // sorted list of entries
     }
 
+    /**
+     * @return a list of the symbol table entries in no particular order.
+     */
+    ArrayList<SymTabEntry> entries() {
+        ArrayList<SymTabEntry> list = new ArrayList<SymTabEntry>(size);
+
+        for (SymTabEntry entry : entries) {
+            if (entry != null) {
+                list.add(entry);
+            }
+        }
+
+        return list;
+    }
+
+    /**
+     * Make the table and its entries read-only, so that they can be
+     * shared by compilations that run at the same time.
+     */
+    public void freeze() {
+        frozen = true;
+
+        for (SymTabEntry entry : entries) {
+            if (entry != null) {
+                ((SymTabEntryImpl) entry).freeze();
+            }
+        }
+    }
+
+    /**
+     * Record that this table was pushed onto a symbol table stack,
+     * or popped off it.
+     * @param stack the stack, or null when popped.
+     * @param stackLevel the nesting level on the stack.
+     */
+    void setStack(SymTabStackImpl stack, int stackLevel) {
+        this.stack = stack;
+        this.stackLevel = stackLevel;
+    }
+
+    /**
+     * Find the slot of a name:  Either the slot that has the name,
+     * or the empty slot where it would go.
+     * @param name the name.
+     * @return the slot index.
+     */
+    private int indexOf(String name) {
+        int mask = names.length - 1;
+        int index = name.hashCode() & mask;
+        String slotName;
+
+        while (((slotName = names[index]) != null) && !slotName.equals(name)) {
+            index = (index + 1) & mask;
+        }
+
+        return index;
+    }
+
+    /**
+     * Double the size of the hash table.
+     */
+    private void grow() {
+        String oldNames[] = names;
+        SymTabEntry oldEntries[] = entries;
+
+        int oldSequences[] = sequences;
+
+        names = new String[2*oldNames.length];
+        entries = new SymTabEntry[2*oldEntries.length];
+        sequences = new int[2*oldSequences.length];
+
+        for (int i = 0; i < oldNames.length; ++i) {
+            if (oldNames[i] != null) {
+                int index = indexOf(oldNames[i]);
+                names[index] = oldNames[i];
+                entries[index] = oldEntries[i];
+                sequences[index] = oldSequences[i];
+            }
+        }
+    }
+
     /**
     * @return the next local variables array slot number.
     */
@@ -86,8 +258,26 @@ public class SymTabImpl extends TreeMap<String, SymTabEntry> implements SymTab {
         return maxSlotNumber;
     }
 
+    /**
+     * Getter.
+     * @return the last local variables array slot number.
+     */
+    int slotNumber() {
+        return slotNumber;
+    }
+
     @Override
     public void childUsed(int slots) {
+        childUsed(slotNumber, slots);
+    }
+
+    /**
+     * Account for the slots used by a child table that was popped when
+     * this table's slot number was an earlier one.
+     * @param slotNumber the slot number at that time.
+     * @param slots the maximum slot number of the child table.
+     */
+    void childUsed(int slotNumber, int slots) {
         maxSlotNumber = Math.max(slotNumber + slots, maxSlotNumber);
     }
 }
@@ -20,6 +20,9 @@ public enum SymTabKeyImpl implements SymTabKey {
     // Procedure or function.
     ROUTINE_CODE, ROUTINE_SYMTAB, ROUTINE_ICODE, ROUTINE_PARMS, ROUTINE_ROUTINES,
 
+    // Flow graph of an optimized procedure, function, or main program.
+    ROUTINE_FLOW_GRAPH,
+
     // Variable or record field value.
     DATA_VALUE,
 
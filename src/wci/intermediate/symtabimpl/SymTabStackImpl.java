@@ -1,13 +1,24 @@
 package wci.intermediate.symtabimpl;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 
 import wci.intermediate.*;
 
 /**
  * <h1>SymTabStack</h1>
  *
- * <p>An implementation of the symbol table stack.</p>
+ * <p>An implementation of the symbol table stack.  Besides the stack of
+ * symbol tables, it keeps a map from each name to its innermost binding,
+ * which is updated when a symbol table is pushed or popped or gains an
+ * entry.  So a lookup through the whole stack is a single hash lookup
+ * instead of a search of every enclosing scope.</p>
+ *
+ * <p>A branch of a stack shares the stack's tables at and below a nesting
+ * level, as they were when the branch was created, so that a nested
+ * scope can be parsed on another thread.  The shared tables are not on
+ * the branch's map of bindings:  The branch looks them up directly with
+ * a limit on their entries, and it doesn't change them.</p>
  *
  * <p>Copyright (c) 2009 by Ronald Mak</p>
  * <p>For instructional purposes only.  No warranties.</p>
@@ -18,6 +29,19 @@ public class SymTabStackImpl
 {
     private int currentNestingLevel;  // current scope nesting level
     private SymTabEntry programId;    // entry for the main program id
+    private SymTab predefinedSymTab;  // shared predefined identifiers
+
+    // Innermost binding of each name.
+    private HashMap<String, Binding> bindings;
+
+    // A branch:  The tables at and below the shared level are the parent
+    // stack's, with only the entries that they had when it was created.
+    private int sharedLevel;          // innermost shared level, or -1
+    private int sharedCounts[];       // count of visible entries by level
+    private int sharedSlotNumber;     // innermost shared table's slot number
+    private int childSlots;           // slots used by the tables popped to it
+
+    private ArrayList<SymTabStackImpl> branches;  // branches, or null
 
     /**
      * Constructor.
@@ -25,7 +49,36 @@ public class SymTabStackImpl
     public SymTabStackImpl()
     {
         this.currentNestingLevel = 0;
-        add(SymTabFactory.createSymTab(currentNestingLevel));
+        this.bindings = new HashMap<String, Binding>();
+        this.sharedLevel = -1;
+
+        SymTab symTab = SymTabFactory.createSymTab(currentNestingLevel);
+        add(symTab);
+        attach(symTab);
+    }
+
+    /**
+     * Constructor for a branch.
+     * @param parent the parent stack.
+     * @param level the nesting level of the innermost shared table.
+     */
+    private SymTabStackImpl(SymTabStackImpl parent, int level)
+    {
+        this.currentNestingLevel = level;
+        this.programId = parent.programId;
+        this.predefinedSymTab = parent.predefinedSymTab;
+        this.bindings = new HashMap<String, Binding>();
+
+        this.sharedLevel = level;
+        this.sharedCounts = new int[level + 1];
+        this.sharedSlotNumber = ((SymTabImpl) parent.get(level)).slotNumber();
+        this.childSlots = -1;
+
+        for (int i = 0; i <= level; ++i) {
+            SymTabImpl symTab = (SymTabImpl) parent.get(i);
+            add(symTab);
+            sharedCounts[i] = symTab.enteredCount();
+        }
     }
 
     /**
@@ -46,6 +99,15 @@ public class SymTabStackImpl
         return programId;
     }
 
+    /**
+     * Setter.
+     * @param symTab the read-only symbol table of predefined identifiers.
+     */
+    public void setPredefinedSymTab(SymTab symTab)
+    {
+        this.predefinedSymTab = symTab;
+    }
+
     /**
      * Getter.
      * @return the current nesting level.
@@ -72,6 +134,7 @@ public class SymTabStackImpl
     {
         SymTab symTab = SymTabFactory.createSymTab(++currentNestingLevel);
         add(symTab);
+        attach(symTab);
 
         return symTab;
     }
@@ -84,6 +147,7 @@ public class SymTabStackImpl
     {
         ++currentNestingLevel;
         add(symTab);
+        attach(symTab);
 
         return symTab;
     }
@@ -94,9 +158,23 @@ public class SymTabStackImpl
      */
     public SymTab pop()
     {
+        if (currentNestingLevel <= sharedLevel) {
+            throw new IllegalStateException(
+                "Cannot pop a shared symbol table off a branch");
+        }
+
         SymTab symTab = get(currentNestingLevel);
+        detach(symTab);
         remove(currentNestingLevel--);
-        getLocalSymTab().childUsed(symTab.maxSlotNumber());
+
+        // A shared table is accounted for when the branch is joined.
+        if (currentNestingLevel == sharedLevel) {
+            childSlots = Math.max(childSlots, symTab.maxSlotNumber());
+        }
+        else {
+            getLocalSymTab().childUsed(symTab.maxSlotNumber());
+        }
+
         return symTab;
     }
 
@@ -107,6 +185,11 @@ public class SymTabStackImpl
      */
     public SymTabEntry enterLocal(String name)
     {
+        if (currentNestingLevel <= sharedLevel) {
+            throw new UnsupportedOperationException(
+                "Cannot enter " + name + " into a shared symbol table");
+        }
+
         return get(currentNestingLevel).enter(name);
     }
 
@@ -117,7 +200,15 @@ public class SymTabStackImpl
      */
     public SymTabEntry lookupLocal(String name)
     {
-        return get(currentNestingLevel).lookup(name);
+        SymTabEntry entry = currentNestingLevel <= sharedLevel
+                                ? lookupShared(name, currentNestingLevel)
+                                : get(currentNestingLevel).lookup(name);
+
+        if ((entry == null) && (currentNestingLevel == 0)) {
+            entry = lookupPredefined(name);
+        }
+
+        return entry;
     }
 
     /**
@@ -127,14 +218,208 @@ public class SymTabStackImpl
      */
     public SymTabEntry lookup(String name)
     {
-        SymTabEntry foundEntry = null;
+        Binding binding = bindings.get(name);
+        if (binding != null) {
+            return binding.entry;
+        }
 
-        // Search the current and enclosing scopes.
-        for (int i = currentNestingLevel; (i >= 0) && (foundEntry == null); --i)
-        {
-            foundEntry = get(i).lookup(name);
+        for (int level = sharedLevel; level >= 0; --level) {
+            SymTabEntry entry = lookupShared(name, level);
+            if (entry != null) {
+                return entry;
+            }
+        }
+
+        return lookupPredefined(name);
+    }
+
+    /**
+     * Look up an entry that a branch can see in a shared symbol table.
+     * @param name the name of the entry.
+     * @param level the nesting level of the shared table.
+     * @return the entry, or null if the branch can't see one.
+     */
+    private SymTabEntry lookupShared(String name, int level)
+    {
+        return ((SymTabImpl) get(level)).lookup(name, sharedCounts[level]);
+    }
+
+    /**
+     * Create a branch of the stack for parsing a nested scope on another
+     * thread.
+     * @param level the nesting level of the innermost shared table.
+     * @return the branch, at that nesting level.
+     */
+    public SymTabStack branch(int level)
+    {
+        if (branches == null) {
+            branches = new ArrayList<SymTabStackImpl>();
+        }
+
+        SymTabStackImpl branch = new SymTabStackImpl(this, level);
+        branches.add(branch);
+
+        return branch;
+    }
+
+    /**
+     * Finish the branches of the stack after they are parsed.
+     */
+    public void joinBranches()
+    {
+        if (branches == null) {
+            return;
         }
 
-        return foundEntry;
+        ArrayList<SymTabImpl> sharedTables = new ArrayList<SymTabImpl>();
+
+        for (SymTabStackImpl branch : branches) {
+            SymTabImpl symTab = (SymTabImpl) branch.get(branch.sharedLevel);
+            symTab.childUsed(branch.sharedSlotNumber, branch.childSlots);
+
+            for (int level = 0; level <= branch.sharedLevel; ++level) {
+                SymTabImpl shared = (SymTabImpl) branch.get(level);
+                if (!sharedTables.contains(shared)) {
+                    sharedTables.add(shared);
+                }
+            }
+        }
+
+        for (SymTabImpl symTab : sharedTables) {
+            for (SymTabEntry entry : symTab.entries()) {
+                ((SymTabEntryImpl) entry).sortLineNumbers();
+            }
+        }
+
+        branches = null;
+    }
+
+    /**
+     * Look up a predefined identifier.
+     * @param name the name of the identifier.
+     * @return the entry, or null if it isn't predefined.
+     */
+    private SymTabEntry lookupPredefined(String name)
+    {
+        return predefinedSymTab != null ? predefinedSymTab.lookup(name)
+                                        : null;
+    }
+
+    /**
+     * Bind the entries of a symbol table that was just pushed.
+     * @param symTab the symbol table at the current nesting level.
+     */
+    private void attach(SymTab symTab)
+    {
+        SymTabImpl symTabImpl = (SymTabImpl) symTab;
+        symTabImpl.setStack(this, currentNestingLevel);
+
+        for (SymTabEntry entry : symTabImpl.entries()) {
+            bind(entry, currentNestingLevel);
+        }
+    }
+
+    /**
+     * Unbind the entries of a symbol table that is about to be popped.
+     * @param symTab the symbol table at the current nesting level.
+     */
+    private void detach(SymTab symTab)
+    {
+        SymTabImpl symTabImpl = (SymTabImpl) symTab;
+        symTabImpl.setStack(null, 0);
+
+        for (SymTabEntry entry : symTabImpl.entries()) {
+            unbind(entry.getName(), currentNestingLevel);
+        }
+    }
+
+    /**
+     * Bind a name to an entry of the symbol table at a nesting level.
+     * It shadows the bindings at lower levels and is shadowed by the
+     * bindings at higher levels.  It replaces a binding at the same level.
+     * Called by a symbol table on the stack when it enters an entry.
+     * @param entry the entry.
+     * @param level the nesting level.
+     */
+    void bind(SymTabEntry entry, int level)
+    {
+        String name = entry.getName();
+        Binding innermost = bindings.get(name);
+
+        // The usual case:  The new binding is the innermost.
+        if ((innermost == null) || (innermost.level < level)) {
+            bindings.put(name, new Binding(entry, level, innermost));
+            return;
+        }
+
+        // Find the place of the binding among the shadowed bindings.
+        Binding previous = null;
+        Binding binding = innermost;
+
+        while ((binding != null) && (binding.level > level)) {
+            previous = binding;
+            binding = binding.shadowed;
+        }
+
+        if ((binding != null) && (binding.level == level)) {
+            binding.entry = entry;
+        }
+        else {
+            previous.shadowed = new Binding(entry, level, binding);
+        }
+    }
+
+    /**
+     * Remove the binding of a name at a nesting level.
+     * @param name the name.
+     * @param level the nesting level.
+     */
+    private void unbind(String name, int level)
+    {
+        Binding previous = null;
+        Binding binding = bindings.get(name);
+
+        while ((binding != null) && (binding.level > level)) {
+            previous = binding;
+            binding = binding.shadowed;
+        }
+
+        if ((binding == null) || (binding.level != level)) {
+            return;
+        }
+
+        if (previous != null) {
+            previous.shadowed = binding.shadowed;
+        }
+        else if (binding.shadowed != null) {
+            bindings.put(name, binding.shadowed);
+        }
+        else {
+            bindings.remove(name);
+        }
+    }
+
+    /**
+     * The binding of a name to an entry at a nesting level, with a link
+     * to the binding at the next lower level that it shadows.
+     */
+    private static class Binding
+    {
+        private SymTabEntry entry;  // bound entry
+        private int level;          // nesting level of the binding
+        private Binding shadowed;   // shadowed binding, or null
+
+        /**
+         * Constructor.
+         * @param entry the bound entry.
+         * @param level the nesting level.
+         * @param shadowed the shadowed binding, or null.
+         */
+        private Binding(SymTabEntry entry, int level, Binding shadowed)
+        {
+            this.entry = entry;
+            this.level = level;
+            this.shadowed = shadowed;
+        }
     }
 }
@@ -1,6 +1,7 @@
 package wci.intermediate.typeimpl;
 
 import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import wci.intermediate.*;
 import wci.intermediate.symtabimpl.Predefined;
@@ -12,17 +13,40 @@ import static wci.intermediate.typeimpl.TypeKeyImpl.*;
 /**
  * <h1>TypeSpecImpl</h1>
  *
- * <p>A SubC type specification implementation.</p>
+ * <p>A SubC type specification implementation.  The attributes are kept
+ * in typed fields, and the base type and whether the type is a SubC
+ * string are computed when the attributes are set, not each time they
+ * are asked for.</p>
+ *
+ * <p>String types are canonical:  All the string types of the same
+ * length are one type specification, which is created once per JVM,
+ * can't be changed, and is shared by all compilations.</p>
  *
  * <p>Copyright (c) 2009 by Ronald Mak</p>
  * <p>For instructional purposes only.  No warranties.</p>
  */
-public class TypeSpecImpl
-    extends HashMap<TypeKey, Object>
-    implements TypeSpec
+public class TypeSpecImpl implements TypeSpec
 {
+    // Canonical string types, by length.
+    private static final ConcurrentHashMap<Integer, TypeSpec> stringTypes =
+        new ConcurrentHashMap<Integer, TypeSpec>();
+
     private TypeForm form;           // type form
     private SymTabEntry identifier;  // type identifier
+    private boolean frozen;          // true if it can't change
+
+    private TypeSpec baseType;       // this, or a subrange's base type
+    private boolean subCString;      // true if a SubC string type
+    private String descriptor;       // cached type descriptor, or null
+
+    private Object minValue;         // SUBRANGE_MIN_VALUE
+    private Object maxValue;         // SUBRANGE_MAX_VALUE
+    private TypeSpec indexType;      // ARRAY_INDEX_TYPE
+    private TypeSpec elementType;    // ARRAY_ELEMENT_TYPE
+    private Object elementCount;     // ARRAY_ELEMENT_COUNT
+    private Object constants;        // ENUMERATION_CONSTANTS
+    private Object recordSymTab;     // RECORD_SYMTAB
+    private HashMap<TypeKey, Object> otherAttributes;  // any other keys
 
     /**
      * Constructor.
@@ -32,6 +56,7 @@ public class TypeSpecImpl
     {
         this.form = form;
         this.identifier = null;
+        this.baseType = this;
     }
 
     /**
@@ -40,7 +65,7 @@ public class TypeSpecImpl
      */
     public TypeSpecImpl(String value)
     {
-        this.form = ARRAY;
+        this(ARRAY);
 
         TypeSpec indexType = new TypeSpecImpl(SUBRANGE);
         indexType.setAttribute(SUBRANGE_BASE_TYPE, Predefined.integerType);
@@ -52,6 +77,30 @@ public class TypeSpecImpl
         setAttribute(ARRAY_ELEMENT_COUNT, value.length());
     }
 
+    /**
+     * Return the canonical string type for a string value.
+     * @param value the string value.
+     * @return the string type of the value's length.
+     */
+    public static TypeSpec stringType(String value)
+    {
+        int length = value.length();
+        TypeSpec type = stringTypes.get(length);
+
+        if (type == null) {
+            TypeSpecImpl newType = new TypeSpecImpl(value);
+            ((TypeSpecImpl) newType.indexType).frozen = true;
+            newType.frozen = true;
+
+            type = stringTypes.putIfAbsent(length, newType);
+            if (type == null) {
+                type = newType;
+            }
+        }
+
+        return type;
+    }
+
     /**
      * Getter
      * @return the type form.
@@ -67,6 +116,7 @@ public class TypeSpecImpl
      */
     public void setIdentifier(SymTabEntry identifier)
     {
+        checkNotFrozen();
         this.identifier = identifier;
     }
 
@@ -86,7 +136,46 @@ public class TypeSpecImpl
      */
     public void setAttribute(TypeKey key, Object value)
     {
-        this.put(key, value);
+        checkNotFrozen();
+
+        if (key == SUBRANGE_BASE_TYPE) {
+            baseType = (form == SUBRANGE) && (value != null) ? (TypeSpec) value
+                                                             : this;
+        }
+        else if (key == SUBRANGE_MIN_VALUE) {
+            minValue = value;
+        }
+        else if (key == SUBRANGE_MAX_VALUE) {
+            maxValue = value;
+        }
+        else if (key == ARRAY_INDEX_TYPE) {
+            indexType = (TypeSpec) value;
+        }
+        else if (key == ARRAY_ELEMENT_TYPE) {
+            elementType = (TypeSpec) value;
+        }
+        else if (key == ARRAY_ELEMENT_COUNT) {
+            elementCount = value;
+        }
+        else if (key == ENUMERATION_CONSTANTS) {
+            constants = value;
+        }
+        else if (key == RECORD_SYMTAB) {
+            recordSymTab = value;
+        }
+        else {
+            if (otherAttributes == null) {
+                otherAttributes = new HashMap<TypeKey, Object>(4);
+            }
+
+            otherAttributes.put(key, value);
+        }
+
+        subCString =    (form == ARRAY)
+                     && (elementType != null) && (indexType != null)
+                     && (elementType.baseType() == Predefined.charType)
+                     && (indexType.baseType() == Predefined.integerType);
+        descriptor = null;
     }
 
     /**
@@ -96,7 +185,33 @@ public class TypeSpecImpl
      */
     public Object getAttribute(TypeKey key)
     {
-        return this.get(key);
+        if (key == SUBRANGE_BASE_TYPE) {
+            return baseType != this ? baseType : null;
+        }
+        else if (key == SUBRANGE_MIN_VALUE) {
+            return minValue;
+        }
+        else if (key == SUBRANGE_MAX_VALUE) {
+            return maxValue;
+        }
+        else if (key == ARRAY_INDEX_TYPE) {
+            return indexType;
+        }
+        else if (key == ARRAY_ELEMENT_TYPE) {
+            return elementType;
+        }
+        else if (key == ARRAY_ELEMENT_COUNT) {
+            return elementCount;
+        }
+        else if (key == ENUMERATION_CONSTANTS) {
+            return constants;
+        }
+        else if (key == RECORD_SYMTAB) {
+            return recordSymTab;
+        }
+        else {
+            return otherAttributes != null ? otherAttributes.get(key) : null;
+        }
     }
 
     /**
@@ -104,16 +219,7 @@ public class TypeSpecImpl
      */
     public boolean isSubCString()
     {
-        if (form == ARRAY) {
-            TypeSpec elmtType  = (TypeSpec) getAttribute(ARRAY_ELEMENT_TYPE);
-            TypeSpec indexType = (TypeSpec) getAttribute(ARRAY_INDEX_TYPE);
-
-            return (elmtType.baseType()  == Predefined.charType) &&
-                   (indexType.baseType() == Predefined.integerType);
-        }
-        else {
-            return false;
-        }
+        return subCString;
     }
 
     /**
@@ -121,9 +227,39 @@ public class TypeSpecImpl
      */
     public TypeSpec baseType()
     {
-        return form == SUBRANGE ? (TypeSpec) getAttribute(SUBRANGE_BASE_TYPE)
-                                : this;
+        return baseType;
     }
+
+    /**
+     * Setter.  A descriptor is only a cached value computed from the
+     * type, so it can be set even if the type can't be changed.
+     * @param descriptor the type descriptor to cache.
+     */
+    public void setDescriptor(String descriptor)
+    {
+        this.descriptor = descriptor;
+    }
+
+    /**
+     * Getter.
+     * @return the cached type descriptor, or null if none.
+     */
+    public String getDescriptor()
+    {
+        return descriptor;
+    }
+
+    /**
+     * @throws UnsupportedOperationException if the type is frozen.
+     */
+    private void checkNotFrozen()
+    {
+        if (frozen) {
+            throw new UnsupportedOperationException(
+                "A shared string type cannot be changed");
+        }
+    }
+
 	@Override
 	public String toString() {
 		return "TypeSpecImpl [form=" + form + ", identifier=" + identifier.getName() + "]";
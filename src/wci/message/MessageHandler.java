@@ -42,6 +42,15 @@ public class MessageHandler
         listeners.remove(listener);
     }
 
+    /**
+     * @return true if there is at least one listener, so that a producer
+     *         can skip building a message that no one would receive.
+     */
+    public boolean hasListeners()
+    {
+        return !listeners.isEmpty();
+    }
+
     /**
      * Notify listeners after setting the message.
      * @param message the message to set.
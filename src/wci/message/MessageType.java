@@ -12,6 +12,7 @@ public enum MessageType
 {
     SOURCE_LINE, SYNTAX_ERROR,
     PARSER_SUMMARY, INTERPRETER_SUMMARY, COMPILER_SUMMARY,
+    OPTIMIZER_PASS,
     MISCELLANEOUS, TOKEN,
     ASSIGN, FETCH, BREAKPOINT, RUNTIME_ERROR,
     CALL, RETURN,
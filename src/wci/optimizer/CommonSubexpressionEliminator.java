@@ -0,0 +1,514 @@
+package wci.optimizer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+
+import wci.intermediate.*;
+import wci.intermediate.flowgraph.*;
+import wci.intermediate.icodeimpl.ICodeNodeTypeImpl;
+import wci.intermediate.symtabimpl.*;
+
+import static wci.intermediate.symtabimpl.SymTabKeyImpl.*;
+import static wci.intermediate.symtabimpl.RoutineCodeImpl.*;
+import static wci.intermediate.icodeimpl.ICodeNodeTypeImpl.*;
+import static wci.intermediate.icodeimpl.ICodeKeyImpl.*;
+
+/**
+ * <h1>CommonSubexpressionEliminator</h1>
+ *
+ * <p>An optimization pass that computes each expression only once in a
+ * basic block.  It works on the flow graph, so it does nothing unless the
+ * ssa pass ran before it.</p>
+ *
+ * <p>The pass numbers the values of a block in the order the generated
+ * code computes them.  Expressions with the same operator and the same
+ * operand numbers have the same number, so they compute the same value.
+ * Storing into a variable gives it a new number, and so does calling a
+ * declared routine to each program variable.  An SSA variable never
+ * changes: each of its values has its own number.</p>
+ *
+ * <p>The first of two or more expressions with the same number is
+ * assigned to a new temporary variable right before its statement, and
+ * all of them are replaced by the temporary.  The first one must not
+ * come after a call in its statement, because the call could change
+ * its operands.  An expression that can throw at run time is never
+ * moved, just as in the licm pass.</p>
+ *
+ * <p>Copyright (c) 2009 by Ronald Mak</p>
+ * <p>For instructional purposes only.  No warranties.</p>
+ */
+public class CommonSubexpressionEliminator extends OptimizationPass
+{
+    public static final String NAME = "cse";
+
+    private FlowGraph graph;  // flow graph of the routine
+
+    // The value numbers of the variables and the data types, and of the
+    // expressions, by their operator and their operand numbers.
+    private HashMap<Object, Integer> numbers;
+    private HashMap<String, Integer> expressionNumbers;
+    private int nextNumber;
+
+    // The expressions of the block that have a variable, in the order
+    // that they're computed, and the value number of each.
+    private ArrayList<ICodeNode> occurrences;
+    private ArrayList<Integer> occurrenceNumbers;
+    private ArrayList<Integer> occurrenceStatements;
+    private HashMap<Integer, Integer> counts;  // occurrences by number
+
+    private int statementIndex;  // index of the statement being numbered
+    private boolean canMove;     // true if a new expression can be moved
+                                 // to before the statement
+
+    /**
+     * Constructor.
+     */
+    public CommonSubexpressionEliminator()
+    {
+        super(NAME, 2);
+    }
+
+    /**
+     * Eliminate the common subexpressions of a routine.
+     * @param routineId the symbol table entry of the routine's name.
+     * @param iCode the routine's intermediate code.
+     */
+    public void process(SymTabEntry routineId, ICode iCode)
+    {
+        graph = (FlowGraph) routineId.getAttribute(ROUTINE_FLOW_GRAPH);
+        if (graph == null) {
+            return;
+        }
+
+        for (BasicBlock block : graph.getBlocks()) {
+            numberBlock(block);
+            eliminate(block);
+        }
+
+        new FlowGraphVerifier(graph).verify();
+
+        graph = null;
+        numbers = null;
+        expressionNumbers = null;
+        occurrences = null;
+        occurrenceNumbers = null;
+        occurrenceStatements = null;
+        counts = null;
+    }
+
+    // =========
+    // Numbering
+    // =========
+
+    /**
+     * Number the values of a block.
+     * @param block the block.
+     */
+    private void numberBlock(BasicBlock block)
+    {
+        ArrayList<ICodeNode> statements = block.getStatements();
+
+        numbers = new HashMap<Object, Integer>();
+        expressionNumbers = new HashMap<String, Integer>();
+        nextNumber = 0;
+        occurrences = new ArrayList<ICodeNode>();
+        occurrenceNumbers = new ArrayList<Integer>();
+        occurrenceStatements = new ArrayList<Integer>();
+        counts = new HashMap<Integer, Integer>();
+
+        for (statementIndex = 0; statementIndex < statements.size();
+             ++statementIndex)
+        {
+            ICodeNode statement = statements.get(statementIndex);
+            canMove = getLineNumber(statement) != null;
+
+            numberStatement(statement);
+        }
+
+        // The condition comes after the last statement.
+        ICodeNode conditionNode = block.getCondition();
+        if (conditionNode != null) {
+            statementIndex = statements.size();
+            canMove = getLineNumber(conditionNode) != null;
+            number(conditionNode);
+        }
+    }
+
+    /**
+     * Number the values of a statement.
+     * @param statement the statement node.
+     */
+    private void numberStatement(ICodeNode statement)
+    {
+        ICodeNodeType nodeType = statement.getType();
+
+        if (nodeType == ASSIGN) {
+            ICodeNode targetNode = statement.getChildren().get(0);
+
+            for (ICodeNode modifier : targetNode.getChildren()) {
+                number(modifier);
+            }
+            number(statement.getChildren().get(1));
+
+            // The target has a new value.
+            if (graph.getValue(targetNode) == null) {
+                numbers.remove(variableKey(
+                    (SymTabEntry) targetNode.getAttribute(ID)));
+            }
+        }
+        else if (nodeType == CALL) {
+            numberCall(statement);
+        }
+    }
+
+    /**
+     * Number the values of a call, and give new numbers to the variables
+     * that it can change.
+     * @param callNode the CALL node.
+     */
+    private void numberCall(ICodeNode callNode)
+    {
+        SymTabEntry routineId = (SymTabEntry) callNode.getAttribute(ID);
+        RoutineCode routineCode =
+            (RoutineCode) routineId.getAttribute(ROUTINE_CODE);
+        ArrayList<ICodeNode> children = callNode.getChildren();
+        boolean changes = false;
+
+        ArrayList<ICodeNode> actualNodes = children.isEmpty()
+                                               ? new ArrayList<ICodeNode>()
+                                               : children.get(0).getChildren();
+
+        // A variable can be passed by reference, so it isn't numbered.
+        for (ICodeNode actualNode : actualNodes) {
+            if (actualNode.getType() != VARIABLE) {
+                number(actualNode);
+            }
+            else {
+                for (ICodeNode modifier : actualNode.getChildren()) {
+                    number(modifier);
+                }
+            }
+        }
+
+        for (SymTabEntry variableId : changedParameters(callNode)) {
+            numbers.remove(variableKey(variableId));
+            changes = true;
+        }
+
+        // A declared routine can change any program variable.
+        if ((routineCode == DECLARED) || (routineCode == FORWARD)) {
+            Iterator<Object> keys = numbers.keySet().iterator();
+
+            while (keys.hasNext()) {
+                Object key = keys.next();
+
+                if (   (key instanceof SymTabEntry)
+                    && (((SymTabEntry) key).getSymTab().getNestingLevel()
+                            == 1))
+                {
+                    keys.remove();
+                }
+            }
+
+            changes = true;
+        }
+
+        if (changes) {
+            canMove = false;
+        }
+    }
+
+    /**
+     * Number the value of an expression and of its operands.
+     * @param node the root node of the expression.
+     * @return the value number, or null if the value isn't numbered.
+     */
+    private Integer number(ICodeNode node)
+    {
+        ArrayList<ICodeNode> children = node.getChildren();
+
+        switch ((ICodeNodeTypeImpl) node.getType()) {
+
+            case INTEGER_CONSTANT:
+            case REAL_CONSTANT:
+            case BOOLEAN_CONSTANT:
+            case STRING_CONSTANT: {
+                return expressionNumber(node.getType() + " "
+                                        + node.getAttribute(VALUE));
+            }
+
+            case VARIABLE: {
+                if (children.isEmpty()) {
+                    return variableNumber(node);
+                }
+
+                for (ICodeNode modifier : children) {
+                    number(modifier);
+                }
+
+                return null;
+            }
+
+            case CALL: {
+                numberCall(node);
+                return null;
+            }
+
+            case INTEGER_DIVIDE:
+            case MOD: {
+                ICodeNode divisorNode = children.get(1);
+
+                // The divisor can have a call that changes variables.
+                if (   (divisorNode.getType() != INTEGER_CONSTANT)
+                    || ((Integer) divisorNode.getAttribute(VALUE) == 0))
+                {
+                    number(children.get(0));
+                    number(divisorNode);
+                    return null;
+                }
+
+                return numberOperator(node);
+            }
+
+            case EQ: case NE: case LT: case LE: case GT: case GE: case NOT:
+            case ADD: case SUBTRACT: case OR: case NEGATE:
+            case MULTIPLY: case FLOAT_DIVIDE: case AND:
+            case BIT_AND: case BIT_OR: case BIT_XOR: case SHIFT_LEFT:
+            case CONDITIONAL: {
+                return numberOperator(node);
+            }
+
+            default: {
+                for (ICodeNode child : children) {
+                    number(child);
+                }
+
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Number the value of an operator node.
+     * @param node the node.
+     * @return the value number, or null if the value isn't numbered.
+     */
+    private Integer numberOperator(ICodeNode node)
+    {
+        ICodeNodeType nodeType = node.getType();
+        ArrayList<ICodeNode> children = node.getChildren();
+        int start = occurrences.size();
+        Integer operandNumbers[] = new Integer[children.size()];
+        boolean numbered = true;
+
+        for (int i = 0; i < children.size(); ++i) {
+            operandNumbers[i] = number(children.get(i));
+            numbered = numbered && (operandNumbers[i] != null);
+        }
+
+        if (!numbered || !isScalar(node.getTypeSpec())) {
+            return null;
+        }
+
+        // The operands of a commutative operator in either order.
+        if (   (nodeType == ADD) || (nodeType == MULTIPLY)
+            || (nodeType == EQ) || (nodeType == NE)
+            || (nodeType == AND) || (nodeType == OR)
+            || (nodeType == BIT_AND) || (nodeType == BIT_OR)
+            || (nodeType == BIT_XOR))
+        {
+            Arrays.sort(operandNumbers);
+        }
+
+        String key = nodeType + " " + keyNumber(node.getTypeSpec().baseType())
+                     + " " + Arrays.toString(operandNumbers);
+        Integer number = expressionNumbers.get(key);
+
+        if (number != null) {
+            // The operands of a repeated expression go with it.
+            while (occurrences.size() > start) {
+                int last = occurrences.size() - 1;
+                Integer operandNumber = occurrenceNumbers.get(last);
+
+                counts.put(operandNumber, counts.get(operandNumber) - 1);
+                occurrences.remove(last);
+                occurrenceNumbers.remove(last);
+                occurrenceStatements.remove(last);
+            }
+        }
+
+        // A new expression after a call gets a number that nothing else
+        // can have.
+        else if (!canMove) {
+            return nextNumber++;
+        }
+        else {
+            number = expressionNumber(key);
+        }
+
+        if (hasVariable(node)) {
+            Integer count = counts.get(number);
+
+            occurrences.add(node);
+            occurrenceNumbers.add(number);
+            occurrenceStatements.add(statementIndex);
+            counts.put(number, count == null ? 1 : count + 1);
+        }
+
+        return number;
+    }
+
+    /**
+     * @param variableNode a VARIABLE node without subscripts or fields.
+     * @return the value number of the variable, or null if it can't be
+     *         numbered.
+     */
+    private Integer variableNumber(ICodeNode variableNode)
+    {
+        SsaValue value = graph.getValue(variableNode);
+        if (value != null) {
+            return keyNumber(value);
+        }
+
+        SymTabEntry variableId = (SymTabEntry) variableNode.getAttribute(ID);
+        Definition definition = variableId.getDefinition();
+
+        if (   ((definition != DefinitionImpl.VARIABLE)
+                   && (definition != DefinitionImpl.VALUE_PARM))
+            || !isScalar(variableId.getTypeSpec()))
+        {
+            return null;
+        }
+
+        return keyNumber(variableKey(variableId));
+    }
+
+    /**
+     * @param key a variable key, an SSA value, or a data type.
+     * @return its value number, which is new if it doesn't have one.
+     */
+    private Integer keyNumber(Object key)
+    {
+        Integer number = numbers.get(key);
+
+        if (number == null) {
+            number = nextNumber++;
+            numbers.put(key, number);
+        }
+
+        return number;
+    }
+
+    /**
+     * @param key the key of an expression.
+     * @return its value number, which is new if it doesn't have one.
+     */
+    private Integer expressionNumber(String key)
+    {
+        Integer number = expressionNumbers.get(key);
+
+        if (number == null) {
+            number = nextNumber++;
+            expressionNumbers.put(key, number);
+        }
+
+        return number;
+    }
+
+    // ===========
+    // Elimination
+    // ===========
+
+    /**
+     * Replace the expressions of a block that have the same value number
+     * with a temporary variable.
+     * @param block the block.
+     */
+    private void eliminate(BasicBlock block)
+    {
+        ArrayList<ICodeNode> statements = block.getStatements();
+        HashMap<Integer, SymTabEntry> temporaries =
+            new HashMap<Integer, SymTabEntry>();
+
+        // The assignments to the temporaries before each statement,
+        // and before the condition.
+        ArrayList<ArrayList<ICodeNode>> assignments =
+            new ArrayList<ArrayList<ICodeNode>>();
+        for (int i = 0; i <= statements.size(); ++i) {
+            assignments.add(new ArrayList<ICodeNode>());
+        }
+
+        for (int i = 0; i < occurrences.size(); ++i) {
+            ICodeNode node = occurrences.get(i);
+            Integer number = occurrenceNumbers.get(i);
+
+            if (counts.get(number) < 2) {
+                continue;
+            }
+
+            TypeSpec type = node.getTypeSpec().baseType();
+            SymTabEntry temporaryId = temporaries.get(number);
+
+            // The first expression: Assign it to a new temporary.
+            if (temporaryId == null) {
+                int index = occurrenceStatements.get(i);
+                ICodeNode statement = index < statements.size()
+                                          ? statements.get(index)
+                                          : block.getCondition();
+                Object lineNumber = getLineNumber(statement);
+
+                temporaryId = graph.newTemporary(type);
+                temporaries.put(number, temporaryId);
+
+                replace(block, node, createVariableNode(temporaryId, type));
+                assignments.get(index).add(
+                    createAssignment(temporaryId, node, lineNumber));
+            }
+
+            // A repeated expression: Use the temporary.
+            else {
+                replace(block, node, createVariableNode(temporaryId, type));
+                graph.removeUses(node);
+            }
+        }
+
+        ArrayList<ICodeNode> oldStatements =
+            new ArrayList<ICodeNode>(statements);
+        statements.clear();
+
+        for (int i = 0; i < oldStatements.size(); ++i) {
+            statements.addAll(assignments.get(i));
+            statements.add(oldStatements.get(i));
+        }
+        statements.addAll(assignments.get(oldStatements.size()));
+    }
+
+    /**
+     * Replace an expression node with another node.
+     * @param block the block of the expression.
+     * @param node the expression node.
+     * @param newNode the other node.
+     */
+    private void replace(BasicBlock block, ICodeNode node, ICodeNode newNode)
+    {
+        ICodeNode parent = node.getParent();
+
+        // A condition's parent is its statement in the parse tree.
+        if (node.equals(block.getCondition())) {
+            block.setCondition(newNode);
+        }
+
+        if (parent != null) {
+            ArrayList<ICodeNode> siblings = parent.getChildren();
+
+            for (int i = 0; i < siblings.size(); ++i) {
+                if (siblings.get(i).equals(node)) {
+                    parent.setChild(i, newNode);
+                    break;
+                }
+            }
+        }
+    }
+}
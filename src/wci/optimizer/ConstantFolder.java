@@ -0,0 +1,724 @@
+package wci.optimizer;
+
+import java.util.ArrayList;
+
+import wci.intermediate.*;
+import wci.intermediate.icodeimpl.*;
+import wci.intermediate.symtabimpl.Predefined;
+import wci.intermediate.typeimpl.TypeChecker;
+
+import static wci.intermediate.icodeimpl.ICodeNodeTypeImpl.*;
+import static wci.intermediate.icodeimpl.ICodeKeyImpl.*;
+import static wci.intermediate.typeimpl.TypeFormImpl.ENUMERATION;
+
+/**
+ * <h1>ConstantFolder</h1>
+ *
+ * <p>An optimization pass that evaluates the operators whose operands are
+ * constants, simplifies x+0, x-0, x*1, x/1, double negation, and double
+ * NOT to x, turns an integer x*2^k into a left shift, and replaces an IF
+ * statement or a conditional expression whose condition is constant with
+ * the branch that runs.</p>
+ *
+ * <p>A constant is folded the way the generated code would compute it:
+ * the same integer or float mode as the code generator, 32-bit integer
+ * arithmetic that wraps, and float arithmetic with any integer operand
+ * converted to float.  An operation that would throw at run time, such as
+ * an integer division by zero, or that the generator would not compute,
+ * is left alone.  So is a float result that the generated code couldn't
+ * load as a constant, which is an infinity, a NaN, or -0.0.</p>
+ *
+ * <p>Copyright (c) 2009 by Ronald Mak</p>
+ * <p>For instructional purposes only.  No warranties.</p>
+ */
+public class ConstantFolder extends OptimizationPass
+{
+    public static final String NAME = "fold";
+
+    /**
+     * Constructor.
+     */
+    public ConstantFolder()
+    {
+        super(NAME, 1);
+    }
+
+    /**
+     * Fold the constants of a routine.
+     * @param routineId the symbol table entry of the routine's name.
+     * @param iCode the routine's intermediate code.
+     */
+    public void process(SymTabEntry routineId, ICode iCode)
+    {
+        ICodeNode rootNode = iCode.getRoot();
+        ICodeNode foldedNode = fold(rootNode);
+
+        if (foldedNode != rootNode) {
+            iCode.setRoot(foldedNode);
+        }
+    }
+
+    /**
+     * Fold the constants of a tree, from the bottom up.
+     * @param node the root node of the tree.
+     * @return the node, or the node to replace it with.
+     */
+    private ICodeNode fold(ICodeNode node)
+    {
+        ArrayList<ICodeNode> children = node.getChildren();
+
+        for (int i = 0; i < children.size(); ++i) {
+            ICodeNode child = children.get(i);
+            ICodeNode foldedChild = fold(child);
+
+            if (foldedChild != child) {
+                node.setChild(i, foldedChild);
+            }
+        }
+
+        ICodeNodeTypeImpl nodeType = (ICodeNodeTypeImpl) node.getType();
+
+        switch (nodeType) {
+
+            case ADD: case SUBTRACT: case MULTIPLY:
+            case FLOAT_DIVIDE: case INTEGER_DIVIDE: case MOD:
+            case AND: case OR: case BIT_AND: case BIT_OR: case BIT_XOR:
+            case EQ: case NE: case LT: case LE: case GT: case GE: {
+                return foldBinaryOperator(node, nodeType);
+            }
+
+            case NEGATE: {
+                return foldNegate(node);
+            }
+
+            case NOT: {
+                return foldNot(node);
+            }
+
+            case IF: {
+                return foldIf(node);
+            }
+
+            case CONDITIONAL: {
+                return foldConditional(node);
+            }
+
+            default: {
+                return node;
+            }
+        }
+    }
+
+    /**
+     * Fold a binary operator.
+     * @param node the operator node.
+     * @param nodeType the node type.
+     * @return the node, or the node to replace it with.
+     */
+    private ICodeNode foldBinaryOperator(ICodeNode node,
+                                         ICodeNodeTypeImpl nodeType)
+    {
+        ArrayList<ICodeNode> children = node.getChildren();
+        if (children.size() != 2) {
+            return node;
+        }
+
+        ICodeNode operandNode1 = children.get(0);
+        ICodeNode operandNode2 = children.get(1);
+        TypeSpec type1 = operandNode1.getTypeSpec();
+        TypeSpec type2 = operandNode2.getTypeSpec();
+        if ((type1 == null) || (type2 == null)) {
+            return node;
+        }
+
+        Object value1 = constantValue(operandNode1);
+        Object value2 = constantValue(operandNode2);
+
+        if ((value1 != null) && (value2 != null)) {
+            ICodeNode constantNode =
+                evaluate(node, nodeType, type1, type2, value1, value2);
+            if (constantNode != null) {
+                return constantNode;
+            }
+        }
+
+        if (node.getTypeSpec() == Predefined.integerType) {
+            return simplifyInteger(node, nodeType, operandNode1, operandNode2,
+                                   value1, value2);
+        }
+        else if (node.getTypeSpec() == Predefined.realType) {
+            return simplifyReal(node, nodeType, operandNode1, operandNode2,
+                                value1, value2);
+        }
+        else {
+            return node;
+        }
+    }
+
+    /**
+     * Evaluate a binary operator with constant operands.
+     * @param node the operator node.
+     * @param nodeType the node type.
+     * @param type1 the type of the first operand.
+     * @param type2 the type of the second operand.
+     * @param value1 the value of the first operand.
+     * @param value2 the value of the second operand.
+     * @return the constant node of the result, or null if it can't be
+     *         folded.
+     */
+    private ICodeNode evaluate(ICodeNode node, ICodeNodeTypeImpl nodeType,
+                               TypeSpec type1, TypeSpec type2,
+                               Object value1, Object value2)
+    {
+        // The modes of the code generator.
+        boolean integerMode = TypeChecker.areBothInteger(type1, type2) ||
+                              (type1.getForm() == ENUMERATION) ||
+                              (type2.getForm() == ENUMERATION);
+        boolean realMode = TypeChecker.isAtLeastOneReal(type1, type2) ||
+                           (nodeType == FLOAT_DIVIDE);
+        boolean characterMode = TypeChecker.isChar(type1) &&
+                                TypeChecker.isChar(type2);
+        boolean booleanMode = TypeChecker.areBothBoolean(type1, type2);
+
+        switch (nodeType) {
+
+            case ADD: case SUBTRACT: case MULTIPLY:
+            case INTEGER_DIVIDE: case MOD: {
+                if (   TypeChecker.areBothInteger(type1, type2)
+                    && (value1 instanceof Integer)
+                    && (value2 instanceof Integer))
+                {
+                    return evaluateInteger(nodeType, (Integer) value1,
+                                           (Integer) value2);
+                }
+                else if (realMode && (nodeType != INTEGER_DIVIDE)
+                                  && (nodeType != MOD))
+                {
+                    return evaluateReal(nodeType, value1, value2);
+                }
+                else {
+                    return null;
+                }
+            }
+
+            case FLOAT_DIVIDE: {
+                return evaluateReal(nodeType, value1, value2);
+            }
+
+            case AND: case OR: {
+                if (!booleanMode) {
+                    return null;
+                }
+
+                int b1 = booleanValue(value1);
+                int b2 = booleanValue(value2);
+
+                return booleanConstant(nodeType == AND ? (b1 & b2) == 1
+                                                       : (b1 | b2) == 1);
+            }
+
+            case BIT_AND: case BIT_OR: case BIT_XOR: {
+                int i1, i2;
+
+                if (   TypeChecker.areBothInteger(type1, type2)
+                    && (value1 instanceof Integer)
+                    && (value2 instanceof Integer))
+                {
+                    i1 = (Integer) value1;
+                    i2 = (Integer) value2;
+                }
+                else if (booleanMode) {
+                    i1 = booleanValue(value1);
+                    i2 = booleanValue(value2);
+                }
+                else {
+                    return null;
+                }
+
+                int result = nodeType == BIT_AND ? i1 & i2
+                           : nodeType == BIT_OR  ? i1 | i2
+                           :                       i1 ^ i2;
+
+                ICodeNode constantNode =
+                    ICodeFactory.createICodeNode(context, INTEGER_CONSTANT);
+                constantNode.setAttribute(VALUE, result);
+                constantNode.setTypeSpec(node.getTypeSpec());
+
+                return constantNode;
+            }
+
+            // Relational operators.
+            default: {
+                int comparison;
+
+                if (integerMode || characterMode) {
+                    if (   (value1 instanceof Integer)
+                        && (value2 instanceof Integer))
+                    {
+                        comparison = Integer.compare((Integer) value1,
+                                                     (Integer) value2);
+                    }
+                    else if (   (value1 instanceof Character)
+                             && (value2 instanceof Character))
+                    {
+                        comparison = Character.compare((Character) value1,
+                                                       (Character) value2);
+                    }
+                    else {
+                        return null;
+                    }
+                }
+                else if (realMode) {
+                    if (   !(value1 instanceof Number)
+                        || !(value2 instanceof Number))
+                    {
+                        return null;
+                    }
+
+                    // The constants aren't NaNs, so this is what FCMPG does.
+                    float f1 = ((Number) value1).floatValue();
+                    float f2 = ((Number) value2).floatValue();
+                    comparison = f1 < f2 ? -1 : f1 > f2 ? 1 : 0;
+                }
+                else {
+                    return null;
+                }
+
+                switch (nodeType) {
+                    case EQ: return booleanConstant(comparison == 0);
+                    case NE: return booleanConstant(comparison != 0);
+                    case LT: return booleanConstant(comparison <  0);
+                    case LE: return booleanConstant(comparison <= 0);
+                    case GT: return booleanConstant(comparison >  0);
+                    case GE: return booleanConstant(comparison >= 0);
+                    default: return null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Evaluate an integer arithmetic operator.
+     * @param nodeType the node type.
+     * @param i1 the first operand.
+     * @param i2 the second operand.
+     * @return the constant node of the result, or null if the operation
+     *         would throw at run time.
+     */
+    private ICodeNode evaluateInteger(ICodeNodeTypeImpl nodeType,
+                                      int i1, int i2)
+    {
+        int result;
+
+        switch (nodeType) {
+            case ADD:            result = i1 + i2; break;
+            case SUBTRACT:       result = i1 - i2; break;
+            case MULTIPLY:       result = i1 * i2; break;
+            case INTEGER_DIVIDE: if (i2 == 0) return null;
+                                 result = i1 / i2; break;
+            case MOD:            if (i2 == 0) return null;
+                                 result = i1 % i2; break;
+            default:             return null;
+        }
+
+        return integerConstant(result);
+    }
+
+    /**
+     * Evaluate a float arithmetic operator.  An integer operand is
+     * converted to float first.
+     * @param nodeType the node type.
+     * @param value1 the first operand.
+     * @param value2 the second operand.
+     * @return the constant node of the result, or null if it can't be
+     *         folded.
+     */
+    private ICodeNode evaluateReal(ICodeNodeTypeImpl nodeType,
+                                   Object value1, Object value2)
+    {
+        if (!(value1 instanceof Number) || !(value2 instanceof Number)) {
+            return null;
+        }
+
+        float f1 = ((Number) value1).floatValue();
+        float f2 = ((Number) value2).floatValue();
+        float result;
+
+        switch (nodeType) {
+            case ADD:          result = f1 + f2; break;
+            case SUBTRACT:     result = f1 - f2; break;
+            case MULTIPLY:     result = f1 * f2; break;
+            case FLOAT_DIVIDE: result = f1 / f2; break;
+            default:           return null;
+        }
+
+        return realConstant(result);
+    }
+
+    /**
+     * Simplify an integer operator with one constant operand.
+     * @param node the operator node.
+     * @param nodeType the node type.
+     * @param operandNode1 the first operand.
+     * @param operandNode2 the second operand.
+     * @param value1 the value of the first operand, or null.
+     * @param value2 the value of the second operand, or null.
+     * @return the node, or the node to replace it with.
+     */
+    private ICodeNode simplifyInteger(ICodeNode node,
+                                      ICodeNodeTypeImpl nodeType,
+                                      ICodeNode operandNode1,
+                                      ICodeNode operandNode2,
+                                      Object value1, Object value2)
+    {
+        TypeSpec type = node.getTypeSpec();
+        boolean isInteger1 = operandNode1.getTypeSpec() == type;
+        boolean isInteger2 = operandNode2.getTypeSpec() == type;
+
+        switch (nodeType) {
+
+            case ADD: {
+                if (isInteger1 && isIntegerValue(value2, 0)) {
+                    return operandNode1;  // x + 0
+                }
+                if (isInteger2 && isIntegerValue(value1, 0)) {
+                    return operandNode2;  // 0 + x
+                }
+                break;
+            }
+
+            case SUBTRACT: {
+                if (isInteger1 && isIntegerValue(value2, 0)) {
+                    return operandNode1;  // x - 0
+                }
+                break;
+            }
+
+            case MULTIPLY: {
+                if (isInteger1 && isIntegerValue(value2, 1)) {
+                    return operandNode1;  // x * 1
+                }
+                if (isInteger2 && isIntegerValue(value1, 1)) {
+                    return operandNode2;  // 1 * x
+                }
+                if (isInteger1 && (shiftOf(value2) > 0)) {
+                    return shiftLeft(operandNode1, shiftOf(value2));
+                }
+                if (isInteger2 && (shiftOf(value1) > 0)) {
+                    return shiftLeft(operandNode2, shiftOf(value1));
+                }
+                break;
+            }
+
+            case INTEGER_DIVIDE: {
+                if (isInteger1 && isIntegerValue(value2, 1)) {
+                    return operandNode1;  // x / 1
+                }
+                break;
+            }
+        }
+
+        return node;
+    }
+
+    /**
+     * Simplify a float operator with one constant operand.  Only the
+     * simplifications that are exact for every float, -0.0 and NaN
+     * included, are made.  So x + 0 isn't simplified, since -0.0 + 0.0
+     * is 0.0.
+     * @param node the operator node.
+     * @param nodeType the node type.
+     * @param operandNode1 the first operand.
+     * @param operandNode2 the second operand.
+     * @param value1 the value of the first operand, or null.
+     * @param value2 the value of the second operand, or null.
+     * @return the node, or the node to replace it with.
+     */
+    private ICodeNode simplifyReal(ICodeNode node,
+                                   ICodeNodeTypeImpl nodeType,
+                                   ICodeNode operandNode1,
+                                   ICodeNode operandNode2,
+                                   Object value1, Object value2)
+    {
+        TypeSpec type = node.getTypeSpec();
+        boolean isReal1 = operandNode1.getTypeSpec() == type;
+        boolean isReal2 = operandNode2.getTypeSpec() == type;
+
+        switch (nodeType) {
+
+            case SUBTRACT: {
+                if (isReal1 && isRealValue(value2, 0.0f)) {
+                    return operandNode1;  // x - 0.0
+                }
+                break;
+            }
+
+            case MULTIPLY: {
+                if (isReal1 && isRealValue(value2, 1.0f)) {
+                    return operandNode1;  // x * 1.0
+                }
+                if (isReal2 && isRealValue(value1, 1.0f)) {
+                    return operandNode2;  // 1.0 * x
+                }
+                break;
+            }
+        }
+
+        return node;
+    }
+
+    /**
+     * Fold a NEGATE node.
+     * @param node the NEGATE node.
+     * @return the node, or the node to replace it with.
+     */
+    private ICodeNode foldNegate(ICodeNode node)
+    {
+        ICodeNode operandNode = node.getChildren().get(0);
+        TypeSpec type = operandNode.getTypeSpec();
+        Object value = constantValue(operandNode);
+
+        // - - x
+        if (operandNode.getType() == NEGATE) {
+            return operandNode.getChildren().get(0);
+        }
+
+        else if (   (type == Predefined.integerType)
+                 && (value instanceof Integer))
+        {
+            return integerConstant(-(Integer) value);
+        }
+
+        else if ((type == Predefined.realType) && (value instanceof Float)) {
+            ICodeNode constantNode = realConstant(-(Float) value);
+            return constantNode != null ? constantNode : node;
+        }
+
+        return node;
+    }
+
+    /**
+     * Fold a NOT node.
+     * @param node the NOT node.
+     * @return the node, or the node to replace it with.
+     */
+    private ICodeNode foldNot(ICodeNode node)
+    {
+        ICodeNode operandNode = node.getChildren().get(0);
+        Object value = constantValue(operandNode);
+
+        // !!x
+        if (operandNode.getType() == NOT) {
+            return operandNode.getChildren().get(0);
+        }
+
+        else if (   TypeChecker.isBoolean(operandNode.getTypeSpec())
+                 && (value instanceof Integer))
+        {
+            return booleanConstant(booleanValue(value) == 0);
+        }
+
+        return node;
+    }
+
+    /**
+     * Replace an IF statement whose condition is constant with the
+     * statement that runs, or with a NO_OP node if none does.
+     * @param node the IF node.
+     * @return the node, or the node to replace it with.
+     */
+    private ICodeNode foldIf(ICodeNode node)
+    {
+        ArrayList<ICodeNode> children = node.getChildren();
+        ICodeNode conditionNode = children.get(0);
+        Object value = constantValue(conditionNode);
+
+        if (   !TypeChecker.isBoolean(conditionNode.getTypeSpec())
+            || !(value instanceof Integer))
+        {
+            return node;
+        }
+
+        if (booleanValue(value) == 1) {
+            return children.get(1);
+        }
+        else if (children.size() > 2) {
+            return children.get(2);
+        }
+        else {
+            ICodeNode noOpNode = ICodeFactory.createICodeNode(context, NO_OP);
+            noOpNode.setAttribute(LINE, node.getAttribute(LINE));
+
+            return noOpNode;
+        }
+    }
+
+    /**
+     * Replace a conditional expression whose condition is constant with
+     * the expression that is evaluated, if it has the conditional
+     * expression's type.
+     * @param node the CONDITIONAL node.
+     * @return the node, or the node to replace it with.
+     */
+    private ICodeNode foldConditional(ICodeNode node)
+    {
+        ArrayList<ICodeNode> children = node.getChildren();
+        ICodeNode conditionNode = children.get(0);
+        Object value = constantValue(conditionNode);
+
+        if (   !TypeChecker.isBoolean(conditionNode.getTypeSpec())
+            || !(value instanceof Integer))
+        {
+            return node;
+        }
+
+        ICodeNode chosenNode = children.get(booleanValue(value) == 1 ? 1 : 2);
+
+        return chosenNode.getTypeSpec() == node.getTypeSpec() ? chosenNode
+                                                              : node;
+    }
+
+    /**
+     * @param node an expression node.
+     * @return the value of a constant node as an Integer, a Float,
+     *         or a Character, or null if the node isn't a constant.
+     */
+    private Object constantValue(ICodeNode node)
+    {
+        ICodeNodeType nodeType = node.getType();
+        Object value = node.getAttribute(VALUE);
+
+        if (nodeType == INTEGER_CONSTANT) {
+            return value instanceof Integer ? value : null;
+        }
+        else if (nodeType == REAL_CONSTANT) {
+            return value instanceof Float ? value : null;
+        }
+        else if (   (nodeType == STRING_CONSTANT)
+                 && TypeChecker.isChar(node.getTypeSpec())
+                 && (value instanceof String)
+                 && (((String) value).length() == 1))
+        {
+            return ((String) value).charAt(0);
+        }
+        else {
+            return null;
+        }
+    }
+
+    /**
+     * @param value the value of a boolean constant.
+     * @return 1 if true or 0 if false, as the generated code loads it.
+     */
+    private int booleanValue(Object value)
+    {
+        return ((Integer) value) == 1 ? 1 : 0;
+    }
+
+    /**
+     * @param value a constant value, or null.
+     * @param i an integer.
+     * @return true if the value is that integer.
+     */
+    private boolean isIntegerValue(Object value, int i)
+    {
+        return (value instanceof Integer) && ((Integer) value == i);
+    }
+
+    /**
+     * @param value a constant value, or null.
+     * @param f a float.
+     * @return true if the value, converted to float, is that float.
+     *         0.0 is only 0.0, not -0.0.
+     */
+    private boolean isRealValue(Object value, float f)
+    {
+        return    (value instanceof Number)
+               && (   Float.floatToIntBits(((Number) value).floatValue())
+                   == Float.floatToIntBits(f));
+    }
+
+    /**
+     * @param value a constant value, or null.
+     * @return k if the value is an integer 2^k with k > 0, else 0.
+     */
+    private int shiftOf(Object value)
+    {
+        if (!(value instanceof Integer)) {
+            return 0;
+        }
+
+        int i = (Integer) value;
+        return (i > 1) && (Integer.bitCount(i) == 1)
+                   ? Integer.numberOfTrailingZeros(i)
+                   : 0;
+    }
+
+    /**
+     * @param operandNode an integer expression x.
+     * @param k the count of bits to shift.
+     * @return the SHIFT_LEFT node of x << k.
+     */
+    private ICodeNode shiftLeft(ICodeNode operandNode, int k)
+    {
+        ICodeNode shiftNode = ICodeFactory.createICodeNode(context, SHIFT_LEFT);
+        ICodeNode countNode = integerConstant(k);
+
+        // Setting x in the count's place takes x from its old parent.
+        shiftNode.addChild(countNode);
+        shiftNode.setChild(0, operandNode);
+        shiftNode.addChild(countNode);
+        shiftNode.setTypeSpec(Predefined.integerType);
+
+        return shiftNode;
+    }
+
+    /**
+     * @param value an integer.
+     * @return an integer constant node.
+     */
+    private ICodeNode integerConstant(int value)
+    {
+        ICodeNode constantNode =
+            ICodeFactory.createICodeNode(context, INTEGER_CONSTANT);
+        constantNode.setAttribute(VALUE, value);
+        constantNode.setTypeSpec(Predefined.integerType);
+
+        return constantNode;
+    }
+
+    /**
+     * @param value a float.
+     * @return a real constant node, or null if the generated code
+     *         couldn't load the value as a constant.
+     */
+    private ICodeNode realConstant(float value)
+    {
+        if (   Float.isNaN(value) || Float.isInfinite(value)
+            || (Float.floatToIntBits(value) == Float.floatToIntBits(-0.0f)))
+        {
+            return null;
+        }
+
+        ICodeNode constantNode =
+            ICodeFactory.createICodeNode(context, REAL_CONSTANT);
+        constantNode.setAttribute(VALUE, value);
+        constantNode.setTypeSpec(Predefined.realType);
+
+        return constantNode;
+    }
+
+    /**
+     * @param value a boolean.
+     * @return a boolean constant node.
+     */
+    private ICodeNode booleanConstant(boolean value)
+    {
+        ICodeNode constantNode =
+            ICodeFactory.createICodeNode(context, INTEGER_CONSTANT);
+        constantNode.setAttribute(VALUE, value ? 1 : 0);
+        constantNode.setTypeSpec(Predefined.booleanType);
+
+        return constantNode;
+    }
+}
@@ -0,0 +1,466 @@
+package wci.optimizer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+
+import wci.intermediate.*;
+import wci.intermediate.flowgraph.*;
+import wci.intermediate.icodeimpl.ICodeNodeTypeImpl;
+import wci.intermediate.symtabimpl.*;
+
+import static wci.intermediate.symtabimpl.SymTabKeyImpl.*;
+import static wci.intermediate.symtabimpl.RoutineCodeImpl.*;
+import static wci.intermediate.icodeimpl.ICodeNodeTypeImpl.*;
+import static wci.intermediate.icodeimpl.ICodeKeyImpl.*;
+
+/**
+ * <h1>LoopInvariantMover</h1>
+ *
+ * <p>An optimization pass that moves the computations that every
+ * iteration of a loop repeats out of the loop.  It works on the flow
+ * graph, so it does nothing unless the ssa pass ran before it.</p>
+ *
+ * <p>An expression is invariant in a loop if its operands are constants
+ * and variables that the loop doesn't change.  An SSA variable doesn't
+ * change if the value it uses is defined outside the loop.  Any other
+ * variable doesn't change if the loop doesn't assign to it or pass it by
+ * reference, and a program variable also only if the loop calls no
+ * declared routine.  Each largest invariant expression with a variable
+ * in it is assigned to a new temporary variable in the block that enters
+ * the loop, and the loop uses the temporary.  So is each program variable
+ * that the loop only reads, to save its GETSTATIC on each iteration.</p>
+ *
+ * <p>The expressions are moved even if the loop runs zero times, so an
+ * expression that can throw at run time is left in the loop: an array
+ * element, a call, or an integer division by anything but a nonzero
+ * constant.  A loop entered other than by a jump from a single block,
+ * which the flow graph builder doesn't make, is left alone.</p>
+ *
+ * <p>Copyright (c) 2009 by Ronald Mak</p>
+ * <p>For instructional purposes only.  No warranties.</p>
+ */
+public class LoopInvariantMover extends OptimizationPass
+{
+    public static final String NAME = "licm";
+
+    private FlowGraph graph;          // flow graph of the routine
+    private Loop loop;                // the loop being optimized
+    private BasicBlock preheader;     // the block that enters the loop
+
+    // The variables that the loop changes: the symbol table entries
+    // of program and temporary variables, and the slots of the others.
+    private HashSet<Object> changed;
+    private boolean callsRoutines;    // true if the loop calls a routine
+
+    // Temporary variable of each program variable.
+    private HashMap<SymTabEntry, SymTabEntry> loadTemporaries;
+
+    /**
+     * Constructor.
+     */
+    public LoopInvariantMover()
+    {
+        super(NAME, 2);
+    }
+
+    /**
+     * Move the invariant computations out of the loops of a routine.
+     * @param routineId the symbol table entry of the routine's name.
+     * @param iCode the routine's intermediate code.
+     */
+    public void process(SymTabEntry routineId, ICode iCode)
+    {
+        graph = (FlowGraph) routineId.getAttribute(ROUTINE_FLOW_GRAPH);
+        if (graph == null) {
+            return;
+        }
+
+        LoopNest loopNest = new LoopNest(new DominatorTree(graph));
+
+        // Inner loops first, so that an outer loop can move what
+        // an inner loop moved.
+        for (Loop innerLoop : loopNest.getLoops()) {
+            ArrayList<BasicBlock> enteringBlocks =
+                innerLoop.getEnteringBlocks();
+
+            if (   (enteringBlocks.size() == 1)
+                && (enteringBlocks.get(0).getTerminator()
+                        == BasicBlock.Terminator.JUMP))
+            {
+                loop = innerLoop;
+                preheader = enteringBlocks.get(0);
+                moveInvariants();
+            }
+        }
+
+        new FlowGraphVerifier(graph).verify();
+
+        graph = null;
+        loop = null;
+        preheader = null;
+        changed = null;
+        loadTemporaries = null;
+    }
+
+    /**
+     * Move the invariant computations out of the loop.
+     */
+    private void moveInvariants()
+    {
+        changed = new HashSet<Object>();
+        callsRoutines = false;
+        loadTemporaries = new HashMap<SymTabEntry, SymTabEntry>();
+
+        for (BasicBlock block : loop.getBlocks()) {
+            for (ICodeNode statement : block.getStatements()) {
+                findChanges(statement);
+            }
+            if (block.getCondition() != null) {
+                findChanges(block.getCondition());
+            }
+        }
+
+        for (BasicBlock block : loop.getBlocks()) {
+            for (ICodeNode statement : block.getStatements()) {
+                moveStatementInvariants(statement);
+            }
+
+            ICodeNode conditionNode = block.getCondition();
+            if (conditionNode != null) {
+                ICodeNode newNode = moveInvariants(conditionNode);
+
+                if (newNode != conditionNode) {
+                    block.setCondition(newNode);
+                }
+            }
+        }
+    }
+
+    // =======
+    // Changes
+    // =======
+
+    /**
+     * Find the variables that a tree changes, and the calls to routines.
+     * @param node the root node of the tree.
+     */
+    private void findChanges(ICodeNode node)
+    {
+        ICodeNodeType nodeType = node.getType();
+
+        if (nodeType == ASSIGN) {
+            ICodeNode targetNode = node.getChildren().get(0);
+
+            // Assigning to an element or a field doesn't change
+            // the array or the record.
+            if (targetNode.getChildren().isEmpty()) {
+                changed.add(variableKey(
+                    (SymTabEntry) targetNode.getAttribute(ID)));
+            }
+        }
+        else if (nodeType == CALL) {
+            findCallChanges(node);
+        }
+
+        for (ICodeNode child : node.getChildren()) {
+            findChanges(child);
+        }
+    }
+
+    /**
+     * Find the variables that a call can change.
+     * @param callNode the CALL node.
+     */
+    private void findCallChanges(ICodeNode callNode)
+    {
+        SymTabEntry routineId = (SymTabEntry) callNode.getAttribute(ID);
+        RoutineCode routineCode =
+            (RoutineCode) routineId.getAttribute(ROUTINE_CODE);
+
+        if ((routineCode == DECLARED) || (routineCode == FORWARD)) {
+            callsRoutines = true;
+        }
+
+        for (SymTabEntry variableId : changedParameters(callNode)) {
+            changed.add(variableKey(variableId));
+        }
+    }
+
+    // ==========
+    // Invariants
+    // ==========
+
+    /**
+     * @param node an expression node.
+     * @return true if the loop doesn't change the value of the expression
+     *         and computing it can't throw.
+     */
+    private boolean isInvariant(ICodeNode node)
+    {
+        switch ((ICodeNodeTypeImpl) node.getType()) {
+
+            case INTEGER_CONSTANT:
+            case REAL_CONSTANT:
+            case BOOLEAN_CONSTANT:
+            case STRING_CONSTANT: {
+                return true;
+            }
+
+            case VARIABLE: {
+                return    node.getChildren().isEmpty()
+                       && isInvariantVariable(node);
+            }
+
+            case INTEGER_DIVIDE:
+            case MOD: {
+                ICodeNode divisorNode = node.getChildren().get(1);
+
+                return    (divisorNode.getType() == INTEGER_CONSTANT)
+                       && ((Integer) divisorNode.getAttribute(VALUE) != 0)
+                       && isInvariant(node.getChildren().get(0));
+            }
+
+            case EQ: case NE: case LT: case LE: case GT: case GE: case NOT:
+            case ADD: case SUBTRACT: case OR: case NEGATE:
+            case MULTIPLY: case FLOAT_DIVIDE: case AND:
+            case BIT_AND: case BIT_OR: case BIT_XOR: case SHIFT_LEFT:
+            case CONDITIONAL: {
+                for (ICodeNode child : node.getChildren()) {
+                    if (!isInvariant(child)) {
+                        return false;
+                    }
+                }
+
+                return true;
+            }
+
+            default: {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * @param variableNode a VARIABLE node without subscripts or fields.
+     * @return true if the loop doesn't change the variable's value.
+     */
+    private boolean isInvariantVariable(ICodeNode variableNode)
+    {
+        SsaValue value = graph.getValue(variableNode);
+        if (value != null) {
+            return !loop.contains(value.getBlock());
+        }
+
+        SymTabEntry variableId = (SymTabEntry) variableNode.getAttribute(ID);
+        Definition definition = variableId.getDefinition();
+
+        if (   ((definition != DefinitionImpl.VARIABLE)
+                   && (definition != DefinitionImpl.VALUE_PARM))
+            || !isScalar(variableId.getTypeSpec())
+            || changed.contains(variableKey(variableId)))
+        {
+            return false;
+        }
+
+        return    (variableId.getSymTab().getNestingLevel() != 1)
+               || !callsRoutines;
+    }
+
+    /**
+     * @param node an invariant expression node.
+     * @return true if it's worth a temporary variable: it's a program
+     *         variable, or it has an operator and a variable.
+     */
+    private boolean isWorthMoving(ICodeNode node)
+    {
+        if (node.getType() == VARIABLE) {
+            return isProgramVariable(node);
+        }
+
+        return !node.getChildren().isEmpty() && hasVariable(node);
+    }
+
+    /**
+     * @param variableNode a VARIABLE node.
+     * @return true if it's of a program variable, which is a static field.
+     */
+    private boolean isProgramVariable(ICodeNode variableNode)
+    {
+        SymTabEntry variableId = (SymTabEntry) variableNode.getAttribute(ID);
+        return variableId.getSymTab().getNestingLevel() == 1;
+    }
+
+    // ======
+    // Moving
+    // ======
+
+    /**
+     * Move the invariants of a statement.
+     * @param statement the statement node.
+     */
+    private void moveStatementInvariants(ICodeNode statement)
+    {
+        ICodeNodeType nodeType = statement.getType();
+
+        if (nodeType == ASSIGN) {
+            ArrayList<ICodeNode> children = statement.getChildren();
+
+            moveVariableInvariants(children.get(0));
+            moveInvariants(children.get(1));
+        }
+        else if (nodeType == CALL) {
+            moveParameterInvariants(statement);
+        }
+    }
+
+    /**
+     * Move the invariants of an expression.
+     * @param node the root node of the expression.
+     * @return the node, or the temporary variable's node that replaced it.
+     */
+    private ICodeNode moveInvariants(ICodeNode node)
+    {
+        if (   isInvariant(node) && isWorthMoving(node)
+            && isScalar(node.getTypeSpec()))
+        {
+            return move(node);
+        }
+
+        ICodeNodeType nodeType = node.getType();
+
+        if (nodeType == VARIABLE) {
+            moveVariableInvariants(node);
+        }
+        else if (nodeType == CALL) {
+            moveParameterInvariants(node);
+        }
+        else {
+            for (ICodeNode child : node.getChildren()) {
+                moveInvariants(child);
+            }
+        }
+
+        return node;
+    }
+
+    /**
+     * Move the invariants of the subscripts of a variable.
+     * @param variableNode the VARIABLE node.
+     */
+    private void moveVariableInvariants(ICodeNode variableNode)
+    {
+        for (ICodeNode modifier : variableNode.getChildren()) {
+            if (modifier.getType() == SUBSCRIPTS) {
+                for (ICodeNode subscript : modifier.getChildren()) {
+                    moveInvariants(subscript);
+                }
+            }
+        }
+    }
+
+    /**
+     * Move the invariants of the actual parameters of a call.  A variable
+     * can be passed by reference, so it's left alone.
+     * @param callNode the CALL node.
+     */
+    private void moveParameterInvariants(ICodeNode callNode)
+    {
+        ArrayList<ICodeNode> children = callNode.getChildren();
+
+        if (children.isEmpty()) {
+            return;
+        }
+
+        for (ICodeNode actualNode : children.get(0).getChildren()) {
+            ICodeNodeType nodeType = actualNode.getType();
+
+            if (nodeType == WRITE_PARM) {
+                moveInvariants(actualNode.getChildren().get(0));
+            }
+            else if (nodeType != VARIABLE) {
+                moveInvariants(actualNode);
+            }
+        }
+    }
+
+    /**
+     * Move an invariant expression into a temporary variable.
+     * @param node the root node of the expression.
+     * @return the temporary variable's node that replaced it.
+     */
+    private ICodeNode move(ICodeNode node)
+    {
+        Object lineNumber = getLineNumber(node);
+        if (lineNumber == null) {
+            return node;
+        }
+
+        TypeSpec type = node.getTypeSpec().baseType();
+        SymTabEntry temporaryId;
+
+        // A program variable: One temporary for all its loads.
+        if (node.getType() == VARIABLE) {
+            SymTabEntry variableId = (SymTabEntry) node.getAttribute(ID);
+
+            temporaryId = loadTemporaries.get(variableId);
+            if (temporaryId == null) {
+                temporaryId = graph.newTemporary(type);
+                loadTemporaries.put(variableId, temporaryId);
+                assignToTemporary(temporaryId,
+                                  createVariableNode(variableId, type),
+                                  lineNumber);
+            }
+
+            return replace(node, createVariableNode(temporaryId, type));
+        }
+
+        // An expression: Its own temporary.
+        else {
+            temporaryId = graph.newTemporary(type);
+            ICodeNode newNode =
+                replace(node, createVariableNode(temporaryId, type));
+            assignToTemporary(temporaryId, node, lineNumber);
+
+            return newNode;
+        }
+    }
+
+    /**
+     * Replace a node with another node in its parent, if it has one.
+     * @param node the node.
+     * @param newNode the other node.
+     * @return the other node.
+     */
+    private ICodeNode replace(ICodeNode node, ICodeNode newNode)
+    {
+        ICodeNode parent = node.getParent();
+
+        if (parent != null) {
+            ArrayList<ICodeNode> siblings = parent.getChildren();
+
+            for (int i = 0; i < siblings.size(); ++i) {
+                if (siblings.get(i).equals(node)) {
+                    parent.setChild(i, newNode);
+                    break;
+                }
+            }
+        }
+
+        return newNode;
+    }
+
+    /**
+     * Assign an expression to a temporary variable at the end of the
+     * block that enters the loop.
+     * @param temporaryId the symbol table entry of the temporary.
+     * @param exprNode the expression node, without a parent.
+     * @param lineNumber the line number of the statement.
+     */
+    private void assignToTemporary(SymTabEntry temporaryId,
+                                   ICodeNode exprNode, Object lineNumber)
+    {
+        preheader.addStatement(
+            createAssignment(temporaryId, exprNode, lineNumber));
+    }
+}
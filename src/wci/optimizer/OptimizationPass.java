@@ -0,0 +1,246 @@
+package wci.optimizer;
+
+import java.util.ArrayList;
+
+import wci.intermediate.*;
+import wci.intermediate.symtabimpl.*;
+
+import static wci.intermediate.symtabimpl.SymTabKeyImpl.*;
+import static wci.intermediate.symtabimpl.RoutineCodeImpl.*;
+import static wci.intermediate.icodeimpl.ICodeNodeTypeImpl.*;
+import static wci.intermediate.icodeimpl.ICodeKeyImpl.*;
+import static wci.intermediate.typeimpl.TypeFormImpl.ENUMERATION;
+
+/**
+ * <h1>OptimizationPass</h1>
+ *
+ * <p>The framework class of a pass of the optimizer.  A pass transforms
+ * the intermediate code of one routine at a time, and it runs at the
+ * optimization levels from its own level up unless it's switched on or
+ * off by name.</p>
+ *
+ * <p>A pass must work with the flat intermediate code, or leave it
+ * alone, and it must not keep anything from one routine to the next.</p>
+ *
+ * <p>The methods at the end are utilities for the passes that move
+ * expressions into temporary variables.</p>
+ *
+ * <p>Copyright (c) 2009 by Ronald Mak</p>
+ * <p>For instructional purposes only.  No warranties.</p>
+ */
+public abstract class OptimizationPass
+{
+    protected CompilationContext context;  // context of this compilation
+    protected SymTabStack symTabStack;     // symbol table stack
+
+    private String name;  // name to switch the pass on or off with
+    private int level;    // lowest optimization level that runs the pass
+
+    /**
+     * Constructor.
+     * @param name the name of the pass.
+     * @param level the lowest optimization level that runs the pass.
+     */
+    protected OptimizationPass(String name, int level)
+    {
+        this.name = name;
+        this.level = level;
+    }
+
+    /**
+     * Getter.
+     * @return the name of the pass.
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * Getter.
+     * @return the lowest optimization level that runs the pass.
+     */
+    public int getLevel()
+    {
+        return level;
+    }
+
+    /**
+     * Set the compilation that the pass optimizes.  Called by the
+     * optimizer before the pass runs.
+     * @param context the context of the compilation.
+     * @param symTabStack the symbol table stack.
+     */
+    void setCompilation(CompilationContext context, SymTabStack symTabStack)
+    {
+        this.context = context;
+        this.symTabStack = symTabStack;
+    }
+
+    /**
+     * Optimize the intermediate code of a routine.  To be implemented
+     * by each pass.
+     * @param routineId the symbol table entry of the routine's name.
+     * @param iCode the routine's intermediate code.
+     * @throws Exception if an error occurred.
+     */
+    public abstract void process(SymTabEntry routineId, ICode iCode)
+        throws Exception;
+
+    // =========
+    // Utilities
+    // =========
+
+    /**
+     * @param variableId the symbol table entry of a variable that isn't
+     *                   in SSA form.
+     * @return the key that identifies the variable's storage: the entry
+     *         of a program or temporary variable, and the slot of any
+     *         other.
+     */
+    protected Object variableKey(SymTabEntry variableId)
+    {
+        int slot = variableId.getSlot();
+
+        return    (variableId.getSymTab().getNestingLevel() == 1)
+               || (slot == SymTabEntry.NO_SLOT)
+                   ? variableId : (Object) slot;
+    }
+
+    /**
+     * @param callNode a CALL node.
+     * @return the symbol table entries of the variables that the call
+     *         can change through its actual parameters:  the variables
+     *         read by read or readln, and the variables passed to VAR
+     *         parameters.
+     */
+    protected ArrayList<SymTabEntry> changedParameters(ICodeNode callNode)
+    {
+        SymTabEntry routineId = (SymTabEntry) callNode.getAttribute(ID);
+        RoutineCode routineCode =
+            (RoutineCode) routineId.getAttribute(ROUTINE_CODE);
+        @SuppressWarnings("unchecked")
+        ArrayList<SymTabEntry> formalIds =
+            (ArrayList<SymTabEntry>) routineId.getAttribute(ROUTINE_PARMS);
+        ArrayList<ICodeNode> children = callNode.getChildren();
+        boolean isRead = (routineCode == READ) || (routineCode == READLN);
+        ArrayList<SymTabEntry> variableIds = new ArrayList<SymTabEntry>();
+
+        if (children.isEmpty()) {
+            return variableIds;
+        }
+
+        ArrayList<ICodeNode> actualNodes = children.get(0).getChildren();
+
+        for (int i = 0; i < actualNodes.size(); ++i) {
+            ICodeNode actualNode = actualNodes.get(i);
+            boolean isVarParm =    (formalIds != null) && (i < formalIds.size())
+                                && (formalIds.get(i).getDefinition()
+                                        == DefinitionImpl.VAR_PARM);
+
+            if (   (isRead || isVarParm) && (actualNode.getType() == VARIABLE)
+                && actualNode.getChildren().isEmpty())
+            {
+                variableIds.add((SymTabEntry) actualNode.getAttribute(ID));
+            }
+        }
+
+        return variableIds;
+    }
+
+    /**
+     * @param type a data type, or null.
+     * @return true if it's an integer, real, boolean, character, or
+     *         enumeration type.
+     */
+    protected boolean isScalar(TypeSpec type)
+    {
+        if (type == null) {
+            return false;
+        }
+
+        type = type.baseType();
+
+        return    (type == Predefined.integerType)
+               || (type == Predefined.realType)
+               || (type == Predefined.booleanType)
+               || (type == Predefined.charType)
+               || (type.getForm() == ENUMERATION);
+    }
+
+    /**
+     * @param node an expression node.
+     * @return true if there's a VARIABLE node in its tree.
+     */
+    protected boolean hasVariable(ICodeNode node)
+    {
+        if (node.getType() == VARIABLE) {
+            return true;
+        }
+
+        for (ICodeNode child : node.getChildren()) {
+            if (hasVariable(child)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Create an assignment to a temporary variable.
+     * @param temporaryId the symbol table entry of the temporary.
+     * @param exprNode the expression node, without a parent.
+     * @param lineNumber the line number of the statement.
+     * @return the ASSIGN node.
+     */
+    protected ICodeNode createAssignment(SymTabEntry temporaryId,
+                                         ICodeNode exprNode,
+                                         Object lineNumber)
+    {
+        TypeSpec type = temporaryId.getTypeSpec();
+        ICodeNode assignNode = ICodeFactory.createICodeNode(context, ASSIGN);
+
+        assignNode.setTypeSpec(type);
+        assignNode.setAttribute(LINE, lineNumber);
+        assignNode.addChild(createVariableNode(temporaryId, type));
+        assignNode.addChild(exprNode);
+
+        return assignNode;
+    }
+
+    /**
+     * Create a VARIABLE node.
+     * @param variableId the symbol table entry of the variable.
+     * @param type the data type of the node.
+     * @return the node.
+     */
+    protected ICodeNode createVariableNode(SymTabEntry variableId,
+                                           TypeSpec type)
+    {
+        ICodeNode variableNode = ICodeFactory.createICodeNode(context,
+                                                              VARIABLE);
+        variableNode.setAttribute(ID, variableId);
+        variableNode.setTypeSpec(type);
+
+        return variableNode;
+    }
+
+    /**
+     * @param node a node.
+     * @return the line number of the node's statement, or null.
+     */
+    protected Object getLineNumber(ICodeNode node)
+    {
+        Object lineNumber = null;
+
+        // Go up the parent links to look for a line number.
+        while (   (node != null)
+               && ((lineNumber = node.getAttribute(LINE)) == null))
+        {
+            node = node.getParent();
+        }
+
+        return lineNumber;
+    }
+}
@@ -0,0 +1,282 @@
+package wci.optimizer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import wci.intermediate.*;
+import wci.intermediate.flowgraph.*;
+import wci.message.*;
+
+import static wci.intermediate.symtabimpl.SymTabKeyImpl.*;
+import static wci.message.MessageType.OPTIMIZER_PASS;
+
+/**
+ * <h1>Optimizer</h1>
+ *
+ * <p>The pass manager between the parser and the back end.  It runs the
+ * registered passes in order over the intermediate code of every routine.
+ * The optimization level picks the passes, and the passes can also be
+ * switched on or off by name.  After each pass, it sends a message with
+ * the time the pass took and the count of nodes before and after.</p>
+ *
+ * <p>The options are the command line's -O options without the -O:
+ * a level 0, 1, or 2, a pass name to switch the pass on, or "no-" and
+ * a pass name to switch it off.  The default level is 0, which runs
+ * only the passes that are switched on.</p>
+ *
+ * <p>Copyright (c) 2009 by Ronald Mak</p>
+ * <p>For instructional purposes only.  No warranties.</p>
+ */
+public class Optimizer implements MessageProducer
+{
+    public static final int MAX_LEVEL = 2;
+
+    private static final String OFF_PREFIX = "no-";
+
+    private CompilationContext context;     // context of this compilation
+    private MessageHandler messageHandler;  // message handler delegate
+
+    private ArrayList<OptimizationPass> passes;  // passes in order
+    private HashMap<String, Boolean> switches;   // pass name to on or off
+    private int level;                           // optimization level
+
+    /**
+     * Constructor.
+     * @param context the context of the compilation.
+     */
+    public Optimizer(CompilationContext context)
+    {
+        this.context = context;
+        this.messageHandler = new MessageHandler();
+        this.passes = new ArrayList<OptimizationPass>();
+        this.switches = new HashMap<String, Boolean>();
+        this.level = 0;
+
+        // The standard passes, in the order they run.
+        register(new ConstantFolder());
+        register(new SsaConverter());
+        register(new LoopInvariantMover());
+        register(new CommonSubexpressionEliminator());
+    }
+
+    /**
+     * Register a pass after the ones already registered.
+     * @param pass the pass.
+     */
+    public void register(OptimizationPass pass)
+    {
+        passes.add(pass);
+    }
+
+    /**
+     * Getter.
+     * @return the optimization level.
+     */
+    public int getLevel()
+    {
+        return level;
+    }
+
+    /**
+     * Set the options.  A later option overrides an earlier one.
+     * @param options the options.
+     * @throws IllegalArgumentException if an option isn't a level or the
+     *         name of a registered pass.
+     */
+    public void setOptions(List<String> options)
+    {
+        for (String option : options) {
+            setOption(option);
+        }
+    }
+
+    /**
+     * Set an option.
+     * @param option the option.
+     * @throws IllegalArgumentException if the option isn't a level or the
+     *         name of a registered pass.
+     */
+    public void setOption(String option)
+    {
+        if (option.matches("[0-9]")) {
+            int newLevel = Integer.parseInt(option);
+
+            if (newLevel <= MAX_LEVEL) {
+                level = newLevel;
+                return;
+            }
+        }
+        else {
+            boolean on = !option.startsWith(OFF_PREFIX);
+            String name = on ? option : option.substring(OFF_PREFIX.length());
+
+            for (OptimizationPass pass : passes) {
+                if (pass.getName().equals(name)) {
+                    switches.put(name, on);
+                    return;
+                }
+            }
+        }
+
+        throw new IllegalArgumentException(
+            "Unknown optimization option -O" + option);
+    }
+
+    /**
+     * @param pass a registered pass.
+     * @return true if the pass runs.
+     */
+    public boolean isEnabled(OptimizationPass pass)
+    {
+        Boolean on = switches.get(pass.getName());
+        return on != null ? on : pass.getLevel() <= level;
+    }
+
+    /**
+     * Run the enabled passes over the intermediate code of every routine.
+     * @param symTabStack the symbol table stack.
+     * @throws Exception if an error occurred.
+     */
+    public void process(SymTabStack symTabStack)
+        throws Exception
+    {
+        ArrayList<SymTabEntry> routineIds = new ArrayList<SymTabEntry>();
+        collectRoutines(symTabStack.getProgramId(), routineIds);
+
+        int nodeCounts[] = null;  // by routine, counted when first needed
+
+        for (OptimizationPass pass : passes) {
+            if (!isEnabled(pass)) {
+                continue;
+            }
+
+            if (nodeCounts == null) {
+                nodeCounts = new int[routineIds.size()];
+                for (int i = 0; i < routineIds.size(); ++i) {
+                    nodeCounts[i] = countNodes(routineIds.get(i));
+                }
+            }
+
+            pass.setCompilation(context, symTabStack);
+
+            int nodesBefore = 0;
+            int nodesAfter = 0;
+            long elapsedTime = 0;
+
+            for (int i = 0; i < routineIds.size(); ++i) {
+                SymTabEntry routineId = routineIds.get(i);
+                ICode iCode = (ICode) routineId.getAttribute(ROUTINE_ICODE);
+
+                long startTime = System.nanoTime();
+                pass.process(routineId, iCode);
+                elapsedTime += System.nanoTime() - startTime;
+
+                nodesBefore += nodeCounts[i];
+                nodeCounts[i] = countNodes(routineId);
+                nodesAfter += nodeCounts[i];
+            }
+
+            sendMessage(new Message(OPTIMIZER_PASS,
+                                    new Object[] {pass.getName(),
+                                                  nodesBefore,
+                                                  nodesAfter,
+                                                  elapsedTime/1e9f}));
+        }
+    }
+
+    /**
+     * Collect a routine that has intermediate code, and the routines
+     * defined in it.
+     * @param routineId the symbol table entry of the routine's name.
+     * @param routineIds the list to add the routines to.
+     */
+    private void collectRoutines(SymTabEntry routineId,
+                                 ArrayList<SymTabEntry> routineIds)
+    {
+        ICode iCode = (ICode) routineId.getAttribute(ROUTINE_ICODE);
+        if ((iCode != null) && (iCode.getRoot() != null)) {
+            routineIds.add(routineId);
+        }
+
+        @SuppressWarnings("unchecked")
+        ArrayList<SymTabEntry> subroutineIds =
+            (ArrayList<SymTabEntry>) routineId.getAttribute(ROUTINE_ROUTINES);
+        if (subroutineIds != null) {
+            for (SymTabEntry subroutineId : subroutineIds) {
+                collectRoutines(subroutineId, routineIds);
+            }
+        }
+    }
+
+    /**
+     * @param routineId the symbol table entry of a routine's name.
+     * @return the count of nodes in the routine's intermediate code,
+     *         which is its flow graph if it has one.
+     */
+    private int countNodes(SymTabEntry routineId)
+    {
+        FlowGraph graph = (FlowGraph) routineId.getAttribute(ROUTINE_FLOW_GRAPH);
+
+        if (graph != null) {
+            int count = 0;
+
+            for (BasicBlock block : graph.getBlocks()) {
+                for (ICodeNode statement : block.getStatements()) {
+                    count += countNodes(statement);
+                }
+                count += countNodes(block.getCondition());
+            }
+
+            return count;
+        }
+
+        ICode iCode = (ICode) routineId.getAttribute(ROUTINE_ICODE);
+        return countNodes(iCode.getRoot());
+    }
+
+    /**
+     * @param node a node, or null.
+     * @return the count of nodes in the tree rooted at the node.
+     */
+    private int countNodes(ICodeNode node)
+    {
+        if (node == null) {
+            return 0;
+        }
+
+        int count = 1;
+        for (ICodeNode child : node.getChildren()) {
+            count += countNodes(child);
+        }
+
+        return count;
+    }
+
+    /**
+     * Notify listeners after setting the message.
+     * @param message the message to set.
+     */
+    public void sendMessage(Message message)
+    {
+        messageHandler.sendMessage(message);
+    }
+
+    /**
+     * Add an optimizer message listener.
+     * @param listener the message listener to add.
+     */
+    public void addMessageListener(MessageListener listener)
+    {
+        messageHandler.addListener(listener);
+    }
+
+    /**
+     * Remove an optimizer message listener.
+     * @param listener the message listener to remove.
+     */
+    public void removeMessageListener(MessageListener listener)
+    {
+        messageHandler.removeListener(listener);
+    }
+}
@@ -0,0 +1,47 @@
+package wci.optimizer;
+
+import wci.intermediate.*;
+import wci.intermediate.flowgraph.*;
+
+import static wci.intermediate.symtabimpl.SymTabKeyImpl.*;
+
+/**
+ * <h1>SsaConverter</h1>
+ *
+ * <p>An optimization pass that lowers the parse tree of a routine into
+ * a flow graph with its scalar local variables in SSA form, verifies the
+ * graph, and sets it as the routine's ROUTINE_FLOW_GRAPH attribute.  The
+ * code generator then generates the routine from the graph, and the
+ * passes after this one can work on the graph.</p>
+ *
+ * <p>Copyright (c) 2009 by Ronald Mak</p>
+ * <p>For instructional purposes only.  No warranties.</p>
+ */
+public class SsaConverter extends OptimizationPass
+{
+    public static final String NAME = "ssa";
+
+    /**
+     * Constructor.
+     */
+    public SsaConverter()
+    {
+        super(NAME, 2);
+    }
+
+    /**
+     * Build the flow graph of a routine.
+     * @param routineId the symbol table entry of the routine's name.
+     * @param iCode the routine's intermediate code.
+     */
+    public void process(SymTabEntry routineId, ICode iCode)
+    {
+        FlowGraph graph =
+            new FlowGraphBuilder(context).build(routineId, iCode.getRoot());
+
+        new SsaBuilder(graph).build();
+        new FlowGraphVerifier(graph).verify();
+
+        routineId.setAttribute(ROUTINE_FLOW_GRAPH, graph);
+    }
+}
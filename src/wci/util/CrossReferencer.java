@@ -1,5 +1,6 @@
 package wci.util;
 
+import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -38,13 +39,32 @@ public class CrossReferencer
         for (int i = 0; i < INDENT_WIDTH; ++i) INDENT.append(" ");
     }
 
+    private PrintStream ps;  // output print stream
+
+    /**
+     * Constructor.
+     */
+    public CrossReferencer()
+    {
+        this(System.out);
+    }
+
+    /**
+     * Constructor.
+     * @param ps the output print stream.
+     */
+    public CrossReferencer(PrintStream ps)
+    {
+        this.ps = ps;
+    }
+
     /**
      * Print the cross-reference table.
      * @param symTabStack the symbol table stack.
      */
     public void print(SymTabStack symTabStack)
     {
-        System.out.println("\n===== CROSS-REFERENCE TABLE =====");
+        ps.println("\n===== CROSS-REFERENCE TABLE =====");
 
         SymTabEntry programId = symTabStack.getProgramId();
         printRoutine(programId);
@@ -57,7 +77,7 @@ public class CrossReferencer
     private void printRoutine(SymTabEntry routineId)
     {
         Definition definition = routineId.getDefinition();
-        System.out.println("\n*** " + definition.toString() +
+        ps.println("\n*** " + definition.toString() +
                            " " + routineId.getName() + " ***");
         printColumnHeadings();
 
@@ -86,10 +106,10 @@ public class CrossReferencer
      */
     private void printColumnHeadings()
     {
-        System.out.println();
-        System.out.println(String.format(NAME_FORMAT, "Identifier")
+        ps.println();
+        ps.println(String.format(NAME_FORMAT, "Identifier")
                            + NUMBERS_LABEL +     "Type specification");
-        System.out.println(String.format(NAME_FORMAT, "----------")
+        ps.println(String.format(NAME_FORMAT, "----------")
                            + NUMBERS_UNDERLINE + "------------------");
     }
 
@@ -103,19 +123,19 @@ public class CrossReferencer
         // Loop over the sorted list of symbol table entries.
         ArrayList<SymTabEntry> sorted = symTab.sortedEntries();
         for (SymTabEntry entry : sorted) {
-            ArrayList<Integer> lineNumbers = entry.getLineNumbers();
+            int lineNumbers[] = entry.getLineNumbers();
 
             // For each entry, print the identifier name
             // followed by the line numbers.
-            System.out.print(String.format(NAME_FORMAT, entry.getName()));
+            ps.print(String.format(NAME_FORMAT, entry.getName()));
             if (lineNumbers != null) {
-                for (Integer lineNumber : lineNumbers) {
-                    System.out.print(String.format(NUMBER_FORMAT, lineNumber));
+                for (int lineNumber : lineNumbers) {
+                    ps.print(String.format(NUMBER_FORMAT, lineNumber));
                 }
             }
 
             // Print the symbol table entry.
-            System.out.println();
+            ps.println();
             printEntry(entry, recordTypes);
         }
     }
@@ -130,11 +150,11 @@ public class CrossReferencer
         Definition definition = entry.getDefinition();
         int nestingLevel = entry.getSymTab().getNestingLevel();
         if (definition == null) {
-        	System.out.println(entry);
+        	ps.println(entry);
         	return;
         }
-        System.out.println(INDENT + "Defined as: " + definition.getText());
-        System.out.println(INDENT + "Scope nesting level: " + nestingLevel);
+        ps.println(INDENT + "Defined as: " + definition.getText());
+        ps.println(INDENT + "Scope nesting level: " + nestingLevel);
 
         if (entry.getAttribute(ROUTINE_PARMS) != null) {
           StringBuilder sb = new StringBuilder(INDENT + "Parameters: (");
@@ -148,7 +168,7 @@ public class CrossReferencer
             s = s.substring(0, sb.length() - 2);
           }
           s += ")";
-          System.out.println(s);
+          ps.println(s);
         }
         // Print the type specification.
         TypeSpec type = entry.getTypeSpec();
@@ -158,7 +178,7 @@ public class CrossReferencer
 
             case CONSTANT: {
                 Object value = entry.getAttribute(CONSTANT_VALUE);
-                System.out.println(INDENT + "Value = " + toString(value));
+                ps.println(INDENT + "Value = " + toString(value));
 
                 // Print the type details only if the type is unnamed.
                 if (type.getIdentifier() == null) {
@@ -170,7 +190,7 @@ public class CrossReferencer
 
             case ENUMERATION_CONSTANT: {
                 Object value = entry.getAttribute(CONSTANT_VALUE);
-                System.out.println(INDENT + "Value = " + toString(value));
+                ps.println(INDENT + "Value = " + toString(value));
 
                 break;
             }
@@ -187,7 +207,7 @@ public class CrossReferencer
 
             case VARIABLE: {
                 //Object value = entry.getAttribute(CONSTANT_VALUE);
-                //System.out.println(INDENT + "Value = " + toString(value));
+                //ps.println(INDENT + "Value = " + toString(value));
 
                 // Print the type details only if the type is unnamed.
                 if (type.getIdentifier() == null) {
@@ -210,7 +230,7 @@ public class CrossReferencer
             SymTabEntry typeId = type.getIdentifier();
             String typeName = typeId != null ? typeId.getName() : "<unnamed>";
 
-            System.out.println(INDENT + "Type form = " + form +
+            ps.println(INDENT + "Type form = " + form +
                                ", Type id = " + typeName);
         }
     }
@@ -232,14 +252,14 @@ public class CrossReferencer
                 ArrayList<SymTabEntry> constantIds = (ArrayList<SymTabEntry>)
                     type.getAttribute(ENUMERATION_CONSTANTS);
 
-                System.out.println(INDENT + "--- Enumeration constants ---");
+                ps.println(INDENT + "--- Enumeration constants ---");
 
                 // Print each enumeration constant and its value.
                 for (SymTabEntry constantId : constantIds) {
                     String name = constantId.getName();
                     Object value = constantId.getAttribute(CONSTANT_VALUE);
 
-                    System.out.println(INDENT + String.format(ENUM_CONST_FORMAT,
+                    ps.println(INDENT + String.format(ENUM_CONST_FORMAT,
                                                               name, value));
                 }
 
@@ -252,7 +272,7 @@ public class CrossReferencer
                 TypeSpec baseTypeSpec =
                     (TypeSpec) type.getAttribute(SUBRANGE_BASE_TYPE);
 
-                System.out.println(INDENT + "--- Base type ---");
+                ps.println(INDENT + "--- Base type ---");
                 printType(baseTypeSpec);
 
                 // Print the base type details only if the type is unnamed.
@@ -260,8 +280,8 @@ public class CrossReferencer
                     printTypeDetail(baseTypeSpec, recordTypes);
                 }
 
-                System.out.print(INDENT + "Range = ");
-                System.out.println(toString(minValue) + ".." +
+                ps.print(INDENT + "Range = ");
+                ps.println(toString(minValue) + ".." +
                                    toString(maxValue));
 
                 break;
@@ -274,7 +294,7 @@ public class CrossReferencer
                     (TypeSpec) type.getAttribute(ARRAY_ELEMENT_TYPE);
                 int count = (Integer) type.getAttribute(ARRAY_ELEMENT_COUNT);
 
-                System.out.println(INDENT + "--- INDEX TYPE ---");
+                ps.println(INDENT + "--- INDEX TYPE ---");
                 printType(indexType);
 
                 // Print the index type details only if the type is unnamed.
@@ -282,9 +302,9 @@ public class CrossReferencer
                     printTypeDetail(indexType, recordTypes);
                 }
 
-                System.out.println(INDENT + "--- ELEMENT TYPE ---");
+                ps.println(INDENT + "--- ELEMENT TYPE ---");
                 printType(elementType);
-                System.out.println(INDENT.toString() + count + " elements");
+                ps.println(INDENT.toString() + count + " elements");
 
                 // Print the element type details only if the type is unnamed.
                 if (elementType.getIdentifier() == null) {
@@ -311,7 +331,7 @@ public class CrossReferencer
             SymTabEntry recordId = recordType.getIdentifier();
             String name = recordId != null ? recordId.getName() : "<unnamed>";
 
-            System.out.println("\n--- RECORD " + name + " ---");
+            ps.println("\n--- RECORD " + name + " ---");
             printColumnHeadings();
 
             // Print the entries in the record's symbol table.
@@ -68,13 +68,13 @@ public class ParseTreePrinter
     private void printRoutine(SymTabEntry routineId)
     {
         Definition definition = routineId.getDefinition();
-        System.out.println("\n*** " + definition.toString() +
+        ps.println("\n*** " + definition.toString() +
                            " " + routineId.getName() + " ***\n");
 
         // Print the intermediate code in the routine's symbol table entry.
         ICode iCode = (ICode) routineId.getAttribute(ROUTINE_ICODE);
         if (iCode.getRoot() != null) {
-        printNode((ICodeNodeImpl) iCode.getRoot());
+        printNode(iCode.getRoot());
     }
 
         // Print any procedures and functions defined in the routine.
@@ -91,7 +91,7 @@ public class ParseTreePrinter
      * Print a parse tree node.
      * @param node the parse tree node.
      */
-    private void printNode(ICodeNodeImpl node)
+    private void printNode(ICodeNode node)
     {
         // Opening tag.
         append(indentation); append("<" + node.toString());
@@ -122,12 +122,13 @@ public class ParseTreePrinter
      * Print a parse tree node's attributes.
      * @param node the parse tree node.
      */
-    private void printAttributes(ICodeNodeImpl node)
+    private void printAttributes(ICodeNode node)
     {
         String saveIndentation = indentation;
         indentation += indent;
 
-        Set<Map.Entry<ICodeKey, Object>> attributes = node.entrySet();
+        Set<Map.Entry<ICodeKey, Object>> attributes =
+            node.getAttributes().entrySet();
         Iterator<Map.Entry<ICodeKey, Object>> it = attributes.iterator();
 
         // Iterate to print each attribute.
@@ -159,8 +160,8 @@ public class ParseTreePrinter
         if (isSymTabEntry) {
             int level = ((SymTabEntry) value).getSymTab().getNestingLevel();
             printAttribute("LEVEL", level);
-            Integer slot = (Integer) ((SymTabEntry) value).getAttribute(SLOT);
-            if (slot != null) {
+            int slot = ((SymTabEntry) value).getSlot();
+            if (slot != SymTabEntry.NO_SLOT) {
             	printAttribute("SLOT", slot);
             }
         }
@@ -176,7 +177,7 @@ public class ParseTreePrinter
         indentation += indent;
 
         for (ICodeNode child : childNodes) {
-            printNode((ICodeNodeImpl) child);
+            printNode(child);
         }
 
         indentation = saveIndentation;
@@ -186,7 +187,7 @@ public class ParseTreePrinter
      * Print a parse tree node's type specification.
      * @param node the parse tree node.
      */
-    private void printTypeSpec(ICodeNodeImpl node)
+    private void printTypeSpec(ICodeNode node)
     {
       TypeSpec typeSpec = node.getTypeSpec();
 
@@ -0,0 +1,90 @@
+int g;
+int twice(int n)
+{
+    n = n + n;
+    g = g + 1;
+    return n;
+}
+int collatz(int n)
+{
+    int steps;
+    steps = 0;
+    while (n != 1) {
+        if (n % 2 == 0) {
+            n = n / 2;
+        }
+        else {
+            n = 3*n + 1;
+        }
+        steps = steps + 1;
+    }
+    return steps;
+}
+int main(){
+    int a, b, t, i, j, s;
+    float x;
+
+    // The swap problem: the phis of a and b swap their values.
+    a = 1;
+    b = 2;
+    i = 0;
+    while (i < 5) {
+        t = a;
+        a = b;
+        b = t;
+        i = i + 1;
+    }
+    writeln(a, " ", b);
+
+    // The lost copy problem: the old value of a is used after the loop.
+    a = 1;
+    t = 0;
+    i = 0;
+    while (i < 4) {
+        t = a;
+        a = a + i;
+        i = i + 1;
+    }
+    writeln(t, " ", a);
+
+    // Values that are defined in one branch only.
+    s = 0;
+    i = 0;
+    while (i < 10) {
+        if (i % 3 == 0) {
+            s = s + i;
+        }
+        else {
+            if (i % 3 == 1) {
+                s = s - 1;
+            }
+        }
+        i = i + 1;
+    }
+    writeln(s);
+
+    // Nested loops.
+    s = 0;
+    i = 0;
+    while (i < 4) {
+        j = i;
+        do {
+            s = s + i*j;
+            j = j + 1;
+        } while (j == 4);
+        i = i + 1;
+    }
+    writeln(s);
+
+    // Parameters, globals, and floats.
+    g = 0;
+    a = twice(3) + twice(twice(1));
+    x = 1.0;
+    i = 0;
+    while (i < 3) {
+        x = x*2.0 + 0.5;
+        i = i + 1;
+    }
+    writeln(a, " ", g, " ", x, " ", collatz(27));
+    return 0;
+}